@@ -0,0 +1,134 @@
+package com.mlorenc.slack.jira.bot.core;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.util.LogbackMDCAdapter;
+import ch.qos.logback.core.OutputStreamAppender;
+import ch.qos.logback.core.util.Duration;
+import net.logstash.logback.encoder.LogstashEncoder;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedOutputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Request-thread latency of one structured log line per simulated request: {@code sync} is the
+ * previous setup (encoder and one stdout write per event on the caller), {@code async} the ring
+ * buffer from logback-spring.xml, {@code sampled} the same with the event kept one in ten and
+ * {@code none} the request work alone. Output goes to {@code /dev/null}; {@code writeLatencyMicros}
+ * makes every write call block first, as a stdout pipe does when its reader falls behind.
+ * The consumer thread needs a core of its own for the async numbers to mean anything. Run with
+ * {@code ./gradlew jmh -Pjmh.includes=LoggingPipelineBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoggingPipelineBenchmark {
+
+    // roughly the CPU a short request spends outside logging
+    private static final long REQUEST_WORK = 2_000;
+
+    @Param({"none", "sync", "async", "sampled"})
+    public String pipeline;
+
+    @Param({"0", "200"})
+    public int writeLatencyMicros;
+
+    private LoggerContext context;
+    private Logger logger;
+
+    @Setup
+    public void setUp() throws FileNotFoundException {
+        context = new LoggerContext();
+        context.setMDCAdapter(new LogbackMDCAdapter());
+        logger = context.getLogger("benchmark");
+        logger.setAdditive(false);
+        if (pipeline.equals("none")) {
+            logger.setLevel(ch.qos.logback.classic.Level.OFF);
+            return;
+        }
+
+        OutputStream stdout = new SlowOutputStream(new FileOutputStream("/dev/null"), writeLatencyMicros);
+        OutputStreamAppender<ILoggingEvent> output = pipeline.equals("sync") ? new OutputStreamAppender<>() : new BufferedStdoutAppender();
+        LogstashEncoder encoder = new LogstashEncoder();
+        encoder.setContext(context);
+        encoder.start();
+        output.setContext(context);
+        output.setEncoder(encoder);
+        if (pipeline.equals("sync")) {
+            output.setOutputStream(stdout);
+            output.start();
+            logger.addAppender(output);
+            return;
+        }
+        output.start();
+        output.setOutputStream(new BufferedOutputStream(stdout, 64 * 1024));
+
+        AsyncLogAppender async = new AsyncLogAppender();
+        async.setContext(context);
+        async.setRingBufferSize(8192);
+        async.setAppendTimeout(Duration.buildByMilliseconds(0));
+        async.addAppender(output);
+        if (pipeline.equals("sampled")) {
+            EventSamplingFilter filter = new EventSamplingFilter();
+            filter.setPolicies("slack.command.jira.connect=10");
+            async.addFilter(filter);
+        }
+        async.start();
+        logger.addAppender(async);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.stop();
+        System.out.println();
+        System.out.println("log events: " + AsyncLogAppender.stats() + ", sampled out " + EventSamplingFilter.sampledOut());
+    }
+
+    @Benchmark
+    public void request() {
+        Blackhole.consumeCPU(REQUEST_WORK);
+        logger.atInfo()
+                .addKeyValue("event", "slack.command.jira.connect")
+                .addKeyValue("slackUserId", "U123456")
+                .addKeyValue("teamId", "T123456")
+                .log("Created Jira connect link");
+    }
+
+    private static final class SlowOutputStream extends OutputStream {
+
+        private final OutputStream delegate;
+        private final long latencyNanos;
+
+        SlowOutputStream(OutputStream delegate, int latencyMicros) {
+            this.delegate = delegate;
+            this.latencyNanos = TimeUnit.MICROSECONDS.toNanos(latencyMicros);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            if (latencyNanos > 0) LockSupport.parkNanos(latencyNanos);
+            delegate.write(bytes, offset, length);
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+}
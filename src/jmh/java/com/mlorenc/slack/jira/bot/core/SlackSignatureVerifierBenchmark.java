@@ -0,0 +1,68 @@
+package com.mlorenc.slack.jira.bot.core;
+
+import org.openjdk.jmh.annotations.*;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the original string-based signature check with {@link SlackSignatureVerifier}.
+ * Run with {@code ./gradlew jmh}; the gc profiler configured in build.gradle reports the
+ * allocation rate per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SlackSignatureVerifierBenchmark {
+
+    private static final String SECRET = "8f742231b10e8888abcd99yyyzzz85a5";
+
+    @Param({"1024", "16384", "262144"})
+    private int payloadSize;
+
+    private final LegacySlackSignatureVerifier legacy = new LegacySlackSignatureVerifier();
+    private final SlackSignatureVerifier verifier = new SlackSignatureVerifier();
+
+    private String body;
+    private byte[] bodyBytes;
+    private String timestamp;
+    private String signature;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws Exception {
+        char[] chars = new char[payloadSize];
+        Arrays.fill(chars, 'a');
+        body = "payload=" + new String(chars, 0, payloadSize - "payload=".length());
+        bodyBytes = body.getBytes(StandardCharsets.UTF_8);
+        // refreshed per iteration so the replay window never rejects the request mid-run
+        timestamp = String.valueOf(Instant.now().getEpochSecond());
+
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        signature = "v0=" + HexFormat.of().formatHex(
+                mac.doFinal(("v0:" + timestamp + ":" + body).getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Benchmark
+    public boolean legacyString() {
+        return legacy.verify(SECRET, timestamp, signature, body);
+    }
+
+    @Benchmark
+    public boolean cachedMacString() {
+        return verifier.verify(SECRET, timestamp, signature, body);
+    }
+
+    @Benchmark
+    public boolean cachedMacBytes() {
+        return verifier.verify(SECRET, timestamp, signature, bodyBytes, 0, bodyBytes.length);
+    }
+}
@@ -0,0 +1,91 @@
+package com.mlorenc.slack.jira.bot.core;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Compares the original split/stream/URLDecoder form parsing with {@link UrlEncodedForm} on
+ * bodies shaped like real Slack slash commands and view submissions.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UrlEncodedFormBenchmark {
+
+    private static final String COMMAND_BODY = "token=gIkuvaNzQIHg97ATvDxqgjtO&team_id=T0001&team_domain=example"
+            + "&enterprise_id=E0001&enterprise_name=Globular%20Construct%20Inc&channel_id=C2147483705"
+            + "&channel_name=test&user_id=U2147483697&user_name=Steve&command=%2Fjira&text=connect"
+            + "&response_url=https%3A%2F%2Fhooks.slack.com%2Fcommands%2F1234%2F5678"
+            + "&trigger_id=13345224609.738474920.8088930838d88f008e0&api_app_id=A123456";
+
+    private String commandBody;
+    private byte[] commandBytes;
+    private byte[] interactionBytes;
+    private String interactionBody;
+
+    @Setup
+    public void setUp() {
+        commandBody = COMMAND_BODY;
+        commandBytes = COMMAND_BODY.getBytes(StandardCharsets.UTF_8);
+
+        StringBuilder blocks = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            if (i > 0) blocks.append(',');
+            blocks.append("{\"type\":\"section\",\"block_id\":\"b").append(i)
+                    .append("\",\"text\":{\"type\":\"mrkdwn\",\"text\":\"Row ").append(i).append(" – ok\"}}");
+        }
+        String payload = "{\"type\":\"view_submission\",\"team\":{\"id\":\"T0001\"},\"user\":{\"id\":\"U1\"},"
+                + "\"view\":{\"id\":\"V1\",\"callback_id\":\"jira_mapping_submit\",\"blocks\":[" + blocks + "],"
+                + "\"state\":{\"values\":{\"project_block\":{\"project_input\":{\"type\":\"plain_text_input\",\"value\":\"ABC\"}}}}}}";
+        interactionBody = "payload=" + URLEncoder.encode(payload, StandardCharsets.UTF_8);
+        interactionBytes = interactionBody.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public void legacyCommand(Blackhole bh) {
+        Map<String, String> form = legacyParse(commandBody);
+        bh.consume(form.getOrDefault("command", ""));
+        bh.consume(form.getOrDefault("text", ""));
+        bh.consume(form.getOrDefault("trigger_id", ""));
+        bh.consume(form.getOrDefault("user_id", ""));
+    }
+
+    @Benchmark
+    public void lazyCommand(Blackhole bh) {
+        UrlEncodedForm form = UrlEncodedForm.of(commandBytes, 0, commandBytes.length);
+        bh.consume(form.getOrDefault("command", ""));
+        bh.consume(form.getOrDefault("text", ""));
+        bh.consume(form.getOrDefault("trigger_id", ""));
+        bh.consume(form.getOrDefault("user_id", ""));
+    }
+
+    @Benchmark
+    public String legacyInteraction() {
+        return legacyParse(interactionBody).get("payload");
+    }
+
+    @Benchmark
+    public String lazyInteraction() {
+        return UrlEncodedForm.of(interactionBytes, 0, interactionBytes.length).get("payload");
+    }
+
+    private static Map<String, String> legacyParse(String rawBody) {
+        return Arrays.stream(rawBody.split("&"))
+                .map(kv -> kv.split("=", 2))
+                .collect(Collectors.toMap(
+                        kv -> URLDecoder.decode(kv[0], StandardCharsets.UTF_8),
+                        kv -> kv.length > 1 ? URLDecoder.decode(kv[1], StandardCharsets.UTF_8) : "",
+                        (a, b) -> b));
+    }
+}
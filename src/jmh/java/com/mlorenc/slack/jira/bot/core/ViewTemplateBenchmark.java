@@ -0,0 +1,80 @@
+package com.mlorenc.slack.jira.bot.core;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the original text-block {@code formatted} + {@code escapeJson} modal building with a
+ * precompiled {@link ViewTemplate}. Both produce the UTF-8 request body that is sent to Slack.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ViewTemplateBenchmark {
+
+    private final ObjectMapper om = new ObjectMapper();
+    private ViewTemplate template;
+    private String triggerId;
+    private String authorizeUrl;
+
+    @Setup
+    public void setUp() {
+        template = ViewTemplate.load(om, "slack/views/connect-modal.json");
+        triggerId = "13345224609.738474920.8088930838d88f008e0";
+        authorizeUrl = "https://auth.atlassian.com/authorize?audience=api.atlassian.com&client_id=abc123"
+                + "&scope=read%3Ajira-user%20read%3Ajira-work%20write%3Ajira-work%20offline_access"
+                + "&redirect_uri=https%3A%2F%2Fbot.example.com%2Fjira%2Foauth2%2Fcallback&state=9f8e7d6c&response_type=code&prompt=consent";
+    }
+
+    @Benchmark
+    public byte[] legacyFormatted() throws JsonProcessingException {
+        String modalJson = """
+        {
+          "trigger_id": "%s",
+          "view": {
+            "type": "modal",
+            "callback_id": "jira_connect_modal",
+            "title": { "type": "plain_text", "text": "Connect Jira" },
+            "close": { "type": "plain_text", "text": "Close" },
+            "blocks": [
+              {
+                "type": "section",
+                "text": {
+                  "type": "mrkdwn",
+                  "text": "Click to connect your Jira account using OAuth 3LO."
+                }
+              },
+              {
+                "type": "actions",
+                "elements": [
+                  {
+                    "type": "button",
+                    "text": { "type": "plain_text", "text": "Connect Jira" },
+                    "url": %s,
+                    "action_id": "open_jira_oauth"
+                  }
+                ]
+              }
+            ]
+          }
+        }
+        """.formatted(escapeJson(triggerId), om.writeValueAsString(authorizeUrl));
+        return modalJson.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] template() {
+        return template.render(triggerId, authorizeUrl);
+    }
+
+    private static String escapeJson(String s) {
+        return s.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+}
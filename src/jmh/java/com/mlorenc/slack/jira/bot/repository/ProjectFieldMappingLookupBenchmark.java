@@ -0,0 +1,87 @@
+package com.mlorenc.slack.jira.bot.repository;
+
+import org.flywaydb.core.Flyway;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookup by (slack_team_id, slack_user_id, jira_project_key) against the migrated schema as the
+ * mapping table grows. With the unique key from V4 every lookup is an index seek, so allocation per lookup stays
+ * flat. {@code hotUsers > 0} limits lookups to that many users, adjacent in the index: their
+ * latency stays flat too, while uniformly random lookups ({@code hotUsers = 0}) slow down once the
+ * index no longer fits in the CPU caches. Run with
+ * {@code ./gradlew jmh -Pjmh.includes=ProjectFieldMappingLookupBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProjectFieldMappingLookupBenchmark {
+
+    private static final int PROJECTS_PER_USER = 4;
+    private static final String TEAM_ID = "T1";
+
+    @Param({"10000", "1000000", "3000000"})
+    public int rows;
+
+    @Param({"0", "2500"})
+    public int hotUsers;
+
+    private Connection connection;
+    private PreparedStatement lookup;
+    private int users;
+
+    @Setup
+    public void setUp() throws SQLException {
+        String url = "jdbc:h2:mem:mappings-" + rows + ";DB_CLOSE_DELAY=-1";
+        Flyway.configure().dataSource(url, "sa", "").placeholders(Map.of("legacyTeamId", TEAM_ID)).load().migrate();
+        connection = DriverManager.getConnection(url, "sa", "");
+        users = rows / PROJECTS_PER_USER;
+        try (PreparedStatement insert = connection.prepareStatement("""
+                insert into project_field_mappings
+                    (slack_team_id, slack_user_id, jira_project_key, progress_field_id, version, updated_at)
+                select ?, 'U' || lpad(x / ?, 8, '0'), 'P' || mod(x, ?), 'customfield_10042', 0, current_timestamp
+                from system_range(0, ? - 1)
+                """)) {
+            insert.setString(1, TEAM_ID);
+            insert.setInt(2, PROJECTS_PER_USER);
+            insert.setInt(3, PROJECTS_PER_USER);
+            insert.setInt(4, rows);
+            insert.executeUpdate();
+        }
+        lookup = connection.prepareStatement("""
+                select id, progress_field_id, version from project_field_mappings
+                where slack_team_id = ? and slack_user_id = ? and jira_project_key = ?
+                """);
+        lookup.setString(1, TEAM_ID);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        lookup.close();
+        try (var statement = connection.createStatement()) {
+            statement.execute("shutdown");
+        }
+    }
+
+    @Benchmark
+    public String lookup() throws SQLException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int user = random.nextInt(hotUsers > 0 ? Math.min(hotUsers, users) : users);
+        lookup.setString(2, "U%08d".formatted(user));
+        lookup.setString(3, "P" + random.nextInt(PROJECTS_PER_USER));
+        try (ResultSet rs = lookup.executeQuery()) {
+            return rs.next() ? rs.getString(2) : null;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.mlorenc.slack.jira.bot.service;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * The original {@link TokenEncryptionService} implementation, kept as the benchmark baseline:
+ * a new {@link Cipher} per call and separate iv/ciphertext copies.
+ */
+final class LegacyTokenEncryption {
+
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_LENGTH = 128;
+
+    private final SecretKeySpec secretKey;
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    LegacyTokenEncryption(String base64Key) {
+        this.secretKey = new SecretKeySpec(Base64.getDecoder().decode(base64Key), "AES");
+    }
+
+    String encrypt(String plaintext) {
+        try {
+            byte[] iv = new byte[IV_LENGTH];
+            secureRandom.nextBytes(iv);
+
+            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+            cipher.init(Cipher.ENCRYPT_MODE, secretKey, new GCMParameterSpec(TAG_LENGTH, iv));
+            byte[] ciphertext = cipher.doFinal(plaintext.getBytes(StandardCharsets.UTF_8));
+
+            ByteBuffer buffer = ByteBuffer.allocate(iv.length + ciphertext.length);
+            buffer.put(iv);
+            buffer.put(ciphertext);
+            return Base64.getEncoder().encodeToString(buffer.array());
+        } catch (Exception ex) {
+            throw new IllegalStateException("Unable to encrypt token", ex);
+        }
+    }
+
+    String decrypt(String encrypted) {
+        try {
+            byte[] combined = Base64.getDecoder().decode(encrypted);
+            ByteBuffer buffer = ByteBuffer.wrap(combined);
+
+            byte[] iv = new byte[IV_LENGTH];
+            buffer.get(iv);
+            byte[] ciphertext = new byte[buffer.remaining()];
+            buffer.get(ciphertext);
+
+            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+            cipher.init(Cipher.DECRYPT_MODE, secretKey, new GCMParameterSpec(TAG_LENGTH, iv));
+            return new String(cipher.doFinal(ciphertext), StandardCharsets.UTF_8);
+        } catch (Exception ex) {
+            throw new IllegalStateException("Unable to decrypt token", ex);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.mlorenc.slack.jira.bot.service;
+
+import com.mlorenc.slack.jira.bot.config.BotProperties;
+import com.mlorenc.slack.jira.bot.config.TestBotProperties;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the per-call {@code Cipher.getInstance} baseline with {@link TokenEncryptionService}
+ * for single tokens and for a batch of 100. Run with {@code ./gradlew jmh}; the gc profiler
+ * configured in build.gradle ({@code -prof gc}) reports {@code gc.alloc.rate.norm} per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenEncryptionServiceBenchmark {
+
+    private static final String KEY = "MDEyMzQ1Njc4OWFiY2RlZjAxMjM0NTY3ODlhYmNkZWY=";
+    private static final int BATCH = 100;
+
+    private LegacyTokenEncryption legacy;
+    private TokenEncryptionService service;
+    private String token;
+    private String encrypted;
+    private List<String> tokens;
+    private List<String> encryptedBatch;
+
+    @Setup
+    public void setUp() {
+        legacy = new LegacyTokenEncryption(KEY);
+        service = new TokenEncryptionService(TestBotProperties.builder()
+                .security(new BotProperties.Security(KEY, null, null))
+                .build());
+        // roughly the size of an Atlassian access token
+        token = "eyJ" + "a".repeat(1200);
+        encrypted = service.encrypt(token);
+        tokens = new ArrayList<>(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            tokens.add(token + i);
+        }
+        encryptedBatch = service.encryptAll(tokens);
+    }
+
+    @Benchmark
+    public String legacyEncrypt() {
+        return legacy.encrypt(token);
+    }
+
+    @Benchmark
+    public String encrypt() {
+        return service.encrypt(token);
+    }
+
+    @Benchmark
+    public String legacyDecrypt() {
+        return legacy.decrypt(encrypted);
+    }
+
+    @Benchmark
+    public String decrypt() {
+        return service.decrypt(encrypted);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public List<String> legacyDecryptBatch() {
+        List<String> result = new ArrayList<>(BATCH);
+        for (String value : encryptedBatch) {
+            result.add(legacy.decrypt(value));
+        }
+        return result;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public List<String> decryptAll() {
+        return service.decryptAll(encryptedBatch);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String decryptContended() {
+        return service.decrypt(encrypted);
+    }
+}
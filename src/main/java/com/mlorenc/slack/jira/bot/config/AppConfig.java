@@ -1,16 +1,39 @@
 package com.mlorenc.slack.jira.bot.config;
 
+import org.flywaydb.core.api.callback.Callback;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.http.HttpClient;
+
 @Configuration
 @EnableConfigurationProperties(BotProperties.class)
 public class AppConfig {
 
+    /**
+     * Used for the Jira and Slack OAuth token calls and the accessible-resources call. Backed by a pooled JDK client
+     * with the Jira timeouts instead of a fresh, timeout-less connection per request. Built
+     * through the Boot builder so the calls are timed as {@code http.client.requests}.
+     */
+    @Bean
+    RestTemplate restTemplate(RestTemplateBuilder builder, BotProperties properties) {
+        HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(properties.jiraApi().connectTimeout())
+                .build();
+        JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(client);
+        factory.setReadTimeout(properties.jiraApi().requestTimeout());
+        return builder.requestFactory(() -> factory).build();
+    }
+
+    /**
+     * Picked up by Boot's Flyway auto-configuration; see {@link LegacyTeamIdCheck}.
+     */
     @Bean
-    RestTemplate restTemplate() {
-        return new RestTemplate();
+    Callback legacyTeamIdCheck() {
+        return new LegacyTeamIdCheck();
     }
 }
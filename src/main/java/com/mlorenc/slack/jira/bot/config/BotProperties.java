@@ -2,10 +2,29 @@ package com.mlorenc.slack.jira.bot.config;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.time.Duration;
+import java.util.Map;
+
 @ConfigurationProperties(prefix = "bot")
-public record BotProperties(Slack slack, Jira jira, Security security) {
+public record BotProperties(Slack slack, Jira jira, Security security, Dispatch dispatch, TokenCache tokenCache,
+                            TokenRefresh tokenRefresh, KeyRotation keyRotation, SlackApi slackApi,
+                            SlackRateLimit slackRateLimit, Dedupe dedupe, OAuthStates oauthStates,
+                            JiraApi jiraApi, ProgressUpdates progressUpdates, JiraMetadata jiraMetadata,
+                            MappingCache mappingCache, JiraSites jiraSites, Metrics metrics,
+                            SocketMode socketMode, Installations installations) {
 
-    public record Slack(String botToken, String signingSecret) {
+    /**
+     * The Slack app. {@code signingSecret} is per app and verifies requests from every workspace;
+     * {@code botToken} serves workspaces that have no installation of their own. The remaining
+     * values drive the OAuth v2 install flow that adds the app to further workspaces.
+     */
+    public record Slack(String botToken,
+                        String signingSecret,
+                        String clientId,
+                        String clientSecret,
+                        String redirectUri,
+                        String scopes,
+                        String authorizeUrl) {
     }
 
     public record Jira(String clientId,
@@ -17,6 +36,157 @@ public record BotProperties(Slack slack, Jira jira, Security security) {
                        String resourcesUrl) {
     }
 
-    public record Security(String encryptionKey) {
+    /**
+     * Token encryption keys. {@code keys} maps key ids to base64 AES keys; {@code encryptionKey}
+     * decrypts values written before key ids existed and is also available as key id
+     * {@code default}. New values are encrypted with {@code activeKeyId}.
+     */
+    public record Security(String encryptionKey, String activeKeyId, Map<String, String> keys) {
+    }
+
+    /**
+     * Limits for the asynchronous Slack work queue. {@code queueCapacity} and
+     * {@code maxConcurrency} apply per workspace and command key, so a busy workspace fills only
+     * its own queues; {@code totalCapacity} queued or running tasks and {@code totalConcurrency}
+     * workers are shared by all of them.
+     */
+    public record Dispatch(int queueCapacity, int maxConcurrency, int totalCapacity, int totalConcurrency) {
+    }
+
+    /**
+     * In-memory Jira access token cache. Tokens expiring within {@code refreshWindow} are
+     * refreshed instead of served.
+     */
+    public record TokenCache(int maxEntries, Duration refreshWindow) {
+    }
+
+    /**
+     * Background refresh of tokens expiring within {@code lookahead}. Runs every {@code interval}
+     * plus a random delay of up to {@code jitter}; each token gets up to {@code maxAttempts}
+     * tries with exponential {@code backoff}.
+     */
+    public record TokenRefresh(boolean enabled,
+                               Duration interval,
+                               Duration jitter,
+                               Duration lookahead,
+                               int batchSize,
+                               int maxConcurrency,
+                               int maxAttempts,
+                               Duration backoff) {
+    }
+
+    /**
+     * Background rewrite of stored tokens to the active encryption key. Rows are processed
+     * {@code batchSize} at a time, one transaction per batch, with {@code batchDelay} between
+     * batches to keep the load on the database low.
+     */
+    public record KeyRotation(boolean enabled, int batchSize, Duration batchDelay) {
+    }
+
+    /**
+     * Outbound Slack Web API client. {@code baseUrl} is the prefix method names are appended to;
+     * {@code executorThreads} sizes the pool that runs HTTP client callbacks unless the app runs on
+     * virtual threads.
+     */
+    public record SlackApi(String baseUrl, Duration connectTimeout, Duration requestTimeout, int executorThreads) {
+    }
+
+    /**
+     * Outbound Web API pacing. Calls that would wait longer than {@code maxQueueWait} for their
+     * method's rate tier fail fast; a 429 is retried up to {@code maxRetries} times after
+     * {@code Retry-After}, or {@code defaultRetryAfter} when Slack sends none. Retries may wait up
+     * to {@code maxRetryWait}, since Slack's {@code Retry-After} is often longer than a fresh call
+     * should queue.
+     */
+    public record SlackRateLimit(Duration maxQueueWait, int maxRetries, Duration defaultRetryAfter,
+                                 Duration maxRetryWait) {
+    }
+
+    /**
+     * Window in which Slack retries of a command or interaction are answered from the first
+     * response. At most {@code maxEntries} fingerprints are kept. A retry of a request still being
+     * handled waits up to {@code awaitTimeout} for its response, which must stay under Slack's 3s
+     * ack deadline.
+     */
+    public record Dedupe(int maxEntries, Duration ttl, Duration awaitTimeout) {
+    }
+
+    /**
+     * Pending OAuth states. {@code store} is {@code jpa} (shared through the database, the default)
+     * or {@code memory} (single instance only); states live for {@code ttl}. The memory store expires
+     * them every {@code sweepInterval}; the JPA store deletes expired rows every
+     * {@code jpaSweepInterval}, {@code sweepBatchSize} rows per delete.
+     */
+    public record OAuthStates(String store, Duration ttl, Duration sweepInterval, Duration jpaSweepInterval,
+                              int sweepBatchSize) {
+    }
+
+    /**
+     * Jira Cloud REST client. {@code baseUrl} is the Atlassian API gateway; calls go to
+     * {@code {baseUrl}/{cloudId}/...} with at most {@code maxConcurrentPerCloud} in flight per site
+     * and Slack workspace.
+     * The timeouts also apply to the OAuth token and resources calls. {@code executorThreads} is
+     * unused on virtual threads.
+     */
+    public record JiraApi(String baseUrl, Duration connectTimeout, Duration requestTimeout, int executorThreads,
+                          int maxConcurrentPerCloud) {
+    }
+
+    /**
+     * Progress-field writes. Updates to the same issue field within {@code coalesceWindow} are
+     * folded into one Jira write; at most {@code maxPending} issue fields wait at a time, and at
+     * most {@code maxPendingPerTeam} of them for one Slack workspace.
+     */
+    public record ProgressUpdates(Duration coalesceWindow, int maxPending, int maxPendingPerTeam) {
+    }
+
+    /**
+     * Cached Jira projects and custom fields per site. Metadata older than {@code refreshAfter}
+     * is reloaded in the background, older than {@code expireAfter} it is dropped; a request that
+     * finds a site cold waits at most {@code coldLoadTimeout} for the first load. A site whose
+     * load failed is not tried again for {@code failureBackoff}.
+     */
+    public record JiraMetadata(int maxClouds, Duration refreshAfter, Duration expireAfter, Duration coldLoadTimeout,
+                               Duration failureBackoff) {
+    }
+
+    /**
+     * Project mapping lookups. At most {@code maxEntries} lookups (including misses) are cached,
+     * each for up to {@code ttl}; changes written by other instances are polled every
+     * {@code pollInterval}.
+     */
+    public record MappingCache(int maxEntries, Duration ttl, Duration pollInterval) {
+    }
+
+    /**
+     * Jira sites reachable per user. The {@code accessible-resources} answer is cached per access
+     * token for {@code resourcesTtl}, for at most {@code maxCachedTokens} tokens.
+     */
+    public record JiraSites(Duration resourcesTtl, int maxCachedTokens) {
+    }
+
+    /**
+     * Metric tags. At most {@code maxTeamTags} Slack workspaces get their own {@code team} tag
+     * value; the rest share {@code other}.
+     */
+    public record Metrics(int maxTeamTags) {
+    }
+
+    /**
+     * Slack Socket Mode. When {@code enabled}, the bot keeps {@code connections} WebSockets open
+     * with the app-level {@code appToken} ({@code xapp-...}) and handles envelopes on up to
+     * {@code handlerThreads} threads. A lost connection is reopened after {@code reconnectBackoff},
+     * doubling on each failed attempt up to {@code maxReconnectBackoff}; one that receives nothing
+     * for {@code idleTimeout}, pings included, is treated as lost.
+     */
+    public record SocketMode(boolean enabled, String appToken, int connections, int handlerThreads,
+                             Duration reconnectBackoff, Duration maxReconnectBackoff, Duration idleTimeout) {
+    }
+
+    /**
+     * Cached Slack installations. A workspace's bot token is read from the database at most once
+     * per {@code ttl}, for at most {@code maxEntries} workspaces.
+     */
+    public record Installations(Duration ttl, int maxEntries) {
     }
 }
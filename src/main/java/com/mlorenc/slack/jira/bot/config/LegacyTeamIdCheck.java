@@ -0,0 +1,65 @@
+package com.mlorenc.slack.jira.bot.config;
+
+import org.flywaydb.core.api.FlywayException;
+import org.flywaydb.core.api.MigrationVersion;
+import org.flywaydb.core.api.callback.Callback;
+import org.flywaydb.core.api.callback.Context;
+import org.flywaydb.core.api.callback.Event;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stops the V4 migration when it would move existing rows into a blank workspace. V4 stamps every
+ * row written before workspaces were tracked with the {@code legacyTeamId} placeholder
+ * ({@code SLACK_LEGACY_TEAM_ID}); left empty, those users would belong to team {@code ''} and never
+ * match a Slack request again. A database without such rows, like a fresh install, migrates
+ * without it.
+ */
+public class LegacyTeamIdCheck implements Callback {
+
+    static final String PLACEHOLDER = "legacyTeamId";
+
+    private static final MigrationVersion WORKSPACES = MigrationVersion.fromVersion("4");
+    private static final List<String> TABLES =
+            List.of("user_connections", "jira_oauth_tokens", "project_field_mappings", "user_jira_sites", "oauth_states");
+
+    @Override
+    public boolean supports(Event event, Context context) {
+        return event == Event.BEFORE_EACH_MIGRATE && context.getMigrationInfo() != null
+                && WORKSPACES.equals(context.getMigrationInfo().getVersion());
+    }
+
+    @Override
+    public boolean canHandleInTransaction(Event event, Context context) {
+        return true;
+    }
+
+    @Override
+    public void handle(Event event, Context context) {
+        String teamId = context.getConfiguration().getPlaceholders().get(PLACEHOLDER);
+        if (teamId != null && !teamId.isBlank()) return;
+        List<String> withRows = new ArrayList<>();
+        try (Statement statement = context.getConnection().createStatement()) {
+            for (String table : TABLES) {
+                try (ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM " + table)) {
+                    if (rs.next() && rs.getLong(1) > 0) withRows.add(table);
+                }
+            }
+        } catch (SQLException ex) {
+            throw new FlywayException("Unable to check for rows without a Slack workspace", ex);
+        }
+        if (!withRows.isEmpty()) {
+            throw new FlywayException("Migration " + WORKSPACES + " needs the Slack team id the existing rows in "
+                    + String.join(", ", withRows) + " belong to: set SLACK_LEGACY_TEAM_ID");
+        }
+    }
+
+    @Override
+    public String getCallbackName() {
+        return "legacyTeamIdCheck";
+    }
+}
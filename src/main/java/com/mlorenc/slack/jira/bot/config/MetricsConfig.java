@@ -0,0 +1,201 @@
+package com.mlorenc.slack.jira.bot.config;
+
+import com.mlorenc.slack.jira.bot.controller.SlackSocketModeClient;
+import com.mlorenc.slack.jira.bot.core.AsyncLogAppender;
+import com.mlorenc.slack.jira.bot.core.EventSamplingFilter;
+import com.mlorenc.slack.jira.bot.core.ObjectPool;
+import com.mlorenc.slack.jira.bot.core.SlackApiScheduler;
+import com.mlorenc.slack.jira.bot.core.SlackCommandDispatcher;
+import com.mlorenc.slack.jira.bot.core.SlackRetryDeduplicator;
+import com.mlorenc.slack.jira.bot.core.SlackSignatureVerifier;
+import com.mlorenc.slack.jira.bot.service.AccessTokenCache;
+import com.mlorenc.slack.jira.bot.service.JiraClient;
+import com.mlorenc.slack.jira.bot.service.JiraMetadataCache;
+import com.mlorenc.slack.jira.bot.service.JiraOAuthService;
+import com.mlorenc.slack.jira.bot.service.JiraSiteDirectory;
+import com.mlorenc.slack.jira.bot.service.OAuthStateStore;
+import com.mlorenc.slack.jira.bot.service.ProgressUpdater;
+import com.mlorenc.slack.jira.bot.service.ProjectMappingService;
+import com.mlorenc.slack.jira.bot.service.SlackInstallationStore;
+import com.mlorenc.slack.jira.bot.service.TokenEncryptionService;
+import com.mlorenc.slack.jira.bot.service.TokenRefreshScheduler;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Publishes the components' own {@code stats()} snapshots as Micrometer meters, read at scrape
+ * time so the hot paths keep their plain counters. Per-key stats (dispatch lanes, Slack
+ * workspaces, Jira sites) are summed: their keys are not bounded and must not become tags.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    MeterBinder dispatchMetrics(SlackCommandDispatcher dispatcher) {
+        return registry -> {
+            gauge(registry, "bot.dispatch.queued", "Slack work waiting for a worker", dispatcher,
+                    d -> sum(d.stats(), SlackCommandDispatcher.LaneStats::queued));
+            gauge(registry, "bot.dispatch.active", "Slack work running", dispatcher,
+                    d -> sum(d.stats(), SlackCommandDispatcher.LaneStats::active));
+            // lanes are dropped once idle, so counters come from the dispatcher's totals
+            counter(registry, "bot.dispatch.tasks", "outcome", "completed", dispatcher, d -> d.totals().completed());
+            counter(registry, "bot.dispatch.tasks", "outcome", "failed", dispatcher, d -> d.totals().failed());
+            counter(registry, "bot.dispatch.tasks", "outcome", "rejected", dispatcher, d -> d.totals().rejected());
+        };
+    }
+
+    @Bean
+    MeterBinder slackApiMetrics(SlackApiScheduler scheduler, SlackRetryDeduplicator deduplicator) {
+        return registry -> {
+            gauge(registry, "bot.slack.api.queued", "Slack calls waiting for a rate slot", scheduler,
+                    s -> sum(s.stats(), SlackApiScheduler.QueueStats::queued));
+            counter(registry, "bot.slack.api.throttled", "reason", "rate_limited", scheduler,
+                    s -> sum(s.stats(), SlackApiScheduler.QueueStats::rateLimited));
+            counter(registry, "bot.slack.api.throttled", "reason", "queue_wait_exceeded", scheduler,
+                    s -> sum(s.stats(), SlackApiScheduler.QueueStats::rejected));
+            gauge(registry, "bot.slack.dedupe.size", "Remembered Slack request fingerprints", deduplicator,
+                    d -> d.stats().size());
+            counter(registry, "bot.slack.dedupe.duplicates", null, null, deduplicator, d -> d.stats().duplicates());
+            counter(registry, "bot.slack.dedupe.await_timeouts", null, null, deduplicator, d -> d.stats().awaitTimeouts());
+        };
+    }
+
+    @Bean
+    MeterBinder jiraApiMetrics(JiraClient jiraClient) {
+        return registry -> {
+            gauge(registry, "bot.jira.api.in_flight", "Jira calls holding a per-site permit", jiraClient,
+                    c -> sum(c.stats(), JiraClient.CloudStats::inFlight));
+            gauge(registry, "bot.jira.api.queued", "Jira calls waiting for a per-site permit", jiraClient,
+                    c -> sum(c.stats(), JiraClient.CloudStats::queued));
+        };
+    }
+
+    @Bean
+    MeterBinder progressMetrics(ProgressUpdater updater) {
+        return registry -> {
+            gauge(registry, "bot.progress.pending", "Issue fields waiting for their coalesced write", updater,
+                    u -> u.stats().pending());
+            // submitted includes coalesced; queued is the part that opened a new write
+            counter(registry, "bot.progress.updates", "outcome", "queued", updater,
+                    u -> u.stats().submitted() - u.stats().coalesced());
+            counter(registry, "bot.progress.updates", "outcome", "coalesced", updater, u -> u.stats().coalesced());
+            counter(registry, "bot.progress.updates", "outcome", "rejected", updater, u -> u.stats().rejected());
+            counter(registry, "bot.progress.writes", "outcome", "written", updater, u -> u.stats().written());
+            counter(registry, "bot.progress.writes", "outcome", "failed", updater, u -> u.stats().failed());
+        };
+    }
+
+    @Bean
+    MeterBinder oauthMetrics(JiraOAuthService oauthService, AccessTokenCache tokenCache, OAuthStateStore stateStore,
+                             TokenRefreshScheduler refreshScheduler) {
+        return registry -> {
+            counter(registry, "bot.jira.oauth.errors", "stage", "callback", oauthService, s -> s.stats().callbackFailures());
+            counter(registry, "bot.jira.oauth.errors", "stage", "refresh", tokenCache, c -> c.stats().refreshFailures());
+            counter(registry, "bot.jira.oauth.callbacks", null, null, oauthService, s -> s.stats().callbacks());
+            counter(registry, "bot.jira.oauth.refreshes", null, null, tokenCache, c -> c.stats().refreshes());
+            gauge(registry, "bot.jira.oauth.states.live", "Pending OAuth states", stateStore, s -> s.stats().live());
+            counter(registry, "bot.jira.oauth.states", "outcome", "consumed", stateStore, s -> s.stats().consumed());
+            counter(registry, "bot.jira.oauth.states", "outcome", "expired", stateStore, s -> s.stats().expired());
+            counter(registry, "bot.jira.token.refresh.job", "outcome", "refreshed", refreshScheduler, s -> s.totals().refreshed());
+            counter(registry, "bot.jira.token.refresh.job", "outcome", "failed", refreshScheduler, s -> s.totals().failed());
+        };
+    }
+
+    @Bean
+    MeterBinder cacheMetrics(AccessTokenCache tokenCache, JiraMetadataCache metadataCache,
+                             ProjectMappingService mappingService, JiraSiteDirectory siteDirectory,
+                             SlackInstallationStore installations) {
+        return registry -> {
+            cache(registry, "jira_tokens", tokenCache, c -> c.stats().size(), c -> c.stats().hits(),
+                    c -> c.stats().misses(), c -> c.stats().evictions());
+            cache(registry, "jira_metadata", metadataCache, c -> c.stats().clouds(), c -> c.stats().hits(),
+                    c -> c.stats().misses(), c -> c.stats().evictions());
+            cache(registry, "project_mappings", mappingService, s -> s.stats().size(),
+                    s -> s.stats().hits() + s.stats().negativeHits(), s -> s.stats().misses(), s -> s.stats().evictions());
+            cache(registry, "jira_sites", siteDirectory, d -> d.stats().size(), d -> d.stats().hits(),
+                    d -> d.stats().misses(), null);
+            cache(registry, "slack_installations", installations, i -> i.stats().size(), i -> i.stats().hits(),
+                    i -> i.stats().misses(), i -> i.stats().evictions());
+            counter(registry, "bot.slack.installs", "outcome", "installed", installations, i -> i.stats().installs());
+            counter(registry, "bot.slack.installs", "outcome", "failed", installations, i -> i.stats().installFailures());
+        };
+    }
+
+    @Bean
+    MeterBinder poolMetrics(SlackSignatureVerifier verifier, TokenEncryptionService encryption) {
+        return registry -> {
+            pool(registry, "slack_signers", verifier, SlackSignatureVerifier::stats);
+            pool(registry, "ciphers", encryption, TokenEncryptionService::cipherStats);
+        };
+    }
+
+    // the client only exists with bot.socketMode.enabled
+    @Bean
+    MeterBinder socketModeMetrics(ObjectProvider<SlackSocketModeClient> socketMode) {
+        return registry -> socketMode.ifAvailable(client -> {
+            gauge(registry, "bot.slack.socket.connections", "Open Socket Mode connections", client, c -> c.stats().open());
+            counter(registry, "bot.slack.socket.connects", "outcome", "opened", client, c -> c.stats().opened());
+            counter(registry, "bot.slack.socket.connects", "outcome", "failed", client, c -> c.stats().connectFailures());
+            counter(registry, "bot.slack.socket.envelopes", "outcome", "handled", client,
+                    c -> c.stats().envelopes() - c.stats().failedEnvelopes());
+            counter(registry, "bot.slack.socket.envelopes", "outcome", "failed", client, c -> c.stats().failedEnvelopes());
+        });
+    }
+
+    @Bean
+    MeterBinder loggingMetrics() {
+        return registry -> {
+            gauge(registry, "bot.logging.pending", "Log events waiting in the ring buffer", AsyncLogAppender.class,
+                    a -> AsyncLogAppender.stats().pending());
+            counter(registry, "bot.logging.events", "outcome", "queued", AsyncLogAppender.class,
+                    a -> AsyncLogAppender.stats().queued());
+            counter(registry, "bot.logging.events", "outcome", "dropped", AsyncLogAppender.class,
+                    a -> AsyncLogAppender.stats().dropped());
+            counter(registry, "bot.logging.events", "outcome", "sampled_out", EventSamplingFilter.class,
+                    f -> EventSamplingFilter.sampledOut());
+        };
+    }
+
+    private static <T> void cache(MeterRegistry registry, String name, T cache, ToDoubleFunction<T> size,
+                                  ToDoubleFunction<T> hits, ToDoubleFunction<T> misses, ToDoubleFunction<T> evictions) {
+        Gauge.builder("bot.cache.size", cache, size).tag("cache", name).description("Cached entries").register(registry);
+        FunctionCounter.builder("bot.cache.gets", cache, hits).tags("cache", name, "result", "hit").register(registry);
+        FunctionCounter.builder("bot.cache.gets", cache, misses).tags("cache", name, "result", "miss").register(registry);
+        if (evictions != null) {
+            FunctionCounter.builder("bot.cache.evictions", cache, evictions).tag("cache", name).register(registry);
+        }
+    }
+
+    private static <T> void pool(MeterRegistry registry, String name, T source, Function<T, ObjectPool.Stats> stats) {
+        FunctionCounter.builder("bot.pool.objects", source, s -> stats.apply(s).created())
+                .tags("pool", name, "outcome", "created").register(registry);
+        FunctionCounter.builder("bot.pool.objects", source, s -> stats.apply(s).reused())
+                .tags("pool", name, "outcome", "reused").register(registry);
+    }
+
+    private static <T> void gauge(MeterRegistry registry, String name, String description, T source, ToDoubleFunction<T> value) {
+        Gauge.builder(name, source, value).description(description).register(registry);
+    }
+
+    private static <T> void counter(MeterRegistry registry, String name, String tagKey, String tagValue, T source,
+                                    ToDoubleFunction<T> value) {
+        FunctionCounter.Builder<T> builder = FunctionCounter.builder(name, source, value);
+        if (tagKey != null) builder.tag(tagKey, tagValue);
+        builder.register(registry);
+    }
+
+    private static <T> double sum(List<T> stats, ToDoubleFunction<T> value) {
+        double total = 0;
+        for (T item : stats) total += value.applyAsDouble(item);
+        return total;
+    }
+}
@@ -0,0 +1,32 @@
+package com.mlorenc.slack.jira.bot.controller;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Fixed-size pool of request body buffers. Bodies larger than one buffer get a dedicated
+ * array that is dropped on release, so the pool's memory stays bounded.
+ */
+final class BodyBufferPool {
+
+    private final ArrayBlockingQueue<byte[]> free;
+    private final int bufferSize;
+
+    BodyBufferPool(int buffers, int bufferSize) {
+        this.free = new ArrayBlockingQueue<>(buffers);
+        this.bufferSize = bufferSize;
+    }
+
+    byte[] acquire(int expectedLength) {
+        if (expectedLength > bufferSize) {
+            return new byte[expectedLength];
+        }
+        byte[] buffer = free.poll();
+        return buffer != null ? buffer : new byte[bufferSize];
+    }
+
+    void release(byte[] buffer) {
+        if (buffer.length == bufferSize) {
+            free.offer(buffer);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.mlorenc.slack.jira.bot.controller;
 
+import com.mlorenc.slack.jira.bot.model.SlackUser;
 import com.mlorenc.slack.jira.bot.service.JiraOAuthService;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -21,8 +22,9 @@ public class JiraOAuthController {
     }
 
     @GetMapping("/authorize")
-    public ResponseEntity<Void> authorize(@RequestParam("slackUserId") String slackUserId) {
-        String url = jiraOAuthService.createAuthorizationUrl(slackUserId);
+    public ResponseEntity<Void> authorize(@RequestParam("teamId") String teamId,
+                                          @RequestParam("slackUserId") String slackUserId) {
+        String url = jiraOAuthService.createAuthorizationUrl(new SlackUser(teamId, slackUserId));
         return ResponseEntity.status(HttpStatus.FOUND).location(URI.create(url)).build();
     }
 
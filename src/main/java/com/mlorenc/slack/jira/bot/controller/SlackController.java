@@ -1,122 +1,69 @@
 package com.mlorenc.slack.jira.bot.controller;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.mlorenc.slack.jira.bot.config.BotProperties;
-import com.mlorenc.slack.jira.bot.core.SlackService;
-import com.mlorenc.slack.jira.bot.core.SlackSignatureVerifier;
-import com.mlorenc.slack.jira.bot.service.JiraOAuthService;
-import com.mlorenc.slack.jira.bot.service.ProjectMappingService;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import com.mlorenc.slack.jira.bot.core.SlackInteractionParser;
+import com.mlorenc.slack.jira.bot.core.SlackMetrics;
+import com.mlorenc.slack.jira.bot.core.UrlEncodedForm;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 
-import java.net.URLDecoder;
-import java.nio.charset.StandardCharsets;
-import java.util.Arrays;
-import java.util.Map;
-import java.util.stream.Collectors;
-
+/**
+ * HTTP transport for Slack: checks the signature computed by {@link SlackVerificationFilter},
+ * decodes the form and hands the request to {@link SlackInboundHandler}.
+ */
 @RestController
 @RequestMapping("/slack")
 public class SlackController {
 
-    private static final Logger log = LoggerFactory.getLogger(SlackController.class);
-
-    private final SlackSignatureVerifier verifier;
-    private final SlackService slackService;
-    private final JiraOAuthService jiraOAuthService;
-    private final ProjectMappingService projectMappingService;
-    private final BotProperties properties;
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SlackInboundHandler handler;
+    private final SlackInteractionParser interactionParser;
+    private final SlackMetrics metrics;
 
-    public SlackController(SlackSignatureVerifier verifier,
-                           SlackService slackService,
-                           JiraOAuthService jiraOAuthService,
-                           ProjectMappingService projectMappingService,
-                           BotProperties properties) {
-        this.verifier = verifier;
-        this.slackService = slackService;
-        this.jiraOAuthService = jiraOAuthService;
-        this.projectMappingService = projectMappingService;
-        this.properties = properties;
+    public SlackController(SlackInboundHandler handler,
+                           SlackInteractionParser interactionParser,
+                           SlackMetrics metrics) {
+        this.handler = handler;
+        this.interactionParser = interactionParser;
+        this.metrics = metrics;
     }
 
     @PostMapping(value = "/commands", consumes = MediaType.APPLICATION_FORM_URLENCODED_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
-    public String commands(@RequestHeader("X-Slack-Request-Timestamp") String ts,
-                           @RequestHeader("X-Slack-Signature") String sig,
-                           @RequestBody String rawBody) throws Exception {
+    public String commands(@RequestAttribute(SlackRequest.ATTRIBUTE) SlackRequest request,
+                           @RequestHeader(value = "X-Slack-Retry-Num", required = false) String retryNum) {
 
-        if (!verifier.verify(properties.slack().signingSecret(), ts, sig, rawBody)) {
+        if (!request.isVerified()) {
             return "{\"response_type\":\"ephemeral\",\"text\":\"Invalid Slack signature.\"}";
         }
 
-        Map<String, String> form = parseForm(rawBody);
-        String command = form.getOrDefault("command", "");
-        String text = form.getOrDefault("text", "").trim();
-        String triggerId = form.getOrDefault("trigger_id", "");
-        String slackUserId = form.getOrDefault("user_id", "");
-
-        if (!"/jira".equals(command)) {
-            return "{\"response_type\":\"ephemeral\",\"text\":\"Unknown command. Use /jira connect or /jira map.\"}";
-        }
+        return handler.command(form(request)::get, retryNum);
+    }
 
-        if ("connect".equalsIgnoreCase(text)) {
-            String authorizeUrl = jiraOAuthService.createAuthorizationUrl(slackUserId);
-            slackService.openConnectModal(properties.slack().botToken(), triggerId, authorizeUrl);
-            log.atInfo().addKeyValue("event", "slack.command.jira.connect").addKeyValue("slackUserId", slackUserId).log("Handled /jira connect");
-            return jsonText("Opening Jira connect modal...");
-        }
+    @PostMapping(value = "/interactions", consumes = MediaType.APPLICATION_FORM_URLENCODED_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public String interactions(@RequestAttribute(SlackRequest.ATTRIBUTE) SlackRequest request) throws Exception {
 
-        if ("map".equalsIgnoreCase(text)) {
-            slackService.openProjectMappingModal(properties.slack().botToken(), triggerId);
-            return jsonText("Opening project mapping modal...");
+        if (!request.isVerified()) {
+            return "";
         }
 
-        return jsonText("Usage: /jira connect OR /jira map");
+        return handler.interaction(interactionParser.parse(form(request).get("payload")));
     }
 
-    @PostMapping(value = "/interactions", consumes = MediaType.APPLICATION_FORM_URLENCODED_VALUE)
-    public String interactions(@RequestHeader("X-Slack-Request-Timestamp") String ts,
-                               @RequestHeader("X-Slack-Signature") String sig,
-                               @RequestBody String rawBody) throws Exception {
+    /**
+     * Options load URL for the mapping modal's {@code external_select} inputs.
+     */
+    @PostMapping(value = "/options", consumes = MediaType.APPLICATION_FORM_URLENCODED_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public String options(@RequestAttribute(SlackRequest.ATTRIBUTE) SlackRequest request) throws Exception {
 
-        if (!verifier.verify(properties.slack().signingSecret(), ts, sig, rawBody)) {
+        if (!request.isVerified()) {
             return "";
         }
 
-        Map<String, String> form = parseForm(rawBody);
-        JsonNode payload = objectMapper.readTree(form.get("payload"));
-
-        if ("view_submission".equals(payload.path("type").asText())
-                && "jira_mapping_submit".equals(payload.path("view").path("callback_id").asText())) {
-            SlackService.MappingSubmission submission = slackService.parseMappingSubmission(payload);
-            projectMappingService.saveMapping(submission.slackUserId(), submission.projectKey(), submission.progressFieldId());
-            log.atInfo().addKeyValue("event", "slack.interaction.mapping.saved")
-                    .addKeyValue("slackUserId", submission.slackUserId())
-                    .addKeyValue("projectKey", submission.projectKey())
-                    .log("Saved Jira project mapping from Slack modal");
-        }
-
-        return "";
-    }
-
-    private static String jsonText(String text) {
-        return "{\"response_type\":\"ephemeral\",\"text\":\"" + text + "\"}";
-    }
-
-    private static Map<String, String> parseForm(String rawBody) {
-        return Arrays.stream(rawBody.split("&"))
-                .map(kv -> kv.split("=", 2))
-                .collect(Collectors.toMap(
-                        kv -> urlDecode(kv[0]),
-                        kv -> kv.length > 1 ? urlDecode(kv[1]) : "",
-                        (a, b) -> b
-                ));
+        return handler.options(interactionParser.parse(form(request).get("payload")));
     }
 
-    private static String urlDecode(String s) {
-        return URLDecoder.decode(s, StandardCharsets.UTF_8);
+    private UrlEncodedForm form(SlackRequest request) {
+        long startedAt = System.nanoTime();
+        UrlEncodedForm form = request.form();
+        metrics.recordFormParse(System.nanoTime() - startedAt);
+        return form;
     }
 }
@@ -0,0 +1,234 @@
+package com.mlorenc.slack.jira.bot.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.mlorenc.slack.jira.bot.core.SlackCommandDispatcher;
+import com.mlorenc.slack.jira.bot.core.SlackInteraction;
+import com.mlorenc.slack.jira.bot.core.SlackMetrics;
+import com.mlorenc.slack.jira.bot.core.SlackRetryDeduplicator;
+import com.mlorenc.slack.jira.bot.core.SlackRetryDeduplicator.Outcome;
+import com.mlorenc.slack.jira.bot.core.SlackService;
+import com.mlorenc.slack.jira.bot.model.SlackUser;
+import com.mlorenc.slack.jira.bot.service.JiraMetadataCache;
+import com.mlorenc.slack.jira.bot.service.JiraOAuthService;
+import com.mlorenc.slack.jira.bot.service.ProgressUpdater;
+import com.mlorenc.slack.jira.bot.service.ProjectMappingService;
+import com.mlorenc.slack.jira.bot.service.SlackInstallationStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Handles verified Slack commands and interactions for both transports: the HTTP endpoints in
+ * {@link SlackController} and the Socket Mode connections in {@link SlackSocketModeClient}. Each
+ * method returns the JSON Slack expects as the immediate answer, or an empty string for none.
+ * Work is queued and answered per workspace: users are keyed by team, and Web API calls use the
+ * team's bot token from {@link SlackInstallationStore}.
+ */
+@Component
+public class SlackInboundHandler {
+
+    private static final Logger log = LoggerFactory.getLogger(SlackInboundHandler.class);
+
+    private static final Pattern PROGRESS = Pattern.compile("(?i)progress\\s+([A-Z][A-Z0-9_]*-\\d+)\\s+(\\d{1,3}(?:\\.\\d+)?)");
+    private static final String BUSY_TEXT = "The bot is busy right now, please try again in a moment.";
+    private static final String UNCHECKED_TEXT = "Jira could not be reached to check this mapping, please try again.";
+    // Slack cuts option labels at 75 characters
+    private static final int MAX_OPTION_TEXT = 75;
+    private static final String BUSY_SUBMISSION =
+            "{\"response_action\":\"errors\",\"errors\":{\"project_block\":\"" + BUSY_TEXT + "\"}}";
+
+    private final SlackService slackService;
+    private final JiraOAuthService jiraOAuthService;
+    private final ProjectMappingService projectMappingService;
+    private final SlackCommandDispatcher dispatcher;
+    private final SlackRetryDeduplicator deduplicator;
+    private final ProgressUpdater progressUpdater;
+    private final JiraMetadataCache metadataCache;
+    private final ObjectMapper om;
+    private final SlackMetrics metrics;
+    private final SlackInstallationStore installations;
+
+    public SlackInboundHandler(SlackService slackService,
+                               JiraOAuthService jiraOAuthService,
+                               ProjectMappingService projectMappingService,
+                               SlackCommandDispatcher dispatcher,
+                               SlackRetryDeduplicator deduplicator,
+                               ProgressUpdater progressUpdater,
+                               JiraMetadataCache metadataCache,
+                               ObjectMapper objectMapper,
+                               SlackMetrics metrics,
+                               SlackInstallationStore installations) {
+        this.slackService = slackService;
+        this.jiraOAuthService = jiraOAuthService;
+        this.projectMappingService = projectMappingService;
+        this.dispatcher = dispatcher;
+        this.deduplicator = deduplicator;
+        this.progressUpdater = progressUpdater;
+        this.metadataCache = metadataCache;
+        this.om = objectMapper;
+        this.metrics = metrics;
+        this.installations = installations;
+    }
+
+    /**
+     * Handles a slash command. {@code fields} looks up the command's fields by their Slack names
+     * ({@code command}, {@code text}, {@code trigger_id}, ...) and returns null for missing ones;
+     * {@code retry} is the transport's retry marker, null on the first delivery.
+     */
+    public String command(Function<String, String> fields, String retry) {
+        String command = orEmpty(fields.apply("command"));
+        String text = orEmpty(fields.apply("text")).trim();
+        String triggerId = orEmpty(fields.apply("trigger_id"));
+        String teamId = fields.apply("team_id");
+        SlackUser user = new SlackUser(teamId, orEmpty(fields.apply("user_id")));
+        String responseUrl = fields.apply("response_url");
+
+        if (!"/jira".equals(command)) {
+            return "{\"response_type\":\"ephemeral\",\"text\":\"Unknown command. Use /jira connect, /jira map or /jira progress.\"}";
+        }
+
+        // a retry carries the trigger_id of the original command
+        return deduplicator.handle(triggerId.isEmpty() ? null : "command:" + triggerId, () -> {
+            if (retry != null) {
+                log.atInfo().addKeyValue("event", "slack.command.retry").addKeyValue("retryNum", retry)
+                        .log("Handling Slack retry of a command we have not seen");
+            }
+            long startedAt = System.nanoTime();
+            Outcome outcome = runCommand(text, triggerId, user, responseUrl);
+            metrics.recordCommand(commandName(text), teamId, outcome.remember() ? "accepted" : "busy",
+                    System.nanoTime() - startedAt);
+            return outcome;
+        });
+    }
+
+    public String interaction(SlackInteraction interaction) {
+        if (interaction instanceof SlackInteraction.ViewSubmission view
+                && "jira_mapping_submit".equals(view.callbackId())) {
+            // a view is submitted once; later submissions of the same view id are retries
+            return deduplicator.handle(view.viewId() == null ? null : "view_submission:" + view.viewId(),
+                    () -> submitMapping(view));
+        }
+        return "";
+    }
+
+    /**
+     * Options for the mapping modal's {@code external_select} inputs, answered from the cached
+     * Jira metadata.
+     */
+    public String options(SlackInteraction interaction) {
+        if (!(interaction instanceof SlackInteraction.BlockSuggestion suggestion)) {
+            return "";
+        }
+        SlackUser user = new SlackUser(suggestion.teamId(), suggestion.userId());
+        List<JiraMetadataCache.Entry> entries = switch (suggestion.actionId()) {
+            case "project_input" -> metadataCache.suggestProjects(user, suggestion.value());
+            case "progress_field_input" -> metadataCache.suggestFields(user, suggestion.value());
+            default -> List.of();
+        };
+        ObjectNode response = om.createObjectNode();
+        ArrayNode options = response.putArray("options");
+        for (JiraMetadataCache.Entry entry : entries) {
+            ObjectNode option = options.addObject();
+            option.putObject("text").put("type", "plain_text").put("text", optionText(entry));
+            option.put("value", entry.id());
+        }
+        return response.toString();
+    }
+
+    private static String commandName(String text) {
+        if ("connect".equalsIgnoreCase(text)) return "connect";
+        if ("map".equalsIgnoreCase(text)) return "map";
+        return PROGRESS.matcher(text).matches() ? "progress" : "usage";
+    }
+
+    private Outcome runCommand(String text, String triggerId, SlackUser user, String responseUrl) {
+        if ("connect".equalsIgnoreCase(text)) {
+            boolean accepted = dispatcher.dispatch(user.teamId(), "jira.connect", responseUrl, () -> {
+                String authorizeUrl = jiraOAuthService.createAuthorizationUrl(user);
+                slackService.openConnectModal(installations.botToken(user.teamId()), triggerId, authorizeUrl);
+                log.atInfo().addKeyValue("event", "slack.command.jira.connect").addKeyValue("teamId", user.teamId())
+                        .addKeyValue("slackUserId", user.userId()).log("Handled /jira connect");
+                return null;
+            });
+            return accepted ? Outcome.remembered(jsonText("Opening Jira connect modal...")) : Outcome.retryable(jsonText(BUSY_TEXT));
+        }
+
+        if ("map".equalsIgnoreCase(text)) {
+            boolean accepted = dispatcher.dispatch(user.teamId(), "jira.map", responseUrl, () -> {
+                slackService.openProjectMappingModal(installations.botToken(user.teamId()), triggerId);
+                return null;
+            });
+            return accepted ? Outcome.remembered(jsonText("Opening project mapping modal...")) : Outcome.retryable(jsonText(BUSY_TEXT));
+        }
+
+        Matcher progress = PROGRESS.matcher(text);
+        if (progress.matches()) {
+            String issueKey = progress.group(1).toUpperCase();
+            BigDecimal value = new BigDecimal(progress.group(2));
+            boolean accepted = dispatcher.dispatch(user.teamId(), "jira.progress", responseUrl, () -> switch (
+                    progressUpdater.submit(user, issueKey, value, responseUrl)) {
+                case QUEUED, COALESCED -> null;
+                case NOT_CONNECTED -> "Connect your Jira account first with /jira connect.";
+                case SITE_UNKNOWN -> "Jira could not be reached to find the site of " + issueKey + ", please try again.";
+                case NOT_MAPPED -> "No progress field is mapped for " + issueKey + ". Set one up with /jira map.";
+                case BUSY -> BUSY_TEXT;
+            });
+            return accepted ? Outcome.remembered(jsonText("Updating " + issueKey + " progress to " + value.toPlainString() + "..."))
+                    : Outcome.retryable(jsonText(BUSY_TEXT));
+        }
+
+        return Outcome.remembered(jsonText("Usage: /jira connect OR /jira map OR /jira progress ISSUE-1 40"));
+    }
+
+    private Outcome submitMapping(SlackInteraction.ViewSubmission view) {
+        SlackService.MappingSubmission submission = SlackService.MappingSubmission.from(view);
+        // validation answers are not remembered: the user fixes the modal and submits the same view again
+        JiraMetadataCache.Validation validation = metadataCache.validate(submission.user(),
+                submission.projectKey(), submission.progressFieldId());
+        if (!validation.checked()) {
+            return Outcome.retryable(viewErrors(Map.of("project_block", UNCHECKED_TEXT)));
+        }
+        if (!validation.isValid()) {
+            return Outcome.retryable(viewErrors(validation.errors()));
+        }
+        boolean accepted = dispatcher.dispatch(submission.user().teamId(), "jira_mapping_submit", null, () -> {
+            projectMappingService.saveMapping(submission.user(), submission.projectKey(), submission.progressFieldId());
+            log.atInfo().addKeyValue("event", "slack.interaction.mapping.saved")
+                    .addKeyValue("teamId", submission.user().teamId())
+                    .addKeyValue("slackUserId", submission.user().userId())
+                    .addKeyValue("projectKey", submission.projectKey())
+                    .log("Saved Jira project mapping from Slack modal");
+            return null;
+        });
+        return accepted ? Outcome.remembered("") : Outcome.retryable(BUSY_SUBMISSION);
+    }
+
+    private String viewErrors(Map<String, String> errors) {
+        ObjectNode response = om.createObjectNode().put("response_action", "errors");
+        ObjectNode fields = response.putObject("errors");
+        errors.forEach(fields::put);
+        return response.toString();
+    }
+
+    private static String optionText(JiraMetadataCache.Entry entry) {
+        String text = entry.name() + " (" + entry.id() + ")";
+        return text.length() <= MAX_OPTION_TEXT ? text : text.substring(0, MAX_OPTION_TEXT - 1) + "\u2026";
+    }
+
+    private static String jsonText(String text) {
+        return "{\"response_type\":\"ephemeral\",\"text\":\"" + text + "\"}";
+    }
+
+    private static String orEmpty(String value) {
+        return value == null ? "" : value;
+    }
+}
@@ -0,0 +1,83 @@
+package com.mlorenc.slack.jira.bot.controller;
+
+import com.mlorenc.slack.jira.bot.config.BotProperties;
+import com.mlorenc.slack.jira.bot.service.SlackInstallationStore;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseCookie;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CookieValue;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Slack's OAuth v2 install flow: {@code /slack/install} sends an admin to Slack's consent screen
+ * and Slack redirects back to {@code /slack/oauth/callback} with the code for the workspace's bot
+ * token. Browser requests, so {@link SlackVerificationFilter} leaves them alone.
+ * <p>
+ * The install issues a random {@code state} and also sets it in a short-lived cookie; the callback
+ * only exchanges a code whose {@code state} matches the cookie of the same browser, so a
+ * callback link forged by someone else cannot install their workspace through an admin's session.
+ */
+@RestController
+public class SlackInstallController {
+
+    static final String STATE_COOKIE = "slack_install_state";
+
+    private final SlackInstallationStore installations;
+    private final BotProperties properties;
+
+    public SlackInstallController(SlackInstallationStore installations, BotProperties properties) {
+        this.installations = installations;
+        this.properties = properties;
+    }
+
+    @GetMapping("/slack/install")
+    public ResponseEntity<Void> install() {
+        String state = UUID.randomUUID().toString();
+        return ResponseEntity.status(HttpStatus.FOUND)
+                .header(HttpHeaders.SET_COOKIE, stateCookie(state, properties.oauthStates().ttl()).toString())
+                .location(URI.create(installations.authorizationUrl(state)))
+                .build();
+    }
+
+    @GetMapping("/slack/oauth/callback")
+    public ResponseEntity<String> callback(@RequestParam(value = "code", required = false) String code,
+                                           @RequestParam(value = "state", required = false) String state,
+                                           @RequestParam(value = "error", required = false) String error,
+                                           @CookieValue(value = STATE_COOKIE, required = false) String expectedState) {
+        String clear = stateCookie("", Duration.ZERO).toString();
+        if (code == null) {
+            return ResponseEntity.badRequest().header(HttpHeaders.SET_COOKIE, clear)
+                    .body("Slack installation was not completed: " + (error == null ? "no code" : error));
+        }
+        if (state == null || expectedState == null || !MessageDigest.isEqual(state.getBytes(StandardCharsets.UTF_8),
+                expectedState.getBytes(StandardCharsets.UTF_8))) {
+            return ResponseEntity.badRequest().header(HttpHeaders.SET_COOKIE, clear)
+                    .body("Slack installation was not completed: the request did not start here or has expired. "
+                            + "Start again from the install link.");
+        }
+        installations.install(code);
+        return ResponseEntity.ok().header(HttpHeaders.SET_COOKIE, clear)
+                .body("The bot is installed in your Slack workspace. You can close this window.");
+    }
+
+    // Lax is still sent on Slack's top-level redirect back; Secure only when the callback is served over https
+    private ResponseCookie stateCookie(String value, Duration maxAge) {
+        String redirectUri = properties.slack().redirectUri();
+        return ResponseCookie.from(STATE_COOKIE, value)
+                .httpOnly(true)
+                .secure(redirectUri != null && redirectUri.startsWith("https:"))
+                .sameSite("Lax")
+                .path("/slack/oauth")
+                .maxAge(maxAge)
+                .build();
+    }
+}
@@ -0,0 +1,65 @@
+package com.mlorenc.slack.jira.bot.controller;
+
+import com.mlorenc.slack.jira.bot.core.UrlEncodedForm;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Slack request body read by {@link SlackVerificationFilter}. The bytes live in a pooled buffer
+ * that is returned once the request completes, so values must be read before the request ends,
+ * not captured for later; the body and the form throw {@link IllegalStateException} once released.
+ */
+public final class SlackRequest {
+
+    public static final String ATTRIBUTE = "com.mlorenc.slack.jira.bot.controller.SlackRequest";
+
+    private final byte[] buffer;
+    private final int length;
+    private final boolean verified;
+    private UrlEncodedForm form;
+    private volatile boolean released;
+
+    SlackRequest(byte[] buffer, int length, boolean verified) {
+        this.buffer = buffer;
+        this.length = length;
+        this.verified = verified;
+    }
+
+    public boolean isVerified() {
+        return verified;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public String body() {
+        ensureReadable();
+        return new String(buffer, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Form fields of the body. Values are decoded from the pooled buffer on each read, so the
+     * form must not outlive the request.
+     */
+    public UrlEncodedForm form() {
+        ensureReadable();
+        if (form == null) {
+            form = UrlEncodedForm.of(buffer, 0, length);
+        }
+        return form;
+    }
+
+    void release() {
+        released = true;
+        if (form != null) {
+            form.detach();
+        }
+    }
+
+    private void ensureReadable() {
+        if (released) {
+            throw new IllegalStateException("Slack request body was already released");
+        }
+    }
+}
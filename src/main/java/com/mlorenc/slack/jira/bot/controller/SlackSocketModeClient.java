@@ -0,0 +1,385 @@
+package com.mlorenc.slack.jira.bot.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.TextNode;
+import com.mlorenc.slack.jira.bot.config.BotProperties;
+import com.mlorenc.slack.jira.bot.core.ClientExecutors;
+import com.mlorenc.slack.jira.bot.core.SlackApiClient;
+import com.mlorenc.slack.jira.bot.core.SlackInteraction;
+import com.mlorenc.slack.jira.bot.core.SlackInteractionParser;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Slack Socket Mode transport: keeps {@code connections} WebSockets open to Slack and hands the
+ * envelopes to the same {@link SlackInboundHandler} as the HTTP endpoints. The connections are
+ * opened by the bot with its app-level token, so envelopes carry no signature to verify and no
+ * form to decode. Each envelope is handled off the socket's reader and acked on the connection it
+ * arrived on with the handler's answer as the ack payload.
+ * <p>
+ * A connection Slack asks to refresh ({@code disconnect}) is replaced before it is closed; one that
+ * fails or closes is reopened after {@code reconnectBackoff}, doubling up to
+ * {@code maxReconnectBackoff} while attempts keep failing. Connections are pinged so that a silent
+ * one is noticed within {@code idleTimeout}.
+ */
+@Component
+@ConditionalOnProperty(prefix = "bot.socketMode", name = "enabled", havingValue = "true")
+public class SlackSocketModeClient implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(SlackSocketModeClient.class);
+
+    private final SlackInboundHandler handler;
+    private final SlackInteractionParser interactionParser;
+    private final SlackApiClient apiClient;
+    private final ObjectMapper om;
+    private final BotProperties.SocketMode settings;
+    private final ExecutorService socketExecutor;
+    private final ExecutorService handlerExecutor;
+    private final HttpClient http;
+    private final Duration connectTimeout;
+    // reconnect delays and the idle check
+    private final ScheduledExecutorService timer =
+            Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("slack-socket-timer").daemon().factory());
+    private final List<Slot> slots = new ArrayList<>();
+    private volatile boolean stopped;
+
+    private final LongAdder envelopes = new LongAdder();
+    private final LongAdder failedEnvelopes = new LongAdder();
+    private final LongAdder opened = new LongAdder();
+    private final LongAdder connectFailures = new LongAdder();
+
+    public SlackSocketModeClient(SlackInboundHandler handler, SlackInteractionParser interactionParser,
+                                 SlackApiClient apiClient, ObjectMapper objectMapper, BotProperties properties,
+                                 MeterRegistry registry, @Value(ClientExecutors.VIRTUAL_THREADS) boolean virtualThreads) {
+        this.handler = handler;
+        this.interactionParser = interactionParser;
+        this.apiClient = apiClient;
+        this.om = objectMapper;
+        this.settings = properties.socketMode();
+        if (settings.appToken() == null || settings.appToken().isBlank()) {
+            throw new IllegalStateException("bot.socketMode.appToken is required when Socket Mode is enabled");
+        }
+        // socket reads and acks are short; the handlers can wait on Jira and get their own threads
+        this.socketExecutor = ClientExecutors.create(registry, "slack-socket", settings.connections(), virtualThreads);
+        this.handlerExecutor = ClientExecutors.create(registry, "slack-socket-handler", settings.handlerThreads(), virtualThreads);
+        this.connectTimeout = properties.slackApi().connectTimeout();
+        this.http = HttpClient.newBuilder()
+                .connectTimeout(connectTimeout)
+                .executor(socketExecutor)
+                .build();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        for (int i = 0; i < settings.connections(); i++) {
+            Slot slot = new Slot(i);
+            slots.add(slot);
+            slot.open();
+        }
+        long interval = settings.idleTimeout().toMillis() / 2;
+        timer.scheduleWithFixedDelay(this::checkIdle, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    public Stats stats() {
+        int open = 0;
+        for (Slot slot : slots) {
+            if (slot.current != null) open++;
+        }
+        return new Stats(open, opened.sum(), connectFailures.sum(), envelopes.sum(), failedEnvelopes.sum());
+    }
+
+    /**
+     * Pings every connection and drops those that have not received anything, not even a pong,
+     * for {@code idleTimeout}. A path that died without a TCP close (a proxy dropping the session,
+     * for example) is otherwise never noticed.
+     */
+    private void checkIdle() {
+        long now = System.nanoTime();
+        for (Slot slot : slots) {
+            Link link = slot.current;
+            if (link == null) continue;
+            if (now - link.lastReceived > settings.idleTimeout().toNanos()) {
+                log.atWarn().addKeyValue("event", "slack.socket.idle").addKeyValue("slot", slot.index)
+                        .log("Dropping silent Socket Mode connection");
+                link.socket.abort();
+                slot.closed(link);
+            } else {
+                link.ping();
+            }
+        }
+    }
+
+    private void receive(Link link, String message) {
+        JsonNode envelope;
+        try {
+            envelope = om.readTree(message);
+        } catch (IOException ex) {
+            log.atWarn().addKeyValue("event", "slack.socket.message.invalid").setCause(ex).log("Ignoring unreadable Socket Mode message");
+            return;
+        }
+        String type = envelope.path("type").asText();
+        switch (type) {
+            case "hello" -> link.slot.ready(link);
+            case "disconnect" -> {
+                log.atInfo().addKeyValue("event", "slack.socket.disconnect").addKeyValue("slot", link.slot.index)
+                        .addKeyValue("reason", envelope.path("reason").asText()).log("Slack asked to replace a Socket Mode connection");
+                link.slot.replace(link);
+            }
+            case "slash_commands", "interactive", "events_api" -> {
+                envelopes.increment();
+                try {
+                    handlerExecutor.execute(() -> link.send(ack(envelope, type)));
+                } catch (RejectedExecutionException ex) {
+                    // stopping; Slack redelivers what we did not ack
+                }
+            }
+            default -> log.atDebug().addKeyValue("event", "slack.socket.message.ignored").addKeyValue("type", type)
+                    .log("Ignoring Socket Mode message");
+        }
+    }
+
+    private String ack(JsonNode envelope, String type) {
+        String envelopeId = envelope.path("envelope_id").asText();
+        String response;
+        try {
+            response = handle(type, envelope.path("payload"), envelope.path("retry_attempt").asInt(0));
+        } catch (Exception ex) {
+            // acked anyway: Slack would redeliver the envelope into the same failure
+            failedEnvelopes.increment();
+            log.atWarn().addKeyValue("event", "slack.socket.envelope.failed").addKeyValue("type", type).setCause(ex)
+                    .log("Unable to handle Socket Mode envelope");
+            response = "";
+        }
+        String id = TextNode.valueOf(envelopeId).toString();
+        return response.isEmpty() ? "{\"envelope_id\":" + id + "}" : "{\"envelope_id\":" + id + ",\"payload\":" + response + "}";
+    }
+
+    private String handle(String type, JsonNode payload, int retryAttempt) throws IOException {
+        return switch (type) {
+            case "slash_commands" -> handler.command(name -> payload.path(name).textValue(),
+                    retryAttempt > 0 ? String.valueOf(retryAttempt) : null);
+            case "interactive" -> {
+                SlackInteraction interaction = interactionParser.parse(payload);
+                yield interaction instanceof SlackInteraction.BlockSuggestion
+                        ? handler.options(interaction) : handler.interaction(interaction);
+            }
+            // the app subscribes to no events; acked so Slack stops retrying them
+            default -> "";
+        };
+    }
+
+    @Override
+    public void destroy() {
+        stopped = true;
+        timer.shutdownNow();
+        for (Slot slot : slots) {
+            Link link = slot.current;
+            if (link != null) link.socket.abort();
+        }
+        handlerExecutor.shutdownNow();
+        socketExecutor.shutdownNow();
+    }
+
+    /**
+     * One of the {@code connections} the client keeps open, reopened whenever its socket is lost.
+     */
+    private final class Slot {
+
+        private final int index;
+        private final AtomicInteger failures = new AtomicInteger();
+        private volatile Link current;
+
+        private Slot(int index) {
+            this.index = index;
+        }
+
+        private void open() {
+            if (stopped) return;
+            apiClient.sendAsync("apps.connections.open", settings.appToken(), "{}")
+                    .thenCompose(body -> {
+                        Link link = new Link(this);
+                        return http.newWebSocketBuilder()
+                                .connectTimeout(connectTimeout)
+                                .buildAsync(URI.create(body.path("url").asText()), link);
+                    })
+                    .whenComplete((socket, ex) -> {
+                        if (ex != null) {
+                            connectFailures.increment();
+                            log.atWarn().addKeyValue("event", "slack.socket.connect.failed").addKeyValue("slot", index)
+                                    .setCause(ex).log("Unable to open Socket Mode connection");
+                            retry();
+                        }
+                    });
+        }
+
+        private void retry() {
+            if (stopped) return;
+            int attempt = failures.getAndIncrement();
+            long delay = settings.reconnectBackoff().toMillis() << Math.min(attempt, 20);
+            delay = Math.min(delay, settings.maxReconnectBackoff().toMillis());
+            try {
+                timer.schedule(this::open, delay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException ex) {
+                // stopping
+            }
+        }
+
+        // the socket is open; a connection it replaces is closed once its pending acks are sent
+        private void opened(Link link) {
+            opened.increment();
+            Link previous = current;
+            current = link;
+            if (previous != null) previous.close();
+        }
+
+        private void ready(Link link) {
+            failures.set(0);
+            log.atInfo().addKeyValue("event", "slack.socket.connected").addKeyValue("slot", index)
+                    .log("Socket Mode connection ready");
+        }
+
+        private void replace(Link link) {
+            if (current == link && link.replacing.compareAndSet(false, true)) {
+                open();
+            }
+        }
+
+        private void closed(Link link) {
+            if (current != link) return;
+            current = null;
+            retry();
+        }
+    }
+
+    /**
+     * Listener for one WebSocket. The JDK allows one outstanding send per socket, so acks are
+     * chained behind each other.
+     */
+    private final class Link implements WebSocket.Listener {
+
+        private final Slot slot;
+        private final StringBuilder partial = new StringBuilder();
+        private final ReentrantLock sendLock = new ReentrantLock();
+        private final AtomicBoolean replacing = new AtomicBoolean();
+        private CompletableFuture<WebSocket> sends = CompletableFuture.completedFuture(null);
+        private volatile WebSocket socket;
+        private volatile long lastReceived = System.nanoTime();
+
+        private Link(Slot slot) {
+            this.slot = slot;
+        }
+
+        @Override
+        public void onOpen(WebSocket webSocket) {
+            socket = webSocket;
+            slot.opened(this);
+            webSocket.request(1);
+        }
+
+        @Override
+        public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+            lastReceived = System.nanoTime();
+            partial.append(data);
+            if (last) {
+                String message = partial.toString();
+                partial.setLength(0);
+                receive(this, message);
+            }
+            webSocket.request(1);
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onPing(WebSocket webSocket, ByteBuffer message) {
+            lastReceived = System.nanoTime();
+            return WebSocket.Listener.super.onPing(webSocket, message);
+        }
+
+        @Override
+        public CompletionStage<?> onPong(WebSocket webSocket, ByteBuffer message) {
+            lastReceived = System.nanoTime();
+            webSocket.request(1);
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
+            log.atInfo().addKeyValue("event", "slack.socket.closed").addKeyValue("slot", slot.index)
+                    .addKeyValue("status", statusCode).log("Socket Mode connection closed");
+            slot.closed(this);
+            return null;
+        }
+
+        @Override
+        public void onError(WebSocket webSocket, Throwable error) {
+            log.atWarn().addKeyValue("event", "slack.socket.failed").addKeyValue("slot", slot.index)
+                    .setCause(error).log("Socket Mode connection failed");
+            slot.closed(this);
+        }
+
+        private void send(String text) {
+            sendLock.lock();
+            try {
+                sends = sends.exceptionally(ex -> null).thenCompose(ws -> socket.sendText(text, true));
+                sends.whenComplete((ws, ex) -> {
+                    if (ex != null) {
+                        log.atWarn().addKeyValue("event", "slack.socket.ack.failed").addKeyValue("slot", slot.index)
+                                .setCause(ex).log("Unable to ack Socket Mode envelope");
+                    }
+                });
+            } finally {
+                sendLock.unlock();
+            }
+        }
+
+        private void ping() {
+            sendLock.lock();
+            try {
+                sends = sends.exceptionally(ex -> null).thenCompose(ws -> socket.sendPing(ByteBuffer.allocate(0)));
+            } finally {
+                sendLock.unlock();
+            }
+        }
+
+        private void close() {
+            sendLock.lock();
+            try {
+                sends = sends.exceptionally(ex -> null)
+                        .thenCompose(ws -> socket.sendClose(WebSocket.NORMAL_CLOSURE, "replaced"));
+            } finally {
+                sendLock.unlock();
+            }
+        }
+    }
+
+    public record Stats(int open, long opened, long connectFailures, long envelopes, long failedEnvelopes) {
+    }
+}
@@ -0,0 +1,101 @@
+package com.mlorenc.slack.jira.bot.controller;
+
+import com.mlorenc.slack.jira.bot.config.BotProperties;
+import com.mlorenc.slack.jira.bot.core.SlackMetrics;
+import com.mlorenc.slack.jira.bot.core.SlackSignatureVerifier;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Reads the body of every {@code /slack/**} request once into a pooled buffer, computing the
+ * Slack HMAC while it reads, and exposes the result to controllers as a {@link SlackRequest}
+ * request attribute. Controllers decide how to answer unverified requests. The install flow's
+ * browser redirects are not signed and pass through untouched.
+ */
+@Component
+public class SlackVerificationFilter extends OncePerRequestFilter {
+
+    private static final int MAX_BODY_BYTES = 1024 * 1024;
+
+    private final SlackSignatureVerifier verifier;
+    private final BotProperties properties;
+    private final SlackMetrics metrics;
+    private final BodyBufferPool bufferPool = new BodyBufferPool(64, 16 * 1024);
+
+    public SlackVerificationFilter(SlackSignatureVerifier verifier, BotProperties properties, SlackMetrics metrics) {
+        this.verifier = verifier;
+        this.properties = properties;
+        this.metrics = metrics;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return !path.startsWith("/slack/") || path.equals("/slack/install") || path.startsWith("/slack/oauth/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        int contentLength = request.getContentLength();
+        if (contentLength > MAX_BODY_BYTES) {
+            response.sendError(HttpStatus.PAYLOAD_TOO_LARGE.value());
+            return;
+        }
+
+        long startedAt = System.nanoTime();
+        SlackSignatureVerifier.Signer signer = verifier.start(properties.slack().signingSecret(),
+                request.getHeader("X-Slack-Request-Timestamp"));
+        byte[] buffer = bufferPool.acquire(contentLength);
+        int length = 0;
+        boolean complete = false;
+        try (InputStream in = request.getInputStream()) {
+            int n;
+            while ((n = in.read(buffer, length, buffer.length - length)) != -1) {
+                if (signer != null) signer.update(buffer, length, n);
+                length += n;
+                if (length < buffer.length) continue;
+                // a full buffer may hold the whole body; only grow when more bytes follow
+                int next = in.read();
+                if (next == -1) break;
+                if (length >= MAX_BODY_BYTES) {
+                    response.sendError(HttpStatus.PAYLOAD_TOO_LARGE.value());
+                    return;
+                }
+                byte[] grown = Arrays.copyOf(buffer, Math.min(buffer.length * 2, MAX_BODY_BYTES));
+                bufferPool.release(buffer);
+                buffer = grown;
+                buffer[length] = (byte) next;
+                if (signer != null) signer.update(buffer, length, 1);
+                length++;
+            }
+            complete = true;
+        } finally {
+            // a body that is too large or whose read failed never reaches the chain
+            if (!complete) {
+                if (signer != null) signer.release();
+                bufferPool.release(buffer);
+            }
+        }
+
+        boolean verified = signer != null && signer.finish(request.getHeader("X-Slack-Signature"));
+        metrics.recordVerification(System.nanoTime() - startedAt, signer != null, verified);
+        SlackRequest slackRequest = new SlackRequest(buffer, length, verified);
+        request.setAttribute(SlackRequest.ATTRIBUTE, slackRequest);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            slackRequest.release();
+            bufferPool.release(buffer);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.mlorenc.slack.jira.bot.core;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import net.logstash.logback.appender.LoggingEventAsyncDisruptorAppender;
+import net.logstash.logback.appender.listener.AppenderListener;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ring-buffer appender configured in {@code logback-spring.xml}: the calling thread only copies
+ * the event into a slot and returns, while one consumer thread encodes and writes it. With
+ * {@code appendTimeout} 0 a full buffer drops the event instead of blocking the request. Counts
+ * are process-wide because logback is set up before, and outside of, the Spring context.
+ */
+public class AsyncLogAppender extends LoggingEventAsyncDisruptorAppender {
+
+    private static final LongAdder queued = new LongAdder();
+    private static final LongAdder dropped = new LongAdder();
+    private static volatile AsyncLogAppender current;
+
+    public AsyncLogAppender() {
+        addListener(new AppenderListener<>() {
+            @Override
+            public void eventAppended(Appender<ILoggingEvent> appender, ILoggingEvent event, long durationInNanos) {
+                queued.increment();
+            }
+
+            @Override
+            public void eventAppendFailed(Appender<ILoggingEvent> appender, ILoggingEvent event, Throwable reason) {
+                dropped.increment();
+            }
+        });
+    }
+
+    @Override
+    public void start() {
+        super.start();
+        if (isStarted()) current = this;
+    }
+
+    @Override
+    public void stop() {
+        if (current == this) current = null;
+        super.stop();
+    }
+
+    public static Stats stats() {
+        AsyncLogAppender appender = current;
+        return new Stats(queued.sum(), dropped.sum(), appender == null ? 0 : appender.pending());
+    }
+
+    private long pending() {
+        var disruptor = getDisruptor();
+        if (disruptor == null) return 0;
+        var ringBuffer = disruptor.getRingBuffer();
+        return ringBuffer.getBufferSize() - ringBuffer.remainingCapacity();
+    }
+
+    /**
+     * {@code queued} counts events handed to the ring buffer, {@code pending} those of them not
+     * written yet.
+     */
+    public record Stats(long queued, long dropped, long pending) {
+    }
+}
@@ -0,0 +1,39 @@
+package com.mlorenc.slack.jira.bot.core;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.OutputStreamAppender;
+
+import java.io.BufferedOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+
+/**
+ * Writes to the process's stdout through its own buffer. {@code System.out} flushes on every
+ * line, so a {@code ConsoleAppender} behind the ring buffer would still make one write call per
+ * event; with {@code immediateFlush} off, {@link AsyncLogAppender} flushes this appender once
+ * per batch it drains.
+ */
+public class BufferedStdoutAppender extends OutputStreamAppender<ILoggingEvent> {
+
+    private int bufferSize = 64 * 1024;
+
+    public BufferedStdoutAppender() {
+        setImmediateFlush(false);
+    }
+
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    @Override
+    public void start() {
+        // stopping the appender closes its stream; stdout is shared and has to stay open
+        FileOutputStream stdout = new FileOutputStream(FileDescriptor.out) {
+            @Override
+            public void close() {
+            }
+        };
+        setOutputStream(new BufferedOutputStream(stdout, bufferSize));
+        super.start();
+    }
+}
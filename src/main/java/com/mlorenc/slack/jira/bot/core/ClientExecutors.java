@@ -0,0 +1,31 @@
+package com.mlorenc.slack.jira.bot.core;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Executors behind the outbound HTTP clients. They run the clients' callbacks and the blocking
+ * steps handed to them, such as a token refresh. With {@code spring.threads.virtual.enabled}
+ * every task gets its own virtual thread; otherwise a fixed pool of {@code platformThreads}
+ * serves them all. Either way the executor is timed under {@code name}.
+ */
+public final class ClientExecutors {
+
+    /**
+     * Constructor argument expression for whether the application runs on virtual threads.
+     */
+    public static final String VIRTUAL_THREADS = "${spring.threads.virtual.enabled:false}";
+
+    private ClientExecutors() {
+    }
+
+    public static ExecutorService create(MeterRegistry registry, String name, int platformThreads, boolean virtualThreads) {
+        ExecutorService executor = virtualThreads
+                ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 0).factory())
+                : Executors.newFixedThreadPool(platformThreads, Thread.ofPlatform().name(name + "-", 0).daemon().factory());
+        return ExecutorServiceMetrics.monitor(registry, executor, name);
+    }
+}
@@ -0,0 +1,84 @@
+package com.mlorenc.slack.jira.bot.core;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.filter.Filter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.event.KeyValuePair;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thins out high-volume events by their {@code event} key before they reach the ring buffer.
+ * Policies are {@code key=n} pairs separated by commas: keep one in {@code n} events with that
+ * key, or none for {@code n = 0}. Warnings and errors always pass.
+ */
+public class EventSamplingFilter extends Filter<ILoggingEvent> {
+
+    private static final String EVENT_KEY = "event";
+    private static final LongAdder sampledOut = new LongAdder();
+
+    private volatile Map<String, Policy> policies = Map.of();
+
+    public void setPolicies(String spec) {
+        Map<String, Policy> parsed = new HashMap<>();
+        if (spec != null) {
+            for (String entry : spec.split(",")) {
+                if (entry.isBlank()) continue;
+                int separator = entry.indexOf('=');
+                if (separator < 0) {
+                    addError("Ignoring sampling policy without '=': " + entry.strip());
+                    continue;
+                }
+                try {
+                    int keepOneIn = Integer.parseInt(entry.substring(separator + 1).strip());
+                    if (keepOneIn < 0) throw new NumberFormatException("negative");
+                    parsed.put(entry.substring(0, separator).strip(), new Policy(keepOneIn));
+                } catch (NumberFormatException ex) {
+                    addError("Ignoring sampling policy with invalid rate: " + entry.strip());
+                }
+            }
+        }
+        policies = Map.copyOf(parsed);
+    }
+
+    @Override
+    public FilterReply decide(ILoggingEvent event) {
+        if (policies.isEmpty() || event.getLevel().isGreaterOrEqual(Level.WARN)) return FilterReply.NEUTRAL;
+        String key = eventKey(event.getKeyValuePairs());
+        Policy policy = key == null ? null : policies.get(key);
+        if (policy == null || policy.keep()) return FilterReply.NEUTRAL;
+        sampledOut.increment();
+        return FilterReply.DENY;
+    }
+
+    /**
+     * Events denied by any sampling filter in this process.
+     */
+    public static long sampledOut() {
+        return sampledOut.sum();
+    }
+
+    private static String eventKey(List<KeyValuePair> pairs) {
+        if (pairs == null) return null;
+        for (KeyValuePair pair : pairs) {
+            if (EVENT_KEY.equals(pair.key) && pair.value != null) return pair.value.toString();
+        }
+        return null;
+    }
+
+    private record Policy(int keepOneIn, AtomicLong seen) {
+
+        Policy(int keepOneIn) {
+            this(keepOneIn, new AtomicLong());
+        }
+
+        boolean keep() {
+            return keepOneIn != 0 && seen.getAndIncrement() % keepOneIn == 0;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.mlorenc.slack.jira.bot.core;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Bounded pool of reusable objects that are expensive to create, such as initialized
+ * {@link javax.crypto.Mac} or {@link javax.crypto.Cipher} instances. Unlike a
+ * {@link ThreadLocal} it is shared by every thread, so short-lived virtual threads reuse
+ * instances too. A miss creates a new object, and a release into a full pool drops it, so the
+ * pool never blocks and holds at most {@code capacity} idle objects.
+ */
+public final class ObjectPool<T> {
+
+    private final ArrayBlockingQueue<T> idle;
+    private final Supplier<T> factory;
+
+    private final LongAdder created = new LongAdder();
+    private final LongAdder reused = new LongAdder();
+
+    public ObjectPool(int capacity, Supplier<T> factory) {
+        this.idle = new ArrayBlockingQueue<>(capacity);
+        this.factory = factory;
+    }
+
+    public T acquire() {
+        T object = idle.poll();
+        if (object != null) {
+            reused.increment();
+            return object;
+        }
+        created.increment();
+        return factory.get();
+    }
+
+    /**
+     * Returns an object taken with {@link #acquire}. It must be released at most once and not
+     * used afterwards.
+     */
+    public void release(T object) {
+        idle.offer(object);
+    }
+
+    public Stats stats() {
+        return new Stats(idle.size(), created.sum(), reused.sum());
+    }
+
+    public record Stats(int idle, long created, long reused) {
+
+        public Stats plus(Stats other) {
+            return new Stats(idle + other.idle, created + other.created, reused + other.reused);
+        }
+    }
+}
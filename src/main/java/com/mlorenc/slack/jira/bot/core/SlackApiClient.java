@@ -0,0 +1,173 @@
+package com.mlorenc.slack.jira.bot.core;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mlorenc.slack.jira.bot.config.BotProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared client for the Slack Web API and {@code response_url} posts. One {@link HttpClient}
+ * prefers HTTP/2 and keeps connections alive across calls, and it runs callbacks on its own
+ * small executor instead of the common pool. Latency is recorded as the {@code bot.slack.api.calls}
+ * timer tagged with the method and outcome.
+ */
+@Component
+public class SlackApiClient implements DisposableBean {
+
+    static final String RESPONSE_URL = "response_url";
+
+    private final ObjectMapper om;
+    private final String baseUrl;
+    private final Duration requestTimeout;
+    private final ExecutorService executor;
+    private final HttpClient http;
+    private final Map<TimerKey, Timer> timers = new ConcurrentHashMap<>();
+    private final MeterRegistry registry;
+
+    public SlackApiClient(ObjectMapper objectMapper, BotProperties properties, MeterRegistry registry,
+                          @Value(ClientExecutors.VIRTUAL_THREADS) boolean virtualThreads) {
+        BotProperties.SlackApi settings = properties.slackApi();
+        this.om = objectMapper;
+        this.registry = registry;
+        this.baseUrl = settings.baseUrl().endsWith("/") ? settings.baseUrl() : settings.baseUrl() + "/";
+        this.requestTimeout = settings.requestTimeout();
+        this.executor = ClientExecutors.create(registry, "slack-http", settings.executorThreads(), virtualThreads);
+        this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(settings.connectTimeout())
+                .executor(executor)
+                .build();
+    }
+
+    /**
+     * Calls a Web API method with a JSON body. The future completes with the parsed response, or
+     * exceptionally with {@link SlackApiException} when Slack reports a failure.
+     */
+    public CompletableFuture<JsonNode> sendAsync(String method, String botToken, byte[] jsonPayload) {
+        HttpRequest req = HttpRequest.newBuilder()
+                .uri(URI.create(baseUrl + method))
+                .timeout(requestTimeout)
+                .header("Authorization", "Bearer " + botToken)
+                .header("Content-Type", "application/json; charset=utf-8")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(jsonPayload))
+                .build();
+        long startedAt = System.nanoTime();
+        return metered(method, startedAt, http.sendAsync(req, HttpResponse.BodyHandlers.ofByteArray())
+                .thenApply(resp -> parse(method, resp)));
+    }
+
+    public CompletableFuture<JsonNode> sendAsync(String method, String botToken, String jsonPayload) {
+        return sendAsync(method, botToken, jsonPayload.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Posts a JSON message to an interaction {@code response_url}.
+     */
+    public CompletableFuture<Void> postAsync(String responseUrl, String jsonPayload) {
+        HttpRequest req = HttpRequest.newBuilder()
+                .uri(URI.create(responseUrl))
+                .timeout(requestTimeout)
+                .header("Content-Type", "application/json; charset=utf-8")
+                .POST(HttpRequest.BodyPublishers.ofString(jsonPayload, StandardCharsets.UTF_8))
+                .build();
+        long startedAt = System.nanoTime();
+        return metered(RESPONSE_URL, startedAt, http.sendAsync(req, HttpResponse.BodyHandlers.discarding())
+                .thenAccept(resp -> {
+                    if (resp.statusCode() != 200) {
+                        throw new SlackApiException(RESPONSE_URL, resp.statusCode(), null);
+                    }
+                }));
+    }
+
+    public JsonNode send(String method, String botToken, String jsonPayload) throws Exception {
+        return await(sendAsync(method, botToken, jsonPayload));
+    }
+
+    public void post(String responseUrl, String jsonPayload) throws Exception {
+        await(postAsync(responseUrl, jsonPayload));
+    }
+
+    // method names come from our own call sites, so the tag stays bounded
+    private <T> CompletableFuture<T> metered(String method, long startedAt, CompletableFuture<T> call) {
+        return call.whenComplete((result, ex) -> timer(method, outcome(ex))
+                .record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS));
+    }
+
+    // the registry's own lookup builds tags and a meter id on every call
+    private Timer timer(String method, String outcome) {
+        return timers.computeIfAbsent(new TimerKey(method, outcome), key -> Timer.builder("bot.slack.api.calls")
+                .description("Slack Web API and response_url calls")
+                .tag("method", key.method())
+                .tag("outcome", key.outcome())
+                .register(registry));
+    }
+
+    private static String outcome(Throwable ex) {
+        if (ex == null) return "ok";
+        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+        if (cause instanceof SlackApiException sae) return sae.isRateLimited() ? "rate_limited" : "error";
+        return "io_error";
+    }
+
+    private JsonNode parse(String method, HttpResponse<byte[]> resp) {
+        if (resp.statusCode() == 429) {
+            throw new SlackApiException(method, 429, "ratelimited", retryAfter(resp));
+        }
+        JsonNode body;
+        try {
+            body = om.readTree(resp.body());
+        } catch (IOException ex) {
+            if (resp.statusCode() / 100 != 2) throw new SlackApiException(method, resp.statusCode(), null);
+            throw new UncheckedIOException(ex);
+        }
+        if (resp.statusCode() / 100 != 2 || !body.path("ok").asBoolean(false)) {
+            throw new SlackApiException(method, resp.statusCode(), body.path("error").asText(null));
+        }
+        return body;
+    }
+
+    private static Duration retryAfter(HttpResponse<?> resp) {
+        return resp.headers().firstValue("Retry-After")
+                .filter(value -> !value.isEmpty() && value.chars().allMatch(Character::isDigit))
+                .map(value -> Duration.ofSeconds(Long.parseLong(value)))
+                .orElse(null);
+    }
+
+    static <T> T await(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause() instanceof CompletionException ce && ce.getCause() != null ? ce.getCause() : ex.getCause();
+            if (cause instanceof Exception e) throw e;
+            throw ex;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private record TimerKey(String method, String outcome) {
+    }
+}
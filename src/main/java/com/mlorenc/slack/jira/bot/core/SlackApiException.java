@@ -0,0 +1,36 @@
+package com.mlorenc.slack.jira.bot.core;
+
+import java.time.Duration;
+
+/**
+ * A Slack Web API call that returned a non-2xx status or {@code "ok": false}.
+ */
+public class SlackApiException extends RuntimeException {
+
+    private final String method;
+    private final int statusCode;
+    private final String error;
+    private final Duration retryAfter;
+
+    public SlackApiException(String method, int statusCode, String error) {
+        this(method, statusCode, error, null);
+    }
+
+    public SlackApiException(String method, int statusCode, String error, Duration retryAfter) {
+        super("Slack " + method + " failed: " + (error != null ? error : "HTTP " + statusCode));
+        this.method = method;
+        this.statusCode = statusCode;
+        this.error = error;
+        this.retryAfter = retryAfter;
+    }
+
+    public boolean isRateLimited() {
+        return statusCode == 429;
+    }
+
+    public String getMethod() { return method; }
+    public int getStatusCode() { return statusCode; }
+    public String getError() { return error; }
+    /** Delay requested by Slack's {@code Retry-After} header, or null if it sent none. */
+    public Duration getRetryAfter() { return retryAfter; }
+}
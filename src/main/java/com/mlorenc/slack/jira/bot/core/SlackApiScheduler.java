@@ -0,0 +1,255 @@
+package com.mlorenc.slack.jira.bot.core;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.mlorenc.slack.jira.bot.config.BotProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Paces outbound Web API calls to Slack's per-method rate tiers. Each workspace (bot token) and
+ * method pair has its own token bucket; a call that finds the bucket empty is delayed until its
+ * slot comes up rather than sent and rejected. A 429 pauses the whole bucket for the
+ * {@code Retry-After} Slack asked for and the call is retried after it; retries are bounded by
+ * {@code maxRetryWait} rather than the shorter {@code maxQueueWait} that applies to new calls.
+ */
+@Component
+public class SlackApiScheduler implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(SlackApiScheduler.class);
+
+    /**
+     * Slack's published rate tiers, in requests per minute per workspace and method.
+     */
+    enum Tier {
+        TIER_1(1), TIER_2(20), TIER_3(50), TIER_4(100);
+
+        final int perMinute;
+
+        Tier(int perMinute) {
+            this.perMinute = perMinute;
+        }
+    }
+
+    private static final Map<String, Tier> TIERS = Map.of(
+            "views.open", Tier.TIER_4,
+            "views.push", Tier.TIER_4,
+            "views.update", Tier.TIER_4,
+            "chat.postEphemeral", Tier.TIER_4,
+            "users.info", Tier.TIER_4,
+            "conversations.info", Tier.TIER_3,
+            // chat.postMessage is "special": about one message per second per channel
+            "chat.postMessage", Tier.TIER_4,
+            "auth.test", Tier.TIER_4,
+            "apps.connections.open", Tier.TIER_1);
+
+    private final SlackApiClient api;
+    private final BotProperties.SlackRateLimit settings;
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService timer =
+            Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("slack-api-scheduler").daemon().factory());
+
+    public SlackApiScheduler(SlackApiClient api, BotProperties properties) {
+        this.api = api;
+        this.settings = properties.slackRateLimit();
+    }
+
+    /**
+     * Sends the call once its rate slot comes up. Completes exceptionally with a rate-limited
+     * {@link SlackApiException} if the call would have to wait longer than the configured maximum
+     * or is still rejected after the configured retries.
+     */
+    public CompletableFuture<JsonNode> submit(String method, String botToken, byte[] jsonPayload) {
+        Bucket bucket = buckets.computeIfAbsent(workspace(botToken) + " " + method,
+                key -> new Bucket(workspace(botToken), method, TIERS.getOrDefault(method, Tier.TIER_3), System.nanoTime()));
+        CompletableFuture<JsonNode> result = new CompletableFuture<>();
+        schedule(bucket, botToken, jsonPayload, 0, result);
+        return result;
+    }
+
+    public JsonNode send(String method, String botToken, byte[] jsonPayload) throws Exception {
+        return SlackApiClient.await(submit(method, botToken, jsonPayload));
+    }
+
+    public JsonNode send(String method, String botToken, String jsonPayload) throws Exception {
+        return send(method, botToken, jsonPayload.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public List<QueueStats> stats() {
+        List<QueueStats> stats = new ArrayList<>(buckets.size());
+        for (Bucket bucket : buckets.values()) {
+            stats.add(new QueueStats(bucket.workspace, bucket.method, bucket.tier.name(), bucket.queued.get(),
+                    bucket.sent.sum(), bucket.rateLimited.sum(), bucket.rejected.sum(),
+                    TimeUnit.NANOSECONDS.toMillis(bucket.totalWaitNanos.sum()),
+                    TimeUnit.NANOSECONDS.toMillis(bucket.maxWaitNanos.get())));
+        }
+        stats.sort(Comparator.comparing(QueueStats::workspace).thenComparing(QueueStats::method));
+        return stats;
+    }
+
+    private void schedule(Bucket bucket, String botToken, byte[] payload, int attempt, CompletableFuture<JsonNode> result) {
+        long waitNanos = bucket.reserve(System.nanoTime());
+        Duration maxWait = attempt == 0 ? settings.maxQueueWait() : settings.maxRetryWait();
+        if (waitNanos > maxWait.toNanos()) {
+            bucket.cancel();
+            bucket.rejected.increment();
+            result.completeExceptionally(new SlackApiException(bucket.method, 429, "ratelimited",
+                    Duration.ofNanos(waitNanos)));
+            return;
+        }
+        bucket.queued.incrementAndGet();
+        bucket.totalWaitNanos.add(waitNanos);
+        bucket.maxWaitNanos.accumulate(waitNanos);
+        Runnable dispatch = () -> {
+            bucket.queued.decrementAndGet();
+            bucket.sent.increment();
+            api.sendAsync(bucket.method, botToken, payload).whenComplete((body, ex) -> {
+                if (ex == null) {
+                    result.complete(body);
+                    return;
+                }
+                Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                if (cause instanceof SlackApiException sae && sae.isRateLimited() && attempt < settings.maxRetries()) {
+                    Duration retryAfter = sae.getRetryAfter() != null ? sae.getRetryAfter() : settings.defaultRetryAfter();
+                    bucket.rateLimited.increment();
+                    bucket.pauseFor(retryAfter.toNanos(), System.nanoTime());
+                    boolean retry = retryAfter.compareTo(settings.maxRetryWait()) <= 0;
+                    log.atWarn().addKeyValue("event", "slack.api.rate_limited").addKeyValue("method", bucket.method)
+                            .addKeyValue("workspace", bucket.workspace).addKeyValue("retryAfterMillis", retryAfter.toMillis())
+                            .addKeyValue("attempt", attempt + 1)
+                            .log(retry ? "Slack rate limited a call; retrying" : "Slack rate limited a call; Retry-After is too long to retry");
+                    if (retry) {
+                        schedule(bucket, botToken, payload, attempt + 1, result);
+                    } else {
+                        bucket.rejected.increment();
+                        result.completeExceptionally(cause);
+                    }
+                } else {
+                    result.completeExceptionally(cause);
+                }
+            });
+        };
+        if (waitNanos == 0) {
+            dispatch.run();
+        } else {
+            timer.schedule(dispatch, waitNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // identifies the workspace without keeping the token itself in stats or logs
+    private static String workspace(String botToken) {
+        return Integer.toHexString(botToken.hashCode());
+    }
+
+    @Override
+    public void destroy() {
+        timer.shutdownNow();
+    }
+
+    /**
+     * Token bucket that hands out future slots instead of refusing: when it is empty the balance
+     * goes negative and the caller is told how long to wait for its turn.
+     */
+    static final class Bucket {
+
+        final String workspace;
+        final String method;
+        final Tier tier;
+        private final double tokensPerNano;
+        private final double capacity;
+        private double tokens;
+        private long refilledAt;
+        private long pausedUntil;
+        private final ReentrantLock lock = new ReentrantLock();
+
+        final AtomicInteger queued = new AtomicInteger();
+        final LongAdder sent = new LongAdder();
+        final LongAdder rateLimited = new LongAdder();
+        final LongAdder rejected = new LongAdder();
+        final LongAdder totalWaitNanos = new LongAdder();
+        final LongAccumulator maxWaitNanos = new LongAccumulator(Long::max, 0);
+
+        Bucket(String workspace, String method, Tier tier, long now) {
+            this.workspace = workspace;
+            this.method = method;
+            this.tier = tier;
+            this.tokensPerNano = tier.perMinute / (double) TimeUnit.MINUTES.toNanos(1);
+            // Slack tolerates short bursts; allow a quarter of a minute's budget at once
+            this.capacity = Math.max(1, tier.perMinute / 4);
+            this.tokens = capacity;
+            this.refilledAt = now;
+            this.pausedUntil = now;
+        }
+
+        /**
+         * Takes one token and returns how many nanoseconds the caller must wait before sending.
+         */
+        long reserve(long now) {
+            lock.lock();
+            try {
+                refill(now);
+                tokens -= 1;
+                long wait = tokens >= 0 ? 0 : (long) Math.ceil(-tokens / tokensPerNano);
+                return Math.max(wait, pausedUntil - now);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Returns a token taken by a call that was not sent after all.
+         */
+        void cancel() {
+            lock.lock();
+            try {
+                tokens = Math.min(capacity, tokens + 1);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Blocks the bucket after a 429: nothing is sent before the pause ends and the burst
+         * allowance is spent.
+         */
+        void pauseFor(long nanos, long now) {
+            lock.lock();
+            try {
+                refill(now);
+                pausedUntil = Math.max(pausedUntil, now + nanos);
+                tokens = Math.min(tokens, 0);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void refill(long now) {
+            if (now > refilledAt) {
+                tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerNano);
+                refilledAt = now;
+            }
+        }
+    }
+
+    public record QueueStats(String workspace, String method, String tier, int queued, long sent, long rateLimited,
+                             long rejected, long totalWaitMillis, long maxWaitMillis) {
+    }
+}
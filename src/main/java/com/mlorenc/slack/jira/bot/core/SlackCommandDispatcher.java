@@ -0,0 +1,229 @@
+package com.mlorenc.slack.jira.bot.core;
+
+import com.mlorenc.slack.jira.bot.config.BotProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs Slack command and interaction work off the servlet thread so the controller can ack
+ * within Slack's 3 second deadline. Each workspace gets its own bounded queue and worker budget
+ * per command key, so a busy workspace cannot hold up the others; once its queue is full,
+ * {@link #dispatch} returns {@code false} and the caller answers with a "busy" message.
+ * <p>
+ * All lanes share a fixed total of {@code totalCapacity} queued or running tasks and
+ * {@code totalConcurrency} workers. A lane may hold at most an equal share of the total among the
+ * lanes currently busy, so many busy workspaces split it instead of the first ones taking it all.
+ * A lane exists only while it has work and is dropped once it drains.
+ */
+@Component
+public class SlackCommandDispatcher implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(SlackCommandDispatcher.class);
+
+    private final SlackService slackService;
+    private final int queueCapacity;
+    private final int maxConcurrency;
+    private final int totalCapacity;
+    private final Map<LaneKey, Lane> lanes = new ConcurrentHashMap<>();
+    private final Semaphore totalSlots;
+    private final Semaphore totalWorkers;
+    private final ExecutorService executor =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("slack-dispatch-", 0).factory());
+
+    // lanes come and go, so their counters are also kept here
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public SlackCommandDispatcher(BotProperties properties, SlackService slackService) {
+        this.slackService = slackService;
+        this.queueCapacity = properties.dispatch().queueCapacity();
+        this.maxConcurrency = properties.dispatch().maxConcurrency();
+        this.totalCapacity = properties.dispatch().totalCapacity();
+        this.totalSlots = new Semaphore(totalCapacity);
+        // fair, so workers are handed out across lanes in the order tasks started waiting
+        this.totalWorkers = new Semaphore(properties.dispatch().totalConcurrency(), true);
+    }
+
+    /**
+     * Queues {@code task} under the workspace's {@code command} lane. When the task returns a
+     * message and {@code responseUrl} is set, the message is posted back to the user as a follow-up.
+     */
+    public boolean dispatch(String teamId, String command, String responseUrl, SlackTask task) {
+        LaneKey key = new LaneKey(teamId, command);
+        Lane lane = totalSlots.tryAcquire() ? enter(key) : null;
+        if (lane == null) {
+            rejected.increment();
+            Lane full = lanes.get(key);
+            if (full != null) full.rejected.increment();
+            log.atWarn().addKeyValue("event", "slack.dispatch.rejected").addKeyValue("teamId", teamId)
+                    .addKeyValue("command", command).log("Slack work queue is full");
+            return false;
+        }
+
+        long queuedAt = System.nanoTime();
+        lane.queued.incrementAndGet();
+        try {
+            executor.execute(() -> run(key, lane, queuedAt, responseUrl, task));
+            return true;
+        } catch (RejectedExecutionException ex) {
+            lane.queued.decrementAndGet();
+            leave(key, lane);
+            lane.rejected.increment();
+            rejected.increment();
+            return false;
+        }
+    }
+
+    public List<LaneStats> stats() {
+        return lanes.entrySet().stream()
+                .map(e -> e.getValue().snapshot(e.getKey()))
+                .toList();
+    }
+
+    /**
+     * Task counts over every lane, including lanes already dropped.
+     */
+    public Totals totals() {
+        return new Totals(completed.sum(), failed.sum(), rejected.sum());
+    }
+
+    // Takes one of the lane's slots, creating the lane if needed, or returns null and gives the
+    // total slot back when the lane already holds its share. Runs in compute so a lane being
+    // dropped by leave() cannot be handed out at the same time.
+    private Lane enter(LaneKey key) {
+        Lane[] entered = new Lane[1];
+        lanes.compute(key, (k, lane) -> {
+            Lane candidate = lane != null ? lane : new Lane(maxConcurrency);
+            int busyLanes = lanes.size() + (lane == null ? 1 : 0);
+            int share = Math.min(queueCapacity + maxConcurrency, Math.max(1, totalCapacity / busyLanes));
+            if (candidate.occupied >= share) return lane;
+            candidate.occupied++;
+            entered[0] = candidate;
+            return candidate;
+        });
+        if (entered[0] == null) {
+            totalSlots.release();
+        }
+        return entered[0];
+    }
+
+    private void leave(LaneKey key, Lane lane) {
+        lanes.computeIfPresent(key, (k, current) -> current != lane || --current.occupied > 0 ? current : null);
+        totalSlots.release();
+    }
+
+    private void run(LaneKey key, Lane lane, long queuedAt, String responseUrl, SlackTask task) {
+        try {
+            lane.workers.acquire();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            lane.queued.decrementAndGet();
+            leave(key, lane);
+            return;
+        }
+        try {
+            totalWorkers.acquire();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            lane.workers.release();
+            lane.queued.decrementAndGet();
+            leave(key, lane);
+            return;
+        }
+
+        lane.queued.decrementAndGet();
+        lane.active.incrementAndGet();
+        lane.maxWaitNanos.accumulate(System.nanoTime() - queuedAt);
+        try {
+            String followUp = task.run();
+            lane.completed.increment();
+            completed.increment();
+            if (followUp != null) {
+                followUp(responseUrl, followUp);
+            }
+        } catch (Exception ex) {
+            lane.failed.increment();
+            failed.increment();
+            log.atError().addKeyValue("event", "slack.dispatch.failed").addKeyValue("teamId", key.teamId())
+                    .addKeyValue("command", key.command()).setCause(ex).log("Slack work failed");
+            followUp(responseUrl, "Sorry, something went wrong while handling your request.");
+        } finally {
+            lane.active.decrementAndGet();
+            totalWorkers.release();
+            lane.workers.release();
+            leave(key, lane);
+        }
+    }
+
+    private void followUp(String responseUrl, String text) {
+        if (responseUrl == null || responseUrl.isBlank()) return;
+        try {
+            slackService.postToResponseUrl(responseUrl, text);
+        } catch (Exception ex) {
+            log.atWarn().addKeyValue("event", "slack.dispatch.followup.failed").setCause(ex).log("Unable to post follow-up to response_url");
+        }
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Unit of deferred Slack work. A non-null return value is sent to the request's
+     * {@code response_url}.
+     */
+    @FunctionalInterface
+    public interface SlackTask {
+        String run() throws Exception;
+    }
+
+    public record LaneStats(String teamId, String command, int queued, int active, long completed, long failed,
+                            long rejected, long maxWaitMillis) {
+    }
+
+    public record Totals(long completed, long failed, long rejected) {
+    }
+
+    private record LaneKey(String teamId, String command) {
+    }
+
+    private static final class Lane {
+        private final Semaphore workers;
+        // queued plus running tasks; only changed inside lanes.compute for this lane's key
+        private int occupied;
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicInteger active = new AtomicInteger();
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAccumulator maxWaitNanos = new LongAccumulator(Long::max, 0);
+
+        private Lane(int maxConcurrency) {
+            this.workers = new Semaphore(maxConcurrency);
+        }
+
+        private LaneStats snapshot(LaneKey key) {
+            return new LaneStats(key.teamId(), key.command(), queued.get(), active.get(), completed.sum(), failed.sum(),
+                    rejected.sum(), TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get()));
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.mlorenc.slack.jira.bot.core;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Typed view of a Slack interaction payload, holding only the fields the bot reads.
+ * Built by {@link SlackInteractionParser}.
+ */
+public sealed interface SlackInteraction
+        permits SlackInteraction.ViewSubmission, SlackInteraction.BlockActions, SlackInteraction.BlockSuggestion,
+        SlackInteraction.Other {
+
+    String type();
+
+    String userId();
+
+    String teamId();
+
+    /**
+     * {@code view_submission}; {@code values} maps {@code block_id} to {@code action_id} to the
+     * submitted value (plain text or the selected option's value).
+     */
+    record ViewSubmission(String userId, String teamId, String viewId, String callbackId,
+                          Map<String, Map<String, String>> values) implements SlackInteraction {
+
+        @Override
+        public String type() {
+            return "view_submission";
+        }
+
+        public String value(String blockId, String actionId) {
+            return values.getOrDefault(blockId, Map.of()).getOrDefault(actionId, "");
+        }
+    }
+
+    record BlockActions(String userId, String teamId, String triggerId, String responseUrl,
+                        List<Action> actions) implements SlackInteraction {
+
+        @Override
+        public String type() {
+            return "block_actions";
+        }
+    }
+
+    /**
+     * {@code block_suggestion}: an {@code external_select} asking for options matching what the
+     * user has typed so far.
+     */
+    record BlockSuggestion(String userId, String teamId, String blockId, String actionId,
+                           String value) implements SlackInteraction {
+
+        @Override
+        public String type() {
+            return "block_suggestion";
+        }
+    }
+
+    record Action(String blockId, String actionId, String value) {
+    }
+
+    record Other(String type, String userId, String teamId) implements SlackInteraction {
+    }
+}
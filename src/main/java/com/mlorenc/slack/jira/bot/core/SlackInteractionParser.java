@@ -0,0 +1,269 @@
+package com.mlorenc.slack.jira.bot.core;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binds Slack interaction payloads to {@link SlackInteraction} records with a streaming
+ * {@link JsonParser}. Subtrees the bot does not read (view blocks, message attachments, ...) are
+ * skipped without building nodes, and parsing stops as soon as the fields needed for the
+ * payload's type have been seen.
+ */
+@Component
+public class SlackInteractionParser {
+
+    private final JsonFactory jsonFactory;
+
+    public SlackInteractionParser(ObjectMapper objectMapper) {
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    public SlackInteraction parse(String payload) throws IOException {
+        if (payload == null || payload.isBlank()) {
+            throw new IllegalArgumentException("Missing interaction payload");
+        }
+        try (JsonParser p = jsonFactory.createParser(payload)) {
+            return read(p);
+        }
+    }
+
+    /**
+     * Binds a payload that arrived already parsed, such as the {@code payload} of a Socket Mode
+     * envelope, by walking the tree's tokens.
+     */
+    public SlackInteraction parse(JsonNode payload) throws IOException {
+        if (payload == null || !payload.isObject()) {
+            throw new IllegalArgumentException("Interaction payload is not a JSON object");
+        }
+        try (JsonParser p = payload.traverse()) {
+            return read(p);
+        }
+    }
+
+    private static SlackInteraction read(JsonParser p) throws IOException {
+        if (p.nextToken() != JsonToken.START_OBJECT) {
+            throw new IllegalArgumentException("Interaction payload is not a JSON object");
+        }
+        Fields fields = new Fields();
+        while (!fields.isComplete() && p.nextToken() == JsonToken.FIELD_NAME) {
+            String name = p.currentName();
+            p.nextToken();
+            switch (name) {
+                case "type" -> fields.type = p.getValueAsString();
+                case "user" -> {
+                    fields.userId = readId(p);
+                    fields.userSeen = true;
+                }
+                case "team" -> {
+                    fields.teamId = readId(p);
+                    fields.teamSeen = true;
+                }
+                case "trigger_id" -> fields.triggerId = p.getValueAsString();
+                case "response_url" -> fields.responseUrl = p.getValueAsString();
+                case "view" -> readView(p, fields);
+                case "actions" -> readActions(p, fields);
+                case "block_id" -> {
+                    fields.blockId = p.getValueAsString();
+                    fields.blockIdSeen = true;
+                }
+                case "action_id" -> fields.actionId = p.getValueAsString();
+                case "value" -> {
+                    fields.value = p.getValueAsString();
+                    fields.valueSeen = true;
+                }
+                default -> p.skipChildren();
+            }
+        }
+        return fields.build();
+    }
+
+    private static String readId(JsonParser p) throws IOException {
+        if (p.currentToken() != JsonToken.START_OBJECT) {
+            p.skipChildren();
+            return null;
+        }
+        String id = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String name = p.currentName();
+            p.nextToken();
+            if ("id".equals(name)) {
+                id = p.getValueAsString();
+            } else {
+                p.skipChildren();
+            }
+        }
+        return id;
+    }
+
+    private static void readView(JsonParser p, Fields fields) throws IOException {
+        fields.viewSeen = true;
+        if (p.currentToken() != JsonToken.START_OBJECT) {
+            p.skipChildren();
+            return;
+        }
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String name = p.currentName();
+            p.nextToken();
+            switch (name) {
+                case "id" -> fields.viewId = p.getValueAsString();
+                case "callback_id" -> fields.callbackId = p.getValueAsString();
+                case "state" -> readState(p, fields.values);
+                default -> p.skipChildren();
+            }
+        }
+    }
+
+    // state: { values: { <block_id>: { <action_id>: { value | selected_option.value } } } }
+    private static void readState(JsonParser p, Map<String, Map<String, String>> values) throws IOException {
+        if (p.currentToken() != JsonToken.START_OBJECT) {
+            p.skipChildren();
+            return;
+        }
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String name = p.currentName();
+            if (p.nextToken() != JsonToken.START_OBJECT || !"values".equals(name)) {
+                p.skipChildren();
+                continue;
+            }
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String blockId = p.currentName();
+                p.nextToken();
+                values.put(blockId, readBlockValues(p));
+            }
+        }
+    }
+
+    private static Map<String, String> readBlockValues(JsonParser p) throws IOException {
+        Map<String, String> actions = new HashMap<>();
+        if (p.currentToken() != JsonToken.START_OBJECT) {
+            p.skipChildren();
+            return actions;
+        }
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String actionId = p.currentName();
+            p.nextToken();
+            String value = readElementValue(p);
+            if (value != null) {
+                actions.put(actionId, value);
+            }
+        }
+        return actions;
+    }
+
+    private static String readElementValue(JsonParser p) throws IOException {
+        if (p.currentToken() != JsonToken.START_OBJECT) {
+            p.skipChildren();
+            return null;
+        }
+        String value = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String name = p.currentName();
+            p.nextToken();
+            switch (name) {
+                case "value" -> value = p.getValueAsString();
+                case "selected_option" -> {
+                    String selected = readOptionValue(p);
+                    if (selected != null) value = selected;
+                }
+                default -> p.skipChildren();
+            }
+        }
+        return value;
+    }
+
+    private static String readOptionValue(JsonParser p) throws IOException {
+        if (p.currentToken() != JsonToken.START_OBJECT) {
+            p.skipChildren();
+            return null;
+        }
+        String value = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String name = p.currentName();
+            p.nextToken();
+            if ("value".equals(name)) {
+                value = p.getValueAsString();
+            } else {
+                p.skipChildren();
+            }
+        }
+        return value;
+    }
+
+    private static void readActions(JsonParser p, Fields fields) throws IOException {
+        fields.actionsSeen = true;
+        if (p.currentToken() != JsonToken.START_ARRAY) {
+            p.skipChildren();
+            return;
+        }
+        while (p.nextToken() == JsonToken.START_OBJECT) {
+            String blockId = null;
+            String actionId = null;
+            String value = null;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String name = p.currentName();
+                p.nextToken();
+                switch (name) {
+                    case "block_id" -> blockId = p.getValueAsString();
+                    case "action_id" -> actionId = p.getValueAsString();
+                    case "value" -> value = p.getValueAsString();
+                    case "selected_option" -> value = readOptionValue(p);
+                    default -> p.skipChildren();
+                }
+            }
+            fields.actions.add(new SlackInteraction.Action(blockId, actionId, value));
+        }
+    }
+
+    private static final class Fields {
+        private String type;
+        private String userId;
+        private String teamId;
+        private String triggerId;
+        private String responseUrl;
+        private String viewId;
+        private String callbackId;
+        private String blockId;
+        private String actionId;
+        private String value;
+        private final Map<String, Map<String, String>> values = new HashMap<>();
+        private final List<SlackInteraction.Action> actions = new ArrayList<>();
+        private boolean userSeen;
+        private boolean teamSeen;
+        private boolean viewSeen;
+        private boolean actionsSeen;
+        private boolean valueSeen;
+        private boolean blockIdSeen;
+
+        private boolean isComplete() {
+            if (type == null || !userSeen || !teamSeen) return false;
+            return switch (type) {
+                case "view_submission" -> viewSeen;
+                case "block_actions" -> actionsSeen && triggerId != null && responseUrl != null;
+                case "block_suggestion" -> actionId != null && valueSeen && blockIdSeen;
+                default -> true;
+            };
+        }
+
+        private SlackInteraction build() {
+            if (type == null) {
+                throw new IllegalArgumentException("Interaction payload has no type");
+            }
+            return switch (type) {
+                case "view_submission" -> new SlackInteraction.ViewSubmission(userId, teamId, viewId, callbackId, values);
+                case "block_actions" -> new SlackInteraction.BlockActions(userId, teamId, triggerId, responseUrl, actions);
+                case "block_suggestion" -> new SlackInteraction.BlockSuggestion(userId, teamId, blockId, actionId, value);
+                default -> new SlackInteraction.Other(type, userId, teamId);
+            };
+        }
+    }
+}
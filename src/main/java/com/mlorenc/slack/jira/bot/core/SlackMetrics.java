@@ -0,0 +1,106 @@
+package com.mlorenc.slack.jira.bot.core;
+
+import com.mlorenc.slack.jira.bot.config.BotProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Meters for inbound Slack requests. The {@code team} tag keeps its own value for the first
+ * {@code maxTeamTags} workspaces seen and reports the rest as {@code other}, so a large install
+ * base cannot blow up the number of time series.
+ */
+@Component
+public class SlackMetrics {
+
+    static final String OTHER = "other";
+    static final String NONE = "none";
+
+    private final MeterRegistry registry;
+    private final int maxTeamTags;
+    private final Set<String> teams = ConcurrentHashMap.newKeySet();
+    private final Timer verified;
+    private final Timer rejectedSignature;
+    private final Timer rejectedTimestamp;
+    private final Counter signatureFailures;
+    private final Counter timestampFailures;
+    private final Timer formParse;
+
+    public SlackMetrics(MeterRegistry registry, BotProperties properties) {
+        this.registry = registry;
+        this.maxTeamTags = properties.metrics().maxTeamTags();
+        this.verified = verificationTimer("verified");
+        this.rejectedSignature = verificationTimer("invalid_signature");
+        this.rejectedTimestamp = verificationTimer("invalid_timestamp");
+        this.signatureFailures = failureCounter("invalid_signature");
+        this.timestampFailures = failureCounter("invalid_timestamp");
+        this.formParse = Timer.builder("bot.slack.form.parse")
+                .description("Indexing of a Slack form body")
+                .register(registry);
+    }
+
+    /**
+     * Records reading and HMAC-checking one request body. {@code timestampAccepted} is false
+     * when the signature was never computed because the timestamp was missing or outside the
+     * replay window.
+     */
+    public void recordVerification(long nanos, boolean timestampAccepted, boolean verified) {
+        if (verified) {
+            this.verified.record(nanos, TimeUnit.NANOSECONDS);
+        } else if (timestampAccepted) {
+            rejectedSignature.record(nanos, TimeUnit.NANOSECONDS);
+            signatureFailures.increment();
+        } else {
+            rejectedTimestamp.record(nanos, TimeUnit.NANOSECONDS);
+            timestampFailures.increment();
+        }
+    }
+
+    public void recordFormParse(long nanos) {
+        formParse.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records the synchronous part of a slash command, up to the ack. {@code command} must come
+     * from a fixed set.
+     */
+    public void recordCommand(String command, String teamId, String outcome, long nanos) {
+        Timer.builder("bot.slack.commands")
+                .description("Slash commands, from parsed form to ack")
+                .tag("command", command)
+                .tag("team", team(teamId))
+                .tag("outcome", outcome)
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    String team(String teamId) {
+        if (teamId == null || teamId.isEmpty()) return NONE;
+        if (teams.contains(teamId)) return teamId;
+        // the cap may be overshot by a few concurrent first sightings, which is harmless
+        if (teams.size() < maxTeamTags) {
+            teams.add(teamId);
+            return teamId;
+        }
+        return OTHER;
+    }
+
+    private Timer verificationTimer(String result) {
+        return Timer.builder("bot.slack.request.verification")
+                .description("Reading a Slack request body while computing its signature")
+                .tag("result", result)
+                .register(registry);
+    }
+
+    private Counter failureCounter(String reason) {
+        return Counter.builder("bot.slack.signature.failures")
+                .description("Slack requests rejected by signature verification")
+                .tag("reason", reason)
+                .register(registry);
+    }
+}
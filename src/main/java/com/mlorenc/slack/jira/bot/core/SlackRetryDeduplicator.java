@@ -0,0 +1,160 @@
+package com.mlorenc.slack.jira.bot.core;
+
+import com.mlorenc.slack.jira.bot.config.BotProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Answers Slack retries ({@code X-Slack-Retry-Num}) of a request we already handled with the ack
+ * we gave the first time instead of doing the work again. Requests are keyed by a fingerprint
+ * such as the {@code trigger_id}; fingerprints are remembered for a fixed time in an
+ * insertion-ordered map capped at {@code maxEntries}, dropping the oldest when full. A retry
+ * waits for a first request still in flight for at most {@code awaitTimeout}, then gets an
+ * empty ack so it still answers within Slack's deadline.
+ */
+@Component
+public class SlackRetryDeduplicator {
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final long awaitTimeoutNanos;
+    // insertion order equals expiry order because every entry lives for the same ttl
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+    // a lock rather than a monitor: contended monitors pin virtual threads to their carrier
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder awaitTimeouts = new LongAdder();
+
+    public SlackRetryDeduplicator(BotProperties properties) {
+        this.maxEntries = properties.dedupe().maxEntries();
+        this.ttlNanos = properties.dedupe().ttl().toNanos();
+        this.awaitTimeoutNanos = properties.dedupe().awaitTimeout().toNanos();
+    }
+
+    /**
+     * Runs {@code handler} unless a request with the same fingerprint was seen within the window,
+     * in which case the earlier response is returned, waiting for it if that request is still
+     * being handled. A null fingerprint disables deduplication for the request.
+     */
+    public String handle(String fingerprint, Supplier<Outcome> handler) {
+        if (fingerprint == null) {
+            return handler.get().response();
+        }
+        long now = System.nanoTime();
+        CompletableFuture<String> mine = new CompletableFuture<>();
+        CompletableFuture<String> earlier;
+        lock.lock();
+        try {
+            expire(now);
+            Entry entry = entries.get(fingerprint);
+            earlier = entry == null ? null : entry.response();
+            if (earlier == null) {
+                entries.put(fingerprint, new Entry(mine, now + ttlNanos));
+                if (entries.size() > maxEntries) {
+                    Iterator<Entry> oldest = entries.values().iterator();
+                    oldest.next();
+                    oldest.remove();
+                    evictions.increment();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (earlier != null) {
+            duplicates.increment();
+            return await(earlier);
+        }
+
+        try {
+            Outcome outcome = handler.get();
+            mine.complete(outcome.response());
+            if (!outcome.remember()) {
+                forget(fingerprint, mine);
+            }
+            return outcome.response();
+        } catch (Throwable ex) {
+            // Errors too: a retry waiting on mine must not outlive the request that failed
+            forget(fingerprint, mine);
+            mine.completeExceptionally(ex);
+            throw ex;
+        }
+    }
+
+    public Stats stats() {
+        lock.lock();
+        try {
+            return new Stats(entries.size(), duplicates.sum(), evictions.sum(), awaitTimeouts.sum());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void forget(String fingerprint, CompletableFuture<String> response) {
+        lock.lock();
+        try {
+            Entry entry = entries.get(fingerprint);
+            if (entry != null && entry.response() == response) {
+                entries.remove(fingerprint);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void expire(long now) {
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext() && it.next().expiresAt() - now <= 0) {
+            it.remove();
+        }
+    }
+
+    private String await(CompletableFuture<String> response) {
+        try {
+            return response.get(awaitTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException ex) {
+            // the first request answers Slack itself; this retry only needs to be acknowledged
+            awaitTimeouts.increment();
+            return "";
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return "";
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) throw cause;
+            if (ex.getCause() instanceof Error cause) throw cause;
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    private record Entry(CompletableFuture<String> response, long expiresAt) {
+    }
+
+    /**
+     * The ack for a request and whether retries should get it too. Outcomes that depend on
+     * momentary state, such as a full work queue, should not be remembered so a retry can
+     * succeed.
+     */
+    public record Outcome(String response, boolean remember) {
+
+        public static Outcome remembered(String response) {
+            return new Outcome(response, true);
+        }
+
+        public static Outcome retryable(String response) {
+            return new Outcome(response, false);
+        }
+    }
+
+    public record Stats(int size, long duplicates, long evictions, long awaitTimeouts) {
+    }
+}
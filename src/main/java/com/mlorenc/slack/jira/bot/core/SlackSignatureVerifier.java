@@ -5,44 +5,158 @@ import org.springframework.stereotype.Component;
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Verifies Slack's {@code X-Slack-Signature} header. Initialized {@link Mac}s and their digest
+ * buffers are kept in a small {@link ObjectPool} per signing secret, shared by all threads, so the
+ * hot path does not allocate: the {@code v0:<timestamp>:} prefix and the body bytes go straight
+ * into {@link Mac#update} and the digest is compared against the hex header without building
+ * strings.
+ */
 @Component
 public class SlackSignatureVerifier {
 
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final String SIGNATURE_PREFIX = "v0=";
+    private static final int DIGEST_LENGTH = 32;
+    private static final long MAX_CLOCK_SKEW_SECONDS = 60 * 5;
+    // a signer is held while the request body is read, so roughly one per request in flight
+    private static final int POOLED_SIGNERS = 64;
+
+    private final Map<String, ObjectPool<Signer>> signers = new ConcurrentHashMap<>();
+
     public boolean verify(String signingSecret, String timestamp, String slackSignature, String rawBody) {
-        if (signingSecret == null || timestamp == null || slackSignature == null) return false;
+        if (rawBody == null) return false;
+        byte[] body = rawBody.getBytes(StandardCharsets.UTF_8);
+        return verify(signingSecret, timestamp, slackSignature, body, 0, body.length);
+    }
 
-        // Reject very old timestamps (replay protection)
-        long ts;
-        try { ts = Long.parseLong(timestamp); }
-        catch (NumberFormatException e) { return false; }
+    public boolean verify(String signingSecret, String timestamp, String slackSignature,
+                          byte[] body, int offset, int length) {
+        Signer signer = start(signingSecret, timestamp);
+        if (signer == null) return false;
+        signer.update(body, offset, length);
+        return signer.finish(slackSignature);
+    }
 
-        long now = Instant.now().getEpochSecond();
-        if (Math.abs(now - ts) > 60 * 5) return false;
+    /**
+     * Starts an incremental verification: returns a pooled {@link Signer} for the secret, already
+     * fed with the {@code v0:<timestamp>:} prefix, or {@code null} when the secret or timestamp is
+     * missing, malformed or outside the replay window. The caller feeds the body with
+     * {@link Signer#update} and then either calls {@link Signer#finish} or, if it gives up on the
+     * request, {@link Signer#release}.
+     */
+    public Signer start(String signingSecret, String timestamp) {
+        if (signingSecret == null || !isFresh(timestamp)) return null;
+
+        Signer signer = signers.computeIfAbsent(signingSecret, this::newPool).acquire();
+        Mac mac = signer.mac;
+        mac.reset();
+        mac.update((byte) 'v');
+        mac.update((byte) '0');
+        mac.update((byte) ':');
+        for (int i = 0; i < timestamp.length(); i++) {
+            mac.update((byte) timestamp.charAt(i));
+        }
+        mac.update((byte) ':');
+        return signer;
+    }
+
+    /**
+     * Signers created and reused across all signing secrets.
+     */
+    public ObjectPool.Stats stats() {
+        return signers.values().stream().map(ObjectPool::stats)
+                .reduce(new ObjectPool.Stats(0, 0, 0), ObjectPool.Stats::plus);
+    }
 
-        String base = "v0:" + timestamp + ":" + rawBody;
-        String computed = "v0=" + hmacSha256Hex(signingSecret, base);
-        return constantTimeEquals(computed, slackSignature);
+    // the factory only runs from acquire(), once the pool is in the map
+    private ObjectPool<Signer> newPool(String secret) {
+        return new ObjectPool<>(POOLED_SIGNERS, () -> new Signer(secret, signers.get(secret)));
     }
 
-    private static String hmacSha256Hex(String secret, String data) {
-        try {
-            Mac mac = Mac.getInstance("HmacSHA256");
-            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
-            byte[] digest = mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
-            StringBuilder sb = new StringBuilder(digest.length * 2);
-            for (byte b : digest) sb.append(String.format("%02x", b));
-            return sb.toString();
-        } catch (Exception e) {
-            throw new RuntimeException("HMAC failure", e);
+    // Reject very old timestamps (replay protection)
+    private static boolean isFresh(String timestamp) {
+        if (timestamp == null || timestamp.isEmpty() || timestamp.length() > 18) return false;
+        long ts = 0;
+        for (int i = 0; i < timestamp.length(); i++) {
+            char c = timestamp.charAt(i);
+            if (c < '0' || c > '9') return false;
+            ts = ts * 10 + (c - '0');
         }
+        long now = Instant.now().getEpochSecond();
+        return Math.abs(now - ts) <= MAX_CLOCK_SKEW_SECONDS;
     }
 
-    private static boolean constantTimeEquals(String a, String b) {
-        if (a == null || b == null || a.length() != b.length()) return false;
+    // Constant-time comparison of the digest against the lowercase hex in the header
+    private static boolean matches(byte[] digest, String slackSignature) {
+        if (slackSignature == null
+                || slackSignature.length() != SIGNATURE_PREFIX.length() + DIGEST_LENGTH * 2
+                || !slackSignature.startsWith(SIGNATURE_PREFIX)) {
+            return false;
+        }
         int r = 0;
-        for (int i = 0; i < a.length(); i++) r |= a.charAt(i) ^ b.charAt(i);
+        int pos = SIGNATURE_PREFIX.length();
+        for (int i = 0; i < DIGEST_LENGTH; i++) {
+            int hi = hexValue(slackSignature.charAt(pos++));
+            int lo = hexValue(slackSignature.charAt(pos++));
+            r |= (hi | lo) & 0x100;
+            r |= ((hi << 4) | lo) ^ (digest[i] & 0xff);
+        }
         return r == 0;
     }
+
+    private static int hexValue(char c) {
+        if (c >= '0' && c <= '9') return c - '0';
+        if (c >= 'a' && c <= 'f') return c - 'a' + 10;
+        return 0x100;
+    }
+
+    /**
+     * One verification in progress. It goes back to the pool when it is finished or released,
+     * and must not be used afterwards.
+     */
+    public static final class Signer {
+        private final Mac mac;
+        private final byte[] digest = new byte[DIGEST_LENGTH];
+        private final ObjectPool<Signer> pool;
+
+        private Signer(String secret, ObjectPool<Signer> pool) {
+            this.mac = newMac(secret);
+            this.pool = pool;
+        }
+
+        public void update(byte[] body, int offset, int length) {
+            mac.update(body, offset, length);
+        }
+
+        public boolean finish(String slackSignature) {
+            try {
+                mac.doFinal(digest, 0);
+                return matches(digest, slackSignature);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("HMAC failure", e);
+            } finally {
+                release();
+            }
+        }
+
+        public void release() {
+            pool.release(this);
+        }
+
+        private static Mac newMac(String secret) {
+            try {
+                Mac mac = Mac.getInstance(ALGORITHM);
+                mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM));
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("HMAC failure", e);
+            }
+        }
+    }
 }
@@ -0,0 +1,183 @@
+package com.mlorenc.slack.jira.bot.core;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Read-only view of an {@code application/x-www-form-urlencoded} body. The body is scanned once,
+ * on first access, to record field boundaries; keys are compared against the raw bytes and only
+ * the values that are actually read get percent-decoded. Decoding follows {@link java.net.URLDecoder}
+ * with UTF-8, and a repeated key resolves to its last occurrence.
+ *
+ * <p>Malformed escapes throw {@link IllegalArgumentException}, but only for fields that are
+ * inspected, not for the whole body. A form over a buffer that is reused by its owner is
+ * {@link #detach() detached} first; reads after that throw {@link IllegalStateException}.
+ */
+public final class UrlEncodedForm {
+
+    private static final int SLOTS = 3;
+
+    private final byte[] buf;
+    private final int offset;
+    private final int end;
+    // keyStart, keyEnd, valueEnd per field; the value starts after the '=' at keyEnd, if any
+    private int[] fields;
+    private int count;
+    private volatile boolean detached;
+
+    private UrlEncodedForm(byte[] buf, int offset, int length) {
+        this.buf = buf;
+        this.offset = offset;
+        this.end = offset + length;
+    }
+
+    public static UrlEncodedForm of(byte[] buf, int offset, int length) {
+        return new UrlEncodedForm(buf, offset, length);
+    }
+
+    public static UrlEncodedForm of(String body) {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        return new UrlEncodedForm(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Returns the decoded value of {@code key}, or {@code null} when the key is absent.
+     */
+    public String get(String key) {
+        if (detached) {
+            throw new IllegalStateException("Form read after its buffer was released");
+        }
+        index();
+        boolean ascii = isAscii(key);
+        for (int f = (count - 1) * SLOTS; f >= 0; f -= SLOTS) {
+            int keyStart = fields[f];
+            int keyEnd = fields[f + 1];
+            boolean match = ascii ? asciiKeyEquals(key, keyStart, keyEnd) : key.equals(decode(keyStart, keyEnd));
+            if (match) {
+                int valueEnd = fields[f + 2];
+                return keyEnd < valueEnd ? decode(keyEnd + 1, valueEnd) : "";
+            }
+        }
+        return null;
+    }
+
+    public String getOrDefault(String key, String defaultValue) {
+        String value = get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    /**
+     * Stops reads from the underlying buffer, for owners about to hand the buffer to someone else.
+     */
+    public void detach() {
+        detached = true;
+    }
+
+    private void index() {
+        if (fields != null) return;
+        int[] idx = new int[SLOTS * 8];
+        int n = 0;
+        int start = offset;
+        int eq = -1;
+        for (int i = offset; i <= end; i++) {
+            byte b = i < end ? buf[i] : (byte) '&';
+            if (b == '&') {
+                if (i > start) {
+                    if ((n + 1) * SLOTS > idx.length) idx = Arrays.copyOf(idx, idx.length * 2);
+                    idx[n * SLOTS] = start;
+                    idx[n * SLOTS + 1] = eq < 0 ? i : eq;
+                    idx[n * SLOTS + 2] = i;
+                    n++;
+                }
+                start = i + 1;
+                eq = -1;
+            } else if (b == '=' && eq < 0) {
+                eq = i;
+            }
+        }
+        fields = idx;
+        count = n;
+    }
+
+    private boolean asciiKeyEquals(String key, int start, int stop) {
+        int k = 0;
+        int i = start;
+        while (i < stop) {
+            int b = buf[i] & 0xff;
+            if (b == '+') {
+                b = ' ';
+                i++;
+            } else if (b == '%') {
+                b = escapedByte(i, stop);
+                i += 3;
+            } else {
+                i++;
+            }
+            if (k >= key.length() || key.charAt(k) != b) return false;
+            k++;
+        }
+        return k == key.length();
+    }
+
+    private String decode(int start, int stop) {
+        int i = start;
+        while (i < stop && buf[i] != '%' && buf[i] != '+') i++;
+        if (i == stop) {
+            return new String(buf, start, stop - start, StandardCharsets.UTF_8);
+        }
+
+        byte[] out = new byte[stop - start];
+        int n = i - start;
+        System.arraycopy(buf, start, out, 0, n);
+        while (i < stop) {
+            byte b = buf[i];
+            if (b == '+') {
+                out[n++] = ' ';
+                i++;
+            } else if (b == '%') {
+                out[n++] = (byte) escapedByte(i, stop);
+                i += 3;
+            } else {
+                out[n++] = b;
+                i++;
+            }
+        }
+        return new String(out, 0, n, StandardCharsets.UTF_8);
+    }
+
+    // Mirrors URLDecoder, which runs Integer.parseInt(s, i + 1, i + 3, 16) on each escape
+    private int escapedByte(int percent, int stop) {
+        if (percent + 2 >= stop) {
+            throw new IllegalArgumentException("URLDecoder: Incomplete trailing escape (%) pattern");
+        }
+        int first = buf[percent + 1];
+        int lo = hexDigit(buf[percent + 2]);
+        if (lo < 0) {
+            throw new IllegalArgumentException("URLDecoder: Illegal hex characters in escape (%) pattern");
+        }
+        if (first == '+') return lo;
+        if (first == '-') {
+            if (lo == 0) return 0;
+            throw new IllegalArgumentException("URLDecoder: Illegal hex characters in escape (%) pattern - negative value");
+        }
+        int hi = hexDigit(first);
+        if (hi < 0) {
+            throw new IllegalArgumentException("URLDecoder: Illegal hex characters in escape (%) pattern");
+        }
+        return (hi << 4) | lo;
+    }
+
+    private static int hexDigit(int c) {
+        if (c >= '0' && c <= '9') return c - '0';
+        if (c >= 'a' && c <= 'f') return c - 'a' + 10;
+        if (c >= 'A' && c <= 'F') return c - 'A' + 10;
+        return -1;
+    }
+
+    private static boolean isAscii(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) >= 0x80) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,177 @@
+package com.mlorenc.slack.jira.bot.core;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Block Kit payload compiled once into pre-serialized UTF-8 segments and string slots. A slot is
+ * written as {@code "{{name}}"} (or embedded in a longer string) anywhere a JSON string may
+ * appear; rendering copies the fixed segments and writes each value JSON-escaped in place, so a
+ * render is one exact-size array allocation and cannot produce invalid JSON.
+ */
+public final class ViewTemplate {
+
+    private static final Pattern SLOT = Pattern.compile("\\{\\{([a-z][a-z0-9_]*)}}");
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    // segments[i] is followed by the value of slot slotOrder[i]; the last segment stands alone
+    private final byte[][] segments;
+    private final int[] slotOrder;
+    private final List<String> slotNames;
+    private final int fixedLength;
+
+    private ViewTemplate(byte[][] segments, int[] slotOrder, List<String> slotNames) {
+        this.segments = segments;
+        this.slotOrder = slotOrder;
+        this.slotNames = slotNames;
+        int length = 0;
+        for (byte[] segment : segments) length += segment.length;
+        this.fixedLength = length;
+    }
+
+    /**
+     * Loads and compiles a template from the classpath.
+     */
+    public static ViewTemplate load(ObjectMapper om, String resource) {
+        try (InputStream in = ViewTemplate.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalArgumentException("View template not found: " + resource);
+            }
+            return compile(om, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unable to read view template " + resource, ex);
+        }
+    }
+
+    /**
+     * Validates the JSON, strips insignificant whitespace and splits it at the slots.
+     */
+    public static ViewTemplate compile(ObjectMapper om, String json) {
+        String compact;
+        try {
+            compact = om.writeValueAsString(om.readTree(json));
+        } catch (JsonProcessingException ex) {
+            throw new IllegalArgumentException("View template is not valid JSON", ex);
+        }
+        // after re-serialization "{{" can only occur inside a string, so every match is a string slot
+        Map<String, Integer> names = new LinkedHashMap<>();
+        List<byte[]> segments = new ArrayList<>();
+        List<Integer> order = new ArrayList<>();
+        Matcher matcher = SLOT.matcher(compact);
+        int last = 0;
+        while (matcher.find()) {
+            segments.add(compact.substring(last, matcher.start()).getBytes(StandardCharsets.UTF_8));
+            order.add(names.computeIfAbsent(matcher.group(1), name -> names.size()));
+            last = matcher.end();
+        }
+        segments.add(compact.substring(last).getBytes(StandardCharsets.UTF_8));
+        return new ViewTemplate(segments.toArray(byte[][]::new),
+                order.stream().mapToInt(Integer::intValue).toArray(), List.copyOf(names.keySet()));
+    }
+
+    /**
+     * Slot names in order of first appearance; {@link #render} takes values in this order.
+     */
+    public List<String> slotNames() {
+        return slotNames;
+    }
+
+    /**
+     * Renders the payload into a new array of exactly its length. The array is the request body
+     * and is kept until the call and any 429 retries finish, so it is not drawn from a pool.
+     */
+    public byte[] render(String... values) {
+        checkArity(values);
+        int length = fixedLength;
+        for (int slot : slotOrder) {
+            length += escapedLength(values[slot]);
+        }
+        byte[] out = new byte[length];
+        int pos = 0;
+        for (int i = 0; i < slotOrder.length; i++) {
+            System.arraycopy(segments[i], 0, out, pos, segments[i].length);
+            pos = writeEscaped(values[slotOrder[i]], out, pos + segments[i].length);
+        }
+        byte[] tail = segments[segments.length - 1];
+        System.arraycopy(tail, 0, out, pos, tail.length);
+        return out;
+    }
+
+    private void checkArity(String[] values) {
+        if (values.length != slotNames.size()) {
+            throw new IllegalArgumentException("Expected values for " + slotNames + " but got " + values.length);
+        }
+    }
+
+    private static int escapedLength(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\' || c == '\n' || c == '\r' || c == '\t' || c == '\b' || c == '\f') length += 2;
+            else if (c < 0x20) length += 6;
+            else if (c < 0x80) length += 1;
+            else if (c < 0x800) length += 2;
+            else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) length += 1;
+            else length += 3;
+        }
+        return length;
+    }
+
+    // JSON string escaping straight to UTF-8; unpaired surrogates become '?' as in String.getBytes
+    private static int writeEscaped(String value, byte[] out, int pos) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> { out[pos++] = '\\'; out[pos++] = '"'; }
+                case '\\' -> { out[pos++] = '\\'; out[pos++] = '\\'; }
+                case '\n' -> { out[pos++] = '\\'; out[pos++] = 'n'; }
+                case '\r' -> { out[pos++] = '\\'; out[pos++] = 'r'; }
+                case '\t' -> { out[pos++] = '\\'; out[pos++] = 't'; }
+                case '\b' -> { out[pos++] = '\\'; out[pos++] = 'b'; }
+                case '\f' -> { out[pos++] = '\\'; out[pos++] = 'f'; }
+                default -> {
+                    if (c < 0x20) {
+                        out[pos++] = '\\';
+                        out[pos++] = 'u';
+                        out[pos++] = '0';
+                        out[pos++] = '0';
+                        out[pos++] = HEX[c >> 4];
+                        out[pos++] = HEX[c & 0xF];
+                    } else if (c < 0x80) {
+                        out[pos++] = (byte) c;
+                    } else if (c < 0x800) {
+                        out[pos++] = (byte) (0xC0 | (c >> 6));
+                        out[pos++] = (byte) (0x80 | (c & 0x3F));
+                    } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                        int cp = Character.toCodePoint(c, value.charAt(++i));
+                        out[pos++] = (byte) (0xF0 | (cp >> 18));
+                        out[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                        out[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                        out[pos++] = (byte) (0x80 | (cp & 0x3F));
+                    } else if (Character.isSurrogate(c)) {
+                        out[pos++] = '?';
+                    } else {
+                        out[pos++] = (byte) (0xE0 | (c >> 12));
+                        out[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                        out[pos++] = (byte) (0x80 | (c & 0x3F));
+                    }
+                }
+            }
+        }
+        return pos;
+    }
+}
@@ -5,14 +5,19 @@ import jakarta.persistence.*;
 import java.time.Instant;
 
 @Entity
-@Table(name = "jira_oauth_tokens")
+@Table(name = "jira_oauth_tokens",
+        uniqueConstraints = @UniqueConstraint(name = "uk_jira_oauth_tokens_team_user", columnNames = {"slackTeamId", "slackUserId"}),
+        indexes = @Index(name = "idx_jira_oauth_tokens_expires_at", columnList = "expiresAt"))
 public class JiraOAuthToken {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(nullable = false, unique = true)
+    @Column(nullable = false)
+    private String slackTeamId;
+
+    @Column(nullable = false)
     private String slackUserId;
 
     @Column(nullable = false, length = 4096)
@@ -27,7 +32,11 @@ public class JiraOAuthToken {
     @Column(nullable = false)
     private Instant updatedAt;
 
+    private Instant refreshFailedAt;
+
     public Long getId() { return id; }
+    public String getSlackTeamId() { return slackTeamId; }
+    public void setSlackTeamId(String slackTeamId) { this.slackTeamId = slackTeamId; }
     public String getSlackUserId() { return slackUserId; }
     public void setSlackUserId(String slackUserId) { this.slackUserId = slackUserId; }
     public String getEncryptedAccessToken() { return encryptedAccessToken; }
@@ -38,4 +47,6 @@ public class JiraOAuthToken {
     public void setExpiresAt(Instant expiresAt) { this.expiresAt = expiresAt; }
     public Instant getUpdatedAt() { return updatedAt; }
     public void setUpdatedAt(Instant updatedAt) { this.updatedAt = updatedAt; }
+    public Instant getRefreshFailedAt() { return refreshFailedAt; }
+    public void setRefreshFailedAt(Instant refreshFailedAt) { this.refreshFailedAt = refreshFailedAt; }
 }
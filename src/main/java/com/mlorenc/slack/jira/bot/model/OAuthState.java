@@ -5,12 +5,15 @@ import jakarta.persistence.*;
 import java.time.Instant;
 
 @Entity
-@Table(name = "oauth_states")
+@Table(name = "oauth_states", indexes = @Index(name = "idx_oauth_states_expires_at", columnList = "expiresAt"))
 public class OAuthState {
 
     @Id
     private String state;
 
+    @Column(nullable = false)
+    private String slackTeamId;
+
     @Column(nullable = false)
     private String slackUserId;
 
@@ -19,6 +22,8 @@ public class OAuthState {
 
     public String getState() { return state; }
     public void setState(String state) { this.state = state; }
+    public String getSlackTeamId() { return slackTeamId; }
+    public void setSlackTeamId(String slackTeamId) { this.slackTeamId = slackTeamId; }
     public String getSlackUserId() { return slackUserId; }
     public void setSlackUserId(String slackUserId) { this.slackUserId = slackUserId; }
     public Instant getExpiresAt() { return expiresAt; }
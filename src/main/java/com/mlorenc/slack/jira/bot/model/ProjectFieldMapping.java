@@ -2,14 +2,22 @@ package com.mlorenc.slack.jira.bot.model;
 
 import jakarta.persistence.*;
 
+import java.time.Instant;
+
 @Entity
-@Table(name = "project_field_mappings")
+@Table(name = "project_field_mappings",
+        uniqueConstraints = @UniqueConstraint(name = "uk_project_field_mappings_team_user_project",
+                columnNames = {"slackTeamId", "slackUserId", "jiraProjectKey"}),
+        indexes = @Index(name = "idx_project_field_mappings_updated_at", columnList = "updatedAt"))
 public class ProjectFieldMapping {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    @Column(nullable = false)
+    private String slackTeamId;
+
     @Column(nullable = false)
     private String slackUserId;
 
@@ -19,11 +27,22 @@ public class ProjectFieldMapping {
     @Column(nullable = false)
     private String progressFieldId;
 
+    @Version
+    @Column(columnDefinition = "bigint default 0 not null")
+    private long version;
+
+    private Instant updatedAt;
+
     public Long getId() { return id; }
+    public String getSlackTeamId() { return slackTeamId; }
+    public void setSlackTeamId(String slackTeamId) { this.slackTeamId = slackTeamId; }
     public String getSlackUserId() { return slackUserId; }
     public void setSlackUserId(String slackUserId) { this.slackUserId = slackUserId; }
     public String getJiraProjectKey() { return jiraProjectKey; }
     public void setJiraProjectKey(String jiraProjectKey) { this.jiraProjectKey = jiraProjectKey; }
     public String getProgressFieldId() { return progressFieldId; }
     public void setProgressFieldId(String progressFieldId) { this.progressFieldId = progressFieldId; }
+    public long getVersion() { return version; }
+    public Instant getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(Instant updatedAt) { this.updatedAt = updatedAt; }
 }
@@ -0,0 +1,30 @@
+package com.mlorenc.slack.jira.bot.model;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "slack_installations")
+public class SlackInstallation {
+
+    @Id
+    private String teamId;
+
+    @Column(nullable = false, length = 4096)
+    private String encryptedBotToken;
+
+    private String botUserId;
+
+    @Column(nullable = false)
+    private Instant installedAt;
+
+    public String getTeamId() { return teamId; }
+    public void setTeamId(String teamId) { this.teamId = teamId; }
+    public String getEncryptedBotToken() { return encryptedBotToken; }
+    public void setEncryptedBotToken(String encryptedBotToken) { this.encryptedBotToken = encryptedBotToken; }
+    public String getBotUserId() { return botUserId; }
+    public void setBotUserId(String botUserId) { this.botUserId = botUserId; }
+    public Instant getInstalledAt() { return installedAt; }
+    public void setInstalledAt(Instant installedAt) { this.installedAt = installedAt; }
+}
@@ -0,0 +1,8 @@
+package com.mlorenc.slack.jira.bot.model;
+
+/**
+ * A Slack user within the workspace ({@code teamId}) the bot is installed in. Slack user ids are
+ * only unique per workspace, so every per-user record is keyed by both.
+ */
+public record SlackUser(String teamId, String userId) {
+}
@@ -5,14 +5,18 @@ import jakarta.persistence.*;
 import java.time.Instant;
 
 @Entity
-@Table(name = "user_connections")
+@Table(name = "user_connections",
+        uniqueConstraints = @UniqueConstraint(name = "uk_user_connections_team_user", columnNames = {"slackTeamId", "slackUserId"}))
 public class UserConnection {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(nullable = false, unique = true)
+    @Column(nullable = false)
+    private String slackTeamId;
+
+    @Column(nullable = false)
     private String slackUserId;
 
     @Column(nullable = false)
@@ -25,6 +29,8 @@ public class UserConnection {
     private Instant connectedAt;
 
     public Long getId() { return id; }
+    public String getSlackTeamId() { return slackTeamId; }
+    public void setSlackTeamId(String slackTeamId) { this.slackTeamId = slackTeamId; }
     public String getSlackUserId() { return slackUserId; }
     public void setSlackUserId(String slackUserId) { this.slackUserId = slackUserId; }
     public String getJiraAccountId() { return jiraAccountId; }
@@ -0,0 +1,45 @@
+package com.mlorenc.slack.jira.bot.model;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "user_jira_sites",
+        uniqueConstraints = @UniqueConstraint(name = "uk_user_jira_sites_team_user_cloud", columnNames = {"slackTeamId", "slackUserId", "cloudId"}))
+public class UserJiraSite {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String slackTeamId;
+
+    @Column(nullable = false)
+    private String slackUserId;
+
+    @Column(nullable = false)
+    private String cloudId;
+
+    private String siteUrl;
+
+    private String siteName;
+
+    @Column(nullable = false)
+    private Instant discoveredAt;
+
+    public Long getId() { return id; }
+    public String getSlackTeamId() { return slackTeamId; }
+    public void setSlackTeamId(String slackTeamId) { this.slackTeamId = slackTeamId; }
+    public String getSlackUserId() { return slackUserId; }
+    public void setSlackUserId(String slackUserId) { this.slackUserId = slackUserId; }
+    public String getCloudId() { return cloudId; }
+    public void setCloudId(String cloudId) { this.cloudId = cloudId; }
+    public String getSiteUrl() { return siteUrl; }
+    public void setSiteUrl(String siteUrl) { this.siteUrl = siteUrl; }
+    public String getSiteName() { return siteName; }
+    public void setSiteName(String siteName) { this.siteName = siteName; }
+    public Instant getDiscoveredAt() { return discoveredAt; }
+    public void setDiscoveredAt(Instant discoveredAt) { this.discoveredAt = discoveredAt; }
+}
@@ -1,10 +1,77 @@
 package com.mlorenc.slack.jira.bot.repository;
 
 import com.mlorenc.slack.jira.bot.model.JiraOAuthToken;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 
 public interface JiraOAuthTokenRepository extends JpaRepository<JiraOAuthToken, Long> {
-    Optional<JiraOAuthToken> findBySlackUserId(String slackUserId);
+    Optional<JiraOAuthToken> findBySlackTeamIdAndSlackUserId(String slackTeamId, String slackUserId);
+
+    /**
+     * Keyset page over tokens expiring before {@code cutoff}, ordered by ({@code expiresAt}, {@code id})
+     * and starting after the given position, so refreshed rows leaving the range do not shift pages.
+     * Tokens whose refresh was rejected are left out until the user reconnects.
+     */
+    @Query("""
+            select t from JiraOAuthToken t
+            where t.expiresAt < :cutoff and t.refreshFailedAt is null
+              and (t.expiresAt > :afterExpiresAt or (t.expiresAt = :afterExpiresAt and t.id > :afterId))
+            order by t.expiresAt asc, t.id asc
+            """)
+    List<JiraOAuthToken> findExpiringBefore(@Param("cutoff") Instant cutoff,
+                                            @Param("afterExpiresAt") Instant afterExpiresAt,
+                                            @Param("afterId") long afterId,
+                                            Pageable pageable);
+
+    List<JiraOAuthToken> findByIdGreaterThanOrderByIdAsc(long afterId, Pageable pageable);
+
+    /**
+     * Replaces both ciphertexts unless the row changed since it was read, e.g. because the
+     * token was refreshed in the meantime. Returns the number of updated rows.
+     */
+    @Modifying
+    @Query("""
+            update JiraOAuthToken t
+            set t.encryptedAccessToken = :accessToken, t.encryptedRefreshToken = :refreshToken
+            where t.id = :id and t.updatedAt = :updatedAt
+            """)
+    int updateCiphertexts(@Param("id") long id,
+                          @Param("updatedAt") Instant updatedAt,
+                          @Param("accessToken") String accessToken,
+                          @Param("refreshToken") String refreshToken);
+
+    /**
+     * Stores a refreshed token pair unless the row changed since it was read, e.g. because the
+     * user reconnected or another instance refreshed first. Returns the number of updated rows.
+     */
+    @Modifying
+    @Query("""
+            update JiraOAuthToken t
+            set t.encryptedAccessToken = :accessToken, t.encryptedRefreshToken = :refreshToken,
+                t.expiresAt = :expiresAt, t.updatedAt = :now
+            where t.id = :id and t.updatedAt = :updatedAt
+            """)
+    int updateRefreshedTokens(@Param("id") long id,
+                              @Param("updatedAt") Instant updatedAt,
+                              @Param("accessToken") String accessToken,
+                              @Param("refreshToken") String refreshToken,
+                              @Param("expiresAt") Instant expiresAt,
+                              @Param("now") Instant now);
+
+    /**
+     * Records that the token endpoint rejected the row's refresh token, unless the row changed
+     * since it was read. Returns the number of updated rows.
+     */
+    @Modifying
+    @Query("update JiraOAuthToken t set t.refreshFailedAt = :failedAt where t.id = :id and t.updatedAt = :updatedAt")
+    int markRefreshFailed(@Param("id") long id,
+                          @Param("updatedAt") Instant updatedAt,
+                          @Param("failedAt") Instant failedAt);
 }
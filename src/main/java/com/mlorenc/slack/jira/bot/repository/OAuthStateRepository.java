@@ -1,7 +1,16 @@
 package com.mlorenc.slack.jira.bot.repository;
 
 import com.mlorenc.slack.jira.bot.model.OAuthState;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
 
 public interface OAuthStateRepository extends JpaRepository<OAuthState, String> {
+
+    @Query("select s.state from OAuthState s where s.expiresAt < :now order by s.expiresAt")
+    List<String> findExpiredStates(@Param("now") Instant now, Pageable pageable);
 }
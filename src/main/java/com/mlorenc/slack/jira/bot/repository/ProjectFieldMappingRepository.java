@@ -2,9 +2,38 @@ package com.mlorenc.slack.jira.bot.repository;
 
 import com.mlorenc.slack.jira.bot.model.ProjectFieldMapping;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 
 public interface ProjectFieldMappingRepository extends JpaRepository<ProjectFieldMapping, Long> {
-    Optional<ProjectFieldMapping> findBySlackUserIdAndJiraProjectKey(String slackUserId, String jiraProjectKey);
+    Optional<ProjectFieldMapping> findBySlackTeamIdAndSlackUserIdAndJiraProjectKey(String slackTeamId, String slackUserId,
+                                                                                    String jiraProjectKey);
+
+    List<ProjectFieldMapping> findByUpdatedAtAfter(Instant since);
+
+    /**
+     * Inserts the mapping or updates the progress field of the existing one in a single
+     * statement, bumping its version. Two concurrent inserts of a new mapping still collide on
+     * the unique key; the loser fails with a constraint violation.
+     */
+    @Transactional
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            merge into project_field_mappings m
+            using (values (cast(:slackTeamId as varchar(255)), cast(:slackUserId as varchar(255)), cast(:projectKey as varchar(255))))
+                s (slack_team_id, slack_user_id, jira_project_key)
+            on m.slack_team_id = s.slack_team_id and m.slack_user_id = s.slack_user_id and m.jira_project_key = s.jira_project_key
+            when matched then update set progress_field_id = :progressFieldId, version = m.version + 1, updated_at = :updatedAt
+            when not matched then insert (slack_team_id, slack_user_id, jira_project_key, progress_field_id, version, updated_at)
+                values (s.slack_team_id, s.slack_user_id, s.jira_project_key, :progressFieldId, 0, :updatedAt)
+            """)
+    int upsert(@Param("slackTeamId") String slackTeamId, @Param("slackUserId") String slackUserId,
+               @Param("projectKey") String projectKey, @Param("progressFieldId") String progressFieldId,
+               @Param("updatedAt") Instant updatedAt);
 }
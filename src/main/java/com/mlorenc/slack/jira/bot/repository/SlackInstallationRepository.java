@@ -0,0 +1,26 @@
+package com.mlorenc.slack.jira.bot.repository;
+
+import com.mlorenc.slack.jira.bot.model.SlackInstallation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+
+public interface SlackInstallationRepository extends JpaRepository<SlackInstallation, String> {
+
+    /**
+     * Replaces the bot token ciphertext unless the workspace was reinstalled since it was read.
+     * Returns the number of updated rows.
+     */
+    @Modifying
+    @Query("""
+            update SlackInstallation i
+            set i.encryptedBotToken = :botToken
+            where i.teamId = :teamId and i.installedAt = :installedAt
+            """)
+    int updateCiphertext(@Param("teamId") String teamId,
+                         @Param("installedAt") Instant installedAt,
+                         @Param("botToken") String botToken);
+}
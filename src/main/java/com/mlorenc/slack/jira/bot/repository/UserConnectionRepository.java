@@ -6,5 +6,5 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import java.util.Optional;
 
 public interface UserConnectionRepository extends JpaRepository<UserConnection, Long> {
-    Optional<UserConnection> findBySlackUserId(String slackUserId);
+    Optional<UserConnection> findBySlackTeamIdAndSlackUserId(String slackTeamId, String slackUserId);
 }
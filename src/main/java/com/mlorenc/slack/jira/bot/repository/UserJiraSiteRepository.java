@@ -0,0 +1,10 @@
+package com.mlorenc.slack.jira.bot.repository;
+
+import com.mlorenc.slack.jira.bot.model.UserJiraSite;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface UserJiraSiteRepository extends JpaRepository<UserJiraSite, Long> {
+    List<UserJiraSite> findBySlackTeamIdAndSlackUserIdOrderByIdAsc(String slackTeamId, String slackUserId);
+}
@@ -0,0 +1,153 @@
+package com.mlorenc.slack.jira.bot.service;
+
+import com.mlorenc.slack.jira.bot.config.BotProperties;
+import com.mlorenc.slack.jira.bot.model.SlackUser;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Bounded in-memory cache of decrypted Jira access tokens. A token is served only while it is
+ * valid beyond the proactive refresh window; after that the next caller loads a new one, and
+ * concurrent callers for the same user wait on that single in-flight load instead of starting
+ * their own refresh.
+ */
+@Component
+public class AccessTokenCache {
+
+    private final int maxEntries;
+    private final Duration refreshWindow;
+    private final Map<SlackUser, CachedToken> tokens = new ConcurrentHashMap<>();
+    private final Map<SlackUser, CompletableFuture<CachedToken>> inFlight = new ConcurrentHashMap<>();
+    // bumped on every invalidation so loads that started earlier do not re-cache stale tokens
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder refreshFailures = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public AccessTokenCache(BotProperties properties) {
+        this.maxEntries = properties.tokenCache().maxEntries();
+        this.refreshWindow = properties.tokenCache().refreshWindow();
+    }
+
+    /**
+     * Returns the cached token for the user, or runs {@code loader} once for all concurrent
+     * callers and caches its result if it is still fresh.
+     */
+    public String get(SlackUser user, Function<SlackUser, CachedToken> loader) {
+        CachedToken cached = tokens.get(user);
+        if (cached != null && isFresh(cached.expiresAt())) {
+            hits.increment();
+            return cached.accessToken();
+        }
+        misses.increment();
+        return load(user, loader);
+    }
+
+    /**
+     * Runs {@code loader} for the user regardless of what is cached, joining a load that is
+     * already in flight for the same user.
+     */
+    public String load(SlackUser user, Function<SlackUser, CachedToken> loader) {
+        CompletableFuture<CachedToken> flight = new CompletableFuture<>();
+        CompletableFuture<CachedToken> running = inFlight.putIfAbsent(user, flight);
+        if (running != null) {
+            return await(running).accessToken();
+        }
+
+        long startedAt = generation.get();
+        try {
+            CachedToken loaded = loader.apply(user);
+            if (isFresh(loaded.expiresAt()) && generation.get() == startedAt) {
+                put(user, loaded);
+            }
+            flight.complete(loaded);
+            return loaded.accessToken();
+        } catch (Throwable ex) {
+            // any failure, Errors included, must reach the joiners or they wait forever
+            flight.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(user, flight);
+        }
+    }
+
+    /**
+     * Tokens expiring before this instant are due for refresh.
+     */
+    public Instant refreshDeadline() {
+        return Instant.now().plus(refreshWindow);
+    }
+
+    public boolean isFresh(Instant expiresAt) {
+        return expiresAt.isAfter(refreshDeadline());
+    }
+
+    public void invalidate(SlackUser user) {
+        generation.incrementAndGet();
+        tokens.remove(user);
+    }
+
+    public void recordRefresh(boolean succeeded) {
+        (succeeded ? refreshes : refreshFailures).increment();
+    }
+
+    public Stats stats() {
+        return new Stats(tokens.size(), hits.sum(), misses.sum(), refreshes.sum(), refreshFailures.sum(), evictions.sum());
+    }
+
+    private void put(SlackUser user, CachedToken token) {
+        tokens.put(user, token);
+        if (tokens.size() > maxEntries) {
+            evict();
+        }
+    }
+
+    // Drops stale entries first, then the ones closest to expiry, down to 90% of the budget
+    private void evict() {
+        tokens.entrySet().removeIf(e -> {
+            boolean stale = !isFresh(e.getValue().expiresAt());
+            if (stale) evictions.increment();
+            return stale;
+        });
+        int target = maxEntries - Math.max(1, maxEntries / 10);
+        int excess = tokens.size() - target;
+        if (excess <= 0) return;
+        tokens.entrySet().stream()
+                .sorted(Comparator.comparing(e -> e.getValue().expiresAt()))
+                .limit(excess)
+                .map(Map.Entry::getKey)
+                .toList()
+                .forEach(key -> {
+                    if (tokens.remove(key) != null) evictions.increment();
+                });
+    }
+
+    private static CachedToken await(CompletableFuture<CachedToken> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) throw cause;
+            if (ex.getCause() instanceof Error cause) throw cause;
+            throw ex;
+        }
+    }
+
+    public record CachedToken(String accessToken, Instant expiresAt) {
+    }
+
+    public record Stats(int size, long hits, long misses, long refreshes, long refreshFailures, long evictions) {
+    }
+}
@@ -0,0 +1,118 @@
+package com.mlorenc.slack.jira.bot.service;
+
+import com.mlorenc.slack.jira.bot.config.BotProperties;
+import com.mlorenc.slack.jira.bot.model.SlackUser;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps pending OAuth states in memory, for single-instance deployments only: a callback that
+ * reaches another instance finds no state and fails. Opt in with {@code store: memory}. Expiry uses a hashed
+ * time wheel: each state is also filed in the slot of the tick it expires in, and the sweeper
+ * only visits the slots of ticks that have passed instead of scanning every state. States
+ * whose expiry is a full revolution or more away are put back when their slot comes up early.
+ */
+@Component
+@ConditionalOnProperty(prefix = "bot.oauthStates", name = "store", havingValue = "memory")
+public class InMemoryOAuthStateStore implements OAuthStateStore, DisposableBean {
+
+    private static final int SLOTS = 1024;
+
+    private final Map<String, PendingState> states = new ConcurrentHashMap<>();
+    private final Queue<String>[] wheel;
+    private final long tickMillis;
+    private final long sweepIntervalMillis;
+    private long sweptThroughTick;
+    private final ScheduledExecutorService sweeper =
+            Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("oauth-state-sweeper").daemon().factory());
+
+    private final LongAdder saved = new LongAdder();
+    private final LongAdder consumed = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private volatile long lastSweepMillis;
+
+    @SuppressWarnings("unchecked")
+    public InMemoryOAuthStateStore(BotProperties properties) {
+        this.sweepIntervalMillis = properties.oauthStates().sweepInterval().toMillis();
+        // one tick per sweep, so every sweep drains exactly the slots that came due
+        this.tickMillis = Math.max(1, sweepIntervalMillis);
+        this.wheel = new Queue[SLOTS];
+        for (int i = 0; i < SLOTS; i++) {
+            wheel[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.sweptThroughTick = System.currentTimeMillis() / tickMillis - 1;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        sweeper.scheduleWithFixedDelay(() -> sweep(Instant.now()), sweepIntervalMillis, sweepIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void save(String state, SlackUser user, Instant expiresAt) {
+        states.put(state, new PendingState(user, expiresAt));
+        slot(expiresAt).add(state);
+        saved.increment();
+    }
+
+    @Override
+    public Optional<PendingState> consume(String state) {
+        // the wheel entry stays behind and is skipped when its slot is swept
+        PendingState pending = states.remove(state);
+        if (pending != null) consumed.increment();
+        return Optional.ofNullable(pending);
+    }
+
+    @Override
+    public synchronized int sweep(Instant now) {
+        long startedAt = System.nanoTime();
+        long nowTick = now.toEpochMilli() / tickMillis;
+        int removed = 0;
+        for (long tick = Math.max(sweptThroughTick + 1, nowTick - SLOTS + 1); tick <= nowTick; tick++) {
+            Queue<String> slot = wheel[(int) Math.floorMod(tick, (long) SLOTS)];
+            for (int pending = slot.size(); pending > 0; pending--) {
+                String state = slot.poll();
+                if (state == null) break;
+                PendingState entry = states.get(state);
+                if (entry == null) continue;
+                if (entry.expiresAt().isAfter(now)) {
+                    slot(entry.expiresAt()).add(state);
+                } else if (states.remove(state, entry)) {
+                    removed++;
+                }
+            }
+        }
+        sweptThroughTick = Math.max(sweptThroughTick, nowTick);
+        expired.add(removed);
+        lastSweepMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+        return removed;
+    }
+
+    @Override
+    public Stats stats() {
+        return new Stats(states.size(), saved.sum(), consumed.sum(), expired.sum(), lastSweepMillis);
+    }
+
+    private Queue<String> slot(Instant expiresAt) {
+        return wheel[(int) Math.floorMod(expiresAt.toEpochMilli() / tickMillis, (long) SLOTS)];
+    }
+
+    @Override
+    public void destroy() {
+        sweeper.shutdownNow();
+    }
+}
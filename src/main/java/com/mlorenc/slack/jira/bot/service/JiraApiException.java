@@ -0,0 +1,23 @@
+package com.mlorenc.slack.jira.bot.service;
+
+/**
+ * A Jira Cloud REST call that returned a non-2xx status.
+ */
+public class JiraApiException extends RuntimeException {
+
+    private final String cloudId;
+    private final String path;
+    private final int statusCode;
+
+    public JiraApiException(String cloudId, String path, int statusCode, String body) {
+        super("Jira " + path + " on cloud " + cloudId + " failed: HTTP " + statusCode
+                + (body == null || body.isBlank() ? "" : " " + body));
+        this.cloudId = cloudId;
+        this.path = path;
+        this.statusCode = statusCode;
+    }
+
+    public String getCloudId() { return cloudId; }
+    public String getPath() { return path; }
+    public int getStatusCode() { return statusCode; }
+}
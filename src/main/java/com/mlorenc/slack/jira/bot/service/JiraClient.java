@@ -0,0 +1,237 @@
+package com.mlorenc.slack.jira.bot.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.mlorenc.slack.jira.bot.config.BotProperties;
+import com.mlorenc.slack.jira.bot.core.ClientExecutors;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Jira Cloud REST client addressed by a {@link JiraSite} ({@code {baseUrl}/{cloudId}/rest/...}).
+ * One pooled HTTP/2 {@link HttpClient} serves every site. Each Slack workspace gets its own budget
+ * per cloud id of at most {@code maxConcurrentPerCloud} calls in flight, so a busy workspace queues
+ * behind its own calls rather than everyone's; further calls wait in that queue without holding a
+ * thread. The bearer token is the user's current access token from
+ * {@link JiraOAuthService#getValidAccessToken}. Calls are timed as {@code bot.jira.api.calls},
+ * tagged with the HTTP method and status class but not the site.
+ */
+@Component
+public class JiraClient implements DisposableBean {
+
+    private final ObjectMapper om;
+    private final JiraOAuthService oauthService;
+    private final String baseUrl;
+    private final BotProperties.JiraApi settings;
+    private final ExecutorService executor;
+    private final HttpClient http;
+    private final Map<Budget, CloudLimiter> clouds = new ConcurrentHashMap<>();
+    private final Map<TimerKey, Timer> timers = new ConcurrentHashMap<>();
+    private final MeterRegistry registry;
+
+    public JiraClient(ObjectMapper objectMapper, JiraOAuthService oauthService, BotProperties properties,
+                      MeterRegistry registry, @Value(ClientExecutors.VIRTUAL_THREADS) boolean virtualThreads) {
+        this.om = objectMapper;
+        this.registry = registry;
+        this.oauthService = oauthService;
+        this.settings = properties.jiraApi();
+        this.baseUrl = settings.baseUrl().endsWith("/") ? settings.baseUrl() : settings.baseUrl() + "/";
+        this.executor = ClientExecutors.create(registry, "jira-http", settings.executorThreads(), virtualThreads);
+        this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(settings.connectTimeout())
+                .executor(executor)
+                .build();
+    }
+
+    public CompletableFuture<JsonNode> getAsync(JiraSite site, String path) {
+        return call(site, "GET", path, null);
+    }
+
+    public CompletableFuture<JsonNode> putAsync(JiraSite site, String path, JsonNode body) {
+        return call(site, "PUT", path, body);
+    }
+
+    public CompletableFuture<JsonNode> postAsync(JiraSite site, String path, JsonNode body) {
+        return call(site, "POST", path, body);
+    }
+
+    public CompletableFuture<JsonNode> getIssueAsync(JiraSite site, String issueKey, String... fields) {
+        String query = fields.length == 0 ? "" : "?fields=" + String.join(",", fields);
+        return getAsync(site, "rest/api/3/issue/" + issueKey + query);
+    }
+
+    /**
+     * Sets one field on an issue, typically the mapped progress field.
+     */
+    public CompletableFuture<Void> updateFieldAsync(JiraSite site, String issueKey, String fieldId, Object value) {
+        ObjectNode body = om.createObjectNode();
+        body.putObject("fields").set(fieldId, om.valueToTree(value));
+        return putAsync(site, "rest/api/3/issue/" + issueKey, body).thenApply(ignored -> null);
+    }
+
+    public List<CloudStats> stats() {
+        List<CloudStats> stats = new ArrayList<>(clouds.size());
+        clouds.forEach((budget, limiter) -> stats.add(new CloudStats(budget.teamId(), budget.cloudId(),
+                settings.maxConcurrentPerCloud() - limiter.permits.availablePermits(), limiter.waiting.size(),
+                limiter.completed.sum(), limiter.failed.sum())));
+        stats.sort(Comparator.comparing(CloudStats::cloudId)
+                .thenComparing(CloudStats::teamId, Comparator.nullsFirst(Comparator.naturalOrder())));
+        return stats;
+    }
+
+    private CompletableFuture<JsonNode> call(JiraSite site, String method, String path, JsonNode body) {
+        String cloudId = site.cloudId();
+        CloudLimiter limiter = clouds.computeIfAbsent(new Budget(site.user().teamId(), cloudId),
+                budget -> new CloudLimiter(settings.maxConcurrentPerCloud()));
+        return limiter.submit(() -> {
+            long startedAt = System.nanoTime();
+            // token lookup may refresh against Atlassian, so it runs on our executor
+            return CompletableFuture.supplyAsync(() -> oauthService.getValidAccessToken(site.user()), executor)
+                    .thenCompose(token -> http.sendAsync(request(cloudId, method, path, body, token),
+                            HttpResponse.BodyHandlers.ofByteArray()))
+                    .thenApply(resp -> parse(cloudId, path, resp))
+                    .whenComplete((result, ex) -> timer(method, status(ex))
+                            .record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS));
+        });
+    }
+
+    // the registry's own lookup builds tags and a meter id on every call
+    private Timer timer(String method, String status) {
+        return timers.computeIfAbsent(new TimerKey(method, status), key -> Timer.builder("bot.jira.api.calls")
+                .description("Jira Cloud REST calls, excluding time queued for a per-site permit")
+                .tag("method", key.method())
+                .tag("status", key.status())
+                .register(registry));
+    }
+
+    private HttpRequest request(String cloudId, String method, String path, JsonNode body, String token) {
+        HttpRequest.BodyPublisher publisher;
+        try {
+            publisher = body == null ? HttpRequest.BodyPublishers.noBody()
+                    : HttpRequest.BodyPublishers.ofByteArray(om.writeValueAsBytes(body));
+        } catch (JsonProcessingException ex) {
+            throw new IllegalArgumentException("Unable to serialize Jira request body", ex);
+        }
+        HttpRequest.Builder builder = HttpRequest.newBuilder()
+                .uri(URI.create(baseUrl + cloudId + "/" + path))
+                .timeout(settings.requestTimeout())
+                .header("Authorization", "Bearer " + token)
+                .header("Accept", "application/json")
+                .method(method, publisher);
+        if (body != null) {
+            builder.header("Content-Type", "application/json");
+        }
+        return builder.build();
+    }
+
+    private JsonNode parse(String cloudId, String path, HttpResponse<byte[]> resp) {
+        if (resp.statusCode() / 100 != 2) {
+            throw new JiraApiException(cloudId, path, resp.statusCode(), new String(resp.body(), StandardCharsets.UTF_8));
+        }
+        if (resp.body().length == 0) {
+            return om.missingNode();
+        }
+        try {
+            return om.readTree(resp.body());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static String status(Throwable ex) {
+        if (ex == null) return "2xx";
+        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+        return cause instanceof JiraApiException jae ? jae.getStatusCode() / 100 + "xx" : "io_error";
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private record Budget(String teamId, String cloudId) {
+    }
+
+    private record TimerKey(String method, String status) {
+    }
+
+    /**
+     * Admits a bounded number of calls for one workspace and cloud id. A call that finds no free permit is
+     * queued and started by whichever call finishes next.
+     */
+    static final class CloudLimiter {
+
+        final Semaphore permits;
+        final Queue<Runnable> waiting = new ConcurrentLinkedQueue<>();
+        final LongAdder completed = new LongAdder();
+        final LongAdder failed = new LongAdder();
+
+        CloudLimiter(int maxConcurrent) {
+            this.permits = new Semaphore(maxConcurrent);
+        }
+
+        <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> call) {
+            CompletableFuture<T> result = new CompletableFuture<>();
+            waiting.add(() -> {
+                CompletableFuture<T> started;
+                try {
+                    started = call.get();
+                } catch (RuntimeException ex) {
+                    started = CompletableFuture.failedFuture(ex);
+                }
+                started.whenComplete((value, ex) -> {
+                    (ex == null ? completed : failed).increment();
+                    permits.release();
+                    drain();
+                    if (ex == null) result.complete(value);
+                    else result.completeExceptionally(ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex);
+                });
+            });
+            drain();
+            return result;
+        }
+
+        // a release racing a failed tryAcquire is covered: whoever releases drains again
+        private void drain() {
+            while (!waiting.isEmpty() && permits.tryAcquire()) {
+                Runnable next = waiting.poll();
+                if (next == null) {
+                    permits.release();
+                } else {
+                    next.run();
+                }
+            }
+        }
+    }
+
+    public record CloudStats(String teamId, String cloudId, int inFlight, int queued, long completed, long failed) {
+    }
+}
@@ -0,0 +1,340 @@
+package com.mlorenc.slack.jira.bot.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.mlorenc.slack.jira.bot.config.BotProperties;
+import com.mlorenc.slack.jira.bot.model.SlackUser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Per-cloud cache of Jira projects and custom fields, used to autocomplete and validate the
+ * project mapping modal. Each Slack workspace keeps its own entry for a cloud, loaded with its own
+ * users' tokens, so workspaces sharing a site neither see each other's view of it nor wait on each
+ * other's loads. A cloud's metadata is loaded in bulk the first time it is needed and
+ * indexed by prefix. Once it is older than {@code refreshAfter} it keeps being served while one
+ * background reload replaces it; it is dropped after {@code expireAfter}, and when more than
+ * {@code maxClouds} sites are cached the least recently used ones go first. A site whose load
+ * failed is not asked again for {@code failureBackoff}; until then it counts as not loaded, or
+ * keeps serving its previous metadata if it had any.
+ * <p>
+ * A user whose token reaches several sites sees the projects of all of them; the site that has a
+ * project is also where its issues are written (see {@link #siteForProject}).
+ */
+@Component
+public class JiraMetadataCache {
+
+    private static final Logger log = LoggerFactory.getLogger(JiraMetadataCache.class);
+
+    static final int MAX_OPTIONS = 100;
+    private static final int PROJECT_PAGE_SIZE = 100;
+
+    private final JiraClient jiraClient;
+    private final JiraSiteDirectory siteDirectory;
+    private final BotProperties.JiraMetadata settings;
+    private final Map<CloudKey, CloudEntry> clouds = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public JiraMetadataCache(JiraClient jiraClient, JiraSiteDirectory siteDirectory, BotProperties properties) {
+        this.jiraClient = jiraClient;
+        this.siteDirectory = siteDirectory;
+        this.settings = properties.jiraMetadata();
+    }
+
+    /**
+     * Projects matching {@code prefix} on the user's Jira sites, or nothing if the user is not
+     * connected or no site's metadata could be loaded within the cold-load timeout.
+     */
+    public List<Entry> suggestProjects(SlackUser user, String prefix) {
+        return merge(metadata(user), m -> m.projects().find(prefix, MAX_OPTIONS));
+    }
+
+    public List<Entry> suggestFields(SlackUser user, String prefix) {
+        return merge(metadata(user), m -> m.fields().find(prefix, MAX_OPTIONS));
+    }
+
+    /**
+     * Checks a mapping against the cached metadata: the project must exist on one of the user's
+     * sites and the field on that same site. Errors are keyed by the modal's block ids.
+     */
+    public Validation validate(SlackUser user, String projectKey, String fieldId) {
+        Sites sites = metadata(user);
+        if (sites.loaded().isEmpty()) {
+            return new Validation(false, Map.of());
+        }
+        Optional<Metadata> owner = projectKey == null ? Optional.empty() : sites.loaded().values().stream()
+                .filter(m -> m.projectKeys().containsKey(projectKey.toUpperCase()))
+                .findFirst();
+        if (owner.isEmpty() && !sites.complete()) {
+            // the project may live on a site that did not load in time
+            return new Validation(false, Map.of());
+        }
+        Map<String, String> errors = new LinkedHashMap<>();
+        if (owner.isEmpty()) {
+            errors.put("project_block", "No Jira project with key " + projectKey + ".");
+        }
+        boolean fieldFound = fieldId != null && owner.map(m -> m.fieldIds().containsKey(fieldId))
+                .orElseGet(() -> sites.loaded().values().stream().anyMatch(m -> m.fieldIds().containsKey(fieldId)));
+        if (!fieldFound) {
+            errors.put("progress_field_block", owner.isPresent() && fieldId != null
+                    ? "No Jira custom field with id " + fieldId + " on the site of project " + projectKey.toUpperCase() + "."
+                    : "No Jira custom field with id " + fieldId + ".");
+        }
+        return new Validation(true, errors);
+    }
+
+    /**
+     * The site holding {@code projectKey} among the user's sites. A user with one site always
+     * gets it without loading metadata; otherwise the user's default site is the fallback when
+     * every site loaded and none has the project. When the project is not on any loaded site and
+     * another site did not load in time, the lookup is not {@code checked}: the project may live
+     * there, so it is not routed to the default site. Empty if the user is not connected.
+     */
+    public SiteLookup siteForProject(SlackUser user, String projectKey) {
+        List<JiraSite> sites = siteDirectory.sites(user);
+        if (sites.size() <= 1) {
+            return new SiteLookup(true, sites.stream().findFirst());
+        }
+        String key = projectKey.toUpperCase();
+        Sites loaded = load(sites);
+        Optional<JiraSite> owner = loaded.loaded().entrySet().stream()
+                .filter(e -> e.getValue().projectKeys().containsKey(key))
+                .map(Map.Entry::getKey)
+                .findFirst();
+        if (owner.isEmpty() && !loaded.complete()) {
+            return new SiteLookup(false, Optional.empty());
+        }
+        return new SiteLookup(true, Optional.of(owner.orElse(sites.getFirst())));
+    }
+
+    public Stats stats() {
+        return new Stats(clouds.size(), hits.sum(), misses.sum(), loads.sum(), loadFailures.sum(), evictions.sum());
+    }
+
+    private Sites metadata(SlackUser user) {
+        return load(siteDirectory.sites(user));
+    }
+
+    // starts every site's load at once and waits for all of them under one cold-load deadline
+    private Sites load(List<JiraSite> sites) {
+        Map<JiraSite, CompletableFuture<Metadata>> pending = new LinkedHashMap<>();
+        sites.forEach(site -> pending.put(site, get(site)));
+        long deadline = System.nanoTime() + settings.coldLoadTimeout().toNanos();
+        Map<JiraSite, Metadata> loaded = new LinkedHashMap<>();
+        for (Map.Entry<JiraSite, CompletableFuture<Metadata>> e : pending.entrySet()) {
+            try {
+                loaded.put(e.getKey(), e.getValue().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+            } catch (TimeoutException | ExecutionException ex) {
+                // a load that timed out keeps running and serves the next request
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return new Sites(loaded, loaded.size() == sites.size());
+    }
+
+    // default site first; the same project or field seen on two sites is listed once
+    private static List<Entry> merge(Sites sites, Function<Metadata, List<Entry>> find) {
+        if (sites.loaded().size() == 1) {
+            return find.apply(sites.loaded().values().iterator().next());
+        }
+        Set<String> seen = new LinkedHashSet<>();
+        List<Entry> merged = new ArrayList<>();
+        for (Metadata metadata : sites.loaded().values()) {
+            for (Entry entry : find.apply(metadata)) {
+                if (merged.size() < MAX_OPTIONS && seen.add(entry.id())) merged.add(entry);
+            }
+        }
+        return merged;
+    }
+
+    CompletableFuture<Metadata> get(JiraSite site) {
+        long now = System.nanoTime();
+        CloudEntry entry = clouds.computeIfAbsent(new CloudKey(site.user().teamId(), site.cloudId()), CloudEntry::new);
+        entry.lastAccess = now;
+        Metadata current = entry.metadata;
+        LoadFailure failure = entry.failure;
+        boolean backingOff = failure != null && now - failure.failedAt() < settings.failureBackoff().toNanos();
+        if (current != null && now - current.loadedAt() < settings.expireAfter().toNanos()) {
+            hits.increment();
+            if (now - current.loadedAt() >= settings.refreshAfter().toNanos() && !backingOff) {
+                reload(entry, site);
+            }
+            return CompletableFuture.completedFuture(current);
+        }
+        misses.increment();
+        if (backingOff) {
+            return CompletableFuture.failedFuture(failure.cause());
+        }
+        return reload(entry, site);
+    }
+
+    private CompletableFuture<Metadata> reload(CloudEntry entry, JiraSite site) {
+        entry.lock.lock();
+        try {
+            if (entry.loading != null) return entry.loading;
+            loads.increment();
+            long startedAt = System.nanoTime();
+            CompletableFuture<Metadata> loading = loadProjects(site, 0, new ArrayList<>())
+                    .thenCombine(loadFields(site), (projects, fields) -> new Metadata(new PrefixIndex(projects),
+                            new PrefixIndex(fields), byId(projects), byId(fields), System.nanoTime()));
+            entry.loading = loading;
+            loading.whenComplete((metadata, ex) -> {
+                entry.lock.lock();
+                try {
+                    entry.loading = null;
+                    if (ex == null) entry.metadata = metadata;
+                    entry.failure = ex == null ? null : new LoadFailure(ex, System.nanoTime());
+                } finally {
+                    entry.lock.unlock();
+                }
+                if (ex == null) {
+                    log.atInfo().addKeyValue("event", "jira.metadata.loaded").addKeyValue("teamId", entry.key.teamId())
+                            .addKeyValue("jiraCloudId", entry.key.cloudId())
+                            .addKeyValue("projects", metadata.projects().size()).addKeyValue("fields", metadata.fields().size())
+                            .addKeyValue("durationMillis", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt))
+                            .log("Loaded Jira metadata");
+                    evict();
+                } else {
+                    loadFailures.increment();
+                    log.atWarn().addKeyValue("event", "jira.metadata.load.failed").addKeyValue("teamId", entry.key.teamId())
+                            .addKeyValue("jiraCloudId", entry.key.cloudId())
+                            .setCause(ex).log("Unable to load Jira metadata");
+                }
+            });
+            return loading;
+        } finally {
+            entry.lock.unlock();
+        }
+    }
+
+    private CompletableFuture<List<Entry>> loadProjects(JiraSite site, int startAt, List<Entry> into) {
+        return jiraClient.getAsync(site, "rest/api/3/project/search?startAt=" + startAt + "&maxResults=" + PROJECT_PAGE_SIZE)
+                .thenCompose(page -> {
+                    JsonNode values = page.path("values");
+                    for (JsonNode project : values) {
+                        into.add(new Entry(project.path("key").asText(), project.path("name").asText()));
+                    }
+                    if (page.path("isLast").asBoolean(true) || values.isEmpty()) {
+                        return CompletableFuture.completedFuture(into);
+                    }
+                    return loadProjects(site, startAt + values.size(), into);
+                });
+    }
+
+    private CompletableFuture<List<Entry>> loadFields(JiraSite site) {
+        return jiraClient.getAsync(site, "rest/api/3/field").thenApply(fields -> {
+            List<Entry> custom = new ArrayList<>();
+            for (JsonNode field : fields) {
+                if (field.path("custom").asBoolean(false)) {
+                    custom.add(new Entry(field.path("id").asText(), field.path("name").asText()));
+                }
+            }
+            return custom;
+        });
+    }
+
+    // expired clouds first, then the least recently used beyond maxClouds
+    private void evict() {
+        long now = System.nanoTime();
+        clouds.values().removeIf(entry -> {
+            Metadata metadata = entry.metadata;
+            boolean expired = entry.loading == null && metadata != null
+                    && now - metadata.loadedAt() >= settings.expireAfter().toNanos();
+            if (expired) evictions.increment();
+            return expired;
+        });
+        int excess = clouds.size() - settings.maxClouds();
+        if (excess <= 0) return;
+        clouds.values().stream()
+                .sorted(Comparator.comparingLong(entry -> entry.lastAccess))
+                .limit(excess)
+                .toList()
+                .forEach(entry -> {
+                    if (clouds.remove(entry.key, entry)) evictions.increment();
+                });
+    }
+
+    private static Map<String, Entry> byId(List<Entry> entries) {
+        Map<String, Entry> byId = new HashMap<>(entries.size() * 2);
+        entries.forEach(entry -> byId.put(entry.id(), entry));
+        return Map.copyOf(byId);
+    }
+
+    /**
+     * A project ({@code id} is its key) or custom field.
+     */
+    public record Entry(String id, String name) {
+    }
+
+    /**
+     * {@code checked} is false when the site's metadata was not available to check against.
+     */
+    public record Validation(boolean checked, Map<String, String> errors) {
+
+        public boolean isValid() {
+            return checked && errors.isEmpty();
+        }
+    }
+
+    /**
+     * {@code checked} is false when the project's site could not be told because some of the
+     * user's sites did not load in time; {@code site} is then empty.
+     */
+    public record SiteLookup(boolean checked, Optional<JiraSite> site) {
+    }
+
+    public record Stats(int clouds, long hits, long misses, long loads, long loadFailures, long evictions) {
+    }
+
+    private record Sites(Map<JiraSite, Metadata> loaded, boolean complete) {
+    }
+
+    record Metadata(PrefixIndex projects, PrefixIndex fields, Map<String, Entry> projectKeys,
+                    Map<String, Entry> fieldIds, long loadedAt) {
+    }
+
+    private record CloudKey(String teamId, String cloudId) {
+    }
+
+    private record LoadFailure(Throwable cause, long failedAt) {
+    }
+
+    private static final class CloudEntry {
+        private final CloudKey key;
+        // not the entry's monitor: a virtual thread waiting on a contended monitor pins its carrier
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile Metadata metadata;
+        private volatile CompletableFuture<Metadata> loading;
+        private volatile LoadFailure failure;
+        private volatile long lastAccess;
+
+        private CloudEntry(CloudKey key) {
+            this.key = key;
+        }
+    }
+}
@@ -2,16 +2,20 @@ package com.mlorenc.slack.jira.bot.service;
 
 import com.mlorenc.slack.jira.bot.config.BotProperties;
 import com.mlorenc.slack.jira.bot.model.JiraOAuthToken;
-import com.mlorenc.slack.jira.bot.model.OAuthState;
+import com.mlorenc.slack.jira.bot.model.SlackUser;
 import com.mlorenc.slack.jira.bot.model.UserConnection;
 import com.mlorenc.slack.jira.bot.repository.JiraOAuthTokenRepository;
-import com.mlorenc.slack.jira.bot.repository.OAuthStateRepository;
 import com.mlorenc.slack.jira.bot.repository.UserConnectionRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 
 import java.net.URLEncoder;
@@ -20,6 +24,7 @@ import java.time.Instant;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
 
 @Service
 public class JiraOAuthService {
@@ -27,92 +32,222 @@ public class JiraOAuthService {
     private static final Logger log = LoggerFactory.getLogger(JiraOAuthService.class);
 
     private final BotProperties properties;
-    private final OAuthStateRepository stateRepository;
+    private final OAuthStateStore stateStore;
     private final JiraOAuthTokenRepository tokenRepository;
     private final UserConnectionRepository userConnectionRepository;
     private final TokenEncryptionService encryptionService;
+    private final AccessTokenCache tokenCache;
     private final RestTemplate restTemplate;
+    private final JiraSiteDirectory siteDirectory;
+    private final TransactionTemplate transactions;
+
+    private final LongAdder callbacks = new LongAdder();
+    private final LongAdder callbackFailures = new LongAdder();
 
     public JiraOAuthService(BotProperties properties,
-                            OAuthStateRepository stateRepository,
+                            OAuthStateStore stateStore,
                             JiraOAuthTokenRepository tokenRepository,
                             UserConnectionRepository userConnectionRepository,
                             TokenEncryptionService encryptionService,
-                            RestTemplate restTemplate) {
+                            AccessTokenCache tokenCache,
+                            RestTemplate restTemplate,
+                            JiraSiteDirectory siteDirectory,
+                            TransactionTemplate transactions) {
         this.properties = properties;
-        this.stateRepository = stateRepository;
+        this.stateStore = stateStore;
         this.tokenRepository = tokenRepository;
         this.userConnectionRepository = userConnectionRepository;
         this.encryptionService = encryptionService;
+        this.tokenCache = tokenCache;
         this.restTemplate = restTemplate;
+        this.siteDirectory = siteDirectory;
+        this.transactions = transactions;
     }
 
-    @Transactional
-    public String createAuthorizationUrl(String slackUserId) {
-        OAuthState state = new OAuthState();
-        state.setState(UUID.randomUUID().toString());
-        state.setSlackUserId(slackUserId);
-        state.setExpiresAt(Instant.now().plusSeconds(600));
-        stateRepository.save(state);
+    public String createAuthorizationUrl(SlackUser user) {
+        String state = UUID.randomUUID().toString();
+        stateStore.save(state, user, Instant.now().plus(properties.oauthStates().ttl()));
 
         String url = "%s?audience=api.atlassian.com&client_id=%s&scope=%s&redirect_uri=%s&response_type=code&prompt=consent&state=%s"
                 .formatted(properties.jira().authorizeUrl(),
                         encode(properties.jira().clientId()),
                         encode(properties.jira().scopes()),
                         encode(properties.jira().redirectUri()),
-                        encode(state.getState()));
-        log.atInfo().addKeyValue("event", "jira.oauth.authorize.created").addKeyValue("slackUserId", slackUserId).log("Created Jira OAuth authorization URL");
+                        encode(state));
+        log.atInfo().addKeyValue("event", "jira.oauth.authorize.created").addKeyValue("teamId", user.teamId())
+                .addKeyValue("slackUserId", user.userId()).log("Created Jira OAuth authorization URL");
         return url;
     }
 
-    @Transactional
+    /**
+     * Talks to Atlassian outside of any transaction so the slow calls do not hold a pooled
+     * database connection; only the writes at the end run in one.
+     */
     public void handleCallback(String code, String stateValue) {
-        OAuthState state = stateRepository.findById(stateValue)
+        callbacks.increment();
+        try {
+            connect(code, stateValue);
+        } catch (RuntimeException ex) {
+            callbackFailures.increment();
+            throw ex;
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(callbacks.sum(), callbackFailures.sum());
+    }
+
+    private void connect(String code, String stateValue) {
+        // consumed up front so a state can only ever be redeemed once
+        OAuthStateStore.PendingState state = stateStore.consume(stateValue)
                 .orElseThrow(() -> new IllegalArgumentException("Invalid OAuth state"));
-        if (state.getExpiresAt().isBefore(Instant.now())) {
+        if (state.expiresAt().isBefore(Instant.now())) {
             throw new IllegalArgumentException("OAuth state expired");
         }
 
         TokenResponse tokenResponse = exchangeCode(code);
-        saveOrUpdateToken(state.getSlackUserId(), tokenResponse);
+        List<JiraSiteDirectory.AccessibleResource> resources = siteDirectory.accessibleResources(tokenResponse.accessToken());
+        if (resources.isEmpty()) {
+            throw new IllegalStateException("No accessible Jira resources");
+        }
+        String defaultCloudId = transactions.execute(status -> saveConnection(state.user(), tokenResponse, resources));
 
-        CloudResource resource = fetchCloudResource(tokenResponse.accessToken());
-        UserConnection connection = userConnectionRepository.findBySlackUserId(state.getSlackUserId())
+        log.atInfo().addKeyValue("event", "jira.oauth.connected").addKeyValue("teamId", state.user().teamId())
+                .addKeyValue("slackUserId", state.user().userId())
+                .addKeyValue("jiraCloudId", defaultCloudId).addKeyValue("sites", resources.size()).log("Connected Slack user to Jira");
+    }
+
+    private String saveConnection(SlackUser user, TokenResponse tokenResponse,
+                                  List<JiraSiteDirectory.AccessibleResource> resources) {
+        saveOrUpdateToken(user, tokenResponse);
+        invalidateCachedTokenAfterCommit(user);
+
+        UserConnection connection = userConnectionRepository.findBySlackTeamIdAndSlackUserId(user.teamId(), user.userId())
                 .orElseGet(UserConnection::new);
-        connection.setSlackUserId(state.getSlackUserId());
+        // a reconnect keeps the user's default site as long as the new grant still covers it
+        String defaultCloudId = resources.stream()
+                .map(JiraSiteDirectory.AccessibleResource::id)
+                .filter(id -> id.equals(connection.getJiraCloudId()))
+                .findFirst()
+                .orElse(resources.getFirst().id());
+        Instant now = Instant.now();
+        connection.setSlackTeamId(user.teamId());
+        connection.setSlackUserId(user.userId());
         connection.setJiraAccountId("oauth-user");
-        connection.setJiraCloudId(resource.id());
-        connection.setConnectedAt(Instant.now());
+        connection.setJiraCloudId(defaultCloudId);
+        connection.setConnectedAt(now);
         userConnectionRepository.save(connection);
+        siteDirectory.saveSites(user, resources, now);
+        return defaultCloudId;
+    }
+
+    public String getValidAccessToken(SlackUser user) {
+        return tokenCache.get(user, u -> loadAccessToken(u, tokenCache.refreshDeadline(), true));
+    }
 
-        stateRepository.delete(state);
-        log.atInfo().addKeyValue("event", "jira.oauth.connected").addKeyValue("slackUserId", state.getSlackUserId()).addKeyValue("jiraCloudId", resource.id()).log("Connected Slack user to Jira");
+    /**
+     * Refreshes the user's token if it expires before {@code refreshBefore}. Shares the
+     * single-flight of {@link #getValidAccessToken}, and unlike it, fails when the refresh fails.
+     */
+    public void refreshIfExpiring(SlackUser user, Instant refreshBefore) {
+        tokenCache.load(user, u -> loadAccessToken(u, refreshBefore, false));
     }
 
-    @Transactional
-    public String getValidAccessToken(String slackUserId) {
-        JiraOAuthToken token = tokenRepository.findBySlackUserId(slackUserId)
+    private AccessTokenCache.CachedToken loadAccessToken(SlackUser user, Instant refreshBefore, boolean fallbackOnFailure) {
+        JiraOAuthToken token = tokenRepository.findBySlackTeamIdAndSlackUserId(user.teamId(), user.userId())
                 .orElseThrow(() -> new IllegalArgumentException("No Jira OAuth token for user"));
 
-        if (token.getExpiresAt().isAfter(Instant.now().plusSeconds(60))) {
-            return encryptionService.decrypt(token.getEncryptedAccessToken());
+        if (token.getExpiresAt().isAfter(refreshBefore)) {
+            return new AccessTokenCache.CachedToken(encryptionService.decrypt(token.getEncryptedAccessToken()), token.getExpiresAt());
+        }
+
+        TokenResponse refreshed;
+        try {
+            if (token.getRefreshFailedAt() != null) {
+                // Atlassian already rejected this refresh token; asking again cannot succeed
+                throw new JiraTokenRevokedException(user, 0, null);
+            }
+            refreshed = refreshToken(encryptionService.decrypt(token.getEncryptedRefreshToken()));
+        } catch (RuntimeException ex) {
+            RuntimeException failure = ex;
+            if (ex instanceof HttpClientErrorException rejected
+                    && (rejected.getStatusCode().value() == 400 || rejected.getStatusCode().value() == 401)) {
+                markRefreshFailed(token, user, rejected);
+                failure = new JiraTokenRevokedException(user, rejected.getStatusCode().value(), ex);
+            }
+            if (!(ex instanceof JiraTokenRevokedException)) tokenCache.recordRefresh(false);
+            if (fallbackOnFailure && token.getExpiresAt().isAfter(Instant.now().plusSeconds(60))) {
+                // still usable, so a failed proactive refresh should not fail the caller
+                log.atWarn().addKeyValue("event", "jira.oauth.token.refresh.failed").addKeyValue("teamId", user.teamId())
+                        .addKeyValue("slackUserId", user.userId()).setCause(failure).log("Proactive Jira token refresh failed");
+                return new AccessTokenCache.CachedToken(encryptionService.decrypt(token.getEncryptedAccessToken()), token.getExpiresAt());
+            }
+            throw failure;
+        }
+        Instant expiresAt = Instant.now().plusSeconds(refreshed.expiresIn());
+        Integer updated = transactions.execute(status -> tokenRepository.updateRefreshedTokens(token.getId(),
+                token.getUpdatedAt(), encryptionService.encrypt(refreshed.accessToken()),
+                encryptionService.encrypt(refreshed.refreshToken()), expiresAt, Instant.now()));
+        if (updated == null || updated == 0) {
+            // a reconnect or another instance wrote the row after we read it; its token is newer than ours
+            log.atInfo().addKeyValue("event", "jira.oauth.token.refresh.superseded").addKeyValue("teamId", user.teamId())
+                    .addKeyValue("slackUserId", user.userId()).log("Jira token changed during refresh, using the stored one");
+            JiraOAuthToken current = tokenRepository.findBySlackTeamIdAndSlackUserId(user.teamId(), user.userId())
+                    .orElseThrow(() -> new IllegalArgumentException("No Jira OAuth token for user"));
+            return new AccessTokenCache.CachedToken(encryptionService.decrypt(current.getEncryptedAccessToken()),
+                    current.getExpiresAt());
         }
+        tokenCache.recordRefresh(true);
+        log.atInfo().addKeyValue("event", "jira.oauth.token.refreshed").addKeyValue("teamId", user.teamId())
+                .addKeyValue("slackUserId", user.userId()).log("Refreshed Jira OAuth access token");
+        return new AccessTokenCache.CachedToken(refreshed.accessToken(), expiresAt);
+    }
+
+    /**
+     * Whether a failed refresh may succeed when tried again: network errors, 5xx and 429 from the
+     * token endpoint. Rejected refresh tokens and other client errors stay failed.
+     */
+    public static boolean isTransientRefreshFailure(RuntimeException ex) {
+        if (ex instanceof ResourceAccessException || ex instanceof HttpServerErrorException) return true;
+        return ex instanceof HttpClientErrorException client && client.getStatusCode().value() == 429;
+    }
 
-        String refreshToken = encryptionService.decrypt(token.getEncryptedRefreshToken());
-        TokenResponse refreshed = refreshToken(refreshToken);
-        saveOrUpdateToken(slackUserId, refreshed);
-        log.atInfo().addKeyValue("event", "jira.oauth.token.refreshed").addKeyValue("slackUserId", slackUserId).log("Refreshed Jira OAuth access token");
-        return refreshed.accessToken();
+    private void markRefreshFailed(JiraOAuthToken token, SlackUser user, HttpClientErrorException ex) {
+        Integer marked = transactions.execute(status ->
+                tokenRepository.markRefreshFailed(token.getId(), token.getUpdatedAt(), Instant.now()));
+        log.atWarn().addKeyValue("event", "jira.oauth.token.refresh.rejected").addKeyValue("teamId", user.teamId())
+                .addKeyValue("slackUserId", user.userId()).addKeyValue("status", ex.getStatusCode().value())
+                .addKeyValue("marked", marked != null && marked > 0)
+                .log("Jira rejected the refresh token, user must reconnect");
     }
 
-    private void saveOrUpdateToken(String slackUserId, TokenResponse tokenResponse) {
-        JiraOAuthToken token = tokenRepository.findBySlackUserId(slackUserId)
+    private void invalidateCachedTokenAfterCommit(SlackUser user) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            tokenCache.invalidate(user);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                tokenCache.invalidate(user);
+            }
+        });
+    }
+
+    private void saveOrUpdateToken(SlackUser user, TokenResponse tokenResponse) {
+        JiraOAuthToken token = tokenRepository.findBySlackTeamIdAndSlackUserId(user.teamId(), user.userId())
                 .orElseGet(JiraOAuthToken::new);
-        token.setSlackUserId(slackUserId);
+        updateToken(token, user, tokenResponse);
+    }
+
+    private void updateToken(JiraOAuthToken token, SlackUser user, TokenResponse tokenResponse) {
+        token.setSlackTeamId(user.teamId());
+        token.setSlackUserId(user.userId());
         token.setEncryptedAccessToken(encryptionService.encrypt(tokenResponse.accessToken()));
         token.setEncryptedRefreshToken(encryptionService.encrypt(tokenResponse.refreshToken()));
         token.setExpiresAt(Instant.now().plusSeconds(tokenResponse.expiresIn()));
         token.setUpdatedAt(Instant.now());
+        token.setRefreshFailedAt(null);
         tokenRepository.save(token);
     }
 
@@ -154,26 +289,11 @@ public class JiraOAuthService {
         );
     }
 
-    private CloudResource fetchCloudResource(String accessToken) {
-        HttpHeaders headers = new HttpHeaders();
-        headers.setBearerAuth(accessToken);
-
-        ResponseEntity<List> response = restTemplate.exchange(properties.jira().resourcesUrl(), HttpMethod.GET,
-                new HttpEntity<>(headers), List.class);
-
-        List<?> body = response.getBody();
-        if (body == null || body.isEmpty()) {
-            throw new IllegalStateException("No accessible Jira resources");
-        }
-
-        Map<?, ?> first = (Map<?, ?>) body.getFirst();
-        return new CloudResource(String.valueOf(first.get("id")));
-    }
-
     private static String encode(String value) {
         return URLEncoder.encode(value, StandardCharsets.UTF_8);
     }
 
     record TokenResponse(String accessToken, String refreshToken, long expiresIn) {}
-    record CloudResource(String id) {}
+
+    public record Stats(long callbacks, long callbackFailures) {}
 }
@@ -0,0 +1,18 @@
+package com.mlorenc.slack.jira.bot.service;
+
+import com.mlorenc.slack.jira.bot.model.SlackUser;
+import com.mlorenc.slack.jira.bot.model.UserConnection;
+
+/**
+ * One Jira Cloud site as reached by one Slack user: calls go to the site's {@code cloudId} with
+ * that user's access token, within the budget of the user's workspace.
+ */
+public record JiraSite(SlackUser user, String cloudId) {
+
+    /**
+     * The user's default site.
+     */
+    public static JiraSite of(UserConnection connection) {
+        return new JiraSite(new SlackUser(connection.getSlackTeamId(), connection.getSlackUserId()), connection.getJiraCloudId());
+    }
+}
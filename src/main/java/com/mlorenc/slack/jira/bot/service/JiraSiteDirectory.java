@@ -0,0 +1,163 @@
+package com.mlorenc.slack.jira.bot.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.mlorenc.slack.jira.bot.config.BotProperties;
+import com.mlorenc.slack.jira.bot.model.SlackUser;
+import com.mlorenc.slack.jira.bot.model.UserConnection;
+import com.mlorenc.slack.jira.bot.model.UserJiraSite;
+import com.mlorenc.slack.jira.bot.repository.UserConnectionRepository;
+import com.mlorenc.slack.jira.bot.repository.UserJiraSiteRepository;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Which Jira sites a user can reach. Atlassian's {@code accessible-resources} answer is cached per
+ * access token for {@code resourcesTtl}, keyed by a hash so the token itself is not kept as a
+ * key; the sites found at connect time are stored in {@code user_jira_sites}.
+ */
+@Component
+public class JiraSiteDirectory {
+
+    private static final ParameterizedTypeReference<List<AccessibleResource>> RESOURCES = new ParameterizedTypeReference<>() {
+    };
+
+    private final RestTemplate restTemplate;
+    private final UserConnectionRepository userConnectionRepository;
+    private final UserJiraSiteRepository siteRepository;
+    private final String resourcesUrl;
+    private final BotProperties.JiraSites settings;
+    private final Map<String, CachedResources> resources = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public JiraSiteDirectory(RestTemplate restTemplate, UserConnectionRepository userConnectionRepository,
+                             UserJiraSiteRepository siteRepository, BotProperties properties) {
+        this.restTemplate = restTemplate;
+        this.userConnectionRepository = userConnectionRepository;
+        this.siteRepository = siteRepository;
+        this.resourcesUrl = properties.jira().resourcesUrl();
+        this.settings = properties.jiraSites();
+    }
+
+    /**
+     * Sites the token grants access to, in Atlassian's order.
+     */
+    public List<AccessibleResource> accessibleResources(String accessToken) {
+        String key = fingerprint(accessToken);
+        long now = System.nanoTime();
+        CachedResources cached = resources.get(key);
+        if (cached != null && now - cached.loadedAt() < settings.resourcesTtl().toNanos()) {
+            hits.increment();
+            return cached.resources();
+        }
+        misses.increment();
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(accessToken);
+        List<AccessibleResource> body = restTemplate.exchange(resourcesUrl, HttpMethod.GET, new HttpEntity<>(headers), RESOURCES).getBody();
+        List<AccessibleResource> loaded = body == null ? List.of() : List.copyOf(body);
+        resources.put(key, new CachedResources(loaded, now));
+        if (resources.size() > settings.maxCachedTokens()) {
+            evict(now);
+        }
+        return loaded;
+    }
+
+    /**
+     * Replaces the user's stored sites with {@code discovered}. Runs in the caller's transaction.
+     */
+    public void saveSites(SlackUser user, List<AccessibleResource> discovered, Instant now) {
+        Map<String, UserJiraSite> existing = new LinkedHashMap<>();
+        for (UserJiraSite site : siteRepository.findBySlackTeamIdAndSlackUserIdOrderByIdAsc(user.teamId(), user.userId())) {
+            existing.put(site.getCloudId(), site);
+        }
+        List<UserJiraSite> keep = new ArrayList<>();
+        for (AccessibleResource resource : discovered) {
+            UserJiraSite site = existing.remove(resource.id());
+            if (site == null) {
+                site = new UserJiraSite();
+                site.setSlackTeamId(user.teamId());
+                site.setSlackUserId(user.userId());
+                site.setCloudId(resource.id());
+            }
+            site.setSiteUrl(resource.url());
+            site.setSiteName(resource.name());
+            site.setDiscoveredAt(now);
+            keep.add(site);
+        }
+        siteRepository.deleteAll(existing.values());
+        siteRepository.saveAll(keep);
+    }
+
+    /**
+     * The user's sites, default site first; empty if the user is not connected.
+     */
+    public List<JiraSite> sites(SlackUser user) {
+        Optional<UserConnection> connection = userConnectionRepository.findBySlackTeamIdAndSlackUserId(user.teamId(), user.userId());
+        if (connection.isEmpty()) return List.of();
+        List<JiraSite> sites = new ArrayList<>();
+        sites.add(JiraSite.of(connection.get()));
+        for (UserJiraSite site : siteRepository.findBySlackTeamIdAndSlackUserIdOrderByIdAsc(user.teamId(), user.userId())) {
+            if (!site.getCloudId().equals(connection.get().getJiraCloudId())) {
+                sites.add(new JiraSite(user, site.getCloudId()));
+            }
+        }
+        return sites;
+    }
+
+    public Stats stats() {
+        return new Stats(resources.size(), hits.sum(), misses.sum());
+    }
+
+    // expired entries first, then the oldest loads, down to 90% of the budget
+    private void evict(long now) {
+        resources.values().removeIf(cached -> now - cached.loadedAt() >= settings.resourcesTtl().toNanos());
+        int excess = resources.size() - (settings.maxCachedTokens() - Math.max(1, settings.maxCachedTokens() / 10));
+        if (excess <= 0) return;
+        resources.entrySet().stream()
+                .sorted(Comparator.comparingLong(e -> e.getValue().loadedAt()))
+                .limit(excess)
+                .map(Map.Entry::getKey)
+                .toList()
+                .forEach(resources::remove);
+    }
+
+    private static String fingerprint(String accessToken) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(accessToken.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * One entry of {@code accessible-resources}: a site's cloud id, URL, name and granted scopes.
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record AccessibleResource(String id, String url, String name, List<String> scopes) {
+    }
+
+    private record CachedResources(List<AccessibleResource> resources, long loadedAt) {
+    }
+
+    public record Stats(int size, long hits, long misses) {
+    }
+}
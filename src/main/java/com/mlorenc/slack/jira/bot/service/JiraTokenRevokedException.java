@@ -0,0 +1,23 @@
+package com.mlorenc.slack.jira.bot.service;
+
+import com.mlorenc.slack.jira.bot.model.SlackUser;
+
+/**
+ * The Jira token endpoint rejected a user's refresh token, so only a reconnect can restore access.
+ */
+public class JiraTokenRevokedException extends RuntimeException {
+
+    private final SlackUser user;
+    private final int statusCode;
+
+    public JiraTokenRevokedException(SlackUser user, int statusCode, Throwable cause) {
+        super("Jira refresh token for " + user.teamId() + "/" + user.userId() + " was rejected"
+                + (statusCode > 0 ? ": HTTP " + statusCode : ""), cause);
+        this.user = user;
+        this.statusCode = statusCode;
+    }
+
+    public SlackUser getUser() { return user; }
+    /** Status the token endpoint answered with, or 0 if the token was already marked as rejected. */
+    public int getStatusCode() { return statusCode; }
+}
@@ -0,0 +1,127 @@
+package com.mlorenc.slack.jira.bot.service;
+
+import com.mlorenc.slack.jira.bot.config.BotProperties;
+import com.mlorenc.slack.jira.bot.model.OAuthState;
+import com.mlorenc.slack.jira.bot.model.SlackUser;
+import com.mlorenc.slack.jira.bot.repository.OAuthStateRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps pending OAuth states in {@code oauth_states}, so any bot instance can complete a callback.
+ * The sweeper deletes expired rows through the {@code expiresAt} index in chunks of
+ * {@code sweepBatchSize}, one short transaction per chunk, every {@code jpaSweepInterval}. The
+ * live count in {@link #stats} is the row count taken at the last sweep moved by this instance's
+ * saves and consumes since, so reading it does not query the table.
+ */
+@Component
+@ConditionalOnProperty(prefix = "bot.oauthStates", name = "store", havingValue = "jpa", matchIfMissing = true)
+public class JpaOAuthStateStore implements OAuthStateStore, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(JpaOAuthStateStore.class);
+
+    private final OAuthStateRepository repository;
+    private final BotProperties.OAuthStates settings;
+    private final ScheduledExecutorService sweeper =
+            Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("oauth-state-sweeper").daemon().factory());
+
+    private final LongAdder saved = new LongAdder();
+    private final LongAdder consumed = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private volatile long lastSweepMillis;
+    // rows counted at the last sweep, and saved - consumed at that moment
+    private volatile long liveAtSweep;
+    private volatile long netAtSweep;
+
+    public JpaOAuthStateStore(OAuthStateRepository repository, BotProperties properties) {
+        this.repository = repository;
+        this.settings = properties.oauthStates();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        long interval = settings.jpaSweepInterval().toMillis();
+        // the first sweep runs right away so the live count starts from the table
+        sweeper.scheduleWithFixedDelay(this::sweepSafely, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void save(String state, SlackUser user, Instant expiresAt) {
+        OAuthState entity = new OAuthState();
+        entity.setState(state);
+        entity.setSlackTeamId(user.teamId());
+        entity.setSlackUserId(user.userId());
+        entity.setExpiresAt(expiresAt);
+        repository.save(entity);
+        saved.increment();
+    }
+
+    @Override
+    @Transactional
+    public Optional<PendingState> consume(String state) {
+        Optional<OAuthState> entity = repository.findById(state);
+        entity.ifPresent(found -> {
+            repository.delete(found);
+            consumed.increment();
+        });
+        return entity.map(found -> new PendingState(
+                new SlackUser(found.getSlackTeamId(), found.getSlackUserId()), found.getExpiresAt()));
+    }
+
+    @Override
+    public int sweep(Instant now) {
+        long startedAt = System.nanoTime();
+        int removed = 0;
+        List<String> chunk;
+        do {
+            chunk = repository.findExpiredStates(now, PageRequest.of(0, settings.sweepBatchSize()));
+            if (!chunk.isEmpty()) {
+                repository.deleteAllByIdInBatch(chunk);
+                removed += chunk.size();
+            }
+        } while (chunk.size() == settings.sweepBatchSize());
+        expired.add(removed);
+        netAtSweep = saved.sum() - consumed.sum();
+        liveAtSweep = repository.count();
+        lastSweepMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+        return removed;
+    }
+
+    @Override
+    public Stats stats() {
+        long live = liveAtSweep + (saved.sum() - consumed.sum() - netAtSweep);
+        return new Stats(Math.max(0, live), saved.sum(), consumed.sum(), expired.sum(), lastSweepMillis);
+    }
+
+    private void sweepSafely() {
+        try {
+            int removed = sweep(Instant.now());
+            if (removed > 0) {
+                log.atInfo().addKeyValue("event", "jira.oauth.state.swept").addKeyValue("removed", removed)
+                        .addKeyValue("durationMillis", lastSweepMillis).log("Deleted expired OAuth states");
+            }
+        } catch (RuntimeException ex) {
+            log.atError().addKeyValue("event", "jira.oauth.state.sweep.failed").setCause(ex).log("OAuth state sweep failed");
+        }
+    }
+
+    @Override
+    public void destroy() {
+        sweeper.shutdownNow();
+    }
+}
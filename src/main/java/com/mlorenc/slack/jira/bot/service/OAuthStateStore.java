@@ -0,0 +1,34 @@
+package com.mlorenc.slack.jira.bot.service;
+
+import com.mlorenc.slack.jira.bot.model.SlackUser;
+
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Pending OAuth {@code state} values between {@code /jira connect} and the Jira callback. Each
+ * state can be consumed once; expired states are removed by the store's sweeper.
+ */
+public interface OAuthStateStore {
+
+    void save(String state, SlackUser user, Instant expiresAt);
+
+    /**
+     * Removes and returns the pending state. It may already be expired if the sweeper has not
+     * reached it yet, so callers check {@link PendingState#expiresAt()}.
+     */
+    Optional<PendingState> consume(String state);
+
+    /**
+     * Removes expired states and returns how many were removed.
+     */
+    int sweep(Instant now);
+
+    Stats stats();
+
+    record PendingState(SlackUser user, Instant expiresAt) {
+    }
+
+    record Stats(long live, long saved, long consumed, long expired, long lastSweepMillis) {
+    }
+}
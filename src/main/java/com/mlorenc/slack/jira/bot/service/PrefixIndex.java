@@ -0,0 +1,72 @@
+package com.mlorenc.slack.jira.bot.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Immutable prefix lookup over a list of named entries. Every entry is indexed under its id and
+ * each word of its name, lower-cased; the terms are sorted once so a lookup is a binary search
+ * for the first term with the prefix followed by a short scan.
+ */
+final class PrefixIndex {
+
+    private final List<JiraMetadataCache.Entry> entries;
+    private final String[] terms;
+    private final int[] owners;
+
+    PrefixIndex(List<JiraMetadataCache.Entry> entries) {
+        this.entries = entries.stream().sorted(Comparator.comparing(JiraMetadataCache.Entry::name, String.CASE_INSENSITIVE_ORDER)).toList();
+        List<Term> all = new ArrayList<>();
+        for (int i = 0; i < this.entries.size(); i++) {
+            JiraMetadataCache.Entry entry = this.entries.get(i);
+            all.add(new Term(normalize(entry.id()), i));
+            for (String word : normalize(entry.name()).split("[^\\p{L}\\p{N}_]+")) {
+                if (!word.isEmpty()) all.add(new Term(word, i));
+            }
+        }
+        all.sort(Comparator.comparing(Term::text).thenComparingInt(Term::owner));
+        this.terms = new String[all.size()];
+        this.owners = new int[all.size()];
+        for (int i = 0; i < all.size(); i++) {
+            terms[i] = all.get(i).text();
+            owners[i] = all.get(i).owner();
+        }
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * Entries with an id or name word starting with {@code prefix}, at most {@code limit}, in
+     * term order. A blank prefix returns the first entries by name.
+     */
+    List<JiraMetadataCache.Entry> find(String prefix, int limit) {
+        String p = normalize(prefix == null ? "" : prefix.trim());
+        if (p.isEmpty()) {
+            return entries.subList(0, Math.min(limit, entries.size()));
+        }
+        int at = Arrays.binarySearch(terms, p);
+        if (at < 0) at = -at - 1;
+        List<JiraMetadataCache.Entry> found = new ArrayList<>(Math.min(limit, 16));
+        boolean[] seen = null;
+        for (int i = at; i < terms.length && found.size() < limit && terms[i].startsWith(p); i++) {
+            if (seen == null) seen = new boolean[entries.size()];
+            if (!seen[owners[i]]) {
+                seen[owners[i]] = true;
+                found.add(entries.get(owners[i]));
+            }
+        }
+        return found;
+    }
+
+    private static String normalize(String text) {
+        return text.toLowerCase(Locale.ROOT);
+    }
+
+    private record Term(String text, int owner) {
+    }
+}
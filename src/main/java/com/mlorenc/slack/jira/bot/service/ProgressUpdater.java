@@ -0,0 +1,223 @@
+package com.mlorenc.slack.jira.bot.service;
+
+import com.mlorenc.slack.jira.bot.config.BotProperties;
+import com.mlorenc.slack.jira.bot.core.SlackService;
+import com.mlorenc.slack.jira.bot.model.ProjectFieldMapping;
+import com.mlorenc.slack.jira.bot.model.SlackUser;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write-behind updates of the mapped progress field. The first update to an issue field opens a
+ * short window; updates arriving inside it replace the pending value, so Jira sees one PUT with
+ * the last value. Writes go to the site that holds the issue's project (see
+ * {@link JiraMetadataCache#siteForProject}) through {@link JiraClient}, which bounds concurrent
+ * calls per site, and everyone whose update was folded into a write is told the outcome through their
+ * {@code response_url}. Windows are kept per Slack workspace, and one workspace can hold at most
+ * {@code maxPendingPerTeam} of them, so it cannot use up the shared {@code maxPending} alone.
+ */
+@Component
+public class ProgressUpdater implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(ProgressUpdater.class);
+
+    private final JiraClient jiraClient;
+    private final ProjectMappingService mappingService;
+    private final JiraMetadataCache metadataCache;
+    private final SlackService slackService;
+    private final BotProperties.ProgressUpdates settings;
+    private final Map<FieldKey, Pending> pending = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> pendingByTeam = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService timer =
+            Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("jira-progress-flush").daemon().factory());
+    private final ExecutorService notifier =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("jira-progress-notify-", 0).factory());
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder flushedUpdates = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final Timer flushLatency;
+
+    public ProgressUpdater(JiraClient jiraClient, ProjectMappingService mappingService,
+                           JiraMetadataCache metadataCache, SlackService slackService,
+                           BotProperties properties, MeterRegistry registry) {
+        this.jiraClient = jiraClient;
+        this.mappingService = mappingService;
+        this.metadataCache = metadataCache;
+        this.slackService = slackService;
+        this.settings = properties.progressUpdates();
+        this.flushLatency = Timer.builder("bot.progress.flush")
+                .description("Coalesced progress writes, from the flush to Jira's answer")
+                .register(registry);
+    }
+
+    /**
+     * Queues {@code value} for the progress field mapped to the issue's project. The outcome of
+     * the eventual write is posted to {@code responseUrl} when it is set.
+     */
+    public Result submit(SlackUser user, String issueKey, BigDecimal value, String responseUrl) {
+        String key = issueKey.toUpperCase();
+        String projectKey = key.substring(0, Math.max(0, key.indexOf('-')));
+        JiraMetadataCache.SiteLookup lookup = metadataCache.siteForProject(user, projectKey);
+        if (!lookup.checked()) return Result.SITE_UNKNOWN;
+        Optional<JiraSite> site = lookup.site();
+        if (site.isEmpty()) return Result.NOT_CONNECTED;
+        Optional<ProjectFieldMapping> mapping = mappingService.findMapping(user, projectKey);
+        if (mapping.isEmpty()) return Result.NOT_MAPPED;
+
+        FieldKey field = new FieldKey(user.teamId(), site.get().cloudId(), key, mapping.get().getProgressFieldId());
+        Update update = new Update(site.get(), value, responseUrl);
+        AtomicInteger teamPending = pendingByTeam.computeIfAbsent(teamKey(user.teamId()), team -> new AtomicInteger());
+        boolean[] opened = new boolean[1];
+        Pending merged = pending.compute(field, (k, existing) -> {
+            if (existing != null) {
+                existing.add(update);
+                return existing;
+            }
+            if (pending.size() >= settings.maxPending()) return null;
+            if (teamPending.incrementAndGet() > settings.maxPendingPerTeam()) {
+                teamPending.decrementAndGet();
+                return null;
+            }
+            opened[0] = true;
+            return new Pending(update, System.nanoTime());
+        });
+        if (merged == null) {
+            rejected.increment();
+            return Result.BUSY;
+        }
+        submitted.increment();
+        if (!opened[0]) {
+            coalesced.increment();
+            return Result.COALESCED;
+        }
+        timer.schedule(() -> flush(field), settings.coalesceWindow().toMillis(), TimeUnit.MILLISECONDS);
+        return Result.QUEUED;
+    }
+
+    public Stats stats() {
+        long writes = written.sum() + failed.sum();
+        double ratio = writes == 0 ? 0 : flushedUpdates.sum() / (double) writes;
+        return new Stats(pending.size(), submitted.sum(), coalesced.sum(), written.sum(), failed.sum(), rejected.sum(), ratio);
+    }
+
+    private void flush(FieldKey key) {
+        Pending batch = pending.remove(key);
+        if (batch == null) return;
+        pendingByTeam.get(teamKey(key.teamId())).decrementAndGet();
+        List<Update> updates = List.copyOf(batch.updates);
+        flushedUpdates.add(updates.size());
+        // last value wins, written with the token of the user who sent it
+        Update last = updates.getLast();
+        BigDecimal value = last.value();
+        long startedAt = System.nanoTime();
+        jiraClient.updateFieldAsync(last.site(), key.issueKey(), key.fieldId(), value)
+                .whenCompleteAsync((ignored, ex) -> {
+                    flushLatency.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                    if (ex == null) {
+                        written.increment();
+                        log.atInfo().addKeyValue("event", "jira.progress.written").addKeyValue("teamId", key.teamId())
+                                .addKeyValue("issueKey", key.issueKey())
+                                .addKeyValue("updates", updates.size())
+                                .addKeyValue("windowMillis", TimeUnit.NANOSECONDS.toMillis(startedAt - batch.openedAt))
+                                .log("Wrote coalesced progress update to Jira");
+                        notify(updates, "Updated %s progress to %s.".formatted(key.issueKey(), value.toPlainString()));
+                    } else {
+                        failed.increment();
+                        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                        log.atWarn().addKeyValue("event", "jira.progress.failed").addKeyValue("teamId", key.teamId())
+                                .addKeyValue("issueKey", key.issueKey())
+                                .addKeyValue("updates", updates.size()).setCause(cause).log("Progress update to Jira failed");
+                        notify(updates, "Could not update %s progress: %s".formatted(key.issueKey(), describe(cause)));
+                    }
+                }, notifier);
+    }
+
+    private void notify(List<Update> updates, String text) {
+        for (Update update : updates) {
+            if (update.responseUrl() == null || update.responseUrl().isBlank()) continue;
+            try {
+                slackService.postToResponseUrl(update.responseUrl(), text);
+            } catch (Exception ex) {
+                log.atWarn().addKeyValue("event", "jira.progress.notify.failed").setCause(ex).log("Unable to post progress outcome to response_url");
+            }
+        }
+    }
+
+    // ConcurrentHashMap takes no null keys; updates without a workspace share one budget
+    private static String teamKey(String teamId) {
+        return teamId == null ? "" : teamId;
+    }
+
+    private static String describe(Throwable cause) {
+        if (cause instanceof JiraApiException jira) {
+            return switch (jira.getStatusCode()) {
+                case 400 -> "Jira rejected the value.";
+                case 401, 403 -> "your Jira account is not allowed to edit it.";
+                case 404 -> "the issue does not exist.";
+                default -> "Jira answered HTTP " + jira.getStatusCode() + ".";
+            };
+        }
+        return "Jira could not be reached.";
+    }
+
+    @Override
+    public void destroy() {
+        timer.shutdownNow();
+        notifier.shutdown();
+    }
+
+    public enum Result { QUEUED, COALESCED, NOT_CONNECTED, SITE_UNKNOWN, NOT_MAPPED, BUSY }
+
+    private record FieldKey(String teamId, String cloudId, String issueKey, String fieldId) {
+    }
+
+    private record Update(JiraSite site, BigDecimal value, String responseUrl) {
+    }
+
+    /**
+     * Updates collected for one issue field while its window is open. Only touched inside the
+     * map's per-key {@code compute} and after the flush's {@code remove}, which the map orders.
+     */
+    private static final class Pending {
+        private final long openedAt;
+        private final List<Update> updates = new ArrayList<>();
+
+        private Pending(Update first, long openedAt) {
+            this.openedAt = openedAt;
+            this.updates.add(first);
+        }
+
+        private void add(Update update) {
+            updates.add(update);
+        }
+    }
+
+    /**
+     * {@code coalescingRatio} is updates folded into each Jira write on average.
+     */
+    public record Stats(int pending, long submitted, long coalesced, long written, long failed, long rejected,
+                        double coalescingRatio) {
+    }
+}
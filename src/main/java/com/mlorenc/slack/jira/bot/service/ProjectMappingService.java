@@ -1,24 +1,179 @@
 package com.mlorenc.slack.jira.bot.service;
 
+import com.mlorenc.slack.jira.bot.config.BotProperties;
 import com.mlorenc.slack.jira.bot.model.ProjectFieldMapping;
+import com.mlorenc.slack.jira.bot.model.SlackUser;
 import com.mlorenc.slack.jira.bot.repository.ProjectFieldMappingRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Project mappings with a read-through cache in front of the repository. Missing mappings are
+ * cached too, so repeated lookups for unmapped projects do not reach the database. Local saves
+ * invalidate their entry; saves made by other instances sharing the database are picked up by
+ * polling for rows whose {@code updatedAt} moved, and every entry is reloaded after {@code ttl}
+ * at the latest.
+ */
 @Service
-public class ProjectMappingService {
+public class ProjectMappingService implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(ProjectMappingService.class);
+
+    // rows are stamped with the writer's clock; look back this far to tolerate skew between instances
+    private static final Duration CLOCK_SKEW = Duration.ofSeconds(5);
 
     private final ProjectFieldMappingRepository repository;
+    private final BotProperties.MappingCache settings;
+    private final Map<Key, Cached> cache = new ConcurrentHashMap<>();
+    // bumped on every invalidation so loads that started earlier do not cache what they read
+    private final AtomicLong generation = new AtomicLong();
+    private volatile Instant pollWatermark = Instant.now();
+    // rows inside the skew window that were already handled, by the updatedAt that was seen
+    private final Map<Key, Instant> polled = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService poller =
+            Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("mapping-cache-poller").daemon().factory());
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
 
-    public ProjectMappingService(ProjectFieldMappingRepository repository) {
+    public ProjectMappingService(ProjectFieldMappingRepository repository, BotProperties properties) {
         this.repository = repository;
+        this.settings = properties.mappingCache();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        long interval = settings.pollInterval().toMillis();
+        poller.scheduleWithFixedDelay(this::pollSafely, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    public void saveMapping(SlackUser user, String projectKey, String progressFieldId) {
+        String normalizedKey = projectKey.toUpperCase();
+        try {
+            repository.upsert(user.teamId(), user.userId(), normalizedKey, progressFieldId, Instant.now());
+        } catch (DataIntegrityViolationException ex) {
+            // another save inserted the same mapping first; now it exists and the merge updates it
+            repository.upsert(user.teamId(), user.userId(), normalizedKey, progressFieldId, Instant.now());
+        }
+        invalidate(new Key(user, normalizedKey));
+    }
+
+    public Optional<ProjectFieldMapping> findMapping(SlackUser user, String projectKey) {
+        Key key = new Key(user, projectKey.toUpperCase());
+        long now = System.nanoTime();
+        Cached cached = cache.get(key);
+        if (cached != null && now - cached.loadedAt() < settings.ttl().toNanos()) {
+            (cached.mapping().isPresent() ? hits : negativeHits).increment();
+            return cached.mapping();
+        }
+        misses.increment();
+        long startedAt = generation.get();
+        Optional<ProjectFieldMapping> loaded = repository.findBySlackTeamIdAndSlackUserIdAndJiraProjectKey(key.user().teamId(),
+                key.user().userId(), key.projectKey());
+        if (generation.get() == startedAt) {
+            cache.put(key, new Cached(loaded, now));
+            if (cache.size() > settings.maxEntries()) {
+                evict();
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Drops cached entries for mappings changed since the last poll, including by other
+     * instances. Rows the skew window returns again unchanged are skipped. Returns how many
+     * changed rows were seen.
+     */
+    public synchronized int pollChanges() {
+        Instant since = pollWatermark;
+        int changed = 0;
+        for (ProjectFieldMapping mapping : repository.findByUpdatedAtAfter(since.minus(CLOCK_SKEW))) {
+            Key key = new Key(new SlackUser(mapping.getSlackTeamId(), mapping.getSlackUserId()), mapping.getJiraProjectKey());
+            if (mapping.getUpdatedAt().equals(polled.put(key, mapping.getUpdatedAt()))) {
+                continue;
+            }
+            invalidate(key);
+            if (mapping.getUpdatedAt().isAfter(pollWatermark)) {
+                pollWatermark = mapping.getUpdatedAt();
+            }
+            changed++;
+        }
+        // rows at or before the next lower bound are not returned again
+        Instant horizon = pollWatermark.minus(CLOCK_SKEW);
+        polled.values().removeIf(updatedAt -> !updatedAt.isAfter(horizon));
+        return changed;
+    }
+
+    public Stats stats() {
+        long lookups = hits.sum() + negativeHits.sum() + misses.sum();
+        double hitRate = lookups == 0 ? 0 : (hits.sum() + negativeHits.sum()) / (double) lookups;
+        return new Stats(cache.size(), hits.sum(), negativeHits.sum(), misses.sum(), invalidations.sum(),
+                evictions.sum(), hitRate);
+    }
+
+    private void invalidate(Key key) {
+        generation.incrementAndGet();
+        if (cache.remove(key) != null) invalidations.increment();
+    }
+
+    // oldest loads first, down to 90% of the budget
+    private void evict() {
+        int target = settings.maxEntries() - Math.max(1, settings.maxEntries() / 10);
+        int excess = cache.size() - target;
+        if (excess <= 0) return;
+        cache.entrySet().stream()
+                .sorted(Comparator.comparingLong(e -> e.getValue().loadedAt()))
+                .limit(excess)
+                .map(Map.Entry::getKey)
+                .toList()
+                .forEach(key -> {
+                    if (cache.remove(key) != null) evictions.increment();
+                });
+    }
+
+    private void pollSafely() {
+        try {
+            pollChanges();
+        } catch (RuntimeException ex) {
+            log.atWarn().addKeyValue("event", "mapping.cache.poll.failed").setCause(ex).log("Unable to poll project mapping changes");
+        }
+    }
+
+    @Override
+    public void destroy() {
+        poller.shutdownNow();
+    }
+
+    private record Key(SlackUser user, String projectKey) {
+    }
+
+    private record Cached(Optional<ProjectFieldMapping> mapping, long loadedAt) {
     }
 
-    public void saveMapping(String slackUserId, String projectKey, String progressFieldId) {
-        ProjectFieldMapping mapping = repository.findBySlackUserIdAndJiraProjectKey(slackUserId, projectKey)
-                .orElseGet(ProjectFieldMapping::new);
-        mapping.setSlackUserId(slackUserId);
-        mapping.setJiraProjectKey(projectKey.toUpperCase());
-        mapping.setProgressFieldId(progressFieldId);
-        repository.save(mapping);
+    /**
+     * {@code hitRate} counts hits on cached missing mappings ({@code negativeHits}) as hits.
+     */
+    public record Stats(int size, long hits, long negativeHits, long misses, long invalidations, long evictions,
+                        double hitRate) {
     }
 }
@@ -0,0 +1,188 @@
+package com.mlorenc.slack.jira.bot.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.mlorenc.slack.jira.bot.config.BotProperties;
+import com.mlorenc.slack.jira.bot.model.SlackInstallation;
+import com.mlorenc.slack.jira.bot.repository.SlackInstallationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bot tokens per Slack workspace. The OAuth v2 install flow stores one encrypted token per team in
+ * {@code slack_installations}; lookups go through an in-memory cache that also remembers teams
+ * without an installation. Those fall back to the configured {@code bot.slack.botToken}, so a
+ * single-workspace deployment keeps working without installing through the flow. Installs made by
+ * other instances are picked up once the cached entry is older than {@code ttl}.
+ */
+@Component
+public class SlackInstallationStore {
+
+    private static final Logger log = LoggerFactory.getLogger(SlackInstallationStore.class);
+
+    private final SlackInstallationRepository repository;
+    private final TokenEncryptionService encryptionService;
+    private final RestTemplate restTemplate;
+    private final BotProperties.Slack slack;
+    private final BotProperties.Installations settings;
+    private final String accessUrl;
+    private final Map<String, Cached> cache = new ConcurrentHashMap<>();
+    // bumped on every install so loads that started earlier do not cache what they read
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder installs = new LongAdder();
+    private final LongAdder installFailures = new LongAdder();
+
+    public SlackInstallationStore(SlackInstallationRepository repository, TokenEncryptionService encryptionService,
+                                  RestTemplate restTemplate, BotProperties properties) {
+        this.repository = repository;
+        this.encryptionService = encryptionService;
+        this.restTemplate = restTemplate;
+        this.slack = properties.slack();
+        this.settings = properties.installations();
+        String baseUrl = properties.slackApi().baseUrl();
+        this.accessUrl = (baseUrl.endsWith("/") ? baseUrl : baseUrl + "/") + "oauth.v2.access";
+    }
+
+    /**
+     * The bot token to call the Web API with on behalf of {@code teamId}.
+     *
+     * @throws IllegalStateException if the team has no installation and no fallback token is configured
+     */
+    public String botToken(String teamId) {
+        Optional<String> installed = teamId == null ? Optional.empty() : installedToken(teamId);
+        if (installed.isPresent()) return installed.get();
+        if (slack.botToken() == null || slack.botToken().isBlank()) {
+            throw new IllegalStateException("The Slack app is not installed in workspace " + teamId);
+        }
+        return slack.botToken();
+    }
+
+    /**
+     * Where the "Add to Slack" link points: Slack's consent screen for this app. Slack hands
+     * {@code state} back to the callback unchanged.
+     */
+    public String authorizationUrl(String state) {
+        return "%s?client_id=%s&scope=%s&redirect_uri=%s&state=%s".formatted(slack.authorizeUrl(),
+                encode(slack.clientId()), encode(slack.scopes()), encode(slack.redirectUri()), encode(state));
+    }
+
+    /**
+     * Exchanges the code from Slack's install redirect for the workspace's bot token and stores
+     * it, replacing an earlier installation. Returns the team id.
+     */
+    public String install(String code) {
+        try {
+            JsonNode body = exchangeCode(code);
+            String teamId = body.path("team").path("id").textValue();
+            String botToken = body.path("access_token").textValue();
+            if (teamId == null || botToken == null) {
+                throw new IllegalStateException("Invalid Slack OAuth response");
+            }
+            save(teamId, botToken, body.path("bot_user_id").textValue());
+            installs.increment();
+            log.atInfo().addKeyValue("event", "slack.oauth.installed").addKeyValue("teamId", teamId)
+                    .log("Installed the Slack app in a workspace");
+            return teamId;
+        } catch (RuntimeException ex) {
+            installFailures.increment();
+            throw ex;
+        }
+    }
+
+    public void save(String teamId, String botToken, String botUserId) {
+        SlackInstallation installation = repository.findById(teamId).orElseGet(SlackInstallation::new);
+        installation.setTeamId(teamId);
+        installation.setEncryptedBotToken(encryptionService.encrypt(botToken));
+        installation.setBotUserId(botUserId);
+        installation.setInstalledAt(Instant.now());
+        repository.save(installation);
+        generation.incrementAndGet();
+        cache.remove(teamId);
+    }
+
+    public Stats stats() {
+        return new Stats(cache.size(), hits.sum(), misses.sum(), evictions.sum(), installs.sum(), installFailures.sum());
+    }
+
+    private Optional<String> installedToken(String teamId) {
+        long now = System.nanoTime();
+        Cached cached = cache.get(teamId);
+        if (cached != null && now - cached.loadedAt() < settings.ttl().toNanos()) {
+            hits.increment();
+            return cached.botToken();
+        }
+        misses.increment();
+        long startedAt = generation.get();
+        Optional<String> loaded = repository.findById(teamId)
+                .map(installation -> encryptionService.decrypt(installation.getEncryptedBotToken()));
+        if (generation.get() == startedAt) {
+            cache.put(teamId, new Cached(loaded, now));
+            if (cache.size() > settings.maxEntries()) {
+                evict();
+            }
+        }
+        return loaded;
+    }
+
+    private JsonNode exchangeCode(String code) {
+        MultiValueMap<String, String> form = new LinkedMultiValueMap<>();
+        form.add("client_id", slack.clientId());
+        form.add("client_secret", slack.clientSecret());
+        form.add("code", code);
+        form.add("redirect_uri", slack.redirectUri());
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
+
+        JsonNode body = restTemplate.postForObject(accessUrl, new HttpEntity<>(form, headers), JsonNode.class);
+        if (body == null || !body.path("ok").asBoolean(false)) {
+            throw new IllegalStateException("Slack OAuth exchange failed: "
+                    + (body == null ? "empty response" : body.path("error").asText("unknown error")));
+        }
+        return body;
+    }
+
+    // oldest loads first, down to 90% of the budget
+    private void evict() {
+        int target = settings.maxEntries() - Math.max(1, settings.maxEntries() / 10);
+        int excess = cache.size() - target;
+        if (excess <= 0) return;
+        cache.entrySet().stream()
+                .sorted(Comparator.comparingLong(e -> e.getValue().loadedAt()))
+                .limit(excess)
+                .map(Map.Entry::getKey)
+                .toList()
+                .forEach(key -> {
+                    if (cache.remove(key) != null) evictions.increment();
+                });
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private record Cached(Optional<String> botToken, long loadedAt) {
+    }
+
+    public record Stats(int size, long hits, long misses, long evictions, long installs, long installFailures) {
+    }
+}
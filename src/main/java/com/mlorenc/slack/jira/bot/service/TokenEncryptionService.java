@@ -1,64 +1,206 @@
 package com.mlorenc.slack.jira.bot.service;
 
 import com.mlorenc.slack.jira.bot.config.BotProperties;
+import com.mlorenc.slack.jira.bot.core.ObjectPool;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.Cipher;
 import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
-import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.security.SecureRandom;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
+/**
+ * AES/GCM encryption of stored tokens with a keyring. Ciphertexts are written as
+ * {@code v1:<keyId>:<base64(iv || ciphertext)>} with the active key; values without that header
+ * predate key versioning and are decrypted with {@code bot.security.encryptionKey}. Base64 never
+ * contains {@code ':'}, so the two forms cannot be confused.
+ */
 @Service
 public class TokenEncryptionService {
 
+    public static final String DEFAULT_KEY_ID = "default";
+
     private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final String VERSION_PREFIX = "v1:";
     private static final int IV_LENGTH = 12;
     private static final int TAG_LENGTH = 128;
 
-    private final SecretKeySpec secretKey;
+    private final Map<String, SecretKeySpec> keys;
+    private final SecretKeySpec legacyKey;
+    private final String activeKeyId;
+    private final SecretKeySpec activeKey;
+    private final String activePrefix;
     private final SecureRandom secureRandom = new SecureRandom();
+    // Cipher.getInstance is comparatively expensive; GCM needs a fresh init per message anyway
+    private final ObjectPool<Cipher> ciphers =
+            new ObjectPool<>(Runtime.getRuntime().availableProcessors() * 2, TokenEncryptionService::newCipher);
 
     public TokenEncryptionService(BotProperties properties) {
-        byte[] key = Base64.getDecoder().decode(properties.security().encryptionKey());
-        this.secretKey = new SecretKeySpec(key, "AES");
+        BotProperties.Security security = properties.security();
+        Map<String, SecretKeySpec> keyring = new HashMap<>();
+        if (security.keys() != null) {
+            security.keys().forEach((id, key) -> keyring.put(validKeyId(id), toKey(key)));
+        }
+        this.legacyKey = security.encryptionKey() == null ? null : toKey(security.encryptionKey());
+        if (legacyKey != null) {
+            keyring.putIfAbsent(DEFAULT_KEY_ID, legacyKey);
+        }
+        this.keys = Map.copyOf(keyring);
+        this.activeKeyId = security.activeKeyId() == null || security.activeKeyId().isBlank()
+                ? DEFAULT_KEY_ID : security.activeKeyId();
+        this.activeKey = keys.get(activeKeyId);
+        if (activeKey == null) {
+            throw new IllegalStateException("Active encryption key '" + activeKeyId + "' is not in bot.security.keys");
+        }
+        this.activePrefix = VERSION_PREFIX + activeKeyId + ":";
+    }
+
+    public String activeKeyId() {
+        return activeKeyId;
+    }
+
+    /**
+     * Whether the value is already encrypted with the active key and needs no rewrite.
+     */
+    public boolean isCurrent(String encrypted) {
+        return encrypted.startsWith(activePrefix);
+    }
+
+    /**
+     * Decrypts the value with whichever key wrote it and encrypts it again with the active key.
+     * Values that are already current are returned unchanged.
+     */
+    public String reencrypt(String encrypted) {
+        if (isCurrent(encrypted)) {
+            return encrypted;
+        }
+        Cipher cipher = ciphers.acquire();
+        try {
+            return encrypt(cipher, decrypt(cipher, encrypted));
+        } finally {
+            ciphers.release(cipher);
+        }
     }
 
     public String encrypt(String plaintext) {
+        Cipher cipher = ciphers.acquire();
         try {
-            byte[] iv = new byte[IV_LENGTH];
-            secureRandom.nextBytes(iv);
+            return encrypt(cipher, plaintext);
+        } finally {
+            ciphers.release(cipher);
+        }
+    }
 
-            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
-            cipher.init(Cipher.ENCRYPT_MODE, secretKey, new GCMParameterSpec(TAG_LENGTH, iv));
-            byte[] ciphertext = cipher.doFinal(plaintext.getBytes(StandardCharsets.UTF_8));
+    public String decrypt(String encrypted) {
+        Cipher cipher = ciphers.acquire();
+        try {
+            return decrypt(cipher, encrypted);
+        } finally {
+            ciphers.release(cipher);
+        }
+    }
 
-            ByteBuffer buffer = ByteBuffer.allocate(iv.length + ciphertext.length);
-            buffer.put(iv);
-            buffer.put(ciphertext);
-            return Base64.getEncoder().encodeToString(buffer.array());
-        } catch (Exception ex) {
-            throw new IllegalStateException("Unable to encrypt token", ex);
+    /**
+     * Encrypts every value with one pooled cipher, preserving order. Meant for bulk refresh and
+     * migration jobs.
+     */
+    public List<String> encryptAll(Collection<String> plaintexts) {
+        Cipher cipher = ciphers.acquire();
+        try {
+            List<String> result = new ArrayList<>(plaintexts.size());
+            for (String plaintext : plaintexts) {
+                result.add(encrypt(cipher, plaintext));
+            }
+            return result;
+        } finally {
+            ciphers.release(cipher);
         }
     }
 
-    public String decrypt(String encrypted) {
+    public List<String> decryptAll(Collection<String> encrypted) {
+        Cipher cipher = ciphers.acquire();
         try {
-            byte[] combined = Base64.getDecoder().decode(encrypted);
-            ByteBuffer buffer = ByteBuffer.wrap(combined);
+            List<String> result = new ArrayList<>(encrypted.size());
+            for (String value : encrypted) {
+                result.add(decrypt(cipher, value));
+            }
+            return result;
+        } finally {
+            ciphers.release(cipher);
+        }
+    }
+
+    /**
+     * Ciphers created and reused by the pool.
+     */
+    public ObjectPool.Stats cipherStats() {
+        return ciphers.stats();
+    }
 
+    private String encrypt(Cipher cipher, String plaintext) {
+        try {
             byte[] iv = new byte[IV_LENGTH];
-            buffer.get(iv);
-            byte[] ciphertext = new byte[buffer.remaining()];
-            buffer.get(ciphertext);
+            secureRandom.nextBytes(iv);
+            cipher.init(Cipher.ENCRYPT_MODE, activeKey, new GCMParameterSpec(TAG_LENGTH, iv));
 
-            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
-            cipher.init(Cipher.DECRYPT_MODE, secretKey, new GCMParameterSpec(TAG_LENGTH, iv));
-            return new String(cipher.doFinal(ciphertext), StandardCharsets.UTF_8);
+            // GCM output size is exact when encrypting, so iv and ciphertext share one array
+            byte[] input = plaintext.getBytes(StandardCharsets.UTF_8);
+            byte[] combined = new byte[IV_LENGTH + cipher.getOutputSize(input.length)];
+            System.arraycopy(iv, 0, combined, 0, IV_LENGTH);
+            cipher.doFinal(input, 0, input.length, combined, IV_LENGTH);
+            return activePrefix + Base64.getEncoder().encodeToString(combined);
+        } catch (Exception ex) {
+            throw new IllegalStateException("Unable to encrypt token", ex);
+        }
+    }
+
+    private String decrypt(Cipher cipher, String encrypted) {
+        try {
+            SecretKeySpec key = legacyKey;
+            String payload = encrypted;
+            if (encrypted.startsWith(VERSION_PREFIX)) {
+                int end = encrypted.indexOf(':', VERSION_PREFIX.length());
+                String keyId = end < 0 ? "" : encrypted.substring(VERSION_PREFIX.length(), end);
+                key = keys.get(keyId);
+                if (key == null) {
+                    throw new IllegalStateException("Unknown encryption key '" + keyId + "'");
+                }
+                payload = encrypted.substring(end + 1);
+            } else if (key == null) {
+                throw new IllegalStateException("No bot.security.encryptionKey for unversioned ciphertext");
+            }
+            byte[] combined = Base64.getDecoder().decode(payload);
+            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH, combined, 0, IV_LENGTH));
+            return new String(cipher.doFinal(combined, IV_LENGTH, combined.length - IV_LENGTH), StandardCharsets.UTF_8);
         } catch (Exception ex) {
             throw new IllegalStateException("Unable to decrypt token", ex);
         }
     }
+
+    private static String validKeyId(String keyId) {
+        if (keyId.isEmpty() || keyId.indexOf(':') >= 0) {
+            throw new IllegalStateException("Invalid encryption key id '" + keyId + "'");
+        }
+        return keyId;
+    }
+
+    private static SecretKeySpec toKey(String base64) {
+        return new SecretKeySpec(Base64.getDecoder().decode(base64), "AES");
+    }
+
+    private static Cipher newCipher() {
+        try {
+            return Cipher.getInstance(TRANSFORMATION);
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("AES/GCM is not available", ex);
+        }
+    }
 }
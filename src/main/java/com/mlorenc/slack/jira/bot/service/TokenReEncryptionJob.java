@@ -0,0 +1,220 @@
+package com.mlorenc.slack.jira.bot.service;
+
+import com.mlorenc.slack.jira.bot.config.BotProperties;
+import com.mlorenc.slack.jira.bot.model.JiraOAuthToken;
+import com.mlorenc.slack.jira.bot.model.SlackInstallation;
+import com.mlorenc.slack.jira.bot.repository.JiraOAuthTokenRepository;
+import com.mlorenc.slack.jira.bot.repository.SlackInstallationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Rewrites stored Jira tokens, and then Slack bot tokens, to the active encryption key while the
+ * bot keeps serving traffic.
+ * Rows are read in id-ordered keyset pages; ciphertexts are re-encrypted outside the database
+ * transaction and written back one transaction per batch with an update that only applies if
+ * the row was not refreshed in the meantime (a refresh already writes with the active key). There
+ * is one installation per workspace, so those are rewritten in a single batch, skipping workspaces
+ * reinstalled in the meantime.
+ * Old keys can be removed from the keyring once a pass finishes without failures.
+ */
+@Component
+public class TokenReEncryptionJob implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenReEncryptionJob.class);
+
+    private final JiraOAuthTokenRepository tokenRepository;
+    private final SlackInstallationRepository installationRepository;
+    private final TokenEncryptionService encryptionService;
+    private final TransactionTemplate transactionTemplate;
+    private final BotProperties.KeyRotation settings;
+    private final ExecutorService executor =
+            Executors.newSingleThreadExecutor(Thread.ofPlatform().name("token-reencryption").daemon().factory());
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final LongAdder scanned = new LongAdder();
+    private final LongAdder rewritten = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+
+    public TokenReEncryptionJob(JiraOAuthTokenRepository tokenRepository,
+                                SlackInstallationRepository installationRepository,
+                                TokenEncryptionService encryptionService,
+                                PlatformTransactionManager transactionManager,
+                                BotProperties properties) {
+        this.tokenRepository = tokenRepository;
+        this.installationRepository = installationRepository;
+        this.encryptionService = encryptionService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.settings = properties.keyRotation();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startIfEnabled() {
+        if (settings.enabled()) {
+            start();
+        }
+    }
+
+    /**
+     * Starts a pass in the background. Returns false if one is already running.
+     */
+    public boolean start() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        executor.execute(() -> {
+            try {
+                run();
+            } catch (RuntimeException ex) {
+                log.atError().addKeyValue("event", "token.reencryption.failed").setCause(ex).log("Token re-encryption stopped");
+            } finally {
+                running.set(false);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Runs one full pass on the calling thread.
+     */
+    public Progress run() {
+        scanned.reset();
+        rewritten.reset();
+        conflicts.reset();
+        failed.reset();
+        startedAt = Instant.now();
+        finishedAt = null;
+        log.atInfo().addKeyValue("event", "token.reencryption.started").addKeyValue("keyId", encryptionService.activeKeyId())
+                .log("Re-encrypting stored tokens");
+
+        long afterId = 0;
+        while (true) {
+            List<JiraOAuthToken> page = tokenRepository.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, settings.batchSize()));
+            if (page.isEmpty()) break;
+            afterId = page.getLast().getId();
+            scanned.add(page.size());
+            writeBatch(reencrypt(page));
+            if (page.size() < settings.batchSize() || !pause()) break;
+        }
+        reencryptInstallations();
+
+        finishedAt = Instant.now();
+        Progress progress = progress();
+        log.atInfo().addKeyValue("event", "token.reencryption.finished")
+                .addKeyValue("scanned", progress.scanned())
+                .addKeyValue("rewritten", progress.rewritten())
+                .addKeyValue("conflicts", progress.conflicts())
+                .addKeyValue("failed", progress.failed())
+                .log("Finished re-encrypting stored tokens");
+        return progress;
+    }
+
+    public Progress progress() {
+        return new Progress(running.get(), encryptionService.activeKeyId(), scanned.sum(), rewritten.sum(),
+                conflicts.sum(), failed.sum(), startedAt, finishedAt);
+    }
+
+    private List<Rewrite> reencrypt(List<JiraOAuthToken> page) {
+        List<Rewrite> rewrites = new ArrayList<>(page.size());
+        for (JiraOAuthToken token : page) {
+            if (encryptionService.isCurrent(token.getEncryptedAccessToken())
+                    && encryptionService.isCurrent(token.getEncryptedRefreshToken())) {
+                continue;
+            }
+            try {
+                rewrites.add(new Rewrite(token.getId(), token.getUpdatedAt(),
+                        encryptionService.reencrypt(token.getEncryptedAccessToken()),
+                        encryptionService.reencrypt(token.getEncryptedRefreshToken())));
+            } catch (IllegalStateException ex) {
+                failed.increment();
+                log.atWarn().addKeyValue("event", "token.reencryption.row_failed").addKeyValue("tokenId", token.getId())
+                        .setCause(ex).log("Unable to re-encrypt stored token");
+            }
+        }
+        return rewrites;
+    }
+
+    private void reencryptInstallations() {
+        List<SlackInstallation> installations = installationRepository.findAll();
+        scanned.add(installations.size());
+        List<BotTokenRewrite> rewrites = new ArrayList<>();
+        for (SlackInstallation installation : installations) {
+            if (encryptionService.isCurrent(installation.getEncryptedBotToken())) continue;
+            try {
+                rewrites.add(new BotTokenRewrite(installation.getTeamId(), installation.getInstalledAt(),
+                        encryptionService.reencrypt(installation.getEncryptedBotToken())));
+            } catch (IllegalStateException ex) {
+                failed.increment();
+                log.atWarn().addKeyValue("event", "token.reencryption.row_failed").addKeyValue("teamId", installation.getTeamId())
+                        .setCause(ex).log("Unable to re-encrypt stored Slack bot token");
+            }
+        }
+        if (rewrites.isEmpty()) return;
+        int updated = transactionTemplate.execute(status -> {
+            int count = 0;
+            for (BotTokenRewrite rewrite : rewrites) {
+                count += installationRepository.updateCiphertext(rewrite.teamId(), rewrite.installedAt(), rewrite.botToken());
+            }
+            return count;
+        });
+        rewritten.add(updated);
+        conflicts.add(rewrites.size() - updated);
+    }
+
+    private void writeBatch(List<Rewrite> rewrites) {
+        if (rewrites.isEmpty()) return;
+        int updated = transactionTemplate.execute(status -> {
+            int count = 0;
+            for (Rewrite rewrite : rewrites) {
+                count += tokenRepository.updateCiphertexts(rewrite.id(), rewrite.updatedAt(),
+                        rewrite.accessToken(), rewrite.refreshToken());
+            }
+            return count;
+        });
+        rewritten.add(updated);
+        conflicts.add(rewrites.size() - updated);
+    }
+
+    private boolean pause() {
+        try {
+            Thread.sleep(settings.batchDelay());
+            return true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private record Rewrite(long id, Instant updatedAt, String accessToken, String refreshToken) {
+    }
+
+    private record BotTokenRewrite(String teamId, Instant installedAt, String botToken) {
+    }
+
+    public record Progress(boolean running, String activeKeyId, long scanned, long rewritten, long conflicts,
+                           long failed, Instant startedAt, Instant finishedAt) {
+    }
+}
@@ -0,0 +1,211 @@
+package com.mlorenc.slack.jira.bot.service;
+
+import com.mlorenc.slack.jira.bot.config.BotProperties;
+import com.mlorenc.slack.jira.bot.model.JiraOAuthToken;
+import com.mlorenc.slack.jira.bot.model.SlackUser;
+import com.mlorenc.slack.jira.bot.repository.JiraOAuthTokenRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Refreshes Jira tokens shortly before they expire so request threads rarely pay for a
+ * round-trip to the token endpoint. Each run walks {@code jira_oauth_tokens} by {@code expiresAt}
+ * in keyset pages and refreshes a page with bounded concurrency; runs are spaced by the
+ * configured interval plus random jitter so several bot instances do not scan in lockstep.
+ * Only transient failures are retried; a refresh token Atlassian rejects is marked on its row and
+ * left alone until the user reconnects.
+ */
+@Component
+public class TokenRefreshScheduler implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenRefreshScheduler.class);
+
+    private final JiraOAuthTokenRepository tokenRepository;
+    private final JiraOAuthService jiraOAuthService;
+    private final BotProperties.TokenRefresh settings;
+    private final ScheduledExecutorService scheduler =
+            Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("jira-token-refresher").daemon().factory());
+    private final ExecutorService workers =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("jira-token-refresh-", 0).factory());
+
+    private final LongAdder totalScanned = new LongAdder();
+    private final LongAdder totalRefreshed = new LongAdder();
+    private final LongAdder totalFailed = new LongAdder();
+    private volatile RunStats lastRun;
+
+    public TokenRefreshScheduler(JiraOAuthTokenRepository tokenRepository,
+                                 JiraOAuthService jiraOAuthService,
+                                 BotProperties properties) {
+        this.tokenRepository = tokenRepository;
+        this.jiraOAuthService = jiraOAuthService;
+        this.settings = properties.tokenRefresh();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (settings.enabled()) {
+            scheduleNext();
+        }
+    }
+
+    /**
+     * Performs one scan-and-refresh pass over tokens expiring within the lookahead.
+     */
+    public RunStats runOnce() {
+        long startedAt = System.nanoTime();
+        Instant now = Instant.now();
+        Instant cutoff = now.plus(settings.lookahead());
+        AtomicLong scanned = new AtomicLong();
+        LongAdder refreshed = new LongAdder();
+        LongAdder failed = new LongAdder();
+        LongAccumulator maxLagMillis = new LongAccumulator(Long::max, 0);
+
+        Semaphore permits = new Semaphore(settings.maxConcurrency());
+        Instant afterExpiresAt = Instant.EPOCH;
+        long afterId = 0;
+        List<JiraOAuthToken> page;
+        do {
+            page = tokenRepository.findExpiringBefore(cutoff, afterExpiresAt, afterId, PageRequest.of(0, settings.batchSize()));
+            List<Future<?>> batch = new ArrayList<>(page.size());
+            for (JiraOAuthToken token : page) {
+                scanned.incrementAndGet();
+                // how long the token has been due: it should have been refreshed at expiresAt - lookahead
+                long lag = Duration.between(token.getExpiresAt().minus(settings.lookahead()), now).toMillis();
+                maxLagMillis.accumulate(Math.max(0, lag));
+                SlackUser user = new SlackUser(token.getSlackTeamId(), token.getSlackUserId());
+                batch.add(workers.submit(() -> {
+                    permits.acquireUninterruptibly();
+                    try {
+                        if (refreshWithRetry(user, cutoff)) refreshed.increment();
+                        else failed.increment();
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+            awaitAll(batch);
+            if (!page.isEmpty()) {
+                JiraOAuthToken last = page.getLast();
+                afterExpiresAt = last.getExpiresAt();
+                afterId = last.getId();
+            }
+        } while (page.size() == settings.batchSize());
+
+        RunStats stats = new RunStats(scanned.get(), refreshed.sum(), failed.sum(), maxLagMillis.get(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt), Instant.now());
+        totalScanned.add(stats.scanned());
+        totalRefreshed.add(stats.refreshed());
+        totalFailed.add(stats.failed());
+        lastRun = stats;
+        log.atInfo().addKeyValue("event", "jira.oauth.token.refresh.run")
+                .addKeyValue("scanned", stats.scanned())
+                .addKeyValue("refreshed", stats.refreshed())
+                .addKeyValue("failed", stats.failed())
+                .addKeyValue("lagMillis", stats.maxLagMillis())
+                .addKeyValue("durationMillis", stats.durationMillis())
+                .log("Finished background Jira token refresh");
+        return stats;
+    }
+
+    public RunStats lastRun() {
+        return lastRun;
+    }
+
+    public Totals totals() {
+        return new Totals(totalScanned.sum(), totalRefreshed.sum(), totalFailed.sum());
+    }
+
+    private boolean refreshWithRetry(SlackUser user, Instant refreshBefore) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                jiraOAuthService.refreshIfExpiring(user, refreshBefore);
+                return true;
+            } catch (JiraTokenRevokedException ex) {
+                // marked on the row, so later runs skip it until the user reconnects
+                return false;
+            } catch (RuntimeException ex) {
+                if (attempt >= settings.maxAttempts() || !JiraOAuthService.isTransientRefreshFailure(ex)) {
+                    log.atWarn().addKeyValue("event", "jira.oauth.token.refresh.gave_up").addKeyValue("teamId", user.teamId())
+                            .addKeyValue("slackUserId", user.userId())
+                            .addKeyValue("attempts", attempt).setCause(ex).log("Background Jira token refresh failed");
+                    return false;
+                }
+                try {
+                    Thread.sleep(backoff(attempt));
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+    }
+
+    // base * 2^(attempt-1), plus up to 50% random jitter
+    private long backoff(int attempt) {
+        long base = settings.backoff().toMillis() << Math.min(attempt - 1, 16);
+        return base + ThreadLocalRandom.current().nextLong(base / 2 + 1);
+    }
+
+    private void scheduleNext() {
+        long jitter = ThreadLocalRandom.current().nextLong(settings.jitter().toMillis() + 1);
+        scheduler.schedule(this::runAndReschedule, settings.interval().toMillis() + jitter, TimeUnit.MILLISECONDS);
+    }
+
+    private void runAndReschedule() {
+        try {
+            runOnce();
+        } catch (RuntimeException ex) {
+            log.atError().addKeyValue("event", "jira.oauth.token.refresh.run.failed").setCause(ex).log("Background Jira token refresh run failed");
+        } finally {
+            if (!scheduler.isShutdown()) {
+                scheduleNext();
+            }
+        }
+    }
+
+    private static void awaitAll(List<Future<?>> batch) {
+        for (Future<?> future : batch) {
+            try {
+                future.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception ignored) {
+                // failures are counted inside the task
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    public record RunStats(long scanned, long refreshed, long failed, long maxLagMillis, long durationMillis,
+                           Instant finishedAt) {
+    }
+
+    public record Totals(long scanned, long refreshed, long failed) {
+    }
+}
@@ -0,0 +1,34 @@
+-- Schema as previously created by ddl-auto: update. IF NOT EXISTS keeps this a no-op on
+-- databases that already have it (baselined at version 0).
+
+CREATE TABLE IF NOT EXISTS jira_oauth_tokens (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    slack_user_id VARCHAR(255) NOT NULL UNIQUE,
+    encrypted_access_token VARCHAR(4096) NOT NULL,
+    encrypted_refresh_token VARCHAR(4096) NOT NULL,
+    expires_at TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    updated_at TIMESTAMP(6) WITH TIME ZONE NOT NULL
+);
+CREATE INDEX IF NOT EXISTS idx_jira_oauth_tokens_expires_at ON jira_oauth_tokens (expires_at);
+
+CREATE TABLE IF NOT EXISTS oauth_states (
+    state VARCHAR(255) NOT NULL PRIMARY KEY,
+    slack_user_id VARCHAR(255) NOT NULL,
+    expires_at TIMESTAMP(6) WITH TIME ZONE NOT NULL
+);
+CREATE INDEX IF NOT EXISTS idx_oauth_states_expires_at ON oauth_states (expires_at);
+
+CREATE TABLE IF NOT EXISTS user_connections (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    slack_user_id VARCHAR(255) NOT NULL UNIQUE,
+    jira_account_id VARCHAR(255) NOT NULL,
+    jira_cloud_id VARCHAR(255) NOT NULL,
+    connected_at TIMESTAMP(6) WITH TIME ZONE NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS project_field_mappings (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    slack_user_id VARCHAR(255) NOT NULL,
+    jira_project_key VARCHAR(255) NOT NULL,
+    progress_field_id VARCHAR(255) NOT NULL
+);
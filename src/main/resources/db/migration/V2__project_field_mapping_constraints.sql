@@ -0,0 +1,20 @@
+-- Versioning columns, in case the database predates them.
+ALTER TABLE project_field_mappings ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0 NOT NULL;
+ALTER TABLE project_field_mappings ADD COLUMN IF NOT EXISTS updated_at TIMESTAMP(6) WITH TIME ZONE;
+
+-- Project keys are stored upper-case; older saves could leave mixed-case keys and duplicates.
+-- Keep the most recent row per user and project.
+DELETE FROM project_field_mappings p
+WHERE EXISTS (
+    SELECT 1 FROM project_field_mappings q
+    WHERE q.slack_user_id = p.slack_user_id
+      AND UPPER(q.jira_project_key) = UPPER(p.jira_project_key)
+      AND q.id > p.id
+);
+UPDATE project_field_mappings SET jira_project_key = UPPER(jira_project_key)
+WHERE jira_project_key <> UPPER(jira_project_key);
+
+-- Serves findBySlackUserIdAndJiraProjectKey and makes concurrent saves collide instead of duplicating.
+ALTER TABLE project_field_mappings ADD CONSTRAINT IF NOT EXISTS uk_project_field_mappings_user_project
+    UNIQUE (slack_user_id, jira_project_key);
+CREATE INDEX IF NOT EXISTS idx_project_field_mappings_updated_at ON project_field_mappings (updated_at);
@@ -0,0 +1,13 @@
+-- Every Jira site a user's token can reach; user_connections.jira_cloud_id stays the default site.
+CREATE TABLE user_jira_sites (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    slack_user_id VARCHAR(255) NOT NULL,
+    cloud_id VARCHAR(255) NOT NULL,
+    site_url VARCHAR(255),
+    site_name VARCHAR(255),
+    discovered_at TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    CONSTRAINT uk_user_jira_sites_user_cloud UNIQUE (slack_user_id, cloud_id)
+);
+
+INSERT INTO user_jira_sites (slack_user_id, cloud_id, discovered_at)
+SELECT slack_user_id, jira_cloud_id, connected_at FROM user_connections;
@@ -0,0 +1,58 @@
+-- Slack user ids are only unique within a workspace, so every per-user row also carries the
+-- workspace (team) id. Rows written before this version belong to the single workspace the bot
+-- was installed in; set SLACK_LEGACY_TEAM_ID to its team id before upgrading.
+
+-- user_connections and jira_oauth_tokens were unique on slack_user_id through unnamed constraints,
+-- so they are rebuilt rather than altered.
+CREATE TABLE user_connections_v4 (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    slack_team_id VARCHAR(255) NOT NULL,
+    slack_user_id VARCHAR(255) NOT NULL,
+    jira_account_id VARCHAR(255) NOT NULL,
+    jira_cloud_id VARCHAR(255) NOT NULL,
+    connected_at TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    CONSTRAINT uk_user_connections_team_user UNIQUE (slack_team_id, slack_user_id)
+);
+INSERT INTO user_connections_v4 (slack_team_id, slack_user_id, jira_account_id, jira_cloud_id, connected_at)
+SELECT '${legacyTeamId}', slack_user_id, jira_account_id, jira_cloud_id, connected_at FROM user_connections ORDER BY id;
+DROP TABLE user_connections;
+ALTER TABLE user_connections_v4 RENAME TO user_connections;
+
+CREATE TABLE jira_oauth_tokens_v4 (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    slack_team_id VARCHAR(255) NOT NULL,
+    slack_user_id VARCHAR(255) NOT NULL,
+    encrypted_access_token VARCHAR(4096) NOT NULL,
+    encrypted_refresh_token VARCHAR(4096) NOT NULL,
+    expires_at TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    updated_at TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    CONSTRAINT uk_jira_oauth_tokens_team_user UNIQUE (slack_team_id, slack_user_id)
+);
+INSERT INTO jira_oauth_tokens_v4 (slack_team_id, slack_user_id, encrypted_access_token, encrypted_refresh_token, expires_at, updated_at)
+SELECT '${legacyTeamId}', slack_user_id, encrypted_access_token, encrypted_refresh_token, expires_at, updated_at
+FROM jira_oauth_tokens ORDER BY id;
+DROP TABLE jira_oauth_tokens;
+ALTER TABLE jira_oauth_tokens_v4 RENAME TO jira_oauth_tokens;
+CREATE INDEX idx_jira_oauth_tokens_expires_at ON jira_oauth_tokens (expires_at);
+
+ALTER TABLE project_field_mappings ADD COLUMN slack_team_id VARCHAR(255) DEFAULT '${legacyTeamId}' NOT NULL BEFORE slack_user_id;
+ALTER TABLE project_field_mappings ALTER COLUMN slack_team_id DROP DEFAULT;
+ALTER TABLE project_field_mappings DROP CONSTRAINT uk_project_field_mappings_user_project;
+ALTER TABLE project_field_mappings ADD CONSTRAINT uk_project_field_mappings_team_user_project
+    UNIQUE (slack_team_id, slack_user_id, jira_project_key);
+
+ALTER TABLE user_jira_sites ADD COLUMN slack_team_id VARCHAR(255) DEFAULT '${legacyTeamId}' NOT NULL BEFORE slack_user_id;
+ALTER TABLE user_jira_sites ALTER COLUMN slack_team_id DROP DEFAULT;
+ALTER TABLE user_jira_sites DROP CONSTRAINT uk_user_jira_sites_user_cloud;
+ALTER TABLE user_jira_sites ADD CONSTRAINT uk_user_jira_sites_team_user_cloud UNIQUE (slack_team_id, slack_user_id, cloud_id);
+
+ALTER TABLE oauth_states ADD COLUMN slack_team_id VARCHAR(255) DEFAULT '${legacyTeamId}' NOT NULL BEFORE slack_user_id;
+ALTER TABLE oauth_states ALTER COLUMN slack_team_id DROP DEFAULT;
+
+-- One row per workspace the app is installed in, written by the Slack OAuth callback.
+CREATE TABLE slack_installations (
+    team_id VARCHAR(255) NOT NULL PRIMARY KEY,
+    encrypted_bot_token VARCHAR(4096) NOT NULL,
+    bot_user_id VARCHAR(255),
+    installed_at TIMESTAMP(6) WITH TIME ZONE NOT NULL
+);
@@ -0,0 +1,3 @@
+-- Set when the token endpoint rejects a refresh token (HTTP 400/401); the background refresher skips
+-- such rows until the user reconnects, which clears it.
+ALTER TABLE jira_oauth_tokens ADD COLUMN refresh_failed_at TIMESTAMP(6) WITH TIME ZONE;
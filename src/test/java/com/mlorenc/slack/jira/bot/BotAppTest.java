@@ -0,0 +1,27 @@
+package com.mlorenc.slack.jira.bot;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Starts the whole app with the shipped {@code application.yml}, so configuration that does not
+ * bind or a migration that does not match the entities fails the build instead of the deploy.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:context;DB_CLOSE_DELAY=-1")
+class BotAppTest {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void shouldStartWithTheShippedConfiguration() {
+        assertThat(dataSource).isInstanceOfSatisfying(HikariDataSource.class,
+                hikari -> assertThat(hikari.getConnectionTimeout()).isEqualTo(3000));
+    }
+}
@@ -0,0 +1,233 @@
+package com.mlorenc.slack.jira.bot;
+
+import com.mlorenc.slack.jira.bot.core.ObjectPool;
+import com.mlorenc.slack.jira.bot.core.SlackSignatureVerifier;
+import com.mlorenc.slack.jira.bot.model.SlackUser;
+import com.mlorenc.slack.jira.bot.service.JiraOAuthService;
+import com.mlorenc.slack.jira.bot.service.TokenEncryptionService;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Boots the app once on Tomcat's platform thread pool and once on virtual threads, and drives
+ * the Jira OAuth callback from {@code load.clients} concurrent clients. Each callback blocks on
+ * two Atlassian calls, stubbed with {@code load.latencyMillis} each, and on the database, so it
+ * is the request path the thread model matters most for. Virtual-thread pinning in our own code
+ * is recorded through JFR while the virtual run is under load. Each run then sends as many signed
+ * Slack commands, and reports how many Slack signers and token ciphers the shared pools had to
+ * create for all that traffic. Run with {@code ./gradlew loadTest},
+ * optionally with {@code -Pload.clients=}, {@code -Pload.requests=} and {@code -Pload.latencyMillis=};
+ * the platform pool only becomes the limit once the machine has the CPU to go past 200 requests
+ * in flight.
+ */
+@Tag("load")
+class VirtualThreadsLoadTest {
+
+    private static final int CLIENTS = Integer.getInteger("load.clients", 1000);
+    private static final int REQUESTS = Integer.getInteger("load.requests", 5000);
+    private static final int WARMUP_REQUESTS = REQUESTS / 10;
+    private static final String SIGNING_SECRET = "load-signing-secret";
+    private static final Duration ATLASSIAN_LATENCY = Duration.ofMillis(Integer.getInteger("load.latencyMillis", 100));
+
+    private static HttpServer atlassian;
+
+    @BeforeAll
+    static void startAtlassian() throws IOException {
+        atlassian = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        atlassian.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        atlassian.createContext("/oauth/token", exchange -> respond(exchange, """
+                {"access_token":"%s","refresh_token":"refresh","expires_in":3600}""".formatted(UUID.randomUUID())));
+        atlassian.createContext("/accessible-resources", exchange -> respond(exchange, """
+                [{"id":"cloud-1","url":"https://one.atlassian.net","name":"One","scopes":[]}]"""));
+        atlassian.start();
+    }
+
+    @AfterAll
+    static void stopAtlassian() {
+        atlassian.stop(0);
+    }
+
+    @Test
+    void shouldCompareThroughputAndTailLatencyBetweenThreadModes() throws Exception {
+        Result platform = run(false);
+        Result virtual = run(true);
+
+        System.out.printf("%n%-9s %10s %10s %10s %8s%n", "threads", "req/s", "p50 ms", "p99 ms", "errors");
+        for (Result result : List.of(platform, virtual)) {
+            System.out.printf("%-9s %10.0f %10.1f %10.1f %8d%n", result.mode(), result.throughput(),
+                    result.p50Millis(), result.p99Millis(), result.errors());
+        }
+        System.out.println("pinned virtual threads by first application frame: " + virtual.pinned());
+        for (Result result : List.of(platform, virtual)) {
+            System.out.printf("%-9s slack signers created %d, reused %d; ciphers created %d, reused %d%n", result.mode(),
+                    result.signers().created(), result.signers().reused(), result.ciphers().created(), result.ciphers().reused());
+        }
+
+        assertThat(platform.errors()).isZero();
+        assertThat(virtual.errors()).isZero();
+        assertThat(virtual.pinned()).isEmpty();
+        // the pools are shared by all threads, so creations follow concurrency, not request count
+        assertThat(virtual.signers().created()).isLessThan(REQUESTS / 10);
+        assertThat(virtual.ciphers().created()).isLessThan(REQUESTS / 10);
+    }
+
+    private Result run(boolean virtualThreads) throws Exception {
+        String stub = "http://127.0.0.1:" + atlassian.getAddress().getPort();
+        try (ConfigurableApplicationContext app = new SpringApplicationBuilder(BotApp.class).run(
+                "--server.port=0",
+                "--spring.threads.virtual.enabled=" + virtualThreads,
+                "--spring.datasource.url=jdbc:h2:mem:load-" + virtualThreads + ";DB_CLOSE_DELAY=-1",
+                "--bot.jira.tokenUrl=" + stub + "/oauth/token",
+                "--bot.jira.resourcesUrl=" + stub + "/accessible-resources",
+                "--bot.slack.signingSecret=" + SIGNING_SECRET,
+                "--logging.level.root=WARN");
+             RecordingStream pinning = new RecordingStream();
+             ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            int port = ((ServletWebServerApplicationContext) app).getWebServer().getPort();
+            JiraOAuthService oauthService = app.getBean(JiraOAuthService.class);
+            HttpClient http = HttpClient.newBuilder().executor(clients).build();
+
+            Map<String, Integer> pinned = new ConcurrentHashMap<>();
+            pinning.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ofMillis(1)).withStackTrace();
+            pinning.onEvent("jdk.VirtualThreadPinned", event -> {
+                if (event.getStackTrace() == null) return;
+                event.getStackTrace().getFrames().stream()
+                        .map(RecordedFrame::getMethod)
+                        .filter(method -> method.getType().getName().startsWith("com.mlorenc."))
+                        .findFirst()
+                        .ifPresent(method -> pinned.merge(method.getType().getName() + "." + method.getName(), 1, Integer::sum));
+            });
+            pinning.startAsync();
+
+            // a cold JIT can time out on the connection pool here; only the measured run has to be clean
+            drive(http, WARMUP_REQUESTS, callbacks(port, oauthService, WARMUP_REQUESTS), new long[WARMUP_REQUESTS],
+                    new LongAdder());
+            IntFunction<HttpRequest> callbacks = callbacks(port, oauthService, REQUESTS);
+            long[] latencies = new long[REQUESTS];
+            LongAdder errors = new LongAdder();
+            long startedAt = System.nanoTime();
+            drive(http, REQUESTS, callbacks, latencies, errors);
+            double seconds = (System.nanoTime() - startedAt) / 1e9;
+            drive(http, REQUESTS, i -> slackCommand(port, i), new long[REQUESTS], errors);
+
+            Arrays.sort(latencies);
+            return new Result(virtualThreads ? "virtual" : "platform", REQUESTS / seconds,
+                    latencies[REQUESTS / 2] / 1e6, latencies[(int) (REQUESTS * 0.99)] / 1e6, errors.sum(), Map.copyOf(pinned),
+                    app.getBean(SlackSignatureVerifier.class).stats(), app.getBean(TokenEncryptionService.class).cipherStats());
+        }
+    }
+
+    // each callback redeems a fresh state
+    private static IntFunction<HttpRequest> callbacks(int port, JiraOAuthService oauthService, int requests) {
+        String[] states = new String[requests];
+        for (int i = 0; i < requests; i++) {
+            String url = oauthService.createAuthorizationUrl(new SlackUser("T1", "U" + i));
+            states[i] = url.substring(url.lastIndexOf("state=") + "state=".length());
+        }
+        return i -> HttpRequest.newBuilder(URI.create(
+                        "http://127.0.0.1:" + port + "/jira/oauth2/callback?code=c&state=" + states[i]))
+                .timeout(Duration.ofSeconds(60))
+                .build();
+    }
+
+    // an unknown command is answered inline, after the body has been read and its signature checked
+    private static HttpRequest slackCommand(int port, int i) {
+        String body = "command=%2Fload&team_id=T1&user_id=U" + i;
+        String timestamp = String.valueOf(Instant.now().getEpochSecond());
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(SIGNING_SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            byte[] digest = mac.doFinal(("v0:" + timestamp + ":" + body).getBytes(StandardCharsets.UTF_8));
+            return HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + "/slack/commands"))
+                    .timeout(Duration.ofSeconds(60))
+                    .header("Content-Type", "application/x-www-form-urlencoded")
+                    .header("X-Slack-Request-Timestamp", timestamp)
+                    .header("X-Slack-Signature", "v0=" + HexFormat.of().formatHex(digest))
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    // CLIENTS virtual threads share the requests
+    private static void drive(HttpClient http, int requests, IntFunction<HttpRequest> requestFor, long[] latencies,
+                              LongAdder errors) throws InterruptedException {
+        AtomicInteger next = new AtomicInteger();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < CLIENTS; c++) {
+                clients.submit(() -> {
+                    for (int i = next.getAndIncrement(); i < requests; i = next.getAndIncrement()) {
+                        HttpRequest request = requestFor.apply(i);
+                        long startedAt = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = http.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() != 200) errors.increment();
+                        } catch (IOException ex) {
+                            errors.increment();
+                        } catch (InterruptedException ex) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        }
+                        latencies[i] = System.nanoTime() - startedAt;
+                    }
+                });
+            }
+        }
+        assertThat(next.get()).isGreaterThanOrEqualTo(requests);
+    }
+
+    private static void respond(HttpExchange exchange, String body) throws IOException {
+        try {
+            TimeUnit.NANOSECONDS.sleep(ATLASSIAN_LATENCY.toNanos());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (exchange) {
+            exchange.getResponseBody().write(bytes);
+        }
+    }
+
+    private record Result(String mode, double throughput, double p50Millis, double p99Millis, long errors,
+                          Map<String, Integer> pinned, ObjectPool.Stats signers, ObjectPool.Stats ciphers) {
+    }
+}
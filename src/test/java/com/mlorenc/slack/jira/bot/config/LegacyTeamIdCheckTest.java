@@ -0,0 +1,60 @@
+package com.mlorenc.slack.jira.bot.config;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.FlywayException;
+import org.flywaydb.core.api.configuration.FluentConfiguration;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LegacyTeamIdCheckTest {
+
+    @Test
+    void shouldMigrateAnEmptyDatabaseWithoutALegacyTeamId() {
+        String url = "jdbc:h2:mem:legacy-empty;DB_CLOSE_DELAY=-1";
+
+        assertThat(flyway(url, "", null).migrate().success).isTrue();
+    }
+
+    @Test
+    void shouldRefuseToMoveExistingRowsIntoABlankWorkspace() throws Exception {
+        String url = "jdbc:h2:mem:legacy-rows;DB_CLOSE_DELAY=-1";
+        flyway(url, "", "3").migrate();
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("""
+                    INSERT INTO user_connections (slack_user_id, jira_account_id, jira_cloud_id, connected_at)
+                    VALUES ('U1', 'acc-1', 'cloud-1', CURRENT_TIMESTAMP)
+                    """);
+        }
+
+        assertThatThrownBy(() -> flyway(url, " ", null).migrate())
+                .isInstanceOf(FlywayException.class)
+                .hasMessageContaining("user_connections")
+                .hasMessageContaining("SLACK_LEGACY_TEAM_ID");
+
+        flyway(url, "T1", null).migrate();
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT slack_team_id FROM user_connections")) {
+            assertThat(rs.next()).isTrue();
+            assertThat(rs.getString(1)).isEqualTo("T1");
+        }
+    }
+
+    private static Flyway flyway(String url, String legacyTeamId, String target) {
+        FluentConfiguration configuration = Flyway.configure()
+                .dataSource(url, "sa", "")
+                .placeholders(Map.of(LegacyTeamIdCheck.PLACEHOLDER, legacyTeamId))
+                .callbacks(new LegacyTeamIdCheck());
+        if (target != null) configuration.target(target);
+        return configuration.load();
+    }
+}
@@ -0,0 +1,136 @@
+package com.mlorenc.slack.jira.bot.config;
+
+/**
+ * Builds {@link BotProperties} for tests with only the sections a test sets; the rest stay
+ * {@code null}. New sections are added here instead of to every test.
+ */
+public final class TestBotProperties {
+
+    private BotProperties.Slack slack;
+    private BotProperties.Jira jira;
+    private BotProperties.Security security;
+    private BotProperties.Dispatch dispatch;
+    private BotProperties.TokenCache tokenCache;
+    private BotProperties.TokenRefresh tokenRefresh;
+    private BotProperties.KeyRotation keyRotation;
+    private BotProperties.SlackApi slackApi;
+    private BotProperties.SlackRateLimit slackRateLimit;
+    private BotProperties.Dedupe dedupe;
+    private BotProperties.OAuthStates oauthStates;
+    private BotProperties.JiraApi jiraApi;
+    private BotProperties.ProgressUpdates progressUpdates;
+    private BotProperties.JiraMetadata jiraMetadata;
+    private BotProperties.MappingCache mappingCache;
+    private BotProperties.JiraSites jiraSites;
+    private BotProperties.Metrics metrics;
+    private BotProperties.SocketMode socketMode;
+    private BotProperties.Installations installations;
+
+    private TestBotProperties() {
+    }
+
+    public static TestBotProperties builder() {
+        return new TestBotProperties();
+    }
+
+    public TestBotProperties slack(BotProperties.Slack slack) {
+        this.slack = slack;
+        return this;
+    }
+
+    public TestBotProperties jira(BotProperties.Jira jira) {
+        this.jira = jira;
+        return this;
+    }
+
+    public TestBotProperties security(BotProperties.Security security) {
+        this.security = security;
+        return this;
+    }
+
+    public TestBotProperties dispatch(BotProperties.Dispatch dispatch) {
+        this.dispatch = dispatch;
+        return this;
+    }
+
+    public TestBotProperties tokenCache(BotProperties.TokenCache tokenCache) {
+        this.tokenCache = tokenCache;
+        return this;
+    }
+
+    public TestBotProperties tokenRefresh(BotProperties.TokenRefresh tokenRefresh) {
+        this.tokenRefresh = tokenRefresh;
+        return this;
+    }
+
+    public TestBotProperties keyRotation(BotProperties.KeyRotation keyRotation) {
+        this.keyRotation = keyRotation;
+        return this;
+    }
+
+    public TestBotProperties slackApi(BotProperties.SlackApi slackApi) {
+        this.slackApi = slackApi;
+        return this;
+    }
+
+    public TestBotProperties slackRateLimit(BotProperties.SlackRateLimit slackRateLimit) {
+        this.slackRateLimit = slackRateLimit;
+        return this;
+    }
+
+    public TestBotProperties dedupe(BotProperties.Dedupe dedupe) {
+        this.dedupe = dedupe;
+        return this;
+    }
+
+    public TestBotProperties oauthStates(BotProperties.OAuthStates oauthStates) {
+        this.oauthStates = oauthStates;
+        return this;
+    }
+
+    public TestBotProperties jiraApi(BotProperties.JiraApi jiraApi) {
+        this.jiraApi = jiraApi;
+        return this;
+    }
+
+    public TestBotProperties progressUpdates(BotProperties.ProgressUpdates progressUpdates) {
+        this.progressUpdates = progressUpdates;
+        return this;
+    }
+
+    public TestBotProperties jiraMetadata(BotProperties.JiraMetadata jiraMetadata) {
+        this.jiraMetadata = jiraMetadata;
+        return this;
+    }
+
+    public TestBotProperties mappingCache(BotProperties.MappingCache mappingCache) {
+        this.mappingCache = mappingCache;
+        return this;
+    }
+
+    public TestBotProperties jiraSites(BotProperties.JiraSites jiraSites) {
+        this.jiraSites = jiraSites;
+        return this;
+    }
+
+    public TestBotProperties metrics(BotProperties.Metrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    public TestBotProperties socketMode(BotProperties.SocketMode socketMode) {
+        this.socketMode = socketMode;
+        return this;
+    }
+
+    public TestBotProperties installations(BotProperties.Installations installations) {
+        this.installations = installations;
+        return this;
+    }
+
+    public BotProperties build() {
+        return new BotProperties(slack, jira, security, dispatch, tokenCache, tokenRefresh, keyRotation, slackApi,
+                slackRateLimit, dedupe, oauthStates, jiraApi, progressUpdates, jiraMetadata, mappingCache, jiraSites,
+                metrics, socketMode, installations);
+    }
+}
@@ -1,5 +1,9 @@
 package com.mlorenc.slack.jira.bot.controller;
 
+import com.mlorenc.slack.jira.bot.config.BotProperties;
+import com.mlorenc.slack.jira.bot.core.SlackMetrics;
+import com.mlorenc.slack.jira.bot.core.SlackSignatureVerifier;
+import com.mlorenc.slack.jira.bot.model.SlackUser;
 import com.mlorenc.slack.jira.bot.service.JiraOAuthService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -21,12 +25,18 @@ class JiraOAuthControllerWebTest {
 
     @MockBean
     private JiraOAuthService jiraOAuthService;
+    @MockBean
+    private SlackSignatureVerifier verifier;
+    @MockBean
+    private SlackMetrics metrics;
+    @MockBean
+    private BotProperties properties;
 
     @Test
     void shouldRedirectToAuthorizeUrl() throws Exception {
-        when(jiraOAuthService.createAuthorizationUrl("U1")).thenReturn("https://auth.example");
+        when(jiraOAuthService.createAuthorizationUrl(new SlackUser("T1", "U1"))).thenReturn("https://auth.example");
 
-        mockMvc.perform(get("/jira/oauth2/authorize").param("slackUserId", "U1"))
+        mockMvc.perform(get("/jira/oauth2/authorize").param("teamId", "T1").param("slackUserId", "U1"))
                 .andExpect(status().isFound())
                 .andExpect(header().string("Location", "https://auth.example"));
     }
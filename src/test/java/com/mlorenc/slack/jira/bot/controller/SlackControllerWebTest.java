@@ -1,31 +1,61 @@
 package com.mlorenc.slack.jira.bot.controller;
 
 import com.mlorenc.slack.jira.bot.config.BotProperties;
+import com.mlorenc.slack.jira.bot.config.TestBotProperties;
+import com.mlorenc.slack.jira.bot.core.SlackCommandDispatcher;
+import com.mlorenc.slack.jira.bot.core.SlackInteractionParser;
+import com.mlorenc.slack.jira.bot.core.SlackMetrics;
+import com.mlorenc.slack.jira.bot.core.SlackRetryDeduplicator;
 import com.mlorenc.slack.jira.bot.core.SlackService;
 import com.mlorenc.slack.jira.bot.core.SlackSignatureVerifier;
+import com.mlorenc.slack.jira.bot.model.SlackUser;
+import com.mlorenc.slack.jira.bot.service.JiraMetadataCache;
 import com.mlorenc.slack.jira.bot.service.JiraOAuthService;
+import com.mlorenc.slack.jira.bot.service.ProgressUpdater;
 import com.mlorenc.slack.jira.bot.service.ProjectMappingService;
+import com.mlorenc.slack.jira.bot.service.SlackInstallationStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(SlackController.class)
+@Import({SlackSignatureVerifier.class, SlackInteractionParser.class, SlackInboundHandler.class})
 class SlackControllerWebTest {
 
+    private static final SlackUser U1 = new SlackUser("T1", "U1");
+
     @Autowired
     private MockMvc mockMvc;
 
-    @MockBean
-    private SlackSignatureVerifier verifier;
     @MockBean
     private SlackService slackService;
     @MockBean
@@ -33,19 +63,200 @@ class SlackControllerWebTest {
     @MockBean
     private ProjectMappingService projectMappingService;
     @MockBean
+    private SlackCommandDispatcher dispatcher;
+    @MockBean
+    private ProgressUpdater progressUpdater;
+    @MockBean
+    private JiraMetadataCache metadataCache;
+    @MockBean
+    private SlackInstallationStore installations;
+    @MockBean
     private BotProperties properties;
+    @Autowired
+    private MeterRegistry registry;
+
+    @TestConfiguration
+    static class SlackConfig {
+        @Bean
+        SlackRetryDeduplicator slackRetryDeduplicator() {
+            return new SlackRetryDeduplicator(TestBotProperties.builder()
+                    .dedupe(new BotProperties.Dedupe(100, Duration.ofMinutes(5), Duration.ofMillis(2500)))
+                    .build());
+        }
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        SlackMetrics slackMetrics(MeterRegistry registry) {
+            return new SlackMetrics(registry,
+                    TestBotProperties.builder().metrics(new BotProperties.Metrics(10)).build());
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        when(properties.slack()).thenReturn(new BotProperties.Slack("bot", "secret", null, null, null, null, null));
+    }
 
     @Test
     void shouldRejectInvalidSignature() throws Exception {
-        when(properties.slack()).thenReturn(new BotProperties.Slack("bot", "secret"));
-        when(verifier.verify(anyString(), anyString(), anyString(), anyString())).thenReturn(false);
+        double failuresBefore = registry.get("bot.slack.signature.failures").tag("reason", "invalid_signature").counter().count();
 
         mockMvc.perform(post("/slack/commands")
-                        .header("X-Slack-Request-Timestamp", "1")
+                        .header("X-Slack-Request-Timestamp", String.valueOf(Instant.now().getEpochSecond()))
                         .header("X-Slack-Signature", "sig")
                         .contentType(MediaType.APPLICATION_FORM_URLENCODED)
                         .content("command=%2Fjira&text=connect&trigger_id=trig&user_id=U1"))
                 .andExpect(status().isOk())
                 .andExpect(content().string(org.hamcrest.Matchers.containsString("Invalid Slack signature")));
+
+        assertThat(registry.get("bot.slack.signature.failures").tag("reason", "invalid_signature").counter().count())
+                .isEqualTo(failuresBefore + 1);
+    }
+
+    @Test
+    void shouldAcceptBodyOfExactlyTheSizeLimit() throws Exception {
+        String fields = "command=%2Funknown&user_id=U1&pad=";
+        String body = fields + "x".repeat(1024 * 1024 - fields.length());
+
+        mockMvc.perform(signed("/slack/commands", body))
+                .andExpect(status().isOk())
+                .andExpect(content().string(org.hamcrest.Matchers.containsString("Unknown command")));
+    }
+
+    @Test
+    void shouldRejectBodyOverTheSizeLimit() throws Exception {
+        mockMvc.perform(signed("/slack/commands", "command=%2Fjira&pad=" + "x".repeat(1024 * 1024)))
+                .andExpect(status().isPayloadTooLarge());
+    }
+
+    @Test
+    void shouldAckConnectCommandAndDispatchWork() throws Exception {
+        when(dispatcher.dispatch(any(), eq("jira.connect"), eq("https://hooks.slack.test/1"), any())).thenReturn(true);
+
+        mockMvc.perform(signed("/slack/commands",
+                        "command=%2Fjira&text=connect&trigger_id=trig&user_id=U1&response_url=https%3A%2F%2Fhooks.slack.test%2F1"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(org.hamcrest.Matchers.containsString("Opening Jira connect modal")));
+
+        verify(dispatcher).dispatch(any(), eq("jira.connect"), eq("https://hooks.slack.test/1"), any());
+    }
+
+    @Test
+    void shouldAnswerBusyWhenQueueIsFull() throws Exception {
+        when(dispatcher.dispatch(any(), anyString(), any(), any())).thenReturn(false);
+
+        mockMvc.perform(signed("/slack/commands", "command=%2Fjira&text=map&trigger_id=trig-map&user_id=U1&team_id=T1"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(org.hamcrest.Matchers.containsString("busy")));
+
+        assertThat(registry.get("bot.slack.commands").tags("command", "map", "team", "T1", "outcome", "busy").timer().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void shouldAnswerRetryFromFirstResponseWithoutDispatchingAgain() throws Exception {
+        when(dispatcher.dispatch(any(), eq("jira.connect"), any(), any())).thenReturn(true);
+        String body = "command=%2Fjira&text=connect&trigger_id=trig-retry&user_id=U1";
+
+        mockMvc.perform(signed("/slack/commands", body))
+                .andExpect(content().string(org.hamcrest.Matchers.containsString("Opening Jira connect modal")));
+        mockMvc.perform(signed("/slack/commands", body).header("X-Slack-Retry-Num", "1"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(org.hamcrest.Matchers.containsString("Opening Jira connect modal")));
+
+        verify(dispatcher, times(1)).dispatch(any(), eq("jira.connect"), any(), any());
+    }
+
+    @Test
+    void shouldRunRetryAgainWhenFirstAttemptWasBusy() throws Exception {
+        when(dispatcher.dispatch(any(), eq("jira.map"), any(), any())).thenReturn(false, true);
+        String body = "command=%2Fjira&text=map&trigger_id=trig-busy&user_id=U1";
+
+        mockMvc.perform(signed("/slack/commands", body))
+                .andExpect(content().string(org.hamcrest.Matchers.containsString("busy")));
+        mockMvc.perform(signed("/slack/commands", body).header("X-Slack-Retry-Num", "1"))
+                .andExpect(content().string(org.hamcrest.Matchers.containsString("Opening project mapping modal")));
+
+        verify(dispatcher, times(2)).dispatch(any(), eq("jira.map"), any(), any());
+    }
+
+    @Test
+    void shouldAckProgressCommandAndDispatchUpdate() throws Exception {
+        when(dispatcher.dispatch(any(), eq("jira.progress"), eq("https://hooks.slack.test/2"), any())).thenReturn(true);
+
+        mockMvc.perform(signed("/slack/commands",
+                        "command=%2Fjira&text=progress+prj-12+40&trigger_id=trig-progress&user_id=U1&response_url=https%3A%2F%2Fhooks.slack.test%2F2"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(org.hamcrest.Matchers.containsString("Updating PRJ-12 progress to 40")));
+
+        verify(dispatcher).dispatch(any(), eq("jira.progress"), eq("https://hooks.slack.test/2"), any());
+    }
+
+    @Test
+    void shouldDispatchMappingSubmission() throws Exception {
+        when(metadataCache.validate(U1, "ABC", "customfield_1")).thenReturn(new JiraMetadataCache.Validation(true, Map.of()));
+        when(dispatcher.dispatch(eq("T1"), eq("jira_mapping_submit"), isNull(), any())).thenReturn(true);
+        String payload = """
+                {"type":"view_submission","team":{"id":"T1"},"user":{"id":"U1"},
+                 "view":{"id":"V1","callback_id":"jira_mapping_submit","state":{"values":{
+                   "project_block":{"project_input":{"value":"ABC"}},
+                   "progress_field_block":{"progress_field_input":{"value":"customfield_1"}}}}}}
+                """;
+
+        mockMvc.perform(signed("/slack/interactions", "payload=" + URLEncoder.encode(payload, StandardCharsets.UTF_8)))
+                .andExpect(status().isOk())
+                .andExpect(content().string(""));
+        mockMvc.perform(signed("/slack/interactions", "payload=" + URLEncoder.encode(payload, StandardCharsets.UTF_8))
+                        .header("X-Slack-Retry-Num", "1"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(""));
+
+        verify(dispatcher, times(1)).dispatch(eq("T1"), eq("jira_mapping_submit"), isNull(), any());
+    }
+
+    @Test
+    void shouldRejectMappingThatIsNotInJira() throws Exception {
+        when(metadataCache.validate(U1, "NOPE", "customfield_1")).thenReturn(new JiraMetadataCache.Validation(true,
+                Map.of("project_block", "No Jira project with key NOPE.")));
+        String payload = """
+                {"type":"view_submission","team":{"id":"T1"},"user":{"id":"U1"},
+                 "view":{"id":"V2","callback_id":"jira_mapping_submit","state":{"values":{
+                   "project_block":{"project_input":{"selected_option":{"value":"NOPE"}}},
+                   "progress_field_block":{"progress_field_input":{"selected_option":{"value":"customfield_1"}}}}}}}
+                """;
+
+        mockMvc.perform(signed("/slack/interactions", "payload=" + URLEncoder.encode(payload, StandardCharsets.UTF_8)))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"response_action\":\"errors\",\"errors\":{\"project_block\":\"No Jira project with key NOPE.\"}}"));
+
+        verify(dispatcher, times(0)).dispatch(eq("T1"), eq("jira_mapping_submit"), any(), any());
+    }
+
+    @Test
+    void shouldServeProjectOptionsFromMetadataCache() throws Exception {
+        when(metadataCache.suggestProjects(U1, "ab")).thenReturn(List.of(new JiraMetadataCache.Entry("ABC", "Alpha \"Beta\"")));
+        String payload = "{\"type\":\"block_suggestion\",\"user\":{\"id\":\"U1\"},\"team\":{\"id\":\"T1\"},"
+                + "\"block_id\":\"project_block\",\"action_id\":\"project_input\",\"value\":\"ab\"}";
+
+        mockMvc.perform(signed("/slack/options", "payload=" + URLEncoder.encode(payload, StandardCharsets.UTF_8)))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"options\":[{\"text\":{\"type\":\"plain_text\",\"text\":\"Alpha \\\"Beta\\\" (ABC)\"},\"value\":\"ABC\"}]}"));
+    }
+
+    private static MockHttpServletRequestBuilder signed(String path, String body) throws Exception {
+        String ts = String.valueOf(Instant.now().getEpochSecond());
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec("secret".getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        String signature = "v0=" + HexFormat.of().formatHex(
+                mac.doFinal(("v0:" + ts + ":" + body).getBytes(StandardCharsets.UTF_8)));
+        return post(path)
+                .header("X-Slack-Request-Timestamp", ts)
+                .header("X-Slack-Signature", signature)
+                .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                .content(body);
     }
 }
@@ -0,0 +1,85 @@
+package com.mlorenc.slack.jira.bot.controller;
+
+import com.mlorenc.slack.jira.bot.config.BotProperties;
+import com.mlorenc.slack.jira.bot.core.SlackMetrics;
+import com.mlorenc.slack.jira.bot.core.SlackSignatureVerifier;
+import com.mlorenc.slack.jira.bot.service.SlackInstallationStore;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.cookie;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(SlackInstallController.class)
+class SlackInstallControllerWebTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private SlackInstallationStore installations;
+    @MockBean
+    private SlackSignatureVerifier verifier;
+    @MockBean
+    private SlackMetrics metrics;
+    @MockBean
+    private BotProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        when(properties.oauthStates()).thenReturn(new BotProperties.OAuthStates("memory", Duration.ofMinutes(10),
+                Duration.ofSeconds(1), Duration.ofMinutes(5), 500));
+        when(properties.slack()).thenReturn(new BotProperties.Slack("token", "secret", "client", "client-secret",
+                "https://bot.example/slack/oauth/callback", "commands", "https://slack.test/oauth/v2/authorize"));
+        when(installations.authorizationUrl(anyString())).thenAnswer(invocation -> "https://slack.test/authorize?state="
+                + invocation.getArgument(0));
+    }
+
+    @Test
+    void shouldInstallWhenTheStateMatchesTheBrowsersCookie() throws Exception {
+        MvcResult install = mockMvc.perform(get("/slack/install"))
+                .andExpect(status().isFound())
+                .andExpect(cookie().httpOnly(SlackInstallController.STATE_COOKIE, true))
+                .andExpect(cookie().secure(SlackInstallController.STATE_COOKIE, true))
+                .andReturn();
+        String state = install.getResponse().getCookie(SlackInstallController.STATE_COOKIE).getValue();
+        assertThat(install.getResponse().getHeader("Location")).isEqualTo("https://slack.test/authorize?state=" + state);
+
+        mockMvc.perform(get("/slack/oauth/callback").param("code", "abc").param("state", state)
+                        .cookie(new Cookie(SlackInstallController.STATE_COOKIE, state)))
+                .andExpect(status().isOk())
+                .andExpect(cookie().maxAge(SlackInstallController.STATE_COOKIE, 0));
+
+        verify(installations).install("abc");
+    }
+
+    @Test
+    void shouldRejectACallbackWithoutTheMatchingState() throws Exception {
+        mockMvc.perform(get("/slack/oauth/callback").param("code", "abc").param("state", "forged"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/slack/oauth/callback").param("code", "abc").param("state", "forged")
+                        .cookie(new Cookie(SlackInstallController.STATE_COOKIE, "issued")))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/slack/oauth/callback").param("code", "abc")
+                        .cookie(new Cookie(SlackInstallController.STATE_COOKIE, "issued")))
+                .andExpect(status().isBadRequest())
+                .andExpect(header().exists("Set-Cookie"));
+
+        verify(installations, never()).install(anyString());
+    }
+}
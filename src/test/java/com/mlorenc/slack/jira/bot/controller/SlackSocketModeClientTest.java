@@ -0,0 +1,199 @@
+package com.mlorenc.slack.jira.bot.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mlorenc.slack.jira.bot.config.BotProperties;
+import com.mlorenc.slack.jira.bot.config.TestBotProperties;
+import com.mlorenc.slack.jira.bot.core.SlackApiClient;
+import com.mlorenc.slack.jira.bot.core.SlackInteraction;
+import com.mlorenc.slack.jira.bot.core.SlackInteractionParser;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SlackSocketModeClientTest {
+
+    private final ObjectMapper om = new ObjectMapper();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final SlackInboundHandler handler = mock(SlackInboundHandler.class);
+    private final List<String> openCalls = new CopyOnWriteArrayList<>();
+    private StubSocketModeServer socketServer;
+    private HttpServer apiServer;
+    private SlackApiClient apiClient;
+    private SlackSocketModeClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        socketServer = new StubSocketModeServer();
+        apiServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        apiServer.createContext("/api/apps.connections.open", exchange -> {
+            openCalls.add(exchange.getRequestHeaders().getFirst("Authorization"));
+            byte[] body = ("{\"ok\":true,\"url\":\"" + socketServer.url() + "\"}").getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        apiServer.start();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (client != null) client.destroy();
+        apiClient.destroy();
+        apiServer.stop(0);
+        socketServer.close();
+    }
+
+    @Test
+    void shouldOpenEveryConfiguredConnectionWithTheAppToken() throws Exception {
+        start(3);
+        for (int i = 0; i < 3; i++) socketServer.awaitConnection();
+
+        assertThat(openCalls).hasSize(3).containsOnly("Bearer xapp-1");
+        awaitOpen(3);
+    }
+
+    @Test
+    void shouldAckSlashCommandWithTheHandlersResponse() throws Exception {
+        when(handler.command(any(), isNull())).thenReturn("{\"response_type\":\"ephemeral\",\"text\":\"Opening...\"}");
+        start(1);
+        StubSocketModeServer.Connection connection = socketServer.awaitConnection();
+
+        connection.send("{\"envelope_id\":\"e-1\",\"type\":\"slash_commands\",\"accepts_response_payload\":true,"
+                + "\"payload\":{\"command\":\"/jira\",\"text\":\"map\",\"trigger_id\":\"T1\",\"user_id\":\"U1\"}}");
+
+        assertThat(om.readTree(connection.awaitMessage())).isEqualTo(om.readTree(
+                "{\"envelope_id\":\"e-1\",\"payload\":{\"response_type\":\"ephemeral\",\"text\":\"Opening...\"}}"));
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Function<String, String>> fields = ArgumentCaptor.forClass(Function.class);
+        verify(handler).command(fields.capture(), isNull());
+        assertThat(fields.getValue().apply("trigger_id")).isEqualTo("T1");
+        assertThat(fields.getValue().apply("user_id")).isEqualTo("U1");
+        assertThat(fields.getValue().apply("response_url")).isNull();
+    }
+
+    @Test
+    void shouldPassRetryAttemptsToTheHandler() throws Exception {
+        when(handler.command(any(), eq("2"))).thenReturn("{\"text\":\"again\"}");
+        start(1);
+        StubSocketModeServer.Connection connection = socketServer.awaitConnection();
+
+        connection.send("{\"envelope_id\":\"e-2\",\"type\":\"slash_commands\",\"retry_attempt\":2,"
+                + "\"payload\":{\"command\":\"/jira\",\"text\":\"map\",\"trigger_id\":\"T1\"}}");
+
+        assertThat(connection.awaitMessage()).isEqualTo("{\"envelope_id\":\"e-2\",\"payload\":{\"text\":\"again\"}}");
+    }
+
+    @Test
+    void shouldRouteBlockSuggestionsToOptionsAndOtherInteractionsToInteraction() throws Exception {
+        when(handler.options(any())).thenReturn("{\"options\":[]}");
+        when(handler.interaction(any())).thenReturn("");
+        start(1);
+        StubSocketModeServer.Connection connection = socketServer.awaitConnection();
+
+        connection.send("{\"envelope_id\":\"e-3\",\"type\":\"interactive\",\"payload\":{\"type\":\"block_suggestion\","
+                + "\"user\":{\"id\":\"U1\"},\"action_id\":\"project_input\",\"value\":\"AB\"}}");
+        assertThat(connection.awaitMessage()).isEqualTo("{\"envelope_id\":\"e-3\",\"payload\":{\"options\":[]}}");
+
+        connection.send("{\"envelope_id\":\"e-4\",\"type\":\"interactive\",\"payload\":{\"type\":\"view_submission\","
+                + "\"user\":{\"id\":\"U1\"},\"view\":{\"id\":\"V1\",\"callback_id\":\"jira_mapping_submit\"}}}");
+        assertThat(connection.awaitMessage()).isEqualTo("{\"envelope_id\":\"e-4\"}");
+
+        ArgumentCaptor<SlackInteraction> interaction = ArgumentCaptor.forClass(SlackInteraction.class);
+        verify(handler).interaction(interaction.capture());
+        assertThat(interaction.getValue()).isInstanceOfSatisfying(SlackInteraction.ViewSubmission.class,
+                view -> assertThat(view.viewId()).isEqualTo("V1"));
+    }
+
+    @Test
+    void shouldAckEnvelopesTheHandlerFailsOn() throws Exception {
+        when(handler.command(any(), any())).thenThrow(new IllegalStateException("boom"));
+        start(1);
+        StubSocketModeServer.Connection connection = socketServer.awaitConnection();
+
+        connection.send("{\"envelope_id\":\"e-5\",\"type\":\"slash_commands\",\"payload\":{\"command\":\"/jira\"}}");
+
+        assertThat(connection.awaitMessage()).isEqualTo("{\"envelope_id\":\"e-5\"}");
+        assertThat(client.stats().failedEnvelopes()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldReconnectWhenTheConnectionIsLost() throws Exception {
+        start(1);
+        socketServer.awaitConnection().drop();
+
+        StubSocketModeServer.Connection second = socketServer.awaitConnection();
+        second.send("{\"envelope_id\":\"e-6\",\"type\":\"events_api\",\"payload\":{}}");
+
+        assertThat(second.awaitMessage()).isEqualTo("{\"envelope_id\":\"e-6\"}");
+        assertThat(openCalls).hasSize(2);
+        awaitOpen(1);
+    }
+
+    @Test
+    void shouldReplaceAConnectionThatStopsAnsweringPings() throws Exception {
+        start(1);
+        socketServer.awaitConnection().mute();
+
+        StubSocketModeServer.Connection second = socketServer.awaitConnection();
+        second.send("{\"envelope_id\":\"e-8\",\"type\":\"events_api\",\"payload\":{}}");
+
+        assertThat(second.awaitMessage()).isEqualTo("{\"envelope_id\":\"e-8\"}");
+        awaitOpen(1);
+    }
+
+    @Test
+    void shouldReplaceTheConnectionBeforeClosingItOnDisconnect() throws Exception {
+        start(1);
+        StubSocketModeServer.Connection first = socketServer.awaitConnection();
+
+        first.send("{\"type\":\"disconnect\",\"reason\":\"refresh_requested\"}");
+        StubSocketModeServer.Connection second = socketServer.awaitConnection();
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!first.closedByClient() && System.nanoTime() < deadline) Thread.sleep(10);
+        assertThat(first.closedByClient()).isTrue();
+        second.send("{\"envelope_id\":\"e-7\",\"type\":\"events_api\",\"payload\":{}}");
+        assertThat(second.awaitMessage()).isEqualTo("{\"envelope_id\":\"e-7\"}");
+        awaitOpen(1);
+    }
+
+    private void start(int connections) {
+        String base = "http://127.0.0.1:" + apiServer.getAddress().getPort() + "/api";
+        BotProperties properties = TestBotProperties.builder()
+                .slackApi(new BotProperties.SlackApi(base, Duration.ofSeconds(2), Duration.ofSeconds(5), 2))
+                .socketMode(new BotProperties.SocketMode(true, "xapp-1", connections, 2, Duration.ofMillis(10),
+                        Duration.ofMillis(100), Duration.ofMillis(500)))
+                .build();
+        apiClient = new SlackApiClient(om, properties, registry, false);
+        client = new SlackSocketModeClient(handler, new SlackInteractionParser(om), apiClient, om, properties,
+                registry, false);
+        client.start();
+    }
+
+    private void awaitOpen(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (client.stats().open() != expected && System.nanoTime() < deadline) Thread.sleep(10);
+        assertThat(client.stats().open()).isEqualTo(expected);
+    }
+}
@@ -0,0 +1,74 @@
+package com.mlorenc.slack.jira.bot.controller;
+
+import com.mlorenc.slack.jira.bot.config.BotProperties;
+import com.mlorenc.slack.jira.bot.config.TestBotProperties;
+import com.mlorenc.slack.jira.bot.core.SlackMetrics;
+import com.mlorenc.slack.jira.bot.core.SlackSignatureVerifier;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class SlackVerificationFilterTest {
+
+    private final SlackSignatureVerifier verifier = new SlackSignatureVerifier();
+    private final SlackVerificationFilter filter = new SlackVerificationFilter(verifier, TestBotProperties.builder()
+            .slack(new BotProperties.Slack("bot", "secret", null, null, null, null, null))
+            .build(), mock(SlackMetrics.class));
+
+    @Test
+    void shouldReturnTheSignerWhenTheBodyReadFails() {
+        String timestamp = String.valueOf(Instant.now().getEpochSecond());
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/slack/commands") {
+            @Override
+            public ServletInputStream getInputStream() {
+                return new AbortedInputStream();
+            }
+        };
+        request.addHeader("X-Slack-Request-Timestamp", timestamp);
+        FilterChain chain = mock(FilterChain.class);
+
+        assertThatThrownBy(() -> filter.doFilter(request, new MockHttpServletResponse(), chain))
+                .isInstanceOf(IOException.class);
+
+        verifyNoInteractions(chain);
+        verifier.start("secret", timestamp).release();
+        assertThat(verifier.stats().created()).isEqualTo(1);
+        assertThat(verifier.stats().reused()).isEqualTo(1);
+    }
+
+    // the client goes away after a few bytes of the body
+    private static final class AbortedInputStream extends ServletInputStream {
+        private int read;
+
+        @Override
+        public int read() throws IOException {
+            if (read++ < 3) return 'a';
+            throw new IOException("Connection reset");
+        }
+
+        @Override
+        public boolean isFinished() {
+            return false;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setReadListener(ReadListener listener) {
+        }
+    }
+}
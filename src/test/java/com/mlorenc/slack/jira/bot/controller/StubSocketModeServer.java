@@ -0,0 +1,197 @@
+package com.mlorenc.slack.jira.bot.controller;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A local WebSocket server playing Slack's side of Socket Mode: it upgrades every connection,
+ * greets it with {@code hello} and records the text frames the client sends back. Just enough of
+ * RFC 6455 for the JDK client: unfragmented text frames, ping and close.
+ */
+class StubSocketModeServer implements AutoCloseable {
+
+    private static final String ACCEPT_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+
+    private final ServerSocket server;
+    private final List<Connection> connections = new CopyOnWriteArrayList<>();
+    private final BlockingQueue<Connection> accepted = new LinkedBlockingQueue<>();
+    private final Thread acceptor;
+
+    StubSocketModeServer() throws IOException {
+        server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        acceptor = Thread.ofPlatform().name("stub-socket-mode").daemon().start(this::acceptLoop);
+    }
+
+    String url() {
+        return "ws://127.0.0.1:" + server.getLocalPort() + "/link";
+    }
+
+    Connection awaitConnection() throws InterruptedException {
+        Connection connection = accepted.poll(5, TimeUnit.SECONDS);
+        if (connection == null) throw new AssertionError("No Socket Mode connection within 5s");
+        return connection;
+    }
+
+    private void acceptLoop() {
+        while (!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                Thread.ofPlatform().daemon().start(() -> serve(socket));
+            } catch (IOException ex) {
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try {
+            InputStream in = socket.getInputStream();
+            String key = null;
+            for (String line = readLine(in); !line.isEmpty(); line = readLine(in)) {
+                if (line.regionMatches(true, 0, "Sec-WebSocket-Key:", 0, 18)) {
+                    key = line.substring(18).trim();
+                }
+            }
+            OutputStream out = socket.getOutputStream();
+            out.write(("HTTP/1.1 101 Switching Protocols\r\nUpgrade: websocket\r\nConnection: Upgrade\r\n"
+                    + "Sec-WebSocket-Accept: " + accept(key) + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            Connection connection = new Connection(socket);
+            connections.add(connection);
+            connection.send("{\"type\":\"hello\",\"num_connections\":" + connections.size() + "}");
+            accepted.add(connection);
+            connection.readFrames(new DataInputStream(in));
+        } catch (IOException ex) {
+            // client went away
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != -1 && b != '\n') {
+            if (b != '\r') line.write(b);
+        }
+        if (b == -1) throw new IOException("Connection closed during handshake");
+        return line.toString(StandardCharsets.US_ASCII);
+    }
+
+    private static String accept(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest((key + ACCEPT_GUID).getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+        for (Connection connection : connections) {
+            connection.drop();
+        }
+        acceptor.interrupt();
+    }
+
+    static final class Connection {
+
+        private final Socket socket;
+        private final BlockingQueue<String> received = new LinkedBlockingQueue<>();
+        private volatile boolean closedByClient;
+        private volatile boolean muted;
+
+        private Connection(Socket socket) {
+            this.socket = socket;
+        }
+
+        void send(String text) throws IOException {
+            writeFrame(0x1, text.getBytes(StandardCharsets.UTF_8));
+        }
+
+        /**
+         * The next text frame from the client, such as an envelope ack.
+         */
+        String awaitMessage() throws InterruptedException {
+            String message = received.poll(5, TimeUnit.SECONDS);
+            if (message == null) throw new AssertionError("No message from the client within 5s");
+            return message;
+        }
+
+        boolean closedByClient() {
+            return closedByClient;
+        }
+
+        // stops answering pings while the TCP connection stays up, like a proxy that lost the session
+        void mute() {
+            muted = true;
+        }
+
+        // without a close frame, like a lost network path
+        void drop() throws IOException {
+            socket.close();
+        }
+
+        private void readFrames(DataInputStream in) throws IOException {
+            while (true) {
+                int first = in.readUnsignedByte();
+                int second = in.readUnsignedByte();
+                long length = second & 0x7F;
+                if (length == 126) length = in.readUnsignedShort();
+                else if (length == 127) length = in.readLong();
+                byte[] mask = new byte[4];
+                if ((second & 0x80) != 0) in.readFully(mask);
+                byte[] payload = new byte[(int) length];
+                in.readFully(payload);
+                for (int i = 0; i < payload.length; i++) payload[i] ^= mask[i % 4];
+                switch (first & 0x0F) {
+                    case 0x1 -> received.add(new String(payload, StandardCharsets.UTF_8));
+                    case 0x8 -> {
+                        closedByClient = true;
+                        writeFrame(0x8, payload);
+                        return;
+                    }
+                    case 0x9 -> {
+                        if (!muted) writeFrame(0xA, payload);
+                    }
+                    default -> {
+                    }
+                }
+            }
+        }
+
+        private synchronized void writeFrame(int opcode, byte[] payload) throws IOException {
+            OutputStream out = socket.getOutputStream();
+            out.write(0x80 | opcode);
+            if (payload.length < 126) {
+                out.write(payload.length);
+            } else {
+                out.write(126);
+                out.write(payload.length >>> 8);
+                out.write(payload.length & 0xFF);
+            }
+            out.write(payload);
+            out.flush();
+        }
+    }
+}
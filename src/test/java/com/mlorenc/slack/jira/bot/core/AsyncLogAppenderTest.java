@@ -0,0 +1,64 @@
+package com.mlorenc.slack.jira.bot.core;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.classic.util.LogbackMDCAdapter;
+import ch.qos.logback.core.AppenderBase;
+import ch.qos.logback.core.util.Duration;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AsyncLogAppenderTest {
+
+    @Test
+    void shouldDropEventsInsteadOfBlockingWhenTheRingBufferIsFull() throws InterruptedException {
+        LoggerContext context = new LoggerContext();
+        context.setMDCAdapter(new LogbackMDCAdapter());
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger written = new AtomicInteger();
+        AppenderBase<ILoggingEvent> slowOutput = new AppenderBase<>() {
+            @Override
+            protected void append(ILoggingEvent event) {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                written.incrementAndGet();
+            }
+        };
+        slowOutput.setContext(context);
+        slowOutput.start();
+
+        AsyncLogAppender appender = new AsyncLogAppender();
+        appender.setContext(context);
+        appender.setRingBufferSize(4);
+        appender.setAppendTimeout(Duration.buildByMilliseconds(0));
+        appender.addAppender(slowOutput);
+        appender.start();
+        AsyncLogAppender.Stats before = AsyncLogAppender.stats();
+
+        long startedAt = System.nanoTime();
+        for (int i = 0; i < 20; i++) {
+            appender.doAppend(new LoggingEvent(getClass().getName(), context.getLogger("test"), Level.INFO, "event " + i, null, null));
+        }
+        long elapsed = System.nanoTime() - startedAt;
+        AsyncLogAppender.Stats full = AsyncLogAppender.stats();
+        release.countDown();
+        appender.stop();
+
+        long queued = full.queued() - before.queued();
+        assertThat(queued + full.dropped() - before.dropped()).isEqualTo(20);
+        assertThat(full.dropped() - before.dropped()).isGreaterThan(0);
+        assertThat(full.pending()).isGreaterThan(0);
+        assertThat(elapsed).isLessThan(TimeUnit.SECONDS.toNanos(1));
+        assertThat(written.get()).isEqualTo((int) queued);
+    }
+}
@@ -0,0 +1,41 @@
+package com.mlorenc.slack.jira.bot.core;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClientExecutorsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void shouldRunTasksOnVirtualThreadsWhenEnabled() throws Exception {
+        ExecutorService executor = ClientExecutors.create(registry, "jira-http", 2, true);
+        try {
+            Thread thread = executor.submit(Thread::currentThread).get(5, TimeUnit.SECONDS);
+
+            assertThat(thread.isVirtual()).isTrue();
+            assertThat(thread.getName()).startsWith("jira-http-");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldUseTheFixedPlatformPoolOtherwise() throws Exception {
+        ExecutorService executor = ClientExecutors.create(registry, "slack-http", 2, false);
+        try {
+            Thread thread = executor.submit(Thread::currentThread).get(5, TimeUnit.SECONDS);
+
+            assertThat(thread.isVirtual()).isFalse();
+            assertThat(thread.isDaemon()).isTrue();
+            assertThat(registry.get("executor.pool.max").tag("name", "slack-http").gauge().value()).isEqualTo(2);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
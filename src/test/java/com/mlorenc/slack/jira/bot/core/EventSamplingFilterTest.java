@@ -0,0 +1,60 @@
+package com.mlorenc.slack.jira.bot.core;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.spi.FilterReply;
+import org.junit.jupiter.api.Test;
+import org.slf4j.event.KeyValuePair;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EventSamplingFilterTest {
+
+    private final LoggerContext context = new LoggerContext();
+    private final EventSamplingFilter filter = new EventSamplingFilter();
+
+    @Test
+    void shouldKeepOneInNEventsWithASampledKey() {
+        filter.setPolicies("slack.command.jira.connect=3, jira.progress.written=0");
+        long sampledOutBefore = EventSamplingFilter.sampledOut();
+
+        List<FilterReply> replies = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            replies.add(filter.decide(event(Level.INFO, "slack.command.jira.connect")));
+        }
+
+        assertThat(replies).containsExactly(FilterReply.NEUTRAL, FilterReply.DENY, FilterReply.DENY,
+                FilterReply.NEUTRAL, FilterReply.DENY, FilterReply.DENY);
+        assertThat(filter.decide(event(Level.INFO, "jira.progress.written"))).isEqualTo(FilterReply.DENY);
+        assertThat(EventSamplingFilter.sampledOut() - sampledOutBefore).isEqualTo(5);
+    }
+
+    @Test
+    void shouldPassWarningsAndUnlistedEvents() {
+        filter.setPolicies("jira.progress.failed=0");
+
+        assertThat(filter.decide(event(Level.WARN, "jira.progress.failed"))).isEqualTo(FilterReply.NEUTRAL);
+        assertThat(filter.decide(event(Level.INFO, "jira.progress.written"))).isEqualTo(FilterReply.NEUTRAL);
+        assertThat(filter.decide(event(Level.INFO, null))).isEqualTo(FilterReply.NEUTRAL);
+    }
+
+    @Test
+    void shouldIgnoreMalformedPolicies() {
+        filter.setContext(context);
+        filter.setPolicies("jira.progress.written, jira.progress.failed=often,slack.command.retry=0");
+
+        assertThat(filter.decide(event(Level.INFO, "jira.progress.written"))).isEqualTo(FilterReply.NEUTRAL);
+        assertThat(filter.decide(event(Level.INFO, "jira.progress.failed"))).isEqualTo(FilterReply.NEUTRAL);
+        assertThat(filter.decide(event(Level.INFO, "slack.command.retry"))).isEqualTo(FilterReply.DENY);
+    }
+
+    private LoggingEvent event(Level level, String eventKey) {
+        LoggingEvent event = new LoggingEvent(getClass().getName(), context.getLogger("test"), level, "message", null, null);
+        if (eventKey != null) event.addKeyValuePair(new KeyValuePair("event", eventKey));
+        return event;
+    }
+}
@@ -0,0 +1,25 @@
+package com.mlorenc.slack.jira.bot.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ObjectPoolTest {
+
+    @Test
+    void shouldReuseReleasedObjectsAndDropThoseBeyondCapacity() {
+        AtomicInteger sequence = new AtomicInteger();
+        ObjectPool<Integer> pool = new ObjectPool<>(1, sequence::incrementAndGet);
+
+        Integer first = pool.acquire();
+        Integer second = pool.acquire();
+        pool.release(first);
+        pool.release(second);
+
+        assertThat(pool.acquire()).isSameAs(first);
+        assertThat(pool.acquire()).isEqualTo(3);
+        assertThat(pool.stats()).isEqualTo(new ObjectPool.Stats(0, 3, 1));
+    }
+}
@@ -0,0 +1,105 @@
+package com.mlorenc.slack.jira.bot.core;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mlorenc.slack.jira.bot.config.BotProperties;
+import com.mlorenc.slack.jira.bot.config.TestBotProperties;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SlackApiClientTest {
+
+    private HttpServer server;
+    private SlackApiClient client;
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/views.open", exchange -> respond(exchange, 200, "{\"ok\":true,\"view\":{\"id\":\"V1\"}}"));
+        server.createContext("/api/chat.postMessage", exchange -> respond(exchange, 200, "{\"ok\":false,\"error\":\"channel_not_found\"}"));
+        server.createContext("/api/views.push", exchange -> {
+            exchange.getResponseHeaders().add("Retry-After", "7");
+            respond(exchange, 429, "{\"ok\":false,\"error\":\"ratelimited\"}");
+        });
+        server.createContext("/hooks/response", exchange -> respond(exchange, 200, "ok"));
+        server.start();
+
+        String base = "http://127.0.0.1:" + server.getAddress().getPort();
+        BotProperties properties = TestBotProperties.builder()
+                .slackApi(new BotProperties.SlackApi(base + "/api", Duration.ofSeconds(2), Duration.ofSeconds(5), 2))
+                .build();
+        client = new SlackApiClient(new ObjectMapper(), properties, registry, false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.destroy();
+        server.stop(0);
+    }
+
+    @Test
+    void shouldReuseOneConnectionAcrossCalls() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            JsonNode body = client.sendAsync("views.open", "xoxb-1", "{\"trigger_id\":\"T" + i + "\"}").get();
+            assertThat(body.path("view").path("id").asText()).isEqualTo("V1");
+        }
+        client.post("http://127.0.0.1:" + server.getAddress().getPort() + "/hooks/response", "{\"text\":\"done\"}");
+
+        assertThat(requests).hasSize(6).first().asString().contains("Bearer xoxb-1").contains("T0");
+        assertThat(clientPorts).hasSize(1);
+    }
+
+    @Test
+    void shouldFailWithSlackErrorAndRecordLatencyPerMethod() throws Exception {
+        client.send("views.open", "xoxb-1", "{}");
+
+        assertThatThrownBy(() -> client.send("chat.postMessage", "xoxb-1", "{}"))
+                .isInstanceOfSatisfying(SlackApiException.class, ex -> {
+                    assertThat(ex.getMethod()).isEqualTo("chat.postMessage");
+                    assertThat(ex.getError()).isEqualTo("channel_not_found");
+                });
+        assertThatThrownBy(() -> client.send("views.push", "xoxb-1", "{}"))
+                .isInstanceOfSatisfying(SlackApiException.class, ex -> {
+                    assertThat(ex.isRateLimited()).isTrue();
+                    assertThat(ex.getRetryAfter()).isEqualTo(Duration.ofSeconds(7));
+                });
+        assertThat(registry.get("bot.slack.api.calls").timers()).extracting(timer -> timer.getId().getTag("method"))
+                .containsExactlyInAnyOrder("chat.postMessage", "views.open", "views.push");
+        assertThat(registry.get("bot.slack.api.calls").tags("method", "views.open", "outcome", "ok").timer().count())
+                .isEqualTo(1);
+        assertThat(registry.get("bot.slack.api.calls").tags("method", "views.push", "outcome", "rate_limited").timer().count())
+                .isEqualTo(1);
+        assertThat(registry.get("bot.slack.api.calls").tags("method", "chat.postMessage", "outcome", "error").timer().count())
+                .isEqualTo(1);
+    }
+
+    private void respond(HttpExchange exchange, int status, String body) throws IOException {
+        String request = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        requests.add(exchange.getRequestHeaders().getFirst("Authorization") + " " + request);
+        clientPorts.add(exchange.getRemoteAddress().getPort());
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
+}
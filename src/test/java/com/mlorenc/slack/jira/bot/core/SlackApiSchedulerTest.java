@@ -0,0 +1,140 @@
+package com.mlorenc.slack.jira.bot.core;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.mlorenc.slack.jira.bot.config.BotProperties;
+import com.mlorenc.slack.jira.bot.config.TestBotProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class SlackApiSchedulerTest {
+
+    private static final JsonNode OK = JsonNodeFactory.instance.objectNode().put("ok", true);
+
+    private SlackApiClient api;
+    private SlackApiScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        api = mock(SlackApiClient.class);
+        scheduler = scheduler(Duration.ofSeconds(5), Duration.ofSeconds(5));
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.destroy();
+    }
+
+    @Test
+    void shouldSpaceCallsOnceBurstIsSpent() {
+        long now = System.nanoTime();
+        SlackApiScheduler.Bucket bucket = new SlackApiScheduler.Bucket("w", "views.open", SlackApiScheduler.Tier.TIER_4, now);
+        for (int i = 0; i < 25; i++) {
+            assertThat(bucket.reserve(now)).isZero();
+        }
+
+        assertThat(bucket.reserve(now)).isEqualTo(TimeUnit.MILLISECONDS.toNanos(600));
+        assertThat(bucket.reserve(now)).isEqualTo(TimeUnit.MILLISECONDS.toNanos(1200));
+        bucket.pauseFor(TimeUnit.SECONDS.toNanos(3), now);
+        assertThat(bucket.reserve(now)).isEqualTo(TimeUnit.SECONDS.toNanos(3));
+    }
+
+    @Test
+    void shouldRetryAfterRateLimitResponse() throws Exception {
+        when(api.sendAsync(eq("views.open"), eq("xoxb-1"), any(byte[].class)))
+                .thenReturn(CompletableFuture.failedFuture(new SlackApiException("views.open", 429, "ratelimited", Duration.ofMillis(20))))
+                .thenReturn(CompletableFuture.completedFuture(OK));
+
+        long startedAt = System.nanoTime();
+        JsonNode body = scheduler.send("views.open", "xoxb-1", "{}");
+
+        assertThat(body).isEqualTo(OK);
+        assertThat(System.nanoTime() - startedAt).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(20));
+        assertThat(scheduler.stats()).singleElement().satisfies(stats -> {
+            assertThat(stats.method()).isEqualTo("views.open");
+            assertThat(stats.sent()).isEqualTo(2);
+            assertThat(stats.rateLimited()).isEqualTo(1);
+            assertThat(stats.queued()).isZero();
+            assertThat(stats.maxWaitMillis()).isGreaterThanOrEqualTo(19);
+        });
+    }
+
+    @Test
+    void shouldRetryWhenRetryAfterExceedsTheQueueWaitForNewCalls() throws Exception {
+        scheduler.destroy();
+        scheduler = scheduler(Duration.ofMillis(10), Duration.ofSeconds(2));
+        when(api.sendAsync(eq("views.open"), eq("xoxb-1"), any(byte[].class)))
+                .thenReturn(CompletableFuture.failedFuture(new SlackApiException("views.open", 429, "ratelimited", Duration.ofMillis(200))))
+                .thenReturn(CompletableFuture.completedFuture(OK));
+
+        assertThat(scheduler.send("views.open", "xoxb-1", "{}")).isEqualTo(OK);
+
+        verify(api, times(2)).sendAsync(anyString(), anyString(), any(byte[].class));
+        assertThat(scheduler.stats()).singleElement().satisfies(stats -> {
+            assertThat(stats.rateLimited()).isEqualTo(1);
+            assertThat(stats.rejected()).isZero();
+        });
+    }
+
+    @Test
+    void shouldNotRetryWhenRetryAfterExceedsTheRetryWait() {
+        when(api.sendAsync(anyString(), anyString(), any(byte[].class)))
+                .thenReturn(CompletableFuture.failedFuture(new SlackApiException("views.open", 429, "ratelimited", Duration.ofSeconds(30))));
+
+        assertThatThrownBy(() -> scheduler.send("views.open", "xoxb-1", "{}"))
+                .isInstanceOfSatisfying(SlackApiException.class, ex -> assertThat(ex.getRetryAfter()).isEqualTo(Duration.ofSeconds(30)));
+        verify(api, times(1)).sendAsync(anyString(), anyString(), any(byte[].class));
+        assertThat(scheduler.stats()).singleElement().satisfies(stats -> assertThat(stats.rejected()).isEqualTo(1));
+    }
+
+    @Test
+    void shouldGiveUpAfterMaxRetries() {
+        when(api.sendAsync(anyString(), anyString(), any(byte[].class)))
+                .thenAnswer(inv -> CompletableFuture.failedFuture(new SlackApiException("views.open", 429, "ratelimited", null)));
+
+        assertThatThrownBy(() -> scheduler.send("views.open", "xoxb-1", "{}"))
+                .isInstanceOfSatisfying(SlackApiException.class, ex -> assertThat(ex.isRateLimited()).isTrue());
+        verify(api, times(3)).sendAsync(anyString(), anyString(), any(byte[].class));
+    }
+
+    @Test
+    void shouldRejectCallsThatWouldWaitTooLong() throws Exception {
+        when(api.sendAsync(anyString(), anyString(), any(byte[].class))).thenReturn(CompletableFuture.completedFuture(OK));
+
+        scheduler.send("apps.connections.open", "xapp-1", "{}");
+
+        assertThatThrownBy(() -> scheduler.send("apps.connections.open", "xapp-1", "{}"))
+                .isInstanceOfSatisfying(SlackApiException.class, ex -> assertThat(ex.getRetryAfter()).isPositive());
+        // another workspace has its own bucket
+        scheduler.send("apps.connections.open", "xapp-2", "{}");
+        assertThat(scheduler.stats()).extracting(SlackApiScheduler.QueueStats::rejected).containsExactlyInAnyOrder(1L, 0L);
+        verify(api, times(2)).sendAsync(anyString(), anyString(), any(byte[].class));
+    }
+
+    @Test
+    void shouldFailFastOnOtherErrors() {
+        when(api.sendAsync(anyString(), anyString(), any(byte[].class)))
+                .thenReturn(CompletableFuture.failedFuture(new SlackApiException("views.open", 200, "expired_trigger_id")));
+
+        assertThatThrownBy(() -> scheduler.send("views.open", "xoxb-1", "{}"))
+                .isInstanceOfSatisfying(SlackApiException.class, ex -> assertThat(ex.getError()).isEqualTo("expired_trigger_id"));
+        verify(api, times(1)).sendAsync(anyString(), anyString(), any(byte[].class));
+    }
+
+    private SlackApiScheduler scheduler(Duration maxQueueWait, Duration maxRetryWait) {
+        BotProperties properties = TestBotProperties.builder()
+                .slackRateLimit(new BotProperties.SlackRateLimit(maxQueueWait, 2, Duration.ofMillis(10), maxRetryWait))
+                .build();
+        return new SlackApiScheduler(api, properties);
+    }
+}
@@ -0,0 +1,139 @@
+package com.mlorenc.slack.jira.bot.core;
+
+import com.mlorenc.slack.jira.bot.config.BotProperties;
+import com.mlorenc.slack.jira.bot.config.TestBotProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.Mockito.*;
+
+class SlackCommandDispatcherTest {
+
+    private SlackService slackService;
+    private SlackCommandDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        slackService = mock(SlackService.class);
+        dispatcher = dispatcher(new BotProperties.Dispatch(1, 1, 100, 100));
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        dispatcher.destroy();
+    }
+
+    @Test
+    void shouldRejectWorkOnceCommandQueueIsFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        SlackCommandDispatcher.SlackTask blocking = () -> {
+            release.await();
+            return null;
+        };
+
+        assertThat(dispatcher.dispatch("T1", "jira.connect", null, blocking)).isTrue();
+        assertThat(dispatcher.dispatch("T1", "jira.connect", null, blocking)).isTrue();
+        assertThat(dispatcher.dispatch("T1", "jira.connect", null, blocking)).isFalse();
+        assertThat(dispatcher.dispatch("T1", "jira.map", null, () -> null)).isTrue();
+
+        assertThat(dispatcher.stats())
+                .filteredOn(stats -> stats.command().equals("jira.connect"))
+                .singleElement()
+                .satisfies(stats -> assertThat(stats.rejected()).isEqualTo(1));
+        release.countDown();
+    }
+
+    @Test
+    void shouldGiveEveryWorkspaceItsOwnLane() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        SlackCommandDispatcher.SlackTask blocking = () -> {
+            release.await();
+            return null;
+        };
+
+        assertThat(dispatcher.dispatch("T1", "jira.connect", null, blocking)).isTrue();
+        assertThat(dispatcher.dispatch("T1", "jira.connect", null, blocking)).isTrue();
+        assertThat(dispatcher.dispatch("T1", "jira.connect", null, blocking)).isFalse();
+        assertThat(dispatcher.dispatch("T2", "jira.connect", null, blocking)).isTrue();
+
+        assertThat(dispatcher.stats())
+                .filteredOn(stats -> stats.command().equals("jira.connect"))
+                .extracting(SlackCommandDispatcher.LaneStats::teamId, SlackCommandDispatcher.LaneStats::rejected)
+                .containsExactlyInAnyOrder(tuple("T1", 1L), tuple("T2", 0L));
+        release.countDown();
+    }
+
+    @Test
+    void shouldSplitTheTotalCapacityBetweenBusyWorkspaces() throws Exception {
+        dispatcher.destroy();
+        dispatcher = dispatcher(new BotProperties.Dispatch(10, 10, 4, 2));
+        CountDownLatch release = new CountDownLatch(1);
+        SlackCommandDispatcher.SlackTask blocking = () -> {
+            release.await();
+            return null;
+        };
+
+        for (int i = 0; i < 2; i++) {
+            assertThat(dispatcher.dispatch("T1", "jira.connect", null, blocking)).isTrue();
+        }
+        assertThat(dispatcher.dispatch("T2", "jira.connect", null, blocking)).isTrue();
+        // two busy lanes share four slots: T1 already holds its two
+        assertThat(dispatcher.dispatch("T1", "jira.connect", null, blocking)).isFalse();
+        assertThat(dispatcher.dispatch("T2", "jira.connect", null, blocking)).isTrue();
+        assertThat(dispatcher.dispatch("T3", "jira.connect", null, blocking)).isFalse();
+        assertThat(dispatcher.stats()).extracting(SlackCommandDispatcher.LaneStats::active).allMatch(active -> active <= 2);
+        assertThat(dispatcher.totals().rejected()).isEqualTo(2);
+        release.countDown();
+    }
+
+    @Test
+    void shouldDropLanesOnceTheyDrain() throws Exception {
+        CountDownLatch done = new CountDownLatch(2);
+        dispatcher.dispatch("T1", "jira.connect", null, () -> {
+            done.countDown();
+            return null;
+        });
+        dispatcher.dispatch("T2", "jira.map", null, () -> {
+            done.countDown();
+            throw new IllegalStateException("boom");
+        });
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        await(() -> dispatcher.stats().isEmpty());
+        assertThat(dispatcher.totals()).isEqualTo(new SlackCommandDispatcher.Totals(1, 1, 0));
+        assertThat(dispatcher.dispatch("T1", "jira.connect", null, () -> null)).isTrue();
+    }
+
+    @Test
+    void shouldPostLateResultToResponseUrl() throws Exception {
+        CountDownLatch posted = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            posted.countDown();
+            return null;
+        }).when(slackService).postToResponseUrl(anyString(), anyString());
+
+        dispatcher.dispatch("T1", "jira.connect", "https://hooks.slack.test/1", () -> "Done");
+
+        assertThat(posted.await(5, TimeUnit.SECONDS)).isTrue();
+        verify(slackService).postToResponseUrl("https://hooks.slack.test/1", "Done");
+    }
+
+    private SlackCommandDispatcher dispatcher(BotProperties.Dispatch dispatch) {
+        return new SlackCommandDispatcher(TestBotProperties.builder().dispatch(dispatch).build(), slackService);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+}
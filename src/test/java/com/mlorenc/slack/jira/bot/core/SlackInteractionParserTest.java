@@ -0,0 +1,120 @@
+package com.mlorenc.slack.jira.bot.core;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SlackInteractionParserTest {
+
+    private final SlackInteractionParser parser = new SlackInteractionParser(new ObjectMapper());
+
+    @Test
+    void shouldBindViewSubmissionState() throws Exception {
+        String payload = """
+                {
+                  "type": "view_submission",
+                  "team": { "id": "T1", "domain": "example" },
+                  "user": { "id": "U1", "name": "steve" },
+                  "view": {
+                    "id": "V1",
+                    "callback_id": "jira_mapping_submit",
+                    "blocks": [ { "type": "input", "block_id": "project_block", "element": { "type": "plain_text_input" } } ],
+                    "state": {
+                      "values": {
+                        "project_block": { "project_input": { "type": "plain_text_input", "value": "ABC" } },
+                        "progress_field_block": {
+                          "progress_field_input": { "type": "external_select", "selected_option": { "text": { "type": "plain_text", "text": "Progress" }, "value": "customfield_10042" } }
+                        }
+                      }
+                    }
+                  },
+                  "response_urls": []
+                }
+                """;
+
+        SlackInteraction interaction = parser.parse(payload);
+
+        assertThat(interaction).isInstanceOfSatisfying(SlackInteraction.ViewSubmission.class, view -> {
+            assertThat(view.userId()).isEqualTo("U1");
+            assertThat(view.teamId()).isEqualTo("T1");
+            assertThat(view.viewId()).isEqualTo("V1");
+            assertThat(view.callbackId()).isEqualTo("jira_mapping_submit");
+            assertThat(view.value("project_block", "project_input")).isEqualTo("ABC");
+            assertThat(view.value("progress_field_block", "progress_field_input")).isEqualTo("customfield_10042");
+            assertThat(view.value("missing_block", "x")).isEmpty();
+        });
+    }
+
+    @Test
+    void shouldBindBlockActions() throws Exception {
+        String payload = """
+                {"type":"block_actions","user":{"id":"U2"},"team":{"id":"T2"},"trigger_id":"trig",
+                 "response_url":"https://hooks.slack.test/a",
+                 "actions":[{"action_id":"open_jira_oauth","block_id":"b1","value":"go","type":"button"}],
+                 "message":{"blocks":[{"type":"section"}]}}
+                """;
+
+        SlackInteraction interaction = parser.parse(payload);
+
+        assertThat(interaction).isInstanceOfSatisfying(SlackInteraction.BlockActions.class, actions -> {
+            assertThat(actions.triggerId()).isEqualTo("trig");
+            assertThat(actions.responseUrl()).isEqualTo("https://hooks.slack.test/a");
+            assertThat(actions.actions()).containsExactly(new SlackInteraction.Action("b1", "open_jira_oauth", "go"));
+        });
+    }
+
+    @Test
+    void shouldBindBlockSuggestion() throws Exception {
+        String payload = """
+                {"type":"block_suggestion","user":{"id":"U4"},"team":{"id":"T4"},"block_id":"project_block",
+                 "action_id":"project_input","value":"ab","view":{"id":"V4","state":{"values":{}}}}
+                """;
+
+        SlackInteraction interaction = parser.parse(payload);
+
+        assertThat(interaction).isEqualTo(new SlackInteraction.BlockSuggestion("U4", "T4", "project_block", "project_input", "ab"));
+    }
+
+    @Test
+    void shouldReadBlockIdOfSuggestionSentAfterTheOtherFields() throws Exception {
+        String payload = """
+                {"type":"block_suggestion","user":{"id":"U4"},"team":{"id":"T4"},"action_id":"project_input",
+                 "value":"ab","view":{"id":"V4"},"block_id":"project_block"}
+                """;
+
+        SlackInteraction interaction = parser.parse(payload);
+
+        assertThat(interaction).isEqualTo(new SlackInteraction.BlockSuggestion("U4", "T4", "project_block", "project_input", "ab"));
+    }
+
+    @Test
+    void shouldBindAlreadyParsedPayload() throws Exception {
+        JsonNode payload = new ObjectMapper().readTree("""
+                {"type":"block_suggestion","user":{"id":"U4"},"team":{"id":"T4"},"block_id":"project_block",
+                 "action_id":"project_input","value":"ab"}
+                """);
+
+        SlackInteraction interaction = parser.parse(payload);
+
+        assertThat(interaction).isEqualTo(new SlackInteraction.BlockSuggestion("U4", "T4", "project_block", "project_input", "ab"));
+    }
+
+    @Test
+    void shouldStopReadingOnceRequiredFieldsAreKnown() throws Exception {
+        // the trailing garbage is never reached, so the payload still parses
+        String payload = "{\"type\":\"view_closed\",\"team\":null,\"user\":{\"id\":\"U3\"},\"view\": not-json";
+
+        SlackInteraction interaction = parser.parse(payload);
+
+        assertThat(interaction).isEqualTo(new SlackInteraction.Other("view_closed", "U3", null));
+    }
+
+    @Test
+    void shouldRejectPayloadWithoutType() {
+        assertThatThrownBy(() -> parser.parse("{\"user\":{\"id\":\"U1\"}}"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,40 @@
+package com.mlorenc.slack.jira.bot.core;
+
+import com.mlorenc.slack.jira.bot.config.BotProperties;
+import com.mlorenc.slack.jira.bot.config.TestBotProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SlackMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final SlackMetrics metrics = new SlackMetrics(registry, TestBotProperties.builder()
+            .metrics(new BotProperties.Metrics(2))
+            .build());
+
+    @Test
+    void shouldFoldTeamsBeyondTheLimitIntoOther() {
+        for (String team : new String[]{"T1", "T2", "T3", "T1", "T4", ""}) {
+            metrics.recordCommand("map", team, "accepted", 1_000);
+        }
+
+        assertThat(registry.get("bot.slack.commands").timers()).extracting(timer -> timer.getId().getTag("team"))
+                .containsExactlyInAnyOrder("T1", "T2", SlackMetrics.OTHER, SlackMetrics.NONE);
+        assertThat(registry.get("bot.slack.commands").tag("team", "T1").timer().count()).isEqualTo(2);
+        assertThat(registry.get("bot.slack.commands").tag("team", SlackMetrics.OTHER).timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldCountSignatureFailuresByReason() {
+        metrics.recordVerification(1_000, true, true);
+        metrics.recordVerification(1_000, true, false);
+        metrics.recordVerification(1_000, false, false);
+        metrics.recordVerification(1_000, false, false);
+
+        assertThat(registry.get("bot.slack.signature.failures").tag("reason", "invalid_signature").counter().count()).isEqualTo(1);
+        assertThat(registry.get("bot.slack.signature.failures").tag("reason", "invalid_timestamp").counter().count()).isEqualTo(2);
+        assertThat(registry.get("bot.slack.request.verification").tag("result", "verified").timer().count()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,168 @@
+package com.mlorenc.slack.jira.bot.core;
+
+import com.mlorenc.slack.jira.bot.config.BotProperties;
+import com.mlorenc.slack.jira.bot.config.TestBotProperties;
+import com.mlorenc.slack.jira.bot.core.SlackRetryDeduplicator.Outcome;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SlackRetryDeduplicatorTest {
+
+    @Test
+    void shouldAnswerDuplicatesFromFirstOutcome() {
+        SlackRetryDeduplicator deduplicator = deduplicator(10, Duration.ofMinutes(5));
+        AtomicInteger runs = new AtomicInteger();
+
+        String first = deduplicator.handle("command:T1", () -> Outcome.remembered("ok-" + runs.incrementAndGet()));
+        String retry = deduplicator.handle("command:T1", () -> Outcome.remembered("ok-" + runs.incrementAndGet()));
+        String other = deduplicator.handle("command:T2", () -> Outcome.remembered("ok-" + runs.incrementAndGet()));
+
+        assertThat(first).isEqualTo("ok-1");
+        assertThat(retry).isEqualTo("ok-1");
+        assertThat(other).isEqualTo("ok-2");
+        assertThat(deduplicator.stats().duplicates()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldWaitForRequestStillInFlight() throws Exception {
+        SlackRetryDeduplicator deduplicator = deduplicator(10, Duration.ofMinutes(5));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(2)) {
+            Future<String> first = executor.submit(() -> deduplicator.handle("view_submission:V1", () -> {
+                runs.incrementAndGet();
+                started.countDown();
+                await(release);
+                return Outcome.remembered("saved");
+            }));
+            started.await();
+            Future<String> retry = executor.submit(() -> deduplicator.handle("view_submission:V1", () -> {
+                runs.incrementAndGet();
+                return Outcome.remembered("again");
+            }));
+            Thread.sleep(50);
+            assertThat(retry).isNotDone();
+            release.countDown();
+
+            assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("saved");
+            assertThat(retry.get(5, TimeUnit.SECONDS)).isEqualTo("saved");
+        }
+        assertThat(runs).hasValue(1);
+    }
+
+    @Test
+    void shouldAckRetryWithoutWaitingPastTheTimeout() throws Exception {
+        SlackRetryDeduplicator deduplicator = deduplicator(10, Duration.ofMinutes(5), Duration.ofMillis(50));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(1)) {
+            Future<String> first = executor.submit(() -> deduplicator.handle("command:T1", () -> {
+                started.countDown();
+                await(release);
+                return Outcome.remembered("ok");
+            }));
+            started.await();
+
+            assertThat(deduplicator.handle("command:T1", () -> Outcome.remembered("again"))).isEmpty();
+            release.countDown();
+            assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("ok");
+        }
+        assertThat(deduplicator.stats().awaitTimeouts()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldReleaseRetriesAndForgetWhenTheHandlerThrowsAnError() throws Exception {
+        SlackRetryDeduplicator deduplicator = deduplicator(10, Duration.ofMinutes(5));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(2)) {
+            Future<String> first = executor.submit(() -> deduplicator.handle("command:T1", () -> {
+                started.countDown();
+                await(release);
+                throw new StackOverflowError("test");
+            }));
+            started.await();
+            Future<String> retry = executor.submit(() -> deduplicator.handle("command:T1", () -> Outcome.remembered("again")));
+            Thread.sleep(50);
+            release.countDown();
+
+            assertThatThrownBy(() -> first.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(StackOverflowError.class);
+            assertThatThrownBy(() -> retry.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(StackOverflowError.class);
+        }
+        assertThat(deduplicator.handle("command:T1", () -> Outcome.remembered("ok"))).isEqualTo("ok");
+    }
+
+    @Test
+    void shouldNotRememberRetryableOutcomesOrFailures() {
+        SlackRetryDeduplicator deduplicator = deduplicator(10, Duration.ofMinutes(5));
+
+        deduplicator.handle("command:T1", () -> Outcome.retryable("busy"));
+        assertThatThrownBy(() -> deduplicator.handle("command:T2", () -> {
+            throw new IllegalStateException("boom");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(deduplicator.handle("command:T1", () -> Outcome.remembered("ok"))).isEqualTo("ok");
+        assertThat(deduplicator.handle("command:T2", () -> Outcome.remembered("ok"))).isEqualTo("ok");
+        assertThat(deduplicator.stats().duplicates()).isZero();
+    }
+
+    @Test
+    void shouldForgetExpiredAndOldestEntries() throws Exception {
+        SlackRetryDeduplicator bounded = deduplicator(2, Duration.ofMinutes(5));
+        bounded.handle("a", () -> Outcome.remembered("a1"));
+        bounded.handle("b", () -> Outcome.remembered("b1"));
+        bounded.handle("c", () -> Outcome.remembered("c1"));
+
+        assertThat(bounded.stats().size()).isEqualTo(2);
+        assertThat(bounded.stats().evictions()).isEqualTo(1);
+        assertThat(bounded.handle("a", () -> Outcome.remembered("a2"))).isEqualTo("a2");
+        assertThat(bounded.handle("c", () -> Outcome.remembered("c2"))).isEqualTo("c1");
+
+        SlackRetryDeduplicator expiring = deduplicator(10, Duration.ofMillis(20));
+        expiring.handle("a", () -> Outcome.remembered("a1"));
+        Thread.sleep(40);
+        assertThat(expiring.handle("a", () -> Outcome.remembered("a2"))).isEqualTo("a2");
+    }
+
+    @Test
+    void shouldSkipDeduplicationWithoutFingerprint() {
+        SlackRetryDeduplicator deduplicator = deduplicator(10, Duration.ofMinutes(5));
+
+        deduplicator.handle(null, () -> Outcome.remembered("1"));
+
+        assertThat(deduplicator.handle(null, () -> Outcome.remembered("2"))).isEqualTo("2");
+        assertThat(deduplicator.stats().size()).isZero();
+    }
+
+    private static SlackRetryDeduplicator deduplicator(int maxEntries, Duration ttl) {
+        return deduplicator(maxEntries, ttl, Duration.ofSeconds(5));
+    }
+
+    private static SlackRetryDeduplicator deduplicator(int maxEntries, Duration ttl, Duration awaitTimeout) {
+        return new SlackRetryDeduplicator(TestBotProperties.builder()
+                .dedupe(new BotProperties.Dedupe(maxEntries, ttl, awaitTimeout))
+                .build());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
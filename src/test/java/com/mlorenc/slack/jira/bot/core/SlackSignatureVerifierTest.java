@@ -0,0 +1,87 @@
+package com.mlorenc.slack.jira.bot.core;
+
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SlackSignatureVerifierTest {
+
+    private final SlackSignatureVerifier verifier = new SlackSignatureVerifier();
+
+    @Test
+    void shouldAcceptValidSignature() throws Exception {
+        String ts = now();
+        String body = "command=%2Fjira&text=connect";
+
+        assertThat(verifier.verify("secret", ts, sign("secret", ts, body), body)).isTrue();
+    }
+
+    @Test
+    void shouldRejectTamperedBodyOrWrongSecret() throws Exception {
+        String ts = now();
+        String signature = sign("secret", ts, "text=connect");
+
+        assertThat(verifier.verify("secret", ts, signature, "text=map")).isFalse();
+        assertThat(verifier.verify("other-secret", ts, signature, "text=connect")).isFalse();
+        assertThat(verifier.verify("secret", ts, signature, "text=connect")).isTrue();
+    }
+
+    @Test
+    void shouldRejectMalformedHeadersAndStaleTimestamps() throws Exception {
+        String ts = now();
+        String signature = sign("secret", ts, "a=b");
+
+        assertThat(verifier.verify("secret", ts, signature.toUpperCase(), "a=b")).isFalse();
+        assertThat(verifier.verify("secret", ts, signature.substring(0, signature.length() - 1), "a=b")).isFalse();
+        assertThat(verifier.verify("secret", ts, "v1=" + signature.substring(3), "a=b")).isFalse();
+        assertThat(verifier.verify("secret", "abc", signature, "a=b")).isFalse();
+        assertThat(verifier.verify(null, ts, signature, "a=b")).isFalse();
+
+        String stale = String.valueOf(Instant.now().getEpochSecond() - 600);
+        assertThat(verifier.verify("secret", stale, sign("secret", stale, "a=b"), "a=b")).isFalse();
+    }
+
+    @Test
+    void shouldVerifyByteSliceOfBody() throws Exception {
+        String ts = now();
+        byte[] padded = "xxa=b&c=dyy".getBytes(StandardCharsets.UTF_8);
+
+        assertThat(verifier.verify("secret", ts, sign("secret", ts, "a=b&c=d"), padded, 2, 7)).isTrue();
+    }
+
+    @Test
+    void shouldShareSignersAcrossVirtualThreads() throws Exception {
+        String ts = now();
+        String signature = sign("secret", ts, "a=b");
+        AtomicInteger verified = new AtomicInteger();
+        for (int i = 0; i < 10; i++) {
+            Thread.ofVirtual().start(() -> {
+                if (verifier.verify("secret", ts, signature, "a=b")) verified.incrementAndGet();
+            }).join();
+        }
+        SlackSignatureVerifier.Signer abandoned = verifier.start("secret", ts);
+        abandoned.release();
+
+        assertThat(verified).hasValue(10);
+        assertThat(verifier.stats().created()).isEqualTo(1);
+        assertThat(verifier.stats().reused()).isEqualTo(10);
+    }
+
+    private static String now() {
+        return String.valueOf(Instant.now().getEpochSecond());
+    }
+
+    private static String sign(String secret, String ts, String body) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        byte[] digest = mac.doFinal(("v0:" + ts + ":" + body).getBytes(StandardCharsets.UTF_8));
+        return "v0=" + HexFormat.of().formatHex(digest);
+    }
+}
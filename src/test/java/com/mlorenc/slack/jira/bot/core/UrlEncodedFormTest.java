@@ -0,0 +1,145 @@
+package com.mlorenc.slack.jira.bot.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UrlEncodedFormTest {
+
+    @Test
+    void shouldDecodeSlashCommandFields() {
+        UrlEncodedForm form = UrlEncodedForm.of(
+                "command=%2Fjira&text=connect+now&trigger_id=13345.7890&user_id=U1&response_url=https%3A%2F%2Fhooks.slack.com%2Fx");
+
+        assertThat(form.get("command")).isEqualTo("/jira");
+        assertThat(form.get("text")).isEqualTo("connect now");
+        assertThat(form.get("trigger_id")).isEqualTo("13345.7890");
+        assertThat(form.get("response_url")).isEqualTo("https://hooks.slack.com/x");
+        assertThat(form.get("team_id")).isNull();
+        assertThat(form.getOrDefault("team_id", "")).isEmpty();
+    }
+
+    @Test
+    void shouldMatchEncodedKeysAndKeepLastRepeatedValue() {
+        UrlEncodedForm form = UrlEncodedForm.of("a=1&%74ext=x&flag&a=2&k%C3%A9y=v&&");
+
+        assertThat(form.get("a")).isEqualTo("2");
+        assertThat(form.get("text")).isEqualTo("x");
+        assertThat(form.get("flag")).isEmpty();
+        assertThat(form.get("kéy")).isEqualTo("v");
+    }
+
+    @Test
+    void shouldReportMalformedEscapesOnlyForFieldsThatAreRead() {
+        UrlEncodedForm form = UrlEncodedForm.of("good=ok&bad=%zz&tail=%4");
+
+        assertThat(form.get("good")).isEqualTo("ok");
+        assertThatThrownBy(() -> form.get("bad")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> form.get("tail")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldReadFieldsFromByteSlice() {
+        byte[] bytes = "##a=b%20c&d=e##".getBytes(StandardCharsets.UTF_8);
+
+        UrlEncodedForm form = UrlEncodedForm.of(bytes, 2, bytes.length - 4);
+
+        assertThat(form.get("a")).isEqualTo("b c");
+        assertThat(form.get("d")).isEqualTo("e");
+    }
+
+    @Test
+    void shouldRefuseReadsOnceDetached() {
+        UrlEncodedForm form = UrlEncodedForm.of("a=1");
+        assertThat(form.get("a")).isEqualTo("1");
+
+        form.detach();
+
+        assertThatThrownBy(() -> form.get("a")).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void shouldRoundTripRandomUrlEncodedMaps() {
+        Random random = new Random(7);
+        for (int run = 0; run < 5_000; run++) {
+            Map<String, String> expected = new LinkedHashMap<>();
+            int size = 1 + random.nextInt(6);
+            for (int i = 0; i < size; i++) {
+                expected.put(randomText(random), randomText(random));
+            }
+            String body = expected.entrySet().stream()
+                    .map(e -> encode(e.getKey()) + "=" + encode(e.getValue()))
+                    .collect(Collectors.joining("&"));
+
+            UrlEncodedForm form = UrlEncodedForm.of(body);
+            expected.forEach((key, value) -> {
+                if (!key.isEmpty()) assertThat(form.get(key)).as(body).isEqualTo(value);
+            });
+        }
+    }
+
+    @Test
+    void shouldAgreeWithUrlDecoderOnRandomBodies() {
+        Random random = new Random(11);
+        String alphabet = "ab=&%+-0123456789AFfgz";
+        for (int run = 0; run < 50_000; run++) {
+            char[] chars = new char[random.nextInt(24)];
+            for (int i = 0; i < chars.length; i++) {
+                chars[i] = alphabet.charAt(random.nextInt(alphabet.length()));
+            }
+            String body = new String(chars);
+
+            Map<String, String> reference;
+            try {
+                reference = urlDecoderParse(body);
+            } catch (IllegalArgumentException e) {
+                continue;
+            }
+
+            UrlEncodedForm form = UrlEncodedForm.of(body);
+            reference.forEach((key, value) -> {
+                if (!key.isEmpty()) assertThat(form.get(key)).as(body).isEqualTo(value);
+            });
+            if (!reference.containsKey("missing")) {
+                assertThat(form.get("missing")).as(body).isNull();
+            }
+        }
+    }
+
+    private static Map<String, String> urlDecoderParse(String rawBody) {
+        return Arrays.stream(rawBody.split("&"))
+                .map(kv -> kv.split("=", 2))
+                .collect(Collectors.toMap(
+                        kv -> URLDecoder.decode(kv[0], StandardCharsets.UTF_8),
+                        kv -> kv.length > 1 ? URLDecoder.decode(kv[1], StandardCharsets.UTF_8) : "",
+                        (a, b) -> b));
+    }
+
+    private static String randomText(Random random) {
+        StringBuilder sb = new StringBuilder();
+        int length = random.nextInt(10);
+        for (int i = 0; i < length; i++) {
+            switch (random.nextInt(4)) {
+                case 0 -> sb.append((char) (' ' + random.nextInt(95)));
+                case 1 -> sb.append((char) (0xA0 + random.nextInt(0x500)));
+                case 2 -> sb.appendCodePoint(0x1F600 + random.nextInt(50));
+                default -> sb.append("&=%+".charAt(random.nextInt(4)));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String encode(String s) {
+        return URLEncoder.encode(s, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,89 @@
+package com.mlorenc.slack.jira.bot.core;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ViewTemplateTest {
+
+    private final ObjectMapper om = new ObjectMapper();
+
+    @Test
+    void shouldRenderConnectModalFromClasspath() throws Exception {
+        ViewTemplate template = ViewTemplate.load(om, "slack/views/connect-modal.json");
+
+        JsonNode json = om.readTree(template.render("T123", "https://auth.example/authorize?a=1&b=\"2\""));
+
+        assertThat(template.slotNames()).containsExactly("trigger_id", "authorize_url");
+        assertThat(json.path("trigger_id").asText()).isEqualTo("T123");
+        assertThat(json.at("/view/blocks/1/elements/0/url").asText()).isEqualTo("https://auth.example/authorize?a=1&b=\"2\"");
+        assertThat(json.at("/view/callback_id").asText()).isEqualTo("jira_connect_modal");
+    }
+
+    @Test
+    void shouldRenderProjectMappingModalFromClasspath() throws Exception {
+        ViewTemplate template = ViewTemplate.load(om, "slack/views/project-mapping-modal.json");
+
+        JsonNode json = om.readTree(template.render("T9"));
+
+        assertThat(json.path("trigger_id").asText()).isEqualTo("T9");
+        assertThat(json.at("/view/blocks/1/block_id").asText()).isEqualTo("progress_field_block");
+    }
+
+    @Test
+    void shouldEscapeControlCharactersQuotesAndUnicode() throws Exception {
+        ViewTemplate template = ViewTemplate.compile(om, "{\"text\": \"before {{value}} after\", \"again\": \"{{value}}\"}");
+        String value = "q\"b\\n\nt\tc\u0001\u001f é € 😀 \ud800x";
+
+        byte[] rendered = template.render(value);
+        JsonNode json = om.readTree(rendered);
+
+        assertThat(json.path("text").asText()).isEqualTo("before " + value.replace('\ud800', '?') + " after");
+        assertThat(json.path("again").asText()).isEqualTo(value.replace('\ud800', '?'));
+        assertThat(new String(rendered, StandardCharsets.UTF_8)).contains("\\u0001", "\\u001f", "\\n", "\\t");
+    }
+
+    @Test
+    void shouldMatchJacksonForRandomStrings() throws Exception {
+        ViewTemplate template = ViewTemplate.compile(om, "{\"v\":\"{{v}}\"}");
+        Random random = new Random(42);
+        for (int i = 0; i < 500; i++) {
+            StringBuilder value = new StringBuilder();
+            int length = random.nextInt(40);
+            for (int j = 0; j < length; j++) {
+                // mostly BMP characters, with control characters and surrogate pairs mixed in
+                int cp = switch (random.nextInt(4)) {
+                    case 0 -> random.nextInt(0x20);
+                    case 1 -> 0x20 + random.nextInt(0x60);
+                    case 2 -> 0x80 + random.nextInt(0xD000);
+                    default -> 0x10000 + random.nextInt(0x1000);
+                };
+                value.appendCodePoint(cp);
+            }
+            byte[] expected = om.writeValueAsBytes(om.createObjectNode().put("v", value.toString()));
+
+            // unused bytes at the end of the exact-size array would be trailing tokens
+            JsonNode rendered = om.reader().with(DeserializationFeature.FAIL_ON_TRAILING_TOKENS)
+                    .readTree(template.render(value.toString()));
+
+            assertThat(rendered).isEqualTo(om.readTree(expected));
+        }
+    }
+
+    @Test
+    void shouldRejectInvalidTemplatesAndWrongArity() {
+        assertThatThrownBy(() -> ViewTemplate.compile(om, "{\"a\": {{x}} }"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ViewTemplate.load(om, "slack/views/missing.json"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ViewTemplate.compile(om, "{\"a\":\"{{x}}\"}").render("1", "2"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
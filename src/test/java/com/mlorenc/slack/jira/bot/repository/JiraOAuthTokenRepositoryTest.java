@@ -0,0 +1,84 @@
+package com.mlorenc.slack.jira.bot.repository;
+
+import com.mlorenc.slack.jira.bot.model.JiraOAuthToken;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+class JiraOAuthTokenRepositoryTest {
+
+    @Autowired
+    private JiraOAuthTokenRepository repository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Test
+    void shouldPageExpiringTokensByExpiryAndId() {
+        Instant base = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        save("U1", base.plusSeconds(30));
+        save("U2", base.plusSeconds(10));
+        save("U3", base.plusSeconds(10));
+        save("U4", base.plusSeconds(3600));
+
+        Instant cutoff = base.plusSeconds(600);
+        List<JiraOAuthToken> first = repository.findExpiringBefore(cutoff, Instant.EPOCH, 0, PageRequest.of(0, 2));
+        JiraOAuthToken last = first.getLast();
+        List<JiraOAuthToken> second = repository.findExpiringBefore(cutoff, last.getExpiresAt(), last.getId(), PageRequest.of(0, 2));
+
+        assertThat(first).extracting(JiraOAuthToken::getSlackUserId).containsExactly("U2", "U3");
+        assertThat(second).extracting(JiraOAuthToken::getSlackUserId).containsExactly("U1");
+    }
+
+    @Test
+    void shouldUpdateCiphertextsOnlyWhenRowIsUnchanged() {
+        JiraOAuthToken token = save("U1", Instant.now().plusSeconds(600));
+        entityManager.flush();
+        Instant stale = token.getUpdatedAt().minusSeconds(1);
+
+        int conflicting = repository.updateCiphertexts(token.getId(), stale, "a2", "r2");
+        int applied = repository.updateCiphertexts(token.getId(), token.getUpdatedAt(), "a3", "r3");
+        entityManager.clear();
+
+        JiraOAuthToken reloaded = repository.findById(token.getId()).orElseThrow();
+        assertThat(conflicting).isZero();
+        assertThat(applied).isEqualTo(1);
+        assertThat(reloaded.getEncryptedAccessToken()).isEqualTo("a3");
+        assertThat(reloaded.getEncryptedRefreshToken()).isEqualTo("r3");
+    }
+
+    @Test
+    void shouldSkipTokensWhoseRefreshWasRejected() {
+        Instant base = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        JiraOAuthToken rejected = save("U1", base.plusSeconds(10));
+        save("U2", base.plusSeconds(20));
+        entityManager.flush();
+
+        int marked = repository.markRefreshFailed(rejected.getId(), rejected.getUpdatedAt(), base);
+        entityManager.clear();
+
+        assertThat(marked).isEqualTo(1);
+        assertThat(repository.findExpiringBefore(base.plusSeconds(600), Instant.EPOCH, 0, PageRequest.of(0, 10)))
+                .extracting(JiraOAuthToken::getSlackUserId).containsExactly("U2");
+    }
+
+    private JiraOAuthToken save(String slackUserId, Instant expiresAt) {
+        JiraOAuthToken token = new JiraOAuthToken();
+        token.setSlackTeamId("T1");
+        token.setSlackUserId(slackUserId);
+        token.setEncryptedAccessToken("a");
+        token.setEncryptedRefreshToken("r");
+        token.setExpiresAt(expiresAt);
+        token.setUpdatedAt(Instant.now().truncatedTo(ChronoUnit.MILLIS));
+        return repository.save(token);
+    }
+}
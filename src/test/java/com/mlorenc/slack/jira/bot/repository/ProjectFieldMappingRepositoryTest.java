@@ -4,8 +4,13 @@ import com.mlorenc.slack.jira.bot.model.ProjectFieldMapping;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.Instant;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @DataJpaTest
 class ProjectFieldMappingRepositoryTest {
@@ -13,14 +18,80 @@ class ProjectFieldMappingRepositoryTest {
     @Autowired
     private ProjectFieldMappingRepository repository;
 
+    @Autowired
+    private TestEntityManager entityManager;
+
     @Test
     void shouldPersistProjectFieldMappings() {
         ProjectFieldMapping mapping = new ProjectFieldMapping();
+        mapping.setSlackTeamId("T1");
         mapping.setSlackUserId("U1");
         mapping.setJiraProjectKey("ABC");
         mapping.setProgressFieldId("customfield_1001");
         repository.save(mapping);
 
-        assertThat(repository.findBySlackUserIdAndJiraProjectKey("U1", "ABC")).isPresent();
+        assertThat(repository.findBySlackTeamIdAndSlackUserIdAndJiraProjectKey("T1", "U1", "ABC")).isPresent();
+    }
+
+    @Test
+    void shouldVersionUpdatesAndFindRecentlyChangedMappings() {
+        Instant base = Instant.now();
+        ProjectFieldMapping old = mapping("U1", "OLD", base.minusSeconds(600));
+        ProjectFieldMapping recent = mapping("U1", "NEW", base.minusSeconds(600));
+        entityManager.flush();
+        recent.setProgressFieldId("customfield_2");
+        recent.setUpdatedAt(base);
+        entityManager.flush();
+
+        assertThat(recent.getVersion()).isEqualTo(old.getVersion() + 1);
+        assertThat(repository.findByUpdatedAtAfter(base.minusSeconds(60)))
+                .extracting(ProjectFieldMapping::getJiraProjectKey).containsExactly("NEW");
+    }
+
+    @Test
+    void shouldUpsertMappingInPlace() {
+        Instant base = Instant.now();
+        repository.upsert("T1", "U2", "ABC", "customfield_1", base);
+        repository.upsert("T1", "U2", "ABC", "customfield_2", base.plusSeconds(1));
+        entityManager.clear();
+
+        assertThat(repository.findBySlackTeamIdAndSlackUserIdAndJiraProjectKey("T1", "U2", "ABC")).hasValueSatisfying(mapping -> {
+            assertThat(mapping.getProgressFieldId()).isEqualTo("customfield_2");
+            assertThat(mapping.getVersion()).isEqualTo(1);
+        });
+        assertThat(repository.count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldRejectDuplicateMappingForSameUserAndProject() {
+        mapping("U3", "DUP", Instant.now());
+
+        assertThatThrownBy(() -> {
+            mapping("U3", "DUP", Instant.now());
+            entityManager.flush();
+        }).isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    @Test
+    void shouldKeepSameUserIdInDifferentWorkspacesApart() {
+        Instant base = Instant.now();
+        repository.upsert("T1", "U4", "ABC", "customfield_1", base);
+        repository.upsert("T2", "U4", "ABC", "customfield_2", base);
+        entityManager.clear();
+
+        assertThat(repository.findBySlackTeamIdAndSlackUserIdAndJiraProjectKey("T1", "U4", "ABC"))
+                .map(ProjectFieldMapping::getProgressFieldId).hasValue("customfield_1");
+        assertThat(repository.findBySlackTeamIdAndSlackUserIdAndJiraProjectKey("T2", "U4", "ABC"))
+                .map(ProjectFieldMapping::getProgressFieldId).hasValue("customfield_2");
+    }
+
+    private ProjectFieldMapping mapping(String user, String project, Instant updatedAt) {
+        ProjectFieldMapping mapping = new ProjectFieldMapping();
+        mapping.setSlackTeamId("T1");
+        mapping.setSlackUserId(user);
+        mapping.setJiraProjectKey(project);
+        mapping.setProgressFieldId("customfield_1");
+        mapping.setUpdatedAt(updatedAt);
+        return repository.save(mapping);
     }
 }
@@ -0,0 +1,62 @@
+package com.mlorenc.slack.jira.bot.service;
+
+import com.mlorenc.slack.jira.bot.config.BotProperties;
+import com.mlorenc.slack.jira.bot.config.TestBotProperties;
+import com.mlorenc.slack.jira.bot.model.SlackUser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InMemoryOAuthStateStoreTest {
+
+    private final InMemoryOAuthStateStore store = new InMemoryOAuthStateStore(TestBotProperties.builder()
+            .oauthStates(new BotProperties.OAuthStates("memory", Duration.ofMinutes(10), Duration.ofSeconds(1),
+                    Duration.ofMinutes(5), 100))
+            .build());
+
+    @AfterEach
+    void tearDown() {
+        store.destroy();
+    }
+
+    @Test
+    void shouldConsumeStateOnlyOnce() {
+        store.save("s1", new SlackUser("T1", "U1"), Instant.now().plusSeconds(600));
+
+        assertThat(store.consume("s1")).hasValueSatisfying(state -> assertThat(state.user()).isEqualTo(new SlackUser("T1", "U1")));
+        assertThat(store.consume("s1")).isEmpty();
+        assertThat(store.stats().consumed()).isEqualTo(1);
+        assertThat(store.stats().live()).isZero();
+    }
+
+    @Test
+    void shouldSweepOnlyStatesWhoseTickHasPassed() {
+        Instant now = Instant.now();
+        store.save("soon", new SlackUser("T1", "U1"), now.plusSeconds(5));
+        store.save("later", new SlackUser("T1", "U2"), now.plusSeconds(60));
+        store.save("consumed", new SlackUser("T1", "U3"), now.plusSeconds(5));
+        store.consume("consumed");
+
+        assertThat(store.sweep(now.plusSeconds(4))).isZero();
+        assertThat(store.sweep(now.plusSeconds(6))).isEqualTo(1);
+
+        assertThat(store.consume("soon")).isEmpty();
+        assertThat(store.stats().live()).isEqualTo(1);
+        assertThat(store.stats().expired()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldKeepStatesThatExpireAfterAFullRevolution() {
+        Instant now = Instant.now();
+        // 1024 one-second slots: this state shares a slot with one expiring in 10s
+        store.save("far", new SlackUser("T1", "U1"), now.plusSeconds(1034));
+
+        assertThat(store.sweep(now.plusSeconds(11))).isZero();
+        assertThat(store.sweep(now.plusSeconds(1035))).isEqualTo(1);
+        assertThat(store.stats().live()).isZero();
+    }
+}
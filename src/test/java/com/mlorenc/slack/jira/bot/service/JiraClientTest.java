@@ -0,0 +1,127 @@
+package com.mlorenc.slack.jira.bot.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mlorenc.slack.jira.bot.config.BotProperties;
+import com.mlorenc.slack.jira.bot.config.TestBotProperties;
+import com.mlorenc.slack.jira.bot.model.SlackUser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class JiraClientTest {
+
+    private static final JiraSite SITE = new JiraSite(new SlackUser("T1", "U1"), "cloud-1");
+
+    private HttpServer server;
+    private JiraClient client;
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/ex/jira/cloud-1/rest/api/3/issue/PRJ-1", exchange -> respond(exchange, 204, ""));
+        server.createContext("/ex/jira/cloud-1/rest/api/3/issue/PRJ-404", exchange -> respond(exchange, 404, "{\"errorMessages\":[\"Issue does not exist\"]}"));
+        server.createContext("/ex/jira/cloud-1/rest/api/3/myself", exchange -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            inFlight.decrementAndGet();
+            respond(exchange, 200, "{\"accountId\":\"A1\"}");
+        });
+        server.start();
+
+        BotProperties properties = TestBotProperties.builder()
+                .jiraApi(new BotProperties.JiraApi("http://127.0.0.1:" + server.getAddress().getPort() + "/ex/jira",
+                        Duration.ofSeconds(2), Duration.ofSeconds(5), 2, 2))
+                .build();
+        JiraOAuthService oauthService = mock(JiraOAuthService.class);
+        when(oauthService.getValidAccessToken(SITE.user())).thenReturn("access-1");
+        client = new JiraClient(new ObjectMapper(), oauthService, properties, registry, false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        client.destroy();
+        server.stop(0);
+    }
+
+    @Test
+    void shouldSendFieldUpdateWithUsersToken() throws Exception {
+        client.updateFieldAsync(SITE, "PRJ-1", "customfield_10042", 40).get(5, TimeUnit.SECONDS);
+
+        assertThat(requests).containsExactly("PUT Bearer access-1 {\"fields\":{\"customfield_10042\":40}}");
+    }
+
+    @Test
+    void shouldFailWithJiraStatus() {
+        assertThatThrownBy(() -> client.getIssueAsync(SITE, "PRJ-404").join())
+                .hasCauseInstanceOf(JiraApiException.class)
+                .hasMessageContaining("HTTP 404")
+                .hasMessageContaining("Issue does not exist");
+        assertThat(client.stats()).singleElement().satisfies(stats -> assertThat(stats.failed()).isEqualTo(1));
+        assertThat(registry.get("bot.jira.api.calls").tags("method", "GET", "status", "4xx").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldLimitConcurrentCallsPerCloud() throws Exception {
+        List<CompletableFuture<JsonNode>> calls = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            calls.add(client.getAsync(SITE, "rest/api/3/myself"));
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (inFlight.get() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(client.stats()).singleElement().satisfies(stats -> {
+            assertThat(stats.inFlight()).isEqualTo(2);
+            assertThat(stats.queued()).isEqualTo(3);
+        });
+
+        release.countDown();
+        for (CompletableFuture<JsonNode> call : calls) {
+            assertThat(call.get(5, TimeUnit.SECONDS).path("accountId").asText()).isEqualTo("A1");
+        }
+        assertThat(maxInFlight.get()).isEqualTo(2);
+        assertThat(client.stats()).singleElement().satisfies(stats -> assertThat(stats.completed()).isEqualTo(5));
+    }
+
+    private void respond(HttpExchange exchange, int status, String body) throws IOException {
+        String request = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        requests.add(exchange.getRequestMethod() + " " + exchange.getRequestHeaders().getFirst("Authorization") + " " + request);
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
+}
@@ -0,0 +1,168 @@
+package com.mlorenc.slack.jira.bot.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mlorenc.slack.jira.bot.config.BotProperties;
+import com.mlorenc.slack.jira.bot.config.TestBotProperties;
+import com.mlorenc.slack.jira.bot.model.SlackUser;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class JiraMetadataCacheTest {
+
+    private static final SlackUser U1 = new SlackUser("T1", "U1");
+    private static final SlackUser U2 = new SlackUser("T1", "U2");
+
+    private final ObjectMapper om = new ObjectMapper();
+    private JiraClient jiraClient;
+    private JiraSiteDirectory sites;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        jiraClient = mock(JiraClient.class);
+        sites = mock(JiraSiteDirectory.class);
+        when(sites.sites(U1)).thenReturn(List.of(new JiraSite(U1, "cloud-1")));
+
+        when(jiraClient.getAsync(any(), eq("rest/api/3/project/search?startAt=0&maxResults=100"))).thenReturn(json("""
+                {"values":[{"key":"ABC","name":"Alpha Build"},{"key":"OPS","name":"Operations"}],"isLast":false}
+                """));
+        when(jiraClient.getAsync(any(), eq("rest/api/3/project/search?startAt=2&maxResults=100"))).thenReturn(json("""
+                {"values":[{"key":"WEB","name":"Website"}],"isLast":true}
+                """));
+        when(jiraClient.getAsync(any(), eq("rest/api/3/field"))).thenReturn(json("""
+                [{"id":"summary","name":"Summary","custom":false},
+                 {"id":"customfield_10042","name":"Progress","custom":true},
+                 {"id":"customfield_10050","name":"Story points","custom":true}]
+                """));
+    }
+
+    @Test
+    void shouldServeProjectsAndFieldsByPrefixFromOneBulkLoad() {
+        JiraMetadataCache cache = cache(Duration.ofMinutes(10));
+
+        assertThat(cache.suggestProjects(U1, "ab")).extracting(JiraMetadataCache.Entry::id).containsExactly("ABC");
+        assertThat(cache.suggestProjects(U1, "build")).extracting(JiraMetadataCache.Entry::id).containsExactly("ABC");
+        assertThat(cache.suggestProjects(U1, "")).extracting(JiraMetadataCache.Entry::id).containsExactly("ABC", "OPS", "WEB");
+        assertThat(cache.suggestFields(U1, "customfield_1004")).extracting(JiraMetadataCache.Entry::name).containsExactly("Progress");
+        assertThat(cache.suggestFields(U1, "sum")).isEmpty();
+        assertThat(cache.suggestProjects(U2, "a")).isEmpty();
+
+        verify(jiraClient, times(1)).getAsync(any(), eq("rest/api/3/field"));
+        assertThat(cache.stats().loads()).isEqualTo(1);
+        assertThat(cache.stats().hits()).isEqualTo(4);
+    }
+
+    @Test
+    void shouldValidateMappingAgainstCachedMetadata() {
+        JiraMetadataCache cache = cache(Duration.ofMinutes(10));
+
+        assertThat(cache.validate(U1, "web", "customfield_10042").isValid()).isTrue();
+        assertThat(cache.validate(U1, "XYZ", "summary").errors())
+                .containsOnlyKeys("project_block", "progress_field_block");
+        assertThat(cache.validate(U2, "WEB", "customfield_10042").checked()).isFalse();
+    }
+
+    @Test
+    void shouldReloadStaleMetadataInBackgroundWhileServingIt() {
+        JiraMetadataCache cache = cache(Duration.ZERO);
+
+        assertThat(cache.suggestProjects(U1, "web")).hasSize(1);
+        assertThat(cache.suggestProjects(U1, "web")).hasSize(1);
+
+        verify(jiraClient, times(2)).getAsync(any(), eq("rest/api/3/field"));
+    }
+
+    @Test
+    void shouldMergeSitesAndRouteProjectToTheSiteThatHasIt() throws Exception {
+        JiraSite second = new JiraSite(U1, "cloud-2");
+        when(sites.sites(U1)).thenReturn(List.of(new JiraSite(U1, "cloud-1"), second));
+        when(jiraClient.getAsync(eq(second), eq("rest/api/3/project/search?startAt=0&maxResults=100"))).thenReturn(json("""
+                {"values":[{"key":"MOB","name":"Mobile"},{"key":"OPS","name":"Operations"}],"isLast":true}
+                """));
+        when(jiraClient.getAsync(eq(second), eq("rest/api/3/field"))).thenReturn(json("""
+                [{"id":"customfield_20001","name":"Progress","custom":true}]
+                """));
+        JiraMetadataCache cache = cache(Duration.ofMinutes(10));
+
+        assertThat(cache.suggestProjects(U1, "")).extracting(JiraMetadataCache.Entry::id).containsExactly("ABC", "OPS", "WEB", "MOB");
+        assertThat(cache.siteForProject(U1, "mob").site()).contains(second);
+        assertThat(cache.siteForProject(U1, "WEB").site()).contains(new JiraSite(U1, "cloud-1"));
+        assertThat(cache.siteForProject(U1, "NOPE").site()).contains(new JiraSite(U1, "cloud-1"));
+        assertThat(cache.siteForProject(U2, "MOB")).isEqualTo(new JiraMetadataCache.SiteLookup(true, Optional.empty()));
+        assertThat(cache.validate(U1, "MOB", "customfield_20001").isValid()).isTrue();
+        assertThat(cache.validate(U1, "MOB", "customfield_10042").errors()).containsOnlyKeys("progress_field_block");
+        assertThat(cache.stats().clouds()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldNotRouteToTheDefaultSiteWhenAnotherSiteDidNotLoad() {
+        JiraSite second = new JiraSite(U1, "cloud-2");
+        when(sites.sites(U1)).thenReturn(List.of(new JiraSite(U1, "cloud-1"), second));
+        when(jiraClient.getAsync(eq(second), anyString())).thenReturn(new CompletableFuture<>());
+        JiraMetadataCache cache = new JiraMetadataCache(jiraClient, sites, TestBotProperties.builder()
+                .jiraMetadata(new BotProperties.JiraMetadata(10, Duration.ofMinutes(10), Duration.ofHours(1),
+                        Duration.ofMillis(50), Duration.ofSeconds(30)))
+                .build());
+
+        assertThat(cache.siteForProject(U1, "MOB").checked()).isFalse();
+        assertThat(cache.siteForProject(U1, "MOB").site()).isEmpty();
+        assertThat(cache.siteForProject(U1, "WEB")).isEqualTo(
+                new JiraMetadataCache.SiteLookup(true, Optional.of(new JiraSite(U1, "cloud-1"))));
+    }
+
+    @Test
+    void shouldNotReloadAFailedSiteUntilTheBackoffPasses() {
+        when(jiraClient.getAsync(any(), eq("rest/api/3/field")))
+                .thenReturn(CompletableFuture.failedFuture(new JiraApiException("cloud-1", "rest/api/3/field", 503, null)));
+        JiraMetadataCache cache = cache(Duration.ofMinutes(10));
+
+        assertThat(cache.validate(U1, "WEB", "customfield_10042").checked()).isFalse();
+        assertThat(cache.validate(U1, "WEB", "customfield_10042").checked()).isFalse();
+        assertThat(cache.suggestProjects(U1, "")).isEmpty();
+
+        verify(jiraClient, times(1)).getAsync(any(), eq("rest/api/3/field"));
+        assertThat(cache.stats().loadFailures()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldReloadAFailedSiteOnceTheBackoffPassed() throws Exception {
+        when(jiraClient.getAsync(any(), eq("rest/api/3/field")))
+                .thenReturn(CompletableFuture.failedFuture(new JiraApiException("cloud-1", "rest/api/3/field", 503, null)))
+                .thenReturn(json("""
+                        [{"id":"customfield_10042","name":"Progress","custom":true}]
+                        """));
+        JiraMetadataCache cache = cache(Duration.ofMinutes(10), Duration.ZERO);
+
+        assertThat(cache.validate(U1, "WEB", "customfield_10042").checked()).isFalse();
+        assertThat(cache.validate(U1, "WEB", "customfield_10042").isValid()).isTrue();
+    }
+
+    private JiraMetadataCache cache(Duration refreshAfter) {
+        return cache(refreshAfter, Duration.ofSeconds(30));
+    }
+
+    private JiraMetadataCache cache(Duration refreshAfter, Duration failureBackoff) {
+        return new JiraMetadataCache(jiraClient, sites, TestBotProperties.builder()
+                .jiraMetadata(new BotProperties.JiraMetadata(10, refreshAfter, Duration.ofHours(1),
+                        Duration.ofSeconds(2), failureBackoff))
+                .build());
+    }
+
+    private CompletableFuture<JsonNode> json(String body) throws Exception {
+        return CompletableFuture.completedFuture(om.readTree(body));
+    }
+}
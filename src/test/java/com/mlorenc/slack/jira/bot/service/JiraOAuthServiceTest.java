@@ -1,64 +1,254 @@
 package com.mlorenc.slack.jira.bot.service;
 
 import com.mlorenc.slack.jira.bot.config.BotProperties;
+import com.mlorenc.slack.jira.bot.config.TestBotProperties;
 import com.mlorenc.slack.jira.bot.model.JiraOAuthToken;
+import com.mlorenc.slack.jira.bot.model.SlackUser;
+import com.mlorenc.slack.jira.bot.model.UserConnection;
 import com.mlorenc.slack.jira.bot.repository.JiraOAuthTokenRepository;
-import com.mlorenc.slack.jira.bot.repository.OAuthStateRepository;
 import com.mlorenc.slack.jira.bot.repository.UserConnectionRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 class JiraOAuthServiceTest {
 
+    private static final SlackUser U1 = new SlackUser("T1", "U1");
+    private static final Instant READ_AT = Instant.parse("2026-01-01T00:00:00Z");
+
     private JiraOAuthTokenRepository tokenRepository;
+    private RestTemplate restTemplate;
+    private AccessTokenCache tokenCache;
+    private OAuthStateStore stateStore;
+    private UserConnectionRepository userConnectionRepository;
+    private JiraSiteDirectory siteDirectory;
+    private PlatformTransactionManager transactionManager;
+    private TokenEncryptionService encryptionService;
     private JiraOAuthService service;
 
     @BeforeEach
     void setUp() {
-        BotProperties properties = new BotProperties(
-                new BotProperties.Slack("token", "secret"),
-                new BotProperties.Jira("client", "secret", "http://callback", "offline_access", "https://auth", "https://token", "https://resources"),
-                new BotProperties.Security("MDEyMzQ1Njc4OWFiY2RlZjAxMjM0NTY3ODlhYmNkZWY="));
+        BotProperties properties = TestBotProperties.builder()
+                .slack(new BotProperties.Slack("token", "secret", null, null, null, null, null))
+                .jira(new BotProperties.Jira("client", "secret", "http://callback", "offline_access", "https://auth",
+                        "https://token", "https://resources"))
+                .security(new BotProperties.Security("MDEyMzQ1Njc4OWFiY2RlZjAxMjM0NTY3ODlhYmNkZWY=", null, null))
+                .tokenCache(new BotProperties.TokenCache(100, Duration.ofMinutes(2)))
+                .build();
 
         tokenRepository = mock(JiraOAuthTokenRepository.class);
-        OAuthStateRepository stateRepository = mock(OAuthStateRepository.class);
-        UserConnectionRepository userConnectionRepository = mock(UserConnectionRepository.class);
-        RestTemplate restTemplate = mock(RestTemplate.class);
-        TokenEncryptionService encryptionService = new TokenEncryptionService(properties);
+        stateStore = mock(OAuthStateStore.class);
+        userConnectionRepository = mock(UserConnectionRepository.class);
+        siteDirectory = mock(JiraSiteDirectory.class);
+        restTemplate = mock(RestTemplate.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        encryptionService = new TokenEncryptionService(properties);
+        tokenCache = new AccessTokenCache(properties);
 
-        service = new JiraOAuthService(properties, stateRepository, tokenRepository, userConnectionRepository, encryptionService, restTemplate);
+        service = new JiraOAuthService(properties, stateStore, tokenRepository, userConnectionRepository, encryptionService, tokenCache, restTemplate, siteDirectory,
+                new TransactionTemplate(transactionManager));
 
         JiraOAuthToken existing = new JiraOAuthToken();
+        existing.setSlackTeamId("T1");
         existing.setSlackUserId("U1");
         existing.setEncryptedAccessToken(encryptionService.encrypt("expired-access"));
         existing.setEncryptedRefreshToken(encryptionService.encrypt("refresh-token"));
         existing.setExpiresAt(Instant.now().minusSeconds(5));
+        existing.setUpdatedAt(READ_AT);
+        ReflectionTestUtils.setField(existing, "id", 7L);
 
-        when(tokenRepository.findBySlackUserId("U1")).thenReturn(Optional.of(existing));
+        when(tokenRepository.findBySlackTeamIdAndSlackUserId("T1", "U1")).thenReturn(Optional.of(existing));
         when(restTemplate.exchange(eq("https://token"), eq(HttpMethod.POST), any(HttpEntity.class), eq(Map.class)))
                 .thenReturn(ResponseEntity.ok(Map.of("access_token", "new-access", "refresh_token", "new-refresh", "expires_in", 1800)));
+        when(tokenRepository.updateRefreshedTokens(eq(7L), eq(READ_AT), anyString(), anyString(), any(), any())).thenReturn(1);
     }
 
     @Test
     void shouldRefreshExpiredToken() {
-        String accessToken = service.getValidAccessToken("U1");
+        String accessToken = service.getValidAccessToken(U1);
 
         assertThat(accessToken).isEqualTo("new-access");
-        ArgumentCaptor<JiraOAuthToken> captor = ArgumentCaptor.forClass(JiraOAuthToken.class);
-        verify(tokenRepository).save(captor.capture());
-        assertThat(captor.getValue().getEncryptedAccessToken()).isNotBlank();
+        ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+        verify(tokenRepository).updateRefreshedTokens(eq(7L), eq(READ_AT), captor.capture(), anyString(), any(), any());
+        assertThat(encryptionService.decrypt(captor.getValue())).isEqualTo("new-access");
+        verify(tokenRepository, never()).save(any());
+    }
+
+    @Test
+    void shouldUseTheStoredTokenWhenTheRowChangedDuringRefresh() {
+        JiraOAuthToken reconnected = new JiraOAuthToken();
+        reconnected.setEncryptedAccessToken(encryptionService.encrypt("reconnect-access"));
+        reconnected.setEncryptedRefreshToken(encryptionService.encrypt("reconnect-refresh"));
+        reconnected.setExpiresAt(Instant.now().plusSeconds(3600));
+        JiraOAuthToken stale = tokenRepository.findBySlackTeamIdAndSlackUserId("T1", "U1").orElseThrow();
+        when(tokenRepository.findBySlackTeamIdAndSlackUserId("T1", "U1"))
+                .thenReturn(Optional.of(stale), Optional.of(reconnected));
+        when(tokenRepository.updateRefreshedTokens(eq(7L), eq(READ_AT), anyString(), anyString(), any(), any())).thenReturn(0);
+
+        String accessToken = service.getValidAccessToken(U1);
+
+        assertThat(accessToken).isEqualTo("reconnect-access");
+        verify(tokenRepository, never()).save(any());
+    }
+
+    @Test
+    void shouldMarkTheTokenWhenAtlassianRejectsTheRefreshToken() {
+        when(restTemplate.exchange(eq("https://token"), eq(HttpMethod.POST), any(HttpEntity.class), eq(Map.class)))
+                .thenThrow(HttpClientErrorException.create(HttpStatus.BAD_REQUEST, "invalid_grant", HttpHeaders.EMPTY, null, null));
+
+        assertThatThrownBy(() -> service.refreshIfExpiring(U1, Instant.now()))
+                .isInstanceOf(JiraTokenRevokedException.class);
+
+        verify(tokenRepository).markRefreshFailed(eq(7L), eq(READ_AT), any());
+        assertThat(tokenCache.stats().refreshFailures()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldNotCallAtlassianForATokenAlreadyRejected() {
+        tokenRepository.findBySlackTeamIdAndSlackUserId("T1", "U1").orElseThrow().setRefreshFailedAt(READ_AT);
+
+        assertThatThrownBy(() -> service.getValidAccessToken(U1)).isInstanceOf(JiraTokenRevokedException.class);
+
+        verifyNoInteractions(restTemplate);
+    }
+
+    @Test
+    void shouldFailJoinersWhenTheLoaderThrowsAnError() throws Exception {
+        CountDownLatch refreshing = new CountDownLatch(1);
+        when(restTemplate.exchange(eq("https://token"), eq(HttpMethod.POST), any(HttpEntity.class), eq(Map.class)))
+                .thenAnswer(invocation -> {
+                    refreshing.await();
+                    throw new OutOfMemoryError("test");
+                });
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> leader = pool.submit(() -> service.getValidAccessToken(U1));
+            Thread.sleep(200);
+            Future<String> joiner = pool.submit(() -> service.getValidAccessToken(U1));
+            Thread.sleep(200);
+            refreshing.countDown();
+
+            assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(OutOfMemoryError.class);
+            assertThatThrownBy(() -> joiner.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(OutOfMemoryError.class);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldServeRepeatedCallsFromCache() {
+        service.getValidAccessToken(U1);
+        String cached = service.getValidAccessToken(U1);
+
+        assertThat(cached).isEqualTo("new-access");
+        verify(tokenRepository, times(1)).findBySlackTeamIdAndSlackUserId("T1", "U1");
+        assertThat(tokenCache.stats().hits()).isEqualTo(1);
+        assertThat(tokenCache.stats().refreshes()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldShareOneRefreshBetweenConcurrentCallers() throws Exception {
+        CountDownLatch refreshing = new CountDownLatch(1);
+        when(restTemplate.exchange(eq("https://token"), eq(HttpMethod.POST), any(HttpEntity.class), eq(Map.class)))
+                .thenAnswer(invocation -> {
+                    refreshing.await();
+                    return ResponseEntity.ok(Map.of("access_token", "new-access", "refresh_token", "new-refresh", "expires_in", 1800));
+                });
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(pool.submit(() -> service.getValidAccessToken(U1)));
+            }
+            Thread.sleep(200);
+            refreshing.countDown();
+            for (Future<String> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("new-access");
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        verify(restTemplate, times(1)).exchange(eq("https://token"), eq(HttpMethod.POST), any(HttpEntity.class), eq(Map.class));
+        verify(tokenRepository, times(1)).updateRefreshedTokens(anyLong(), any(), anyString(), anyString(), any(), any());
+    }
+
+    @Test
+    void shouldDropCachedTokenWhenInvalidated() {
+        service.getValidAccessToken(U1);
+        tokenCache.invalidate(U1);
+        service.getValidAccessToken(U1);
+
+        verify(tokenRepository, times(2)).findBySlackTeamIdAndSlackUserId("T1", "U1");
+    }
+
+    @Test
+    void shouldStoreEveryAccessibleSiteAndKeepTheDefaultOnReconnect() {
+        when(stateStore.consume("state-1")).thenReturn(Optional.of(new OAuthStateStore.PendingState(U1, Instant.now().plusSeconds(60))));
+        when(restTemplate.exchange(eq("https://token"), eq(HttpMethod.POST), any(HttpEntity.class), eq(Map.class)))
+                .thenReturn(ResponseEntity.ok(Map.of("access_token", "code-access", "refresh_token", "code-refresh", "expires_in", 1800)));
+        List<JiraSiteDirectory.AccessibleResource> resources = List.of(
+                new JiraSiteDirectory.AccessibleResource("cloud-1", "https://one.atlassian.net", "One", List.of()),
+                new JiraSiteDirectory.AccessibleResource("cloud-2", "https://two.atlassian.net", "Two", List.of()));
+        when(siteDirectory.accessibleResources("code-access")).thenReturn(resources);
+        UserConnection existing = new UserConnection();
+        existing.setSlackTeamId("T1");
+        existing.setSlackUserId("U1");
+        existing.setJiraCloudId("cloud-2");
+        when(userConnectionRepository.findBySlackTeamIdAndSlackUserId("T1", "U1")).thenReturn(Optional.of(existing));
+
+        service.handleCallback("code", "state-1");
+
+        assertThat(existing.getJiraCloudId()).isEqualTo("cloud-2");
+        verify(userConnectionRepository).save(existing);
+        verify(siteDirectory).saveSites(eq(U1), eq(resources), any());
+    }
+
+    @Test
+    void shouldCallAtlassianBeforeOpeningTheTransaction() {
+        when(stateStore.consume("state-1")).thenReturn(Optional.of(new OAuthStateStore.PendingState(U1, Instant.now().plusSeconds(60))));
+        when(siteDirectory.accessibleResources("new-access")).thenReturn(List.of(
+                new JiraSiteDirectory.AccessibleResource("cloud-1", "https://one.atlassian.net", "One", List.of())));
+        when(userConnectionRepository.findBySlackTeamIdAndSlackUserId("T1", "U1")).thenReturn(Optional.empty());
+
+        service.handleCallback("code", "state-1");
+
+        InOrder order = inOrder(transactionManager, stateStore, restTemplate, siteDirectory, userConnectionRepository);
+        order.verify(stateStore).consume("state-1");
+        order.verify(restTemplate).exchange(eq("https://token"), eq(HttpMethod.POST), any(HttpEntity.class), eq(Map.class));
+        order.verify(siteDirectory).accessibleResources("new-access");
+        order.verify(transactionManager).getTransaction(any());
+        order.verify(userConnectionRepository).save(any());
+        order.verify(transactionManager).commit(any());
     }
 }
@@ -0,0 +1,93 @@
+package com.mlorenc.slack.jira.bot.service;
+
+import com.mlorenc.slack.jira.bot.config.BotProperties;
+import com.mlorenc.slack.jira.bot.config.TestBotProperties;
+import com.mlorenc.slack.jira.bot.model.SlackUser;
+import com.mlorenc.slack.jira.bot.model.UserConnection;
+import com.mlorenc.slack.jira.bot.repository.UserConnectionRepository;
+import com.mlorenc.slack.jira.bot.repository.UserJiraSiteRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@DataJpaTest
+class JiraSiteDirectoryTest {
+
+    private static final SlackUser U1 = new SlackUser("T1", "U1");
+
+    @Autowired
+    private UserConnectionRepository connections;
+
+    @Autowired
+    private UserJiraSiteRepository siteRepository;
+
+    private RestTemplate restTemplate;
+    private JiraSiteDirectory directory;
+
+    @BeforeEach
+    void setUp() {
+        restTemplate = mock(RestTemplate.class);
+        directory = new JiraSiteDirectory(restTemplate, connections, siteRepository, TestBotProperties.builder()
+                .jira(new BotProperties.Jira("client", "secret", "http://callback", "offline_access", "https://auth",
+                        "https://token", "https://resources"))
+                .jiraSites(new BotProperties.JiraSites(Duration.ofMinutes(5), 100))
+                .build());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldCacheResourcesPerToken() {
+        when(restTemplate.exchange(eq("https://resources"), eq(HttpMethod.GET), any(HttpEntity.class), any(ParameterizedTypeReference.class)))
+                .thenReturn(ResponseEntity.ok(List.of(resource("cloud-1"), resource("cloud-2"))));
+
+        assertThat(directory.accessibleResources("token-a")).extracting(JiraSiteDirectory.AccessibleResource::id)
+                .containsExactly("cloud-1", "cloud-2");
+        directory.accessibleResources("token-a");
+        directory.accessibleResources("token-b");
+
+        verify(restTemplate, times(2)).exchange(eq("https://resources"), eq(HttpMethod.GET), any(HttpEntity.class), any(ParameterizedTypeReference.class));
+        assertThat(directory.stats().hits()).isEqualTo(1);
+        assertThat(directory.stats().size()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldListDefaultSiteFirstAndReplaceSitesOnReconnect() {
+        UserConnection connection = new UserConnection();
+        connection.setSlackTeamId("T1");
+        connection.setSlackUserId("U1");
+        connection.setJiraAccountId("oauth-user");
+        connection.setJiraCloudId("cloud-2");
+        connection.setConnectedAt(Instant.now());
+        connections.save(connection);
+
+        directory.saveSites(U1, List.of(resource("cloud-1"), resource("cloud-2"), resource("cloud-3")), Instant.now());
+        assertThat(directory.sites(U1)).extracting(JiraSite::cloudId).containsExactly("cloud-2", "cloud-1", "cloud-3");
+
+        directory.saveSites(U1, List.of(resource("cloud-2"), resource("cloud-4")), Instant.now());
+        assertThat(directory.sites(U1)).extracting(JiraSite::cloudId).containsExactly("cloud-2", "cloud-4");
+        assertThat(directory.sites(new SlackUser("T1", "U2"))).isEmpty();
+        assertThat(directory.sites(new SlackUser("T2", "U1"))).isEmpty();
+    }
+
+    private static JiraSiteDirectory.AccessibleResource resource(String cloudId) {
+        return new JiraSiteDirectory.AccessibleResource(cloudId, "https://" + cloudId + ".atlassian.net", cloudId, List.of("read:jira-work"));
+    }
+}
@@ -0,0 +1,43 @@
+package com.mlorenc.slack.jira.bot.service;
+
+import com.mlorenc.slack.jira.bot.config.BotProperties;
+import com.mlorenc.slack.jira.bot.config.TestBotProperties;
+import com.mlorenc.slack.jira.bot.model.SlackUser;
+import com.mlorenc.slack.jira.bot.repository.OAuthStateRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+class JpaOAuthStateStoreTest {
+
+    @Autowired
+    private OAuthStateRepository repository;
+
+    @Test
+    void shouldDeleteExpiredStatesInChunks() {
+        JpaOAuthStateStore store = new JpaOAuthStateStore(repository, TestBotProperties.builder()
+                .oauthStates(new BotProperties.OAuthStates("jpa", Duration.ofMinutes(10), Duration.ofSeconds(1), Duration.ofMinutes(5), 2))
+                .build());
+        Instant now = Instant.now();
+        for (int i = 0; i < 5; i++) {
+            store.save("expired-" + i, new SlackUser("T1", "U" + i), now.minusSeconds(i + 1));
+        }
+        store.save("live", new SlackUser("T1", "U9"), now.plusSeconds(600));
+
+        assertThat(store.sweep(now)).isEqualTo(5);
+        assertThat(store.stats().live()).isEqualTo(1);
+
+        assertThat(repository.findAll()).singleElement().satisfies(state -> assertThat(state.getState()).isEqualTo("live"));
+        assertThat(store.consume("live")).hasValueSatisfying(state -> assertThat(state.user()).isEqualTo(new SlackUser("T1", "U9")));
+        assertThat(store.consume("live")).isEmpty();
+        store.save("next", new SlackUser("T1", "U10"), now.plusSeconds(600));
+        assertThat(store.stats().live()).isEqualTo(1);
+        store.destroy();
+    }
+}
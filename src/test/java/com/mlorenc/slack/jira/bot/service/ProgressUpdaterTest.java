@@ -0,0 +1,121 @@
+package com.mlorenc.slack.jira.bot.service;
+
+import com.mlorenc.slack.jira.bot.config.BotProperties;
+import com.mlorenc.slack.jira.bot.config.TestBotProperties;
+import com.mlorenc.slack.jira.bot.core.SlackService;
+import com.mlorenc.slack.jira.bot.model.ProjectFieldMapping;
+import com.mlorenc.slack.jira.bot.model.SlackUser;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProgressUpdaterTest {
+
+    private static final SlackUser U1 = new SlackUser("T1", "U1");
+    private static final SlackUser U2 = new SlackUser("T1", "U2");
+    // not connected
+    private static final SlackUser U3 = new SlackUser("T1", "U3");
+    // connected to several sites, one of which did not load
+    private static final SlackUser U4 = new SlackUser("T1", "U4");
+    // same user id in another workspace
+    private static final SlackUser OTHER_TEAM_U1 = new SlackUser("T2", "U1");
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private JiraClient jiraClient;
+    private SlackService slackService;
+    private ProgressUpdater updater;
+
+    @BeforeEach
+    void setUp() {
+        jiraClient = mock(JiraClient.class);
+        slackService = mock(SlackService.class);
+        ProjectMappingService mappingService = mock(ProjectMappingService.class);
+        JiraMetadataCache metadataCache = mock(JiraMetadataCache.class);
+        for (SlackUser user : new SlackUser[]{U1, U2, OTHER_TEAM_U1}) {
+            when(metadataCache.siteForProject(eq(user), anyString())).thenReturn(
+                    new JiraMetadataCache.SiteLookup(true, Optional.of(new JiraSite(user, "cloud-1"))));
+            ProjectFieldMapping mapping = new ProjectFieldMapping();
+            mapping.setProgressFieldId("customfield_10042");
+            when(mappingService.findMapping(user, "PRJ")).thenReturn(Optional.of(mapping));
+        }
+        when(metadataCache.siteForProject(eq(U3), anyString())).thenReturn(new JiraMetadataCache.SiteLookup(true, Optional.empty()));
+        when(metadataCache.siteForProject(eq(U4), anyString())).thenReturn(new JiraMetadataCache.SiteLookup(false, Optional.empty()));
+        updater = new ProgressUpdater(jiraClient, mappingService, metadataCache, slackService,
+                TestBotProperties.builder()
+                        .progressUpdates(new BotProperties.ProgressUpdates(Duration.ofMillis(100), 3, 2))
+                        .build(), registry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        updater.destroy();
+    }
+
+    @Test
+    void shouldWriteLastValueOnceAndNotifyEverySubmitter() throws Exception {
+        when(jiraClient.updateFieldAsync(any(), anyString(), anyString(), any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        assertThat(updater.submit(U1, "PRJ-1", new BigDecimal("20"), "https://hooks/1")).isEqualTo(ProgressUpdater.Result.QUEUED);
+        assertThat(updater.submit(U2, "prj-1", new BigDecimal("30"), "https://hooks/2")).isEqualTo(ProgressUpdater.Result.COALESCED);
+        assertThat(updater.submit(U1, "PRJ-1", new BigDecimal("40"), null)).isEqualTo(ProgressUpdater.Result.COALESCED);
+
+        verify(slackService, timeout(2000)).postToResponseUrl("https://hooks/2", "Updated PRJ-1 progress to 40.");
+        verify(slackService).postToResponseUrl("https://hooks/1", "Updated PRJ-1 progress to 40.");
+        verify(jiraClient, times(1)).updateFieldAsync(any(), eq("PRJ-1"), eq("customfield_10042"), eq(new BigDecimal("40")));
+        assertThat(updater.stats().written()).isEqualTo(1);
+        assertThat(updater.stats().coalescingRatio()).isEqualTo(3.0);
+        assertThat(registry.get("bot.progress.flush").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldReportFailedWriteToSubmitter() throws Exception {
+        when(jiraClient.updateFieldAsync(any(), anyString(), anyString(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new JiraApiException("cloud-1", "rest/api/3/issue/PRJ-2", 404, "")));
+
+        updater.submit(U1, "PRJ-2", BigDecimal.TEN, "https://hooks/1");
+
+        verify(slackService, timeout(2000)).postToResponseUrl("https://hooks/1", "Could not update PRJ-2 progress: the issue does not exist.");
+        assertThat(updater.stats().failed()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldRejectUnmappedAndOverflowingUpdates() {
+        assertThat(updater.submit(U3, "PRJ-1", BigDecimal.ONE, null)).isEqualTo(ProgressUpdater.Result.NOT_CONNECTED);
+        assertThat(updater.submit(U4, "PRJ-1", BigDecimal.ONE, null)).isEqualTo(ProgressUpdater.Result.SITE_UNKNOWN);
+        assertThat(updater.submit(U1, "OTHER-1", BigDecimal.ONE, null)).isEqualTo(ProgressUpdater.Result.NOT_MAPPED);
+
+        updater.submit(U1, "PRJ-1", BigDecimal.ONE, null);
+        updater.submit(U1, "PRJ-2", BigDecimal.ONE, null);
+        assertThat(updater.submit(U1, "PRJ-3", BigDecimal.ONE, null)).isEqualTo(ProgressUpdater.Result.BUSY);
+        verify(jiraClient, never()).updateFieldAsync(any(), eq("PRJ-3"), anyString(), any());
+    }
+
+    @Test
+    void shouldKeepABusyWorkspaceFromStarvingOthers() {
+        updater.submit(U1, "PRJ-1", BigDecimal.ONE, null);
+        updater.submit(U2, "PRJ-2", BigDecimal.ONE, null);
+        assertThat(updater.submit(U1, "PRJ-3", BigDecimal.ONE, null)).isEqualTo(ProgressUpdater.Result.BUSY);
+
+        // the same issue field in another workspace is its own write, within that workspace's budget
+        assertThat(updater.submit(OTHER_TEAM_U1, "PRJ-1", BigDecimal.TEN, null)).isEqualTo(ProgressUpdater.Result.QUEUED);
+        assertThat(updater.submit(OTHER_TEAM_U1, "PRJ-4", BigDecimal.TEN, null)).isEqualTo(ProgressUpdater.Result.BUSY);
+        assertThat(updater.stats().pending()).isEqualTo(3);
+    }
+}
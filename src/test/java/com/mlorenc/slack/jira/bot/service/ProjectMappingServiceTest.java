@@ -0,0 +1,128 @@
+package com.mlorenc.slack.jira.bot.service;
+
+import com.mlorenc.slack.jira.bot.config.BotProperties;
+import com.mlorenc.slack.jira.bot.config.TestBotProperties;
+import com.mlorenc.slack.jira.bot.model.ProjectFieldMapping;
+import com.mlorenc.slack.jira.bot.model.SlackUser;
+import com.mlorenc.slack.jira.bot.repository.ProjectFieldMappingRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProjectMappingServiceTest {
+
+    private static final SlackUser U1 = new SlackUser("T1", "U1");
+
+    private ProjectFieldMappingRepository repository;
+    private ProjectMappingService service;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(ProjectFieldMappingRepository.class);
+        service = new ProjectMappingService(repository, TestBotProperties.builder()
+                .mappingCache(new BotProperties.MappingCache(10, Duration.ofMinutes(10), Duration.ofSeconds(5)))
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.destroy();
+    }
+
+    @Test
+    void shouldServeRepeatedLookupsAndMissesFromCache() {
+        when(repository.findBySlackTeamIdAndSlackUserIdAndJiraProjectKey("T1", "U1", "ABC")).thenReturn(Optional.of(mapping("U1", "ABC", "customfield_1")));
+        when(repository.findBySlackTeamIdAndSlackUserIdAndJiraProjectKey("T1", "U1", "XYZ")).thenReturn(Optional.empty());
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(service.findMapping(U1, "abc")).isPresent();
+            assertThat(service.findMapping(U1, "XYZ")).isEmpty();
+        }
+
+        verify(repository, times(1)).findBySlackTeamIdAndSlackUserIdAndJiraProjectKey("T1", "U1", "ABC");
+        verify(repository, times(1)).findBySlackTeamIdAndSlackUserIdAndJiraProjectKey("T1", "U1", "XYZ");
+        assertThat(service.stats().hits()).isEqualTo(2);
+        assertThat(service.stats().negativeHits()).isEqualTo(2);
+        assertThat(service.stats().hitRate()).isEqualTo(4 / 6.0);
+    }
+
+    @Test
+    void shouldInvalidateCachedMissOnSave() {
+        when(repository.findBySlackTeamIdAndSlackUserIdAndJiraProjectKey("T1", "U1", "ABC"))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(mapping("U1", "ABC", "customfield_2")));
+
+        assertThat(service.findMapping(U1, "ABC")).isEmpty();
+        service.saveMapping(U1, "abc", "customfield_2");
+
+        verify(repository).upsert(eq("T1"), eq("U1"), eq("ABC"), eq("customfield_2"), any());
+        assertThat(service.findMapping(U1, "ABC")).hasValueSatisfying(m -> assertThat(m.getProgressFieldId()).isEqualTo("customfield_2"));
+        assertThat(service.stats().invalidations()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldPickUpChangesFromOtherInstancesByPolling() {
+        when(repository.findBySlackTeamIdAndSlackUserIdAndJiraProjectKey("T1", "U1", "ABC"))
+                .thenReturn(Optional.of(mapping("U1", "ABC", "customfield_1")))
+                .thenReturn(Optional.of(mapping("U1", "ABC", "customfield_9")));
+        assertThat(service.findMapping(U1, "ABC")).hasValueSatisfying(m -> assertThat(m.getProgressFieldId()).isEqualTo("customfield_1"));
+
+        ProjectFieldMapping changed = mapping("U1", "ABC", "customfield_9");
+        changed.setUpdatedAt(Instant.now());
+        when(repository.findByUpdatedAtAfter(any())).thenReturn(List.of(changed));
+
+        assertThat(service.pollChanges()).isEqualTo(1);
+        assertThat(service.findMapping(U1, "ABC")).hasValueSatisfying(m -> assertThat(m.getProgressFieldId()).isEqualTo("customfield_9"));
+    }
+
+    @Test
+    void shouldNotInvalidateAgainForRowsAlreadyPolled() {
+        when(repository.findBySlackTeamIdAndSlackUserIdAndJiraProjectKey("T1", "U1", "ABC"))
+                .thenReturn(Optional.of(mapping("U1", "ABC", "customfield_1")));
+        ProjectFieldMapping changed = mapping("U1", "ABC", "customfield_1");
+        changed.setUpdatedAt(Instant.now());
+        when(repository.findByUpdatedAtAfter(any())).thenReturn(List.of(changed));
+
+        assertThat(service.pollChanges()).isEqualTo(1);
+        service.findMapping(U1, "ABC");
+        assertThat(service.pollChanges()).isZero();
+        service.findMapping(U1, "ABC");
+
+        verify(repository, times(1)).findBySlackTeamIdAndSlackUserIdAndJiraProjectKey("T1", "U1", "ABC");
+        assertThat(service.stats().hits()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldStayWithinSizeBudget() {
+        when(repository.findBySlackTeamIdAndSlackUserIdAndJiraProjectKey(any(), any(), any())).thenReturn(Optional.empty());
+
+        for (int i = 0; i < 25; i++) {
+            service.findMapping(new SlackUser("T1", "U" + i), "ABC");
+        }
+
+        assertThat(service.stats().size()).isLessThanOrEqualTo(10);
+        assertThat(service.stats().evictions()).isPositive();
+    }
+
+    private static ProjectFieldMapping mapping(String user, String project, String field) {
+        ProjectFieldMapping mapping = new ProjectFieldMapping();
+        mapping.setSlackTeamId("T1");
+        mapping.setSlackUserId(user);
+        mapping.setJiraProjectKey(project);
+        mapping.setProgressFieldId(field);
+        return mapping;
+    }
+}
@@ -0,0 +1,140 @@
+package com.mlorenc.slack.jira.bot.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mlorenc.slack.jira.bot.config.BotProperties;
+import com.mlorenc.slack.jira.bot.config.TestBotProperties;
+import com.mlorenc.slack.jira.bot.model.SlackInstallation;
+import com.mlorenc.slack.jira.bot.repository.SlackInstallationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpEntity;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class SlackInstallationStoreTest {
+
+    private final ObjectMapper om = new ObjectMapper();
+    private SlackInstallationRepository repository;
+    private RestTemplate restTemplate;
+    private TokenEncryptionService encryptionService;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(SlackInstallationRepository.class);
+        restTemplate = mock(RestTemplate.class);
+        when(repository.findById(anyString())).thenReturn(Optional.empty());
+    }
+
+    @Test
+    void shouldCacheTheInstalledTokenPerWorkspace() {
+        SlackInstallationStore store = store("fallback");
+        when(repository.findById("T1")).thenReturn(Optional.of(installation("T1", "xoxb-t1")));
+
+        assertThat(store.botToken("T1")).isEqualTo("xoxb-t1");
+        assertThat(store.botToken("T1")).isEqualTo("xoxb-t1");
+
+        verify(repository, times(1)).findById("T1");
+        assertThat(store.stats().hits()).isEqualTo(1);
+        assertThat(store.stats().misses()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldFallBackToTheConfiguredTokenForWorkspacesWithoutAnInstallation() {
+        SlackInstallationStore store = store("fallback");
+
+        assertThat(store.botToken("T2")).isEqualTo("fallback");
+        assertThat(store.botToken(null)).isEqualTo("fallback");
+        assertThatThrownBy(() -> store("").botToken("T2"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("T2");
+    }
+
+    @Test
+    void shouldExchangeTheCodeAndServeTheNewTokenImmediately() throws Exception {
+        SlackInstallationStore store = store("");
+        assertThatThrownBy(() -> store.botToken("T1")).isInstanceOf(IllegalStateException.class);
+        when(restTemplate.postForObject(eq("https://slack.test/api/oauth.v2.access"), any(HttpEntity.class), eq(JsonNode.class)))
+                .thenReturn(om.readTree("{\"ok\":true,\"access_token\":\"xoxb-new\",\"bot_user_id\":\"B1\",\"team\":{\"id\":\"T1\"}}"));
+        ArgumentCaptor<SlackInstallation> saved = ArgumentCaptor.forClass(SlackInstallation.class);
+        when(repository.save(saved.capture())).thenAnswer(invocation -> {
+            when(repository.findById("T1")).thenReturn(Optional.of(saved.getValue()));
+            return saved.getValue();
+        });
+
+        assertThat(store.install("code-1")).isEqualTo("T1");
+
+        assertThat(saved.getValue().getEncryptedBotToken()).isNotEqualTo("xoxb-new");
+        assertThat(saved.getValue().getBotUserId()).isEqualTo("B1");
+        assertThat(store.botToken("T1")).isEqualTo("xoxb-new");
+        assertThat(store.stats().installs()).isEqualTo(1);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<HttpEntity<MultiValueMap<String, String>>> request = ArgumentCaptor.forClass(HttpEntity.class);
+        verify(restTemplate).postForObject(anyString(), request.capture(), eq(JsonNode.class));
+        assertThat(request.getValue().getBody().getFirst("code")).isEqualTo("code-1");
+        assertThat(request.getValue().getBody().getFirst("client_id")).isEqualTo("client");
+    }
+
+    @Test
+    void shouldCountRejectedInstalls() throws Exception {
+        SlackInstallationStore store = store("");
+        when(restTemplate.postForObject(anyString(), any(HttpEntity.class), eq(JsonNode.class)))
+                .thenReturn(om.readTree("{\"ok\":false,\"error\":\"invalid_code\"}"));
+
+        assertThatThrownBy(() -> store.install("bad"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("invalid_code");
+        verify(repository, never()).save(any());
+        assertThat(store.stats().installFailures()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldEvictOldestWorkspacesOverBudget() {
+        SlackInstallationStore store = store("fallback");
+        for (int i = 0; i < 11; i++) {
+            store.botToken("T" + i);
+        }
+
+        assertThat(store.stats().size()).isEqualTo(9);
+        assertThat(store.stats().evictions()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldBuildTheAddToSlackUrl() {
+        assertThat(store("").authorizationUrl("s-1")).isEqualTo("https://slack.test/oauth/v2/authorize?client_id=client"
+                + "&scope=commands%2Cchat%3Awrite&redirect_uri=http%3A%2F%2Flocalhost%2Fslack%2Foauth%2Fcallback&state=s-1");
+    }
+
+    private SlackInstallationStore store(String fallbackToken) {
+        BotProperties properties = TestBotProperties.builder()
+                .slack(new BotProperties.Slack(fallbackToken, "secret", "client", "client-secret",
+                        "http://localhost/slack/oauth/callback", "commands,chat:write",
+                        "https://slack.test/oauth/v2/authorize"))
+                .security(new BotProperties.Security("MDEyMzQ1Njc4OWFiY2RlZjAxMjM0NTY3ODlhYmNkZWY=", null, null))
+                .slackApi(new BotProperties.SlackApi("https://slack.test/api", Duration.ofSeconds(1),
+                        Duration.ofSeconds(1), 1))
+                .installations(new BotProperties.Installations(Duration.ofMinutes(10), 10))
+                .build();
+        encryptionService = new TokenEncryptionService(properties);
+        return new SlackInstallationStore(repository, encryptionService, restTemplate, properties);
+    }
+
+    private SlackInstallation installation(String teamId, String botToken) {
+        SlackInstallation installation = new SlackInstallation();
+        installation.setTeamId(teamId);
+        installation.setEncryptedBotToken(encryptionService.encrypt(botToken));
+        installation.setInstalledAt(Instant.now());
+        return installation;
+    }
+}
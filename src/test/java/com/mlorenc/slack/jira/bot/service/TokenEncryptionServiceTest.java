@@ -1,22 +1,130 @@
 package com.mlorenc.slack.jira.bot.service;
 
 import com.mlorenc.slack.jira.bot.config.BotProperties;
+import com.mlorenc.slack.jira.bot.config.TestBotProperties;
 import org.junit.jupiter.api.Test;
 
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 class TokenEncryptionServiceTest {
 
+    private static final String LEGACY_KEY = "MDEyMzQ1Njc4OWFiY2RlZjAxMjM0NTY3ODlhYmNkZWY=";
+    private static final String NEW_KEY = "ZmVkY2JhOTg3NjU0MzIxMGZlZGNiYTk4NzY1NDMyMTA=";
+
+    private final TokenEncryptionService service = service(LEGACY_KEY, null, null);
+
     @Test
     void shouldEncryptAndDecryptToken() {
-        BotProperties props = new BotProperties(null, null,
-                new BotProperties.Security("MDEyMzQ1Njc4OWFiY2RlZjAxMjM0NTY3ODlhYmNkZWY="));
-        TokenEncryptionService service = new TokenEncryptionService(props);
-
         String encrypted = service.encrypt("secret-token");
         String decrypted = service.decrypt(encrypted);
 
-        assertThat(encrypted).isNotEqualTo("secret-token");
+        assertThat(encrypted).isNotEqualTo("secret-token").startsWith("v1:default:");
         assertThat(decrypted).isEqualTo("secret-token");
     }
+
+    @Test
+    void shouldDecryptUnversionedCiphertext() throws Exception {
+        // format written before key ids were added: base64(iv || ciphertext) under encryptionKey
+        byte[] iv = new byte[12];
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(Base64.getDecoder().decode(LEGACY_KEY), "AES"),
+                new GCMParameterSpec(128, iv));
+        byte[] ciphertext = cipher.doFinal("old-token".getBytes(StandardCharsets.UTF_8));
+        byte[] combined = new byte[iv.length + ciphertext.length];
+        System.arraycopy(ciphertext, 0, combined, iv.length, ciphertext.length);
+        String legacy = Base64.getEncoder().encodeToString(combined);
+
+        assertThat(service.decrypt(legacy)).isEqualTo("old-token");
+        assertThat(service.isCurrent(legacy)).isFalse();
+        assertThat(service.reencrypt(legacy)).startsWith("v1:default:");
+    }
+
+    @Test
+    void shouldDecryptWithOldKeyAfterRotation() {
+        String beforeRotation = service.encrypt("secret-token");
+        TokenEncryptionService rotated = service(LEGACY_KEY, "k2", Map.of("k2", NEW_KEY));
+
+        String reencrypted = rotated.reencrypt(beforeRotation);
+
+        assertThat(rotated.decrypt(beforeRotation)).isEqualTo("secret-token");
+        assertThat(rotated.isCurrent(beforeRotation)).isFalse();
+        assertThat(reencrypted).startsWith("v1:k2:");
+        assertThat(rotated.isCurrent(reencrypted)).isTrue();
+        assertThat(rotated.reencrypt(reencrypted)).isSameAs(reencrypted);
+        assertThat(rotated.decrypt(reencrypted)).isEqualTo("secret-token");
+        assertThatThrownBy(() -> service.decrypt(reencrypted))
+                .isInstanceOf(IllegalStateException.class)
+                .hasRootCauseMessage("Unknown encryption key 'k2'");
+    }
+
+    @Test
+    void shouldRequireActiveKeyInKeyring() {
+        assertThatThrownBy(() -> service(LEGACY_KEY, "missing", Map.of("k2", NEW_KEY)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("missing");
+        assertThatThrownBy(() -> service(null, "a:b", Map.of("a:b", NEW_KEY)))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void shouldUseFreshIvForEveryEncryption() {
+        assertThat(service.encrypt("secret-token")).isNotEqualTo(service.encrypt("secret-token"));
+    }
+
+    @Test
+    void shouldEncryptAndDecryptBatchInOrder() {
+        List<String> plaintexts = List.of("a", "", "żółw-token", "x".repeat(4096));
+
+        List<String> encrypted = service.encryptAll(plaintexts);
+
+        assertThat(encrypted).hasSize(4).doesNotHaveDuplicates();
+        assertThat(service.decryptAll(encrypted)).containsExactlyElementsOf(plaintexts);
+        assertThat(service.decrypt(encrypted.get(2))).isEqualTo("żółw-token");
+    }
+
+    @Test
+    void shouldRejectTamperedCiphertextAndKeepWorking() {
+        String encrypted = service.encrypt("secret-token");
+        byte[] combined = Base64.getDecoder().decode(encrypted.substring("v1:default:".length()));
+        combined[combined.length - 1] ^= 1;
+
+        assertThatThrownBy(() -> service.decrypt("v1:default:" + Base64.getEncoder().encodeToString(combined)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Unable to decrypt token");
+        // the cached cipher must be usable after a failed tag check
+        assertThat(service.decrypt(service.encrypt("next"))).isEqualTo("next");
+    }
+
+    @Test
+    void shouldBeSafeToUseFromManyThreads() throws Exception {
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                String token = "token-" + i;
+                results.add(executor.submit(() -> service.decrypt(service.encrypt(token))));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                assertThat(results.get(i).get()).isEqualTo("token-" + i);
+            }
+        }
+    }
+
+    private static TokenEncryptionService service(String encryptionKey, String activeKeyId, Map<String, String> keys) {
+        return new TokenEncryptionService(TestBotProperties.builder()
+                .security(new BotProperties.Security(encryptionKey, activeKeyId, keys))
+                .build());
+    }
 }
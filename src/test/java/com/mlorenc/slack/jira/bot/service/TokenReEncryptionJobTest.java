@@ -0,0 +1,136 @@
+package com.mlorenc.slack.jira.bot.service;
+
+import com.mlorenc.slack.jira.bot.config.BotProperties;
+import com.mlorenc.slack.jira.bot.config.TestBotProperties;
+import com.mlorenc.slack.jira.bot.model.JiraOAuthToken;
+import com.mlorenc.slack.jira.bot.model.SlackInstallation;
+import com.mlorenc.slack.jira.bot.repository.JiraOAuthTokenRepository;
+import com.mlorenc.slack.jira.bot.repository.SlackInstallationRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class TokenReEncryptionJobTest {
+
+    private static final String OLD_KEY = "MDEyMzQ1Njc4OWFiY2RlZjAxMjM0NTY3ODlhYmNkZWY=";
+    private static final String NEW_KEY = "ZmVkY2JhOTg3NjU0MzIxMGZlZGNiYTk4NzY1NDMyMTA=";
+
+    private JiraOAuthTokenRepository tokenRepository;
+    private SlackInstallationRepository installationRepository;
+    private PlatformTransactionManager transactionManager;
+    private TokenEncryptionService oldService;
+    private TokenEncryptionService newService;
+    private TokenReEncryptionJob job;
+
+    @BeforeEach
+    void setUp() {
+        oldService = encryption(null);
+        newService = encryption("k2");
+        tokenRepository = mock(JiraOAuthTokenRepository.class);
+        installationRepository = mock(SlackInstallationRepository.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        BotProperties properties = TestBotProperties.builder()
+                .keyRotation(new BotProperties.KeyRotation(true, 2, Duration.ofMillis(1)))
+                .build();
+        job = new TokenReEncryptionJob(tokenRepository, installationRepository, newService, transactionManager, properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        job.destroy();
+    }
+
+    @Test
+    void shouldRewriteOldCiphertextsInBatchesAndCountConflicts() {
+        Instant updatedAt = Instant.parse("2026-01-01T00:00:00Z");
+        JiraOAuthToken first = token(1L, oldService.encrypt("a1"), oldService.encrypt("r1"), updatedAt);
+        JiraOAuthToken current = token(2L, newService.encrypt("a2"), newService.encrypt("r2"), updatedAt);
+        JiraOAuthToken refreshed = token(3L, oldService.encrypt("a3"), oldService.encrypt("r3"), updatedAt);
+        when(tokenRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any())).thenReturn(List.of(first, current));
+        when(tokenRepository.findByIdGreaterThanOrderByIdAsc(eq(2L), any())).thenReturn(List.of(refreshed));
+        when(tokenRepository.updateCiphertexts(eq(1L), eq(updatedAt), anyString(), anyString())).thenReturn(1);
+        // row 3 was refreshed after it was read, so the conditional update matches nothing
+        when(tokenRepository.updateCiphertexts(eq(3L), eq(updatedAt), anyString(), anyString())).thenReturn(0);
+
+        TokenReEncryptionJob.Progress progress = job.run();
+
+        assertThat(progress.scanned()).isEqualTo(3);
+        assertThat(progress.rewritten()).isEqualTo(1);
+        assertThat(progress.conflicts()).isEqualTo(1);
+        assertThat(progress.failed()).isZero();
+        assertThat(progress.finishedAt()).isNotNull();
+        verify(tokenRepository, never()).updateCiphertexts(eq(2L), any(), any(), any());
+        verify(tokenRepository).updateCiphertexts(eq(1L), eq(updatedAt),
+                argThat(value -> value.startsWith("v1:k2:") && newService.decrypt(value).equals("a1")),
+                argThat(value -> value.startsWith("v1:k2:") && newService.decrypt(value).equals("r1")));
+        verify(transactionManager, times(2)).commit(any());
+    }
+
+    @Test
+    void shouldCountRowsItCannotDecrypt() {
+        Instant updatedAt = Instant.now();
+        when(tokenRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any()))
+                .thenReturn(List.of(token(1L, "v1:gone:AAAA", "v1:gone:AAAA", updatedAt)));
+
+        TokenReEncryptionJob.Progress progress = job.run();
+
+        assertThat(progress.scanned()).isEqualTo(1);
+        assertThat(progress.failed()).isEqualTo(1);
+        verify(tokenRepository, never()).updateCiphertexts(anyLong(), any(), any(), any());
+    }
+
+    @Test
+    void shouldRewriteSlackBotTokensAfterJiraTokens() {
+        Instant installedAt = Instant.parse("2026-01-01T00:00:00Z");
+        SlackInstallation stale = installation("T1", oldService.encrypt("xoxb-1"), installedAt);
+        SlackInstallation reinstalled = installation("T2", oldService.encrypt("xoxb-2"), installedAt);
+        SlackInstallation current = installation("T3", newService.encrypt("xoxb-3"), installedAt);
+        when(installationRepository.findAll()).thenReturn(List.of(stale, reinstalled, current));
+        when(installationRepository.updateCiphertext(eq("T1"), eq(installedAt), anyString())).thenReturn(1);
+
+        TokenReEncryptionJob.Progress progress = job.run();
+
+        assertThat(progress.scanned()).isEqualTo(3);
+        assertThat(progress.rewritten()).isEqualTo(1);
+        assertThat(progress.conflicts()).isEqualTo(1);
+        verify(installationRepository).updateCiphertext(eq("T1"), eq(installedAt),
+                argThat(value -> value.startsWith("v1:k2:") && newService.decrypt(value).equals("xoxb-1")));
+        verify(installationRepository, never()).updateCiphertext(eq("T3"), any(), any());
+    }
+
+    private static TokenEncryptionService encryption(String activeKeyId) {
+        return new TokenEncryptionService(TestBotProperties.builder()
+                .security(new BotProperties.Security(OLD_KEY, activeKeyId, Map.of("k2", NEW_KEY)))
+                .build());
+    }
+
+    private static JiraOAuthToken token(long id, String accessToken, String refreshToken, Instant updatedAt) {
+        JiraOAuthToken token = new JiraOAuthToken();
+        ReflectionTestUtils.setField(token, "id", id);
+        token.setSlackTeamId("T1");
+        token.setSlackUserId("U" + id);
+        token.setEncryptedAccessToken(accessToken);
+        token.setEncryptedRefreshToken(refreshToken);
+        token.setUpdatedAt(updatedAt);
+        return token;
+    }
+
+    private static SlackInstallation installation(String teamId, String botToken, Instant installedAt) {
+        SlackInstallation installation = new SlackInstallation();
+        installation.setTeamId(teamId);
+        installation.setEncryptedBotToken(botToken);
+        installation.setInstalledAt(installedAt);
+        return installation;
+    }
+}
@@ -0,0 +1,94 @@
+package com.mlorenc.slack.jira.bot.service;
+
+import com.mlorenc.slack.jira.bot.config.BotProperties;
+import com.mlorenc.slack.jira.bot.config.TestBotProperties;
+import com.mlorenc.slack.jira.bot.model.JiraOAuthToken;
+import com.mlorenc.slack.jira.bot.model.SlackUser;
+import com.mlorenc.slack.jira.bot.repository.JiraOAuthTokenRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class TokenRefreshSchedulerTest {
+
+    private JiraOAuthTokenRepository tokenRepository;
+    private JiraOAuthService jiraOAuthService;
+    private TokenRefreshScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        BotProperties properties = TestBotProperties.builder()
+                .tokenRefresh(new BotProperties.TokenRefresh(true, Duration.ofMinutes(1), Duration.ZERO,
+                        Duration.ofMinutes(10), 2, 2, 2, Duration.ofMillis(1)))
+                .build();
+        tokenRepository = mock(JiraOAuthTokenRepository.class);
+        jiraOAuthService = mock(JiraOAuthService.class);
+        scheduler = new TokenRefreshScheduler(tokenRepository, jiraOAuthService, properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.destroy();
+    }
+
+    @Test
+    void shouldRefreshExpiringTokensPageByPageWithRetries() {
+        Instant now = Instant.now();
+        JiraOAuthToken first = token(1L, "U1", now.plusSeconds(60));
+        JiraOAuthToken second = token(2L, "U2", now.plusSeconds(120));
+        JiraOAuthToken third = token(3L, "U3", now.plusSeconds(300));
+        when(tokenRepository.findExpiringBefore(any(), eq(Instant.EPOCH), eq(0L), any())).thenReturn(List.of(first, second));
+        when(tokenRepository.findExpiringBefore(any(), eq(second.getExpiresAt()), eq(2L), any())).thenReturn(List.of(third));
+        doThrow(new ResourceAccessException("temporary")).doNothing().when(jiraOAuthService).refreshIfExpiring(eq(new SlackUser("T1", "U2")), any());
+        doThrow(HttpServerErrorException.create(HttpStatus.BAD_GATEWAY, "down", HttpHeaders.EMPTY, null, null))
+                .when(jiraOAuthService).refreshIfExpiring(eq(new SlackUser("T1", "U3")), any());
+
+        TokenRefreshScheduler.RunStats stats = scheduler.runOnce();
+
+        assertThat(stats.scanned()).isEqualTo(3);
+        assertThat(stats.refreshed()).isEqualTo(2);
+        assertThat(stats.failed()).isEqualTo(1);
+        assertThat(stats.maxLagMillis()).isPositive();
+        verify(jiraOAuthService, times(2)).refreshIfExpiring(eq(new SlackUser("T1", "U2")), any());
+        verify(jiraOAuthService, times(2)).refreshIfExpiring(eq(new SlackUser("T1", "U3")), any());
+        assertThat(scheduler.totals().refreshed()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldNotRetryRejectedOrInvalidRefreshes() {
+        Instant now = Instant.now();
+        when(tokenRepository.findExpiringBefore(any(), eq(Instant.EPOCH), eq(0L), any()))
+                .thenReturn(List.of(token(1L, "U1", now.plusSeconds(60)), token(2L, "U2", now.plusSeconds(120))));
+        SlackUser revoked = new SlackUser("T1", "U1");
+        doThrow(new JiraTokenRevokedException(revoked, 400, null)).when(jiraOAuthService).refreshIfExpiring(eq(revoked), any());
+        doThrow(new IllegalStateException("Invalid token response")).when(jiraOAuthService).refreshIfExpiring(eq(new SlackUser("T1", "U2")), any());
+
+        TokenRefreshScheduler.RunStats stats = scheduler.runOnce();
+
+        assertThat(stats.failed()).isEqualTo(2);
+        verify(jiraOAuthService, times(1)).refreshIfExpiring(eq(revoked), any());
+        verify(jiraOAuthService, times(1)).refreshIfExpiring(eq(new SlackUser("T1", "U2")), any());
+    }
+
+    private static JiraOAuthToken token(long id, String slackUserId, Instant expiresAt) {
+        JiraOAuthToken token = new JiraOAuthToken();
+        ReflectionTestUtils.setField(token, "id", id);
+        token.setSlackTeamId("T1");
+        token.setSlackUserId(slackUserId);
+        token.setExpiresAt(expiresAt);
+        return token;
+    }
+}